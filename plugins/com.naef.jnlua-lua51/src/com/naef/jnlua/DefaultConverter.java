@@ -291,8 +291,8 @@ public class DefaultConverter implements Converter {
 			}
 			break;
 		case TABLE:
-			if (formalType == Map.class || formalType == List.class
-					|| formalType.isArray()) {
+			if (formalType == Map.class || formalType == HashMap.class
+					|| formalType == List.class || formalType.isArray()) {
 				return 1;
 			}
 			if (formalType == Object.class) {
@@ -388,6 +388,9 @@ public class DefaultConverter implements Converter {
 			}
 			break;
 		case TABLE:
+			if (formalType == HashMap.class) {
+				return (T) luaState.toMap(index);
+			}
 			if (formalType == Map.class || formalType == Object.class) {
 				final LuaValueProxy luaValueProxy = luaState.getProxy(index);
 				return (T) new AbstractTableMap<Object>() {
@@ -422,6 +425,20 @@ public class DefaultConverter implements Converter {
 				};
 			}
 			if (formalType.isArray()) {
+				// Convert numbers and strings in bulk
+				try {
+					if (formalType == double[].class) {
+						return (T) luaState.toDoubleArray(index);
+					}
+					if (formalType == int[].class) {
+						return (T) luaState.toIntArray(index);
+					}
+					if (formalType == String[].class) {
+						return (T) luaState.toStringArray(index);
+					}
+				} catch (ClassCastException e) {
+					// Other elements are converted one by one below
+				}
 				int length = luaState.length(index);
 				Class<?> componentType = formalType.getComponentType();
 				Object array = Array.newInstance(formalType.getComponentType(),
@@ -25,7 +25,9 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import com.naef.jnlua.JavaReflector.Metamethod;
@@ -52,7 +54,8 @@ import com.naef.jnlua.JavaReflector.Metamethod;
  * <tr>
  * <td>{@link java.lang.IllegalStateException}</td>
  * <td>if the Lua state is closed and the API does not explicitly specify that
- * the method may be invoked on a closed Lua state</td>
+ * the method may be invoked on a closed Lua state, or if the Lua state is
+ * confined to another thread</td>
  * </tr>
  * <tr>
  * <td>{@link java.lang.IllegalArgumentException}</td>
@@ -176,6 +179,12 @@ public class LuaState {
 	 */
 	private ReferenceQueue<LuaValueProxyImpl> proxyQueue = new ReferenceQueue<LuaValueProxyImpl>();
 
+	/**
+	 * The thread this Lua state is confined to, or <code>null</code> if it may
+	 * be used by any thread.
+	 */
+	private volatile Thread owner;
+
 	// -- Construction
 	/**
 	 * Creates a new instance. The class loader of this Lua state is set to the
@@ -353,6 +362,53 @@ public class LuaState {
 		this.converter = converter;
 	}
 
+	/**
+	 * Returns whether this Lua state is confined to a thread.
+	 * 
+	 * <p>
+	 * The method may be invoked on a closed Lua state.
+	 * </p>
+	 * 
+	 * @return whether this Lua state is confined
+	 * @see #setConfined(boolean)
+	 */
+	public boolean isConfined() {
+		return owner != null;
+	}
+
+	/**
+	 * Confines this Lua state to the calling thread, or releases it.
+	 * 
+	 * <p>
+	 * Only the thread which confined a Lua state may use it, and release it.
+	 * Stack and argument methods of a confined Lua state do not synchronize on
+	 * it, and Lua value proxies collected meanwhile are released only on
+	 * {@link #call(int, int)}, {@link #gc(GcAction, int)} and when the Lua
+	 * state is released, rather than on each method invocation. This makes
+	 * pushing and checking values cheaper for a Lua state used by a single
+	 * thread at a time.
+	 * </p>
+	 * 
+	 * <p>
+	 * The method may be invoked on a closed Lua state.
+	 * </p>
+	 * 
+	 * @param confined
+	 *            whether this Lua state is confined to the calling thread
+	 * @throws IllegalStateException
+	 *             if the Lua state is confined to another thread
+	 */
+	public synchronized void setConfined(boolean confined) {
+		if (owner != null && owner != Thread.currentThread()) {
+			throw new IllegalStateException(
+					"Lua state is confined to another thread");
+		}
+		owner = confined ? Thread.currentThread() : null;
+		if (!confined && isOpenInternal()) {
+			releaseProxies();
+		}
+	}
+
 	/**
 	 * Returns whether this Lua state is open.
 	 * 
@@ -392,6 +448,7 @@ public class LuaState {
 	 */
 	public synchronized int gc(GcAction what, int data) {
 		check();
+		releaseConfinedProxies();
 		return lua_gc(what.ordinal(), data);
 	}
 
@@ -552,6 +609,7 @@ public class LuaState {
 	 */
 	public synchronized void call(int argCount, int returnCount) {
 		check();
+		releaseConfinedProxies();
 		lua_pcall(argCount, returnCount);
 	}
 
@@ -562,9 +620,16 @@ public class LuaState {
 	 * @param name
 	 *            the global variable name
 	 */
-	public synchronized void getGlobal(String name) {
-		check();
-		lua_getglobal(name);
+	public void getGlobal(String name) {
+		if (owner != null) {
+			checkConfined();
+			lua_getglobal(name);
+		} else {
+			synchronized (this) {
+				check();
+				lua_getglobal(name);
+			}
+		}
 	}
 
 	/**
@@ -574,10 +639,17 @@ public class LuaState {
 	 * @param name
 	 *            the global variable name
 	 */
-	public synchronized void setGlobal(String name)
+	public void setGlobal(String name)
 			throws LuaMemoryAllocationException, LuaRuntimeException {
-		check();
-		lua_setglobal(name);
+		if (owner != null) {
+			checkConfined();
+			lua_setglobal(name);
+		} else {
+			synchronized (this) {
+				check();
+				lua_setglobal(name);
+			}
+		}
 	}
 
 	// -- Stack push
@@ -587,9 +659,16 @@ public class LuaState {
 	 * @param b
 	 *            the boolean value to push
 	 */
-	public synchronized void pushBoolean(boolean b) {
-		check();
-		lua_pushboolean(b ? 1 : 0);
+	public void pushBoolean(boolean b) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushboolean(b ? 1 : 0);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushboolean(b ? 1 : 0);
+			}
+		}
 	}
 
 	/**
@@ -598,9 +677,16 @@ public class LuaState {
 	 * @param n
 	 *            the integer value to push
 	 */
-	public synchronized void pushInteger(int n) {
-		check();
-		lua_pushinteger(n);
+	public void pushInteger(int n) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushinteger(n);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushinteger(n);
+			}
+		}
 	}
 
 	/**
@@ -609,9 +695,16 @@ public class LuaState {
 	 * @param javaFunction
 	 *            the function to push
 	 */
-	public synchronized void pushJavaFunction(JavaFunction javaFunction) {
-		check();
-		lua_pushjavafunction(javaFunction);
+	public void pushJavaFunction(JavaFunction javaFunction) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushjavafunction(javaFunction);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushjavafunction(javaFunction);
+			}
+		}
 	}
 
 	/**
@@ -633,9 +726,16 @@ public class LuaState {
 	 *            the Java object
 	 * @see #pushJavaObject(Object)
 	 */
-	public synchronized void pushJavaObjectRaw(Object object) {
-		check();
-		lua_pushjavaobject(object);
+	public void pushJavaObjectRaw(Object object) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushjavaobject(object);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushjavaobject(object);
+			}
+		}
 	}
 
 	/**
@@ -647,17 +747,31 @@ public class LuaState {
 	 * @see #getConverter()
 	 * @see #setConverter(Converter)
 	 */
-	public synchronized void pushJavaObject(Object object) {
-		check();
-		getConverter().convertJavaObject(this, object);
+	public void pushJavaObject(Object object) {
+		if (owner != null) {
+			checkConfined();
+			getConverter().convertJavaObject(this, object);
+		} else {
+			synchronized (this) {
+				check();
+				getConverter().convertJavaObject(this, object);
+			}
+		}
 	}
 
 	/**
 	 * Pushes a nil value on the stack.
 	 */
-	public synchronized void pushNil() {
-		check();
-		lua_pushnil();
+	public void pushNil() {
+		if (owner != null) {
+			checkConfined();
+			lua_pushnil();
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushnil();
+			}
+		}
 	}
 
 	/**
@@ -666,9 +780,16 @@ public class LuaState {
 	 * @param n
 	 *            the number to push
 	 */
-	public synchronized void pushNumber(double n) {
-		check();
-		lua_pushnumber(n);
+	public void pushNumber(double n) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushnumber(n);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushnumber(n);
+			}
+		}
 	}
 
 	/**
@@ -677,9 +798,16 @@ public class LuaState {
 	 * @param s
 	 *            the string value to push
 	 */
-	public synchronized void pushString(String s) {
-		check();
-		lua_pushstring(s);
+	public void pushString(String s) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushstring(s);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushstring(s);
+			}
+		}
 	}
 
 	// -- Stack type test
@@ -694,9 +822,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a boolean
 	 */
-	public synchronized boolean isBoolean(int index) {
-		check();
-		return lua_isboolean(index) != 0;
+	public boolean isBoolean(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isboolean(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isboolean(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -710,9 +845,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a function
 	 */
-	public synchronized boolean isCFunction(int index) {
-		check();
-		return lua_iscfunction(index) != 0;
+	public boolean isCFunction(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_iscfunction(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_iscfunction(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -727,9 +869,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a function
 	 */
-	public synchronized boolean isFunction(int index) {
-		check();
-		return lua_isfunction(index) != 0;
+	public boolean isFunction(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isfunction(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isfunction(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -744,9 +893,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a function
 	 */
-	public synchronized boolean isJavaFunction(int index) {
-		check();
-		return lua_isjavafunction(index) != 0;
+	public boolean isJavaFunction(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isjavafunction(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isjavafunction(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -768,9 +924,16 @@ public class LuaState {
 	 * @return whether the value is a Java object
 	 * @see #isJavaObject(int, Class)
 	 */
-	public synchronized boolean isJavaObjectRaw(int index) {
-		check();
-		return lua_isjavaobject(index) != 0;
+	public boolean isJavaObjectRaw(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isjavaobject(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isjavaobject(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -789,9 +952,16 @@ public class LuaState {
 	 * @see #setConverter(Converter)
 	 * @see #getConverter()
 	 */
-	public synchronized boolean isJavaObject(int index, Class<?> type) {
-		check();
-		return converter.getTypeDistance(this, index, type) != Integer.MAX_VALUE;
+	public boolean isJavaObject(int index, Class<?> type) {
+		if (owner != null) {
+			checkConfined();
+			return converter.getTypeDistance(this, index, type) != Integer.MAX_VALUE;
+		} else {
+			synchronized (this) {
+				check();
+				return converter.getTypeDistance(this, index, type) != Integer.MAX_VALUE;
+			}
+		}
 	}
 
 	/**
@@ -806,9 +976,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is <code>nil</code>
 	 */
-	public synchronized boolean isNil(int index) {
-		check();
-		return lua_isnil(index) != 0;
+	public boolean isNil(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isnil(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isnil(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -822,9 +999,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is undefined
 	 */
-	public synchronized boolean isNone(int index) {
-		check();
-		return lua_isnone(index) != 0;
+	public boolean isNone(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isnone(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isnone(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -839,9 +1023,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is undefined
 	 */
-	public synchronized boolean isNoneOrNil(int index) {
-		check();
-		return lua_isnoneornil(index) != 0;
+	public boolean isNoneOrNil(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isnoneornil(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isnoneornil(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -856,9 +1047,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a number or a string convertible to a number
 	 */
-	public synchronized boolean isNumber(int index) {
-		check();
-		return lua_isnumber(index) != 0;
+	public boolean isNumber(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isnumber(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isnumber(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -873,9 +1071,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a string or a number
 	 */
-	public synchronized boolean isString(int index) {
-		check();
-		return lua_isstring(index) != 0;
+	public boolean isString(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isstring(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isstring(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -889,9 +1094,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a table
 	 */
-	public synchronized boolean isTable(int index) {
-		check();
-		return lua_istable(index) != 0;
+	public boolean isTable(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_istable(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_istable(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -905,9 +1117,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a thread
 	 */
-	public synchronized boolean isThread(int index) {
-		check();
-		return lua_isthread(index) != 0;
+	public boolean isThread(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isthread(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isthread(index) != 0;
+			}
+		}
 	}
 
 	// -- Stack query
@@ -921,9 +1140,16 @@ public class LuaState {
 	 *            the second stack index
 	 * @return whether the values are equal
 	 */
-	public synchronized boolean equal(int index1, int index2) {
-		check();
-		return lua_equal(index1, index2) != 0;
+	public boolean equal(int index1, int index2) {
+		if (owner != null) {
+			checkConfined();
+			return lua_equal(index1, index2) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_equal(index1, index2) != 0;
+			}
+		}
 	}
 
 	/**
@@ -937,10 +1163,17 @@ public class LuaState {
 	 * @return whether the value at the first index is less than the value at
 	 *         the second index
 	 */
-	public synchronized boolean lessThan(int index1, int index2)
+	public boolean lessThan(int index1, int index2)
 			throws LuaMemoryAllocationException, LuaRuntimeException {
-		check();
-		return lua_lessthan(index1, index2) != 0;
+		if (owner != null) {
+			checkConfined();
+			return lua_lessthan(index1, index2) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_lessthan(index1, index2) != 0;
+			}
+		}
 	}
 
 	/**
@@ -953,9 +1186,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the length
 	 */
-	public synchronized int length(int index) {
-		check();
-		return lua_objlen(index);
+	public int length(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_objlen(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_objlen(index);
+			}
+		}
 	}
 
 	/**
@@ -968,9 +1208,16 @@ public class LuaState {
 	 *            the second stack index
 	 * @return whether the values are equal
 	 */
-	public synchronized boolean rawEqual(int index1, int index2) {
-		check();
-		return lua_rawequal(index1, index2) != 0;
+	public boolean rawEqual(int index1, int index2) {
+		if (owner != null) {
+			checkConfined();
+			return lua_rawequal(index1, index2) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_rawequal(index1, index2) != 0;
+			}
+		}
 	}
 
 	/**
@@ -982,9 +1229,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the boolean representation of the value
 	 */
-	public synchronized boolean toBoolean(int index) {
-		check();
-		return lua_toboolean(index) != 0;
+	public boolean toBoolean(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_toboolean(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_toboolean(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -996,9 +1250,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the integer representation, or <code>0</code>
 	 */
-	public synchronized int toInteger(int index) {
-		check();
-		return lua_tointeger(index);
+	public int toInteger(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tointeger(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tointeger(index);
+			}
+		}
 	}
 
 	/**
@@ -1009,9 +1270,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the Java function, or <code>null</code>
 	 */
-	public synchronized JavaFunction toJavaFunction(int index) {
-		check();
-		return lua_tojavafunction(index);
+	public JavaFunction toJavaFunction(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tojavafunction(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tojavafunction(index);
+			}
+		}
 	}
 
 	/**
@@ -1029,9 +1297,16 @@ public class LuaState {
 	 * @return the Java object, or <code>null</code>
 	 * @see #toJavaObject(int, Class)
 	 */
-	public synchronized Object toJavaObjectRaw(int index) {
-		check();
-		return lua_tojavaobject(index);
+	public Object toJavaObjectRaw(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tojavaobject(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tojavaobject(index);
+			}
+		}
 	}
 
 	/**
@@ -1050,9 +1325,16 @@ public class LuaState {
 	 * @see #getConverter()
 	 * @see #setConverter(Converter)
 	 */
-	public synchronized <T> T toJavaObject(int index, Class<T> type) {
-		check();
-		return converter.convertLuaValue(this, index, type);
+	public <T> T toJavaObject(int index, Class<T> type) {
+		if (owner != null) {
+			checkConfined();
+			return converter.convertLuaValue(this, index, type);
+		} else {
+			synchronized (this) {
+				check();
+				return converter.convertLuaValue(this, index, type);
+			}
+		}
 	}
 
 	/**
@@ -1064,9 +1346,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the number representation, or <code>0.0</code>
 	 */
-	public synchronized double toNumber(int index) {
-		check();
-		return lua_tonumber(index);
+	public double toNumber(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tonumber(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tonumber(index);
+			}
+		}
 	}
 
 	/**
@@ -1080,9 +1369,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the pointer representation, or <code>0L</code> if none
 	 */
-	public synchronized long toPointer(int index) {
-		check();
-		return lua_topointer(index);
+	public long toPointer(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_topointer(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_topointer(index);
+			}
+		}
 	}
 
 	/**
@@ -1095,9 +1391,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the string representation, or <code>null</code>
 	 */
-	public synchronized String toString(int index) {
-		check();
-		return lua_tostring(index);
+	public String toString(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tostring(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tostring(index);
+			}
+		}
 	}
 
 	/**
@@ -1111,10 +1414,18 @@ public class LuaState {
 	 *            the stack index
 	 * @return the type, or <code>null</code> if the stack index is undefined
 	 */
-	public synchronized LuaType type(int index) {
-		check();
-		int type = lua_type(index);
-		return type >= 0 ? LuaType.values()[type] : null;
+	public LuaType type(int index) {
+		if (owner != null) {
+			checkConfined();
+			int type = lua_type(index);
+			return type >= 0 ? LuaType.values()[type] : null;
+		} else {
+			synchronized (this) {
+				check();
+				int type = lua_type(index);
+				return type >= 0 ? LuaType.values()[type] : null;
+			}
+		}
 	}
 
 	/**
@@ -1163,9 +1474,16 @@ public class LuaState {
 	 * @param n
 	 *            the number of values to concatenate
 	 */
-	public synchronized void concat(int n) {
-		check();
-		lua_concat(n);
+	public void concat(int n) {
+		if (owner != null) {
+			checkConfined();
+			lua_concat(n);
+		} else {
+			synchronized (this) {
+				check();
+				lua_concat(n);
+			}
+		}
 	}
 
 	/**
@@ -1173,9 +1491,16 @@ public class LuaState {
 	 * 
 	 * @return the number of values on the tack
 	 */
-	public synchronized int getTop() {
-		check();
-		return lua_gettop();
+	public int getTop() {
+		if (owner != null) {
+			checkConfined();
+			return lua_gettop();
+		} else {
+			synchronized (this) {
+				check();
+				return lua_gettop();
+			}
+		}
 	}
 
 	/**
@@ -1185,9 +1510,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index
 	 */
-	public synchronized void insert(int index) {
-		check();
-		lua_insert(index);
+	public void insert(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_insert(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_insert(index);
+			}
+		}
 	}
 
 	/**
@@ -1196,9 +1528,16 @@ public class LuaState {
 	 * @param count
 	 *            the number of values to pop
 	 */
-	public synchronized void pop(int count) {
-		check();
-		lua_pop(count);
+	public void pop(int count) {
+		if (owner != null) {
+			checkConfined();
+			lua_pop(count);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pop(count);
+			}
+		}
 	}
 
 	/**
@@ -1207,9 +1546,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index
 	 */
-	public synchronized void pushValue(int index) {
-		check();
-		lua_pushvalue(index);
+	public void pushValue(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushvalue(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushvalue(index);
+			}
+		}
 	}
 
 	/**
@@ -1219,9 +1565,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index
 	 */
-	public synchronized void remove(int index) {
-		check();
-		lua_remove(index);
+	public void remove(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_remove(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_remove(index);
+			}
+		}
 	}
 
 	/**
@@ -1231,9 +1584,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index
 	 */
-	public synchronized void replace(int index) {
-		check();
-		lua_replace(index);
+	public void replace(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_replace(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_replace(index);
+			}
+		}
 	}
 
 	/**
@@ -1247,9 +1607,16 @@ public class LuaState {
 	 * @param index
 	 *            the index of the new top of the stack
 	 */
-	public synchronized void setTop(int index) {
-		check();
-		lua_settop(index);
+	public void setTop(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_settop(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_settop(index);
+			}
+		}
 	}
 
 	// -- Table
@@ -1261,9 +1628,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the table
 	 */
-	public synchronized void getTable(int index) {
-		check();
-		lua_gettable(index);
+	public void getTable(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_gettable(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_gettable(index);
+			}
+		}
 	}
 
 	/**
@@ -1275,17 +1649,31 @@ public class LuaState {
 	 * @param key
 	 *            the string key
 	 */
-	public synchronized void getField(int index, String key) {
-		check();
-		lua_getfield(index, key);
+	public void getField(int index, String key) {
+		if (owner != null) {
+			checkConfined();
+			lua_getfield(index, key);
+		} else {
+			synchronized (this) {
+				check();
+				lua_getfield(index, key);
+			}
+		}
 	}
 
 	/**
 	 * Creates a new table and pushes it on the stack.
 	 */
-	public synchronized void newTable() {
-		check();
-		lua_newtable();
+	public void newTable() {
+		if (owner != null) {
+			checkConfined();
+			lua_newtable();
+		} else {
+			synchronized (this) {
+				check();
+				lua_newtable();
+			}
+		}
 	}
 
 	/**
@@ -1297,9 +1685,16 @@ public class LuaState {
 	 * @param recordCount
 	 *            the number of record elements
 	 */
-	public synchronized void newTable(int arrayCount, int recordCount) {
-		check();
-		lua_createtable(arrayCount, recordCount);
+	public void newTable(int arrayCount, int recordCount) {
+		if (owner != null) {
+			checkConfined();
+			lua_createtable(arrayCount, recordCount);
+		} else {
+			synchronized (this) {
+				check();
+				lua_createtable(arrayCount, recordCount);
+			}
+		}
 	}
 
 	/**
@@ -1312,9 +1707,16 @@ public class LuaState {
 	 *            the stack index containing the table
 	 * @return whether there is a next key
 	 */
-	public synchronized boolean next(int index) {
-		check();
-		return lua_next(index) != 0;
+	public boolean next(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_next(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_next(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1325,9 +1727,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the table
 	 */
-	public synchronized void rawGet(int index) {
-		check();
-		lua_rawget(index);
+	public void rawGet(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_rawget(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_rawget(index);
+			}
+		}
 	}
 
 	/**
@@ -1339,9 +1748,16 @@ public class LuaState {
 	 * @param key
 	 *            the integer key
 	 */
-	public synchronized void rawGet(int index, int key) {
-		check();
-		lua_rawgeti(index, key);
+	public void rawGet(int index, int key) {
+		if (owner != null) {
+			checkConfined();
+			lua_rawgeti(index, key);
+		} else {
+			synchronized (this) {
+				check();
+				lua_rawgeti(index, key);
+			}
+		}
 	}
 
 	/**
@@ -1353,9 +1769,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the table
 	 */
-	public synchronized void rawSet(int index) {
-		check();
-		lua_rawset(index);
+	public void rawSet(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_rawset(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_rawset(index);
+			}
+		}
 	}
 
 	/**
@@ -1368,9 +1791,16 @@ public class LuaState {
 	 * @param key
 	 *            the integer key
 	 */
-	public synchronized void rawSet(int index, int key) {
-		check();
-		lua_rawseti(index, key);
+	public void rawSet(int index, int key) {
+		if (owner != null) {
+			checkConfined();
+			lua_rawseti(index, key);
+		} else {
+			synchronized (this) {
+				check();
+				lua_rawseti(index, key);
+			}
+		}
 	}
 
 	/**
@@ -1381,9 +1811,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the table
 	 */
-	public synchronized void setTable(int index) {
-		check();
-		lua_settable(index);
+	public void setTable(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_settable(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_settable(index);
+			}
+		}
 	}
 
 	/**
@@ -1395,9 +1832,16 @@ public class LuaState {
 	 * @param key
 	 *            the string key
 	 */
-	public synchronized void setField(int index, String key) {
-		check();
-		lua_setfield(index, key);
+	public void setField(int index, String key) {
+		if (owner != null) {
+			checkConfined();
+			lua_setfield(index, key);
+		} else {
+			synchronized (this) {
+				check();
+				lua_setfield(index, key);
+			}
+		}
 	}
 
 	// -- Metatable
@@ -1413,9 +1857,16 @@ public class LuaState {
 	 *            the string key
 	 * @return whether the metafield was pushed on the stack
 	 */
-	public synchronized boolean getMetafield(int index, String key) {
-		check();
-		return lua_getmetafield(index, key) != 0;
+	public boolean getMetafield(int index, String key) {
+		if (owner != null) {
+			checkConfined();
+			return lua_getmetafield(index, key) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_getmetafield(index, key) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1427,9 +1878,16 @@ public class LuaState {
 	 *            the stack index containing the value to get the metatable from
 	 * @return whether the metatable was pushed on the stack
 	 */
-	public synchronized boolean getMetatable(int index) {
-		check();
-		return lua_getmetatable(index) != 0;
+	public boolean getMetatable(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_getmetatable(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_getmetatable(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1441,9 +1899,16 @@ public class LuaState {
 	 *            the stack index containing the value to set the metatable for
 	 * @return whether the metatable was set
 	 */
-	public synchronized boolean setMetatable(int index) {
-		check();
-		return lua_setmetatable(index) != 0;
+	public boolean setMetatable(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_setmetatable(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_setmetatable(index) != 0;
+			}
+		}
 	}
 
 	// -- Environment table
@@ -1456,9 +1921,16 @@ public class LuaState {
 	 *            the stack index containing the value to get the environment
 	 *            table from
 	 */
-	public synchronized void getFEnv(int index) {
-		check();
-		lua_getfenv(index);
+	public void getFEnv(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_getfenv(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_getfenv(index);
+			}
+		}
 	}
 
 	/**
@@ -1471,9 +1943,16 @@ public class LuaState {
 	 *            table for
 	 * @return whether the environment table was set
 	 */
-	public synchronized boolean setFEnv(int index) {
-		check();
-		return lua_setfenv(index) != 0;
+	public boolean setFEnv(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_setfenv(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_setfenv(index) != 0;
+			}
+		}
 	}
 
 	// -- Thread
@@ -1583,9 +2062,16 @@ public class LuaState {
 	 *            the stack index containing the table
 	 * @return the number of entries in the table
 	 */
-	public synchronized int tableSize(int index) {
-		check();
-		return lua_tablesize(index);
+	public int tableSize(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tablesize(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tablesize(index);
+			}
+		}
 	}
 
 	/**
@@ -1606,9 +2092,176 @@ public class LuaState {
 	 * @param count
 	 *            the number of elements to move
 	 */
-	public synchronized void tableMove(int index, int from, int to, int count) {
+	public void tableMove(int index, int from, int to, int count) {
+		if (owner != null) {
+			checkConfined();
+			lua_tablemove(index, from, to, count);
+		} else {
+			synchronized (this) {
+				check();
+				lua_tablemove(index, from, to, count);
+			}
+		}
+	}
+
+	/**
+	 * Returns the elements of a table used as an array as a double array. The
+	 * length of the array is the raw length of the table. Elements must be
+	 * numbers or strings convertible to numbers.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole table.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index containing the table
+	 * @return the elements of the table
+	 * @throws ClassCastException
+	 *             if an element is not convertible to a number
+	 */
+	public synchronized double[] toDoubleArray(int index) {
+		check();
+		index = getAbsIndex(index);
+		double[] array = new double[lua_objlen(index)];
+		for (int i = 0; i < array.length; i++) {
+			lua_rawgeti(index, i + 1);
+			array[i] = lua_tonumber(-1);
+			if (array[i] == 0.0 && lua_isnumber(-1) == 0) {
+				throw getElementCastException(i + 1, Double.TYPE);
+			}
+			lua_pop(1);
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the elements of a table used as an array as an integer array.
+	 * The length of the array is the raw length of the table. Elements must be
+	 * numbers or strings convertible to numbers.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole table.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index containing the table
+	 * @return the elements of the table
+	 * @throws ClassCastException
+	 *             if an element is not convertible to a number
+	 */
+	public synchronized int[] toIntArray(int index) {
+		check();
+		index = getAbsIndex(index);
+		int[] array = new int[lua_objlen(index)];
+		for (int i = 0; i < array.length; i++) {
+			lua_rawgeti(index, i + 1);
+			array[i] = lua_tointeger(-1);
+			if (array[i] == 0 && lua_isnumber(-1) == 0) {
+				throw getElementCastException(i + 1, Integer.TYPE);
+			}
+			lua_pop(1);
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the elements of a table used as an array as a string array. The
+	 * length of the array is the raw length of the table. Elements must be
+	 * strings or numbers.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole table.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index containing the table
+	 * @return the elements of the table
+	 * @throws ClassCastException
+	 *             if an element is not a string or a number
+	 */
+	public synchronized String[] toStringArray(int index) {
+		check();
+		index = getAbsIndex(index);
+		String[] array = new String[lua_objlen(index)];
+		for (int i = 0; i < array.length; i++) {
+			lua_rawgeti(index, i + 1);
+			array[i] = lua_tostring(-1);
+			if (array[i] == null) {
+				throw getElementCastException(i + 1, String.class);
+			}
+			lua_pop(1);
+		}
+		return array;
+	}
+
+	/**
+	 * Creates a new table holding the elements of a double array and pushes
+	 * it on the stack.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole array.
+	 * </p>
+	 * 
+	 * @param array
+	 *            the array
+	 */
+	public void pushArray(double[] array) {
+		if (owner != null) {
+			checkConfined();
+			lua_createtable(array.length, 0);
+			for (int i = 0; i < array.length; i++) {
+				lua_pushnumber(array[i]);
+				lua_rawseti(-2, i + 1);
+			}
+		} else {
+			synchronized (this) {
+				check();
+				lua_createtable(array.length, 0);
+				for (int i = 0; i < array.length; i++) {
+					lua_pushnumber(array[i]);
+					lua_rawseti(-2, i + 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the entries of a table. Keys and values are
+	 * converted to Java objects as by {@link #toJavaObject(int, Class)} with a
+	 * formal type of <code>Object</code>. Unlike the map returned for a formal
+	 * type of <code>Map</code>, the snapshot is not backed by the table.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole table.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index containing the table
+	 * @return the entries of the table
+	 */
+	public synchronized Map<Object, Object> toMap(int index) {
 		check();
-		lua_tablemove(index, from, to, count);
+		index = getAbsIndex(index);
+		Map<Object, Object> map = new HashMap<Object, Object>();
+		lua_pushnil();
+		while (lua_next(index) != 0) {
+			try {
+				map.put(toJavaObjectInternal(-2), toJavaObjectInternal(-1));
+			} finally {
+				lua_pop(1);
+			}
+		}
+		return map;
 	}
 
 	// -- Argument checking
@@ -1624,12 +2277,22 @@ public class LuaState {
 	 * @param msg
 	 *            the error message
 	 */
-	public synchronized void checkArg(int index, boolean condition, String msg) {
-		check();
-		if (condition) {
-			return;
+	public void checkArg(int index, boolean condition, String msg) {
+		if (owner != null) {
+			checkConfined();
+			if (condition) {
+				return;
+			}
+			throw getArgException(index, msg);
+		} else {
+			synchronized (this) {
+				check();
+				if (condition) {
+					return;
+				}
+				throw getArgException(index, msg);
+			}
 		}
-		throw getArgException(index, msg);
 	}
 
 	/**
@@ -1641,12 +2304,22 @@ public class LuaState {
 	 *            the argument index
 	 * @return the boolean value, or the default value
 	 */
-	public synchronized boolean checkBoolean(int index) {
-		check();
-		if (!isBoolean(index)) {
-			throw getArgTypeException(index, LuaType.BOOLEAN);
+	public boolean checkBoolean(int index) {
+		if (owner != null) {
+			checkConfined();
+			if (!isBoolean(index)) {
+				throw getArgTypeException(index, LuaType.BOOLEAN);
+			}
+			return toBoolean(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (!isBoolean(index)) {
+					throw getArgTypeException(index, LuaType.BOOLEAN);
+				}
+				return toBoolean(index);
+			}
 		}
-		return toBoolean(index);
 	}
 
 	/**
@@ -1662,12 +2335,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the boolean value
 	 */
-	public synchronized boolean checkBoolean(int index, boolean d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public boolean checkBoolean(int index, boolean d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkBoolean(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkBoolean(index);
+			}
 		}
-		return checkBoolean(index);
 	}
 
 	/**
@@ -1680,12 +2363,22 @@ public class LuaState {
 	 *            the argument index
 	 * @return the integer value
 	 */
-	public synchronized int checkInteger(int index) {
-		check();
-		if (!isNumber(index)) {
-			throw getArgTypeException(index, LuaType.NUMBER);
+	public int checkInteger(int index) {
+		if (owner != null) {
+			checkConfined();
+			if (!isNumber(index)) {
+				throw getArgTypeException(index, LuaType.NUMBER);
+			}
+			return toInteger(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (!isNumber(index)) {
+					throw getArgTypeException(index, LuaType.NUMBER);
+				}
+				return toInteger(index);
+			}
 		}
-		return toInteger(index);
 	}
 
 	/**
@@ -1702,12 +2395,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the integer value, or the default value
 	 */
-	public synchronized int checkInteger(int index, int d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public int checkInteger(int index, int d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkInteger(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkInteger(index);
+			}
 		}
-		return checkInteger(index);
 	}
 
 	/**
@@ -1720,12 +2423,22 @@ public class LuaState {
 	 *            the argument index
 	 * @return the number value
 	 */
-	public synchronized double checkNumber(int index) {
-		check();
-		if (!isNumber(index)) {
-			throw getArgTypeException(index, LuaType.NUMBER);
+	public double checkNumber(int index) {
+		if (owner != null) {
+			checkConfined();
+			if (!isNumber(index)) {
+				throw getArgTypeException(index, LuaType.NUMBER);
+			}
+			return toNumber(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (!isNumber(index)) {
+					throw getArgTypeException(index, LuaType.NUMBER);
+				}
+				return toNumber(index);
+			}
 		}
-		return toNumber(index);
 	}
 
 	/**
@@ -1742,12 +2455,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the number value, or the default value
 	 */
-	public synchronized double checkNumber(int index, double d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public double checkNumber(int index, double d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkNumber(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkNumber(index);
+			}
 		}
-		return checkNumber(index);
 	}
 
 	/**
@@ -1768,13 +2491,24 @@ public class LuaState {
 	 *            the expected type
 	 * @return the Java object, or <code>null</code>
 	 */
-	public synchronized <T> T checkJavaObject(int index, Class<T> clazz) {
-		check();
-		if (!isJavaObject(index, clazz)) {
-			throw getArgException(index, String.format("exptected %s, got %s",
-					clazz.getCanonicalName(), typeName(index)));
+	public <T> T checkJavaObject(int index, Class<T> clazz) {
+		if (owner != null) {
+			checkConfined();
+			if (!isJavaObject(index, clazz)) {
+				throw getArgException(index, String.format("exptected %s, got %s",
+						clazz.getCanonicalName(), typeName(index)));
+			}
+			return toJavaObject(index, clazz);
+		} else {
+			synchronized (this) {
+				check();
+				if (!isJavaObject(index, clazz)) {
+					throw getArgException(index, String.format("exptected %s, got %s",
+							clazz.getCanonicalName(), typeName(index)));
+				}
+				return toJavaObject(index, clazz);
+			}
 		}
-		return toJavaObject(index, clazz);
 	}
 
 	/**
@@ -1793,12 +2527,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the Java object, or the default value
 	 */
-	public synchronized <T> T checkJavaObject(int index, Class<T> clazz, T d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public <T> T checkJavaObject(int index, Class<T> clazz, T d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkJavaObject(index, clazz);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkJavaObject(index, clazz);
+			}
 		}
-		return checkJavaObject(index, clazz);
 	}
 
 	/**
@@ -1813,16 +2557,30 @@ public class LuaState {
 	 *            the options
 	 * @return the string value
 	 */
-	public synchronized String checkOption(int index, String[] options) {
-		check();
-		String s = checkString(index);
-		for (int i = 0; i < options.length; i++) {
-			if (s.equals(options[i])) {
-				return s;
+	public String checkOption(int index, String[] options) {
+		if (owner != null) {
+			checkConfined();
+			String s = checkString(index);
+			for (int i = 0; i < options.length; i++) {
+				if (s.equals(options[i])) {
+					return s;
+				}
+			}
+			throw getArgException(index, String.format(
+					"expected one of %s, got %s", Arrays.asList(options), s));
+		} else {
+			synchronized (this) {
+				check();
+				String s = checkString(index);
+				for (int i = 0; i < options.length; i++) {
+					if (s.equals(options[i])) {
+						return s;
+					}
+				}
+				throw getArgException(index, String.format(
+						"expected one of %s, got %s", Arrays.asList(options), s));
 			}
 		}
-		throw getArgException(index, String.format(
-				"expected one of %s, got %s", Arrays.asList(options), s));
 	}
 
 	/**
@@ -1841,12 +2599,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the string value, or the default value
 	 */
-	public synchronized String checkOption(int index, String[] options, String d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public String checkOption(int index, String[] options, String d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkOption(index, options);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkOption(index, options);
+			}
 		}
-		return checkOption(index, options);
 	}
 
 	/**
@@ -1858,12 +2626,22 @@ public class LuaState {
 	 *            the argument index
 	 * @return the string value
 	 */
-	public synchronized String checkString(int index) {
-		check();
-		if (!isString(index)) {
-			throw getArgTypeException(index, LuaType.STRING);
+	public String checkString(int index) {
+		if (owner != null) {
+			checkConfined();
+			if (!isString(index)) {
+				throw getArgTypeException(index, LuaType.STRING);
+			}
+			return toString(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (!isString(index)) {
+					throw getArgTypeException(index, LuaType.STRING);
+				}
+				return toString(index);
+			}
 		}
-		return toString(index);
 	}
 
 	/**
@@ -1879,12 +2657,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the string value, or the default value
 	 */
-	public synchronized String checkString(int index, String d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public String checkString(int index, String d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkString(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkString(index);
+			}
 		}
-		return checkString(index);
 	}
 
 	/**
@@ -1897,10 +2685,19 @@ public class LuaState {
 	 * @param type
 	 *            the type
 	 */
-	public synchronized void checkType(int index, LuaType type) {
-		check();
-		if (type(index) != type) {
-			throw getArgTypeException(index, type);
+	public void checkType(int index, LuaType type) {
+		if (owner != null) {
+			checkConfined();
+			if (type(index) != type) {
+				throw getArgTypeException(index, type);
+			}
+		} else {
+			synchronized (this) {
+				check();
+				if (type(index) != type) {
+					throw getArgTypeException(index, type);
+				}
+			}
 		}
 	}
 
@@ -1999,7 +2796,40 @@ public class LuaState {
 			throw new IllegalStateException("Lua state is closed");
 		}
 
-		// Check proxy queue
+		// Check proxy queue, only at safe points for confined states
+		if (owner != null) {
+			checkConfined();
+			return;
+		}
+		releaseProxies();
+	}
+
+	/**
+	 * Checks the state of a confined Lua state.
+	 */
+	private void checkConfined() {
+		if (owner != Thread.currentThread()) {
+			throw new IllegalStateException(
+					"Lua state is confined to another thread");
+		}
+		if (!isOpenInternal()) {
+			throw new IllegalStateException("Lua state is closed");
+		}
+	}
+
+	/**
+	 * Releases proxies of a confined Lua state.
+	 */
+	private void releaseConfinedProxies() {
+		if (owner != null) {
+			releaseProxies();
+		}
+	}
+
+	/**
+	 * Releases the Lua values of collected proxies.
+	 */
+	private void releaseProxies() {
 		LuaValueProxyRef luaValueProxyRef;
 		while ((luaValueProxyRef = (LuaValueProxyRef) proxyQueue.poll()) != null) {
 			proxySet.remove(luaValueProxyRef);
@@ -2038,6 +2868,43 @@ public class LuaState {
 		return new LuaRuntimeException(msg);
 	}
 
+	/**
+	 * Returns the absolute stack index of the specified stack index.
+	 */
+	private int getAbsIndex(int index) {
+		return index > 0 || index <= REGISTRYINDEX ? index : lua_gettop()
+				+ index + 1;
+	}
+
+	/**
+	 * Converts the value at the specified stack index to a Java object, without
+	 * going through the converter for numbers, strings and booleans.
+	 */
+	private Object toJavaObjectInternal(int index) {
+		switch (LuaType.values()[lua_type(index)]) {
+		case BOOLEAN:
+			return Boolean.valueOf(lua_toboolean(index) != 0);
+		case NUMBER:
+			return Double.valueOf(lua_tonumber(index));
+		case STRING:
+			return lua_tostring(index);
+		default:
+			return converter.convertLuaValue(this, index, Object.class);
+		}
+	}
+
+	/**
+	 * Creates a class cast exception to indicate that the array element on
+	 * top of the stack cannot be converted. The element is popped.
+	 */
+	private ClassCastException getElementCastException(int key, Class<?> type) {
+		String typeName = typeName(-1);
+		lua_pop(1);
+		return new ClassCastException(String.format(
+				"cannot convert element %d of type %s to %s", key, typeName,
+				type.getCanonicalName()));
+	}
+
 	// -- Native methods
 	private static native String lua_version();
 
@@ -0,0 +1,682 @@
+/*
+ * See LICENSE.txt for license terms.
+ */
+
+package com.naef.jnlua;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Generates Java functions invoking a method or a constructor directly,
+ * without reflection.
+ *
+ * <p>
+ * A generated function expects the object, or the class for static members,
+ * at stack index 1 and the arguments from stack index 2, as invocable accessors
+ * do. The object must be a raw Java object of the declaring class of the
+ * member, which is not checked. Numeric arguments are checked as Lua numbers and results are pushed
+ * without boxing. Other arguments are converted by the converter of the Lua
+ * state. Generated classes are defined by a class loader delegating to the
+ * class loader of the invoked class, except for JNLua classes.
+ * </p>
+ */
+final class AccessorGenerator {
+	// -- Static
+	private static final String PACKAGE = "com.naef.jnlua.";
+	private static final String CLASS_NAME_PREFIX = PACKAGE
+			+ "generated.Accessor";
+	private static final String LUA_STATE = "com/naef/jnlua/LuaState";
+	private static final String JAVA_FUNCTION = "com/naef/jnlua/JavaFunction";
+	private static final String OBJECT = "java/lang/Object";
+	private static final String CLASS = "java/lang/Class";
+	private static final String STRING = "java/lang/String";
+
+	private static final int CLASS_FILE_VERSION = 50;
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ICONST_0 = 0x03;
+	private static final int BIPUSH = 0x10;
+	private static final int LDC_W = 0x13;
+	private static final int ALOAD_0 = 0x2a;
+	private static final int ALOAD_1 = 0x2b;
+	private static final int DUP = 0x59;
+	private static final int IFNONNULL = 0xc7;
+	private static final int L2D = 0x8a;
+	private static final int F2D = 0x8d;
+	private static final int D2L = 0x8f;
+	private static final int D2F = 0x90;
+	private static final int I2B = 0x91;
+	private static final int I2C = 0x92;
+	private static final int I2S = 0x93;
+	private static final int IRETURN = 0xac;
+	private static final int RETURN = 0xb1;
+	private static final int GETSTATIC = 0xb2;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+	private static final int INVOKEINTERFACE = 0xb9;
+	private static final int NEW = 0xbb;
+	private static final int CHECKCAST = 0xc0;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private static final Map<ClassLoader, WeakReference<AccessorClassLoader>> CLASS_LOADERS = new WeakHashMap<ClassLoader, WeakReference<AccessorClassLoader>>();
+	private static int classCount;
+
+	// -- State
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> poolEntries = new HashMap<String, Integer>();
+	private int poolCount = 1;
+	private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+	private final DataOutputStream code = new DataOutputStream(codeBytes);
+
+	// -- Static methods
+	/**
+	 * Returns a Java function invoking a method or a constructor directly, or
+	 * <code>null</code> if it cannot be generated. Functions are generated for
+	 * public members of public classes, without variable arguments and with
+	 * public parameter types, which the generated class resolves to the very
+	 * classes of the member. Such functions are known to link before they are
+	 * invoked for the first time.
+	 */
+	static JavaFunction generate(Member member) {
+		if (!isGeneratable(member)) {
+			return null;
+		}
+		try {
+			AccessorClassLoader classLoader = getClassLoader(member
+					.getDeclaringClass().getClassLoader());
+			if (!isResolvable(classLoader, member)) {
+				return null;
+			}
+			String className;
+			synchronized (AccessorGenerator.class) {
+				className = CLASS_NAME_PREFIX + classCount++;
+			}
+			byte[] bytes = new AccessorGenerator().writeClass(
+					className.replace('.', '/'), member);
+			Class<?> clazz = classLoader.define(className, bytes);
+			return (JavaFunction) clazz.newInstance();
+		} catch (IOException e) {
+			return null;
+		} catch (InstantiationException e) {
+			return null;
+		} catch (IllegalAccessException e) {
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		} catch (SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether a function can be generated for a member.
+	 */
+	private static boolean isGeneratable(Member member) {
+		if (member == null) {
+			return false;
+		}
+		Class<?> declaringClass = member.getDeclaringClass();
+		if (!Modifier.isPublic(member.getModifiers())
+				|| !Modifier.isPublic(declaringClass.getModifiers())) {
+			return false;
+		}
+		Class<?>[] parameterTypes;
+		if (member instanceof Method) {
+			Method method = (Method) member;
+			if (method.isVarArgs() || Modifier.isStatic(method.getModifiers())
+					&& declaringClass.isInterface()) {
+				return false;
+			}
+			parameterTypes = method.getParameterTypes();
+		} else if (member instanceof Constructor<?>) {
+			Constructor<?> constructor = (Constructor<?>) member;
+			if (constructor.isVarArgs()
+					|| Modifier.isAbstract(declaringClass.getModifiers())) {
+				return false;
+			}
+			parameterTypes = constructor.getParameterTypes();
+		} else {
+			return false;
+		}
+		if (parameterTypes.length > Byte.MAX_VALUE - 2) {
+			return false;
+		}
+		for (Class<?> parameterType : parameterTypes) {
+			Class<?> type = parameterType;
+			while (type.isArray()) {
+				type = type.getComponentType();
+			}
+			if (!type.isPrimitive() && !Modifier.isPublic(type.getModifiers())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the classes a function invoking a member refers to are
+	 * resolved by a class loader to the classes of the member. Otherwise, the
+	 * function would fail to link once invoked.
+	 */
+	private static boolean isResolvable(ClassLoader classLoader, Member member) {
+		Class<?>[] parameterTypes;
+		Class<?> returnType;
+		if (member instanceof Method) {
+			parameterTypes = ((Method) member).getParameterTypes();
+			returnType = ((Method) member).getReturnType();
+		} else {
+			parameterTypes = ((Constructor<?>) member).getParameterTypes();
+			returnType = Void.TYPE;
+		}
+		if (!isResolvable(classLoader, member.getDeclaringClass())
+				|| !isResolvable(classLoader, returnType)) {
+			return false;
+		}
+		for (Class<?> parameterType : parameterTypes) {
+			if (!isResolvable(classLoader, parameterType)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether a class loader resolves the name of a class to that
+	 * class.
+	 */
+	private static boolean isResolvable(ClassLoader classLoader, Class<?> clazz) {
+		if (clazz.isPrimitive()) {
+			return true;
+		}
+		try {
+			return Class.forName(clazz.getName(), false, classLoader) == clazz;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the class loader defining functions invoking members of classes
+	 * loaded by a class loader.
+	 */
+	private static synchronized AccessorClassLoader getClassLoader(
+			ClassLoader parent) {
+		WeakReference<AccessorClassLoader> reference = CLASS_LOADERS
+				.get(parent);
+		AccessorClassLoader classLoader = reference != null ? reference.get()
+				: null;
+		if (classLoader == null) {
+			classLoader = new AccessorClassLoader(parent);
+			CLASS_LOADERS.put(parent, new WeakReference<AccessorClassLoader>(
+					classLoader));
+		}
+		return classLoader;
+	}
+
+	/**
+	 * Returns the internal name of a class.
+	 */
+	private static String getInternalName(Class<?> clazz) {
+		return clazz.getName().replace('.', '/');
+	}
+
+	/**
+	 * Returns the descriptor of a type.
+	 */
+	private static String getDescriptor(Class<?> type) {
+		if (type == Void.TYPE) {
+			return "V";
+		} else if (type == Boolean.TYPE) {
+			return "Z";
+		} else if (type == Byte.TYPE) {
+			return "B";
+		} else if (type == Character.TYPE) {
+			return "C";
+		} else if (type == Short.TYPE) {
+			return "S";
+		} else if (type == Integer.TYPE) {
+			return "I";
+		} else if (type == Long.TYPE) {
+			return "J";
+		} else if (type == Float.TYPE) {
+			return "F";
+		} else if (type == Double.TYPE) {
+			return "D";
+		} else if (type.isArray()) {
+			return getInternalName(type);
+		} else {
+			return "L" + getInternalName(type) + ";";
+		}
+	}
+
+	/**
+	 * Returns the descriptor of a method.
+	 */
+	private static String getDescriptor(Class<?>[] parameterTypes,
+			Class<?> returnType) {
+		StringBuilder sb = new StringBuilder("(");
+		for (Class<?> parameterType : parameterTypes) {
+			sb.append(getDescriptor(parameterType));
+		}
+		sb.append(')');
+		sb.append(getDescriptor(returnType));
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the number of stack slots of a type.
+	 */
+	private static int getSize(Class<?> type) {
+		return type == Long.TYPE || type == Double.TYPE ? 2 : 1;
+	}
+
+	// -- Construction
+	/**
+	 * Creates a new instance, for the generation of a single class.
+	 */
+	private AccessorGenerator() {
+	}
+
+	// -- Private methods
+	/**
+	 * Writes the class of a function invoking a member.
+	 */
+	private byte[] writeClass(String className, Member member)
+			throws IOException {
+		int thisClass = classConstant(className);
+		int superClass = classConstant(OBJECT);
+		int interfaceClass = classConstant(JAVA_FUNCTION);
+		int codeName = utf8Constant("Code");
+		int initName = utf8Constant("<init>");
+		int initDescriptor = utf8Constant("()V");
+		int objectInit = methodConstant(OBJECT, "<init>", "()V", false);
+		int invokeName = utf8Constant("invoke");
+		int invokeDescriptor = utf8Constant("(L" + LUA_STATE + ";)I");
+
+		// Constructor
+		code.writeByte(ALOAD_0);
+		code.writeByte(INVOKESPECIAL);
+		code.writeShort(objectInit);
+		code.writeByte(RETURN);
+		byte[] initCode = codeBytes.toByteArray();
+		codeBytes.reset();
+
+		// Invoke method
+		int maxStack = writeInvokeCode(member);
+		byte[] invokeCode = codeBytes.toByteArray();
+
+		ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(classBytes);
+		out.writeInt(0xcafebabe);
+		out.writeShort(0);
+		out.writeShort(CLASS_FILE_VERSION);
+		out.writeShort(poolCount);
+		pool.flush();
+		poolBytes.writeTo(out);
+		out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(1);
+		out.writeShort(interfaceClass);
+		out.writeShort(0);
+		out.writeShort(2);
+		writeMethod(out, initName, initDescriptor, codeName, 1, 1, initCode);
+		writeMethod(out, invokeName, invokeDescriptor, codeName, maxStack, 2,
+				invokeCode);
+		out.writeShort(0);
+		out.flush();
+		return classBytes.toByteArray();
+	}
+
+	/**
+	 * Writes a public method with its code.
+	 */
+	private void writeMethod(DataOutputStream out, int name, int descriptor,
+			int codeName, int maxStack, int maxLocals, byte[] bytecode)
+			throws IOException {
+		out.writeShort(ACC_PUBLIC);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+		out.writeShort(1);
+		out.writeShort(codeName);
+		out.writeInt(12 + bytecode.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(bytecode.length);
+		out.write(bytecode);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+	/**
+	 * Writes the code of the invoke method, and returns its maximum stack
+	 * size.
+	 */
+	private int writeInvokeCode(Member member) throws IOException {
+		Class<?> declaringClass = member.getDeclaringClass();
+		String owner = getInternalName(declaringClass);
+		boolean constructor = member instanceof Constructor<?>;
+		boolean isStatic = Modifier.isStatic(member.getModifiers());
+		Class<?>[] parameterTypes;
+		Class<?> returnType;
+		if (constructor) {
+			parameterTypes = ((Constructor<?>) member).getParameterTypes();
+			returnType = declaringClass;
+		} else {
+			parameterTypes = ((Method) member).getParameterTypes();
+			returnType = ((Method) member).getReturnType();
+		}
+
+		// Lua state for the result, then the target object
+		int stack = 0;
+		if (returnType != Void.TYPE) {
+			code.writeByte(ALOAD_1);
+			stack++;
+		}
+		if (constructor) {
+			code.writeByte(NEW);
+			code.writeShort(classConstant(owner));
+			code.writeByte(DUP);
+			stack += 2;
+		} else if (!isStatic) {
+			code.writeByte(ALOAD_1);
+			pushInt(1);
+			invokeLuaState("toJavaObjectRaw", "(I)L" + OBJECT + ";");
+			code.writeByte(CHECKCAST);
+			code.writeShort(classConstant(owner));
+			stack++;
+		}
+
+		// Arguments
+		int maxStack = stack + 3;
+		for (int i = 0; i < parameterTypes.length; i++) {
+			maxStack = Math.max(maxStack,
+					stack + writeArgument(parameterTypes[i], i + 2));
+			stack += getSize(parameterTypes[i]);
+			maxStack = Math.max(maxStack, stack + 3);
+		}
+
+		// Invocation
+		String descriptor = getDescriptor(parameterTypes, constructor ? Void.TYPE
+				: returnType);
+		String name = constructor ? "<init>" : member.getName();
+		if (constructor) {
+			code.writeByte(INVOKESPECIAL);
+			code.writeShort(methodConstant(owner, name, descriptor, false));
+		} else if (isStatic) {
+			code.writeByte(INVOKESTATIC);
+			code.writeShort(methodConstant(owner, name, descriptor, false));
+		} else if (declaringClass.isInterface()) {
+			int argumentSlots = 1;
+			for (Class<?> parameterType : parameterTypes) {
+				argumentSlots += getSize(parameterType);
+			}
+			code.writeByte(INVOKEINTERFACE);
+			code.writeShort(methodConstant(owner, name, descriptor, true));
+			code.writeByte(argumentSlots);
+			code.writeByte(0);
+		} else {
+			code.writeByte(INVOKEVIRTUAL);
+			code.writeShort(methodConstant(owner, name, descriptor, false));
+		}
+
+		// Result
+		if (returnType == Void.TYPE) {
+			pushInt(0);
+		} else {
+			writeResult(returnType);
+			pushInt(1);
+		}
+		code.writeByte(IRETURN);
+		return maxStack;
+	}
+
+	/**
+	 * Writes the code pushing an argument on the Java stack, and returns the
+	 * maximum stack size it uses.
+	 */
+	private int writeArgument(Class<?> type, int index) throws IOException {
+		code.writeByte(ALOAD_1);
+		pushInt(index);
+		if (type == Integer.TYPE || type == Short.TYPE || type == Byte.TYPE) {
+			invokeLuaState("checkInteger", "(I)I");
+			if (type == Short.TYPE) {
+				code.writeByte(I2S);
+			} else if (type == Byte.TYPE) {
+				code.writeByte(I2B);
+			}
+		} else if (type == Long.TYPE || type == Float.TYPE
+				|| type == Double.TYPE) {
+			invokeLuaState("checkNumber", "(I)D");
+			if (type == Long.TYPE) {
+				code.writeByte(D2L);
+			} else if (type == Float.TYPE) {
+				code.writeByte(D2F);
+			}
+		} else if (type == Character.TYPE) {
+			invokeLuaState("checkInteger", "(I)I");
+			code.writeByte(I2C);
+		} else if (type == Boolean.TYPE) {
+			code.writeByte(GETSTATIC);
+			code.writeShort(fieldConstant("java/lang/Boolean", "TYPE", "L"
+					+ CLASS + ";"));
+			invokeLuaState("toJavaObject", "(IL" + CLASS + ";)L" + OBJECT
+					+ ";");
+
+			// Nil is rejected as by reflection, rather than unboxed
+			code.writeByte(DUP);
+			code.writeByte(IFNONNULL);
+			int branch = codeBytes.size() - 1;
+			code.writeShort(0);
+			code.writeByte(ALOAD_1);
+			pushInt(index);
+			pushInt(0);
+			code.writeByte(LDC_W);
+			code.writeShort(stringConstant(getPrimitiveArgMessage(type)));
+			invokeLuaState("checkArg", "(IZL" + STRING + ";)V");
+			patchBranch(branch);
+
+			code.writeByte(CHECKCAST);
+			code.writeShort(classConstant("java/lang/Boolean"));
+			code.writeByte(INVOKEVIRTUAL);
+			code.writeShort(methodConstant("java/lang/Boolean",
+					"booleanValue", "()Z", false));
+			return 5;
+		} else {
+			code.writeByte(LDC_W);
+			code.writeShort(classConstant(getInternalName(type)));
+			invokeLuaState("toJavaObject", "(IL" + CLASS + ";)L" + OBJECT
+					+ ";");
+			if (type != Object.class) {
+				code.writeByte(CHECKCAST);
+				code.writeShort(classConstant(getInternalName(type)));
+			}
+		}
+		return 3;
+	}
+
+	/**
+	 * Returns the message of the error raised for a nil argument of a
+	 * primitive parameter.
+	 */
+	static String getPrimitiveArgMessage(Class<?> type) {
+		return String.format("%s expected, got nil", type.getName());
+	}
+
+	/**
+	 * Sets the offset of the branch instruction at a position of the code to
+	 * the current position.
+	 */
+	private void patchBranch(int position) {
+		byte[] bytes = codeBytes.toByteArray();
+		int offset = bytes.length - position;
+		bytes[position + 1] = (byte) (offset >> 8);
+		bytes[position + 2] = (byte) offset;
+		codeBytes.reset();
+		codeBytes.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Writes the code pushing a result on the Lua stack.
+	 */
+	private void writeResult(Class<?> type) throws IOException {
+		if (type == Integer.TYPE || type == Short.TYPE || type == Byte.TYPE
+				|| type == Character.TYPE) {
+			invokeLuaState("pushInteger", "(I)V");
+		} else if (type == Long.TYPE) {
+			code.writeByte(L2D);
+			invokeLuaState("pushNumber", "(D)V");
+		} else if (type == Float.TYPE) {
+			code.writeByte(F2D);
+			invokeLuaState("pushNumber", "(D)V");
+		} else if (type == Double.TYPE) {
+			invokeLuaState("pushNumber", "(D)V");
+		} else if (type == Boolean.TYPE) {
+			invokeLuaState("pushBoolean", "(Z)V");
+		} else {
+			invokeLuaState("pushJavaObject", "(L" + OBJECT + ";)V");
+		}
+	}
+
+	/**
+	 * Writes the invocation of a Lua state method.
+	 */
+	private void invokeLuaState(String name, String descriptor)
+			throws IOException {
+		code.writeByte(INVOKEVIRTUAL);
+		code.writeShort(methodConstant(LUA_STATE, name, descriptor, false));
+	}
+
+	/**
+	 * Writes the code pushing a small integer on the Java stack.
+	 */
+	private void pushInt(int value) throws IOException {
+		if (value <= 5) {
+			code.writeByte(ICONST_0 + value);
+		} else {
+			code.writeByte(BIPUSH);
+			code.writeByte(value);
+		}
+	}
+
+	/**
+	 * Returns the index of a constant, adding it to the constant pool if it is
+	 * not there yet.
+	 */
+	private int constant(String key, int tag, int first, int second)
+			throws IOException {
+		Integer index = poolEntries.get(key);
+		if (index != null) {
+			return index.intValue();
+		}
+		pool.writeByte(tag);
+		pool.writeShort(first);
+		if (second >= 0) {
+			pool.writeShort(second);
+		}
+		poolEntries.put(key, Integer.valueOf(poolCount));
+		return poolCount++;
+	}
+
+	private int utf8Constant(String value) throws IOException {
+		String key = "U" + value;
+		Integer index = poolEntries.get(key);
+		if (index != null) {
+			return index.intValue();
+		}
+		pool.writeByte(CONSTANT_UTF8);
+		pool.writeUTF(value);
+		poolEntries.put(key, Integer.valueOf(poolCount));
+		return poolCount++;
+	}
+
+	private int classConstant(String internalName) throws IOException {
+		return constant("C" + internalName, CONSTANT_CLASS,
+				utf8Constant(internalName), -1);
+	}
+
+	private int stringConstant(String value) throws IOException {
+		return constant("S" + value, CONSTANT_STRING, utf8Constant(value), -1);
+	}
+
+	private int nameAndTypeConstant(String name, String descriptor)
+			throws IOException {
+		return constant("N" + name + " " + descriptor, CONSTANT_NAME_AND_TYPE,
+				utf8Constant(name), utf8Constant(descriptor));
+	}
+
+	private int methodConstant(String owner, String name, String descriptor,
+			boolean interfaceMethod) throws IOException {
+		int tag = interfaceMethod ? CONSTANT_INTERFACE_METHODREF
+				: CONSTANT_METHODREF;
+		return constant("M" + owner + "." + name + descriptor, tag,
+				classConstant(owner), nameAndTypeConstant(name, descriptor));
+	}
+
+	private int fieldConstant(String owner, String name, String descriptor)
+			throws IOException {
+		return constant("F" + owner + "." + name, CONSTANT_FIELDREF,
+				classConstant(owner), nameAndTypeConstant(name, descriptor));
+	}
+
+	// -- Nested types
+	/**
+	 * Defines generated classes. JNLua classes are loaded by the class loader
+	 * of JNLua, other classes by the class loader of invoked classes.
+	 */
+	private static class AccessorClassLoader extends ClassLoader {
+		/**
+		 * Creates a new instance.
+		 */
+		public AccessorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve)
+				throws ClassNotFoundException {
+			Class<?> clazz = findLoadedClass(name);
+			if (clazz == null && name.startsWith(PACKAGE)) {
+				clazz = Class.forName(name, false, AccessorGenerator.class
+						.getClassLoader());
+			}
+			if (clazz == null) {
+				return super.loadClass(name, resolve);
+			}
+			if (resolve) {
+				resolveClass(clazz);
+			}
+			return clazz;
+		}
+
+		/**
+		 * Defines a generated class.
+		 */
+		public synchronized Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
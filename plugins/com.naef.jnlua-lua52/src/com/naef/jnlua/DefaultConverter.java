@@ -328,8 +328,8 @@ public class DefaultConverter implements Converter {
 			}
 			break;
 		case TABLE:
-			if (formalType == Map.class || formalType == List.class
-					|| formalType.isArray()) {
+			if (formalType == Map.class || formalType == HashMap.class
+					|| formalType == List.class || formalType.isArray()) {
 				return 1;
 			}
 			if (formalType == Object.class) {
@@ -431,6 +431,9 @@ public class DefaultConverter implements Converter {
 			}
 			break;
 		case TABLE:
+			if (formalType == HashMap.class) {
+				return (T) luaState.toMap(index);
+			}
 			if (formalType == Map.class || formalType == Object.class) {
 				final LuaValueProxy luaValueProxy = luaState.getProxy(index);
 				return (T) new AbstractTableMap<Object>() {
@@ -465,6 +468,20 @@ public class DefaultConverter implements Converter {
 				};
 			}
 			if (formalType.isArray()) {
+				// Convert numbers and strings in bulk
+				try {
+					if (formalType == double[].class) {
+						return (T) luaState.toDoubleArray(index);
+					}
+					if (formalType == int[].class) {
+						return (T) luaState.toIntArray(index);
+					}
+					if (formalType == String[].class) {
+						return (T) luaState.toStringArray(index);
+					}
+				} catch (ClassCastException e) {
+					// Other elements are converted one by one below
+				}
 				int length = luaState.rawLen(index);
 				Class<?> componentType = formalType.getComponentType();
 				Object array = Array.newInstance(formalType.getComponentType(),
@@ -13,6 +13,7 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
@@ -26,23 +27,31 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.Map.Entry;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Default implementation of the <code>JavaReflector</code> interface.
  */
 public class DefaultJavaReflector implements JavaReflector {
 	// -- Static
-	private static final DefaultJavaReflector INSTANCE = new DefaultJavaReflector();
+	private static final DefaultJavaReflector INSTANCE = new DefaultJavaReflector(
+			false);
+	private static final DefaultJavaReflector GENERATING_INSTANCE = new DefaultJavaReflector(
+			true);
 	private static final Object JAVA_FUNCTION_TYPE = new Object();
 	private static final Object[] EMPTY_ARGUMENTS = new Object[0];
 
 	// -- State
-	private Map<Class<?>, Map<String, Accessor>> accessors = new HashMap<Class<?>, Map<String, Accessor>>();
-	private ReadWriteLock accessorLock = new ReentrantReadWriteLock();
-	private Map<LuaCallSignature, Invocable> invocableDispatches = new HashMap<LuaCallSignature, Invocable>();
-	private ReadWriteLock invocableDispatchLock = new ReentrantReadWriteLock();
+	private final boolean generateAccessors;
+	private ConcurrentMap<Class<?>, Map<String, Accessor>> accessors = new ConcurrentHashMap<Class<?>, Map<String, Accessor>>();
+	private ConcurrentMap<LuaCallSignature, Invocable> invocableDispatches = new ConcurrentHashMap<LuaCallSignature, Invocable>();
+	private ThreadLocal<LuaCallSignature> lookupSignatures = new ThreadLocal<LuaCallSignature>() {
+		@Override
+		protected LuaCallSignature initialValue() {
+			return new LuaCallSignature();
+		}
+	};
 	private JavaFunction index = new Index();
 	private JavaFunction newIndex = new NewIndex();
 	private JavaFunction equal = new Equal();
@@ -68,11 +77,25 @@ public class DefaultJavaReflector implements JavaReflector {
 		return INSTANCE;
 	}
 
+	/**
+	 * Returns the instance of this class generating accessors. Methods and
+	 * constructors which are not overloaded are invoked through a class
+	 * generated at their first invocation, calling them directly rather than
+	 * by reflection, as long as the Lua state uses the default converter.
+	 * Other invocations use reflection.
+	 * 
+	 * @return the instance generating accessors
+	 */
+	public static DefaultJavaReflector getGeneratingInstance() {
+		return GENERATING_INSTANCE;
+	}
+
 	// -- Construction
 	/**
 	 * Creates a new instances;
 	 */
-	private DefaultJavaReflector() {
+	private DefaultJavaReflector(boolean generateAccessors) {
+		this.generateAccessors = generateAccessors;
 	}
 
 	// -- JavaReflector methods
@@ -115,29 +138,15 @@ public class DefaultJavaReflector implements JavaReflector {
 	private Map<String, Accessor> getObjectAccessors(Object object) {
 		// Check cache
 		Class<?> clazz = getObjectClass(object);
-		accessorLock.readLock().lock();
-		try {
-			Map<String, Accessor> result = accessors.get(clazz);
-			if (result != null) {
-				return result;
-			}
-		} finally {
-			accessorLock.readLock().unlock();
+		Map<String, Accessor> result = accessors.get(clazz);
+		if (result != null) {
+			return result;
 		}
 
-		// Fill in
-		Map<String, Accessor> result = createClassAccessors(clazz);
-		accessorLock.writeLock().lock();
-		try {
-			if (!accessors.containsKey(clazz)) {
-				accessors.put(clazz, result);
-			} else {
-				result = accessors.get(clazz);
-			}
-		} finally {
-			accessorLock.writeLock().unlock();
-		}
-		return result;
+		// Fill in, keeping the accessors of the first thread to finish
+		result = createClassAccessors(clazz);
+		Map<String, Accessor> existing = accessors.putIfAbsent(clazz, result);
+		return existing != null ? existing : result;
 	}
 
 	/**
@@ -890,6 +899,8 @@ public class DefaultJavaReflector implements JavaReflector {
 		// -- State
 		private Class<?> clazz;
 		private List<Invocable> invocables;
+		private volatile boolean generated;
+		private volatile JavaFunction generatedFunction;
 
 		// -- Construction
 		/**
@@ -957,37 +968,47 @@ public class DefaultJavaReflector implements JavaReflector {
 		// -- JavaFunction methods
 		@Override
 		public int invoke(LuaState luaState) {
-			// Argument sanity checks
-			Object object = luaState.checkJavaObject(1, Object.class);
+			// Argument sanity checks, a Java object which is not typed is
+			// converted to itself by the default converter
+			boolean defaultConverter = luaState.getConverter() == DefaultConverter
+					.getInstance();
+			Object object = defaultConverter ? luaState.toJavaObjectRaw(1)
+					: null;
+			boolean rawObject = object != null
+					&& !(object instanceof TypedJavaObject);
+			if (!rawObject) {
+				object = luaState.checkJavaObject(1, Object.class);
+			}
 			Class<?> objectClass = getObjectClass(object);
-			luaState.checkArg(1, clazz.isAssignableFrom(objectClass), String
-					.format("class %s is not a subclass of %s",
-							objectClass.getCanonicalName(),
-							clazz.getCanonicalName()));
+			if (!clazz.isAssignableFrom(objectClass)) {
+				// Message formatted only on error, invocations are frequent
+				luaState.checkArg(1, false, String.format(
+						"class %s is not a subclass of %s",
+						objectClass.getCanonicalName(),
+						clazz.getCanonicalName()));
+			}
 			if (objectClass == object) {
 				object = null;
 			}
 
+			// Generated invocation
+			if (generateAccessors && rawObject) {
+				JavaFunction function = getGeneratedFunction(luaState,
+						object == null);
+				if (function != null) {
+					return function.invoke(luaState);
+				}
+			}
+
 			// Invocable dispatch
 			LuaCallSignature luaCallSignature = getLuaCallSignature(luaState);
-			Invocable invocable;
-			invocableDispatchLock.readLock().lock();
-			try {
-				invocable = invocableDispatches.get(luaCallSignature);
-			} finally {
-				invocableDispatchLock.readLock().unlock();
-			}
+			Invocable invocable = invocableDispatches.get(luaCallSignature);
 			if (invocable == null) {
 				invocable = dispatchInvocable(luaState, object == null);
-				invocableDispatchLock.writeLock().lock();
-				try {
-					if (!invocableDispatches.containsKey(luaCallSignature)) {
-						invocableDispatches.put(luaCallSignature, invocable);
-					} else {
-						invocable = invocableDispatches.get(luaCallSignature);
-					}
-				} finally {
-					invocableDispatchLock.writeLock().unlock();
+				Invocable existing = invocableDispatches.putIfAbsent(
+						luaCallSignature.copy(), invocable);
+				if (existing != null) {
+					invocable = existing;
 				}
 			}
 
@@ -997,7 +1018,7 @@ public class DefaultJavaReflector implements JavaReflector {
 			Object[] arguments = new Object[parameterCount];
 			if (invocable.isVarArgs()) {
 				for (int i = 0; i < parameterCount - 1; i++) {
-					arguments[i] = luaState.toJavaObject(i + 2,
+					arguments[i] = toArgument(luaState, i + 2,
 							invocable.getParameterType(i));
 				}
 				arguments[parameterCount - 1] = Array.newInstance(
@@ -1007,12 +1028,12 @@ public class DefaultJavaReflector implements JavaReflector {
 					Array.set(
 							arguments[parameterCount - 1],
 							i - (parameterCount - 1),
-							luaState.toJavaObject(i + 2,
+							toArgument(luaState, i + 2,
 									invocable.getParameterType(i)));
 				}
 			} else {
 				for (int i = 0; i < parameterCount; i++) {
-					arguments[i] = luaState.toJavaObject(i + 2,
+					arguments[i] = toArgument(luaState, i + 2,
 							invocable.getParameterType(i));
 				}
 			}
@@ -1046,11 +1067,53 @@ public class DefaultJavaReflector implements JavaReflector {
 
 		// -- Private methods
 		/**
-		 * Creates a Lua call signature.
+		 * Returns an argument converted to a parameter type. Nil is rejected
+		 * for primitive parameters, as generated functions do.
+		 */
+		private Object toArgument(LuaState luaState, int index, Class<?> type) {
+			Object argument = luaState.toJavaObject(index, type);
+			if (argument == null && type.isPrimitive()) {
+				luaState.checkArg(index, false,
+						AccessorGenerator.getPrimitiveArgMessage(type));
+			}
+			return argument;
+		}
+
+		/**
+		 * Returns the generated function invoking the only invocable of this
+		 * accessor, or <code>null</code> if the invocable does not match the
+		 * call or if the function cannot be generated.
+		 */
+		private JavaFunction getGeneratedFunction(LuaState luaState,
+				boolean staticDispatch) {
+			if (invocables.size() != 1) {
+				return null;
+			}
+			Invocable invocable = invocables.get(0);
+			if (Modifier.isStatic(invocable.getModifiers()) != staticDispatch
+					|| invocable.isVarArgs()
+					|| invocable.isRawReturn()
+					|| invocable.getParameterCount() != luaState.getTop() - 1) {
+				return null;
+			}
+			if (!generated) {
+				generatedFunction = AccessorGenerator.generate(invocable
+						.getMember());
+				generated = true;
+			}
+			return generatedFunction;
+		}
+
+		/**
+		 * Returns the Lua call signature of the current call. The signature is
+		 * reused by the next calls of the current thread, and must be copied
+		 * to be kept.
 		 */
 		private LuaCallSignature getLuaCallSignature(LuaState luaState) {
 			int argCount = luaState.getTop() - 1;
-			Object[] types = new Object[argCount];
+			LuaCallSignature luaCallSignature = lookupSignatures.get();
+			Object[] types = luaCallSignature.reset(clazz, getName(),
+					argCount);
 			for (int i = 0; i < argCount; i++) {
 				LuaType type = luaState.type(i + 2);
 				switch (type) {
@@ -1074,7 +1137,8 @@ public class DefaultJavaReflector implements JavaReflector {
 					types[i] = type;
 				}
 			}
-			return new LuaCallSignature(clazz, getName(), types);
+			luaCallSignature.computeHashCode();
+			return luaCallSignature;
 		}
 
 		/**
@@ -1423,6 +1487,12 @@ public class DefaultJavaReflector implements JavaReflector {
 		public Object invoke(Object obj, Object... args)
 				throws InstantiationException, IllegalAccessException,
 				IllegalArgumentException, InvocationTargetException;
+
+		/**
+		 * Returns the reflected member of this invocable, or <code>null</code>
+		 * if it has none.
+		 */
+		public Member getMember();
 	}
 
 	/**
@@ -1502,6 +1572,11 @@ public class DefaultJavaReflector implements JavaReflector {
 			return method.invoke(obj, args);
 		}
 
+		@Override
+		public Member getMember() {
+			return method;
+		}
+
 		@Override
 		public String toString() {
 			return method.toString();
@@ -1586,6 +1661,11 @@ public class DefaultJavaReflector implements JavaReflector {
 			return constructor.newInstance(args);
 		}
 
+		@Override
+		public Member getMember() {
+			return constructor;
+		}
+
 		@Override
 		public String toString() {
 			return constructor.toString();
@@ -1670,6 +1750,11 @@ public class DefaultJavaReflector implements JavaReflector {
 			return proxy;
 		}
 
+		@Override
+		public Member getMember() {
+			return null;
+		}
+
 		@Override
 		public String toString() {
 			return interfaze.toString();
@@ -1678,15 +1763,32 @@ public class DefaultJavaReflector implements JavaReflector {
 
 	/**
 	 * Lua call signature.
+	 * 
+	 * <p>
+	 * Signatures are looked up with an instance per thread, reset for each
+	 * call, whose types array is only reallocated for calls with more
+	 * arguments than any previous one. Signatures are copied to be cached.
+	 * </p>
 	 */
 	private static class LuaCallSignature {
+		// -- Static
+		private static final int INITIAL_TYPE_CAPACITY = 4;
+
 		// -- State
 		private Class<?> clazz;
 		private String invocableName;
 		private Object[] types;
+		private int typeCount;
 		private int hashCode;
 
 		// -- Construction
+		/**
+		 * Creates a new instance, for lookups.
+		 */
+		public LuaCallSignature() {
+			types = new Object[INITIAL_TYPE_CAPACITY];
+		}
+
 		/**
 		 * Creates a new instance.
 		 */
@@ -1695,13 +1797,46 @@ public class DefaultJavaReflector implements JavaReflector {
 			this.clazz = clazz;
 			this.invocableName = invocableName;
 			this.types = types;
+			typeCount = types.length;
+			computeHashCode();
+		}
+
+		// -- Methods
+		/**
+		 * Resets this signature for a call, and returns the array where to set
+		 * its types.
+		 */
+		public Object[] reset(Class<?> clazz, String invocableName,
+				int typeCount) {
+			this.clazz = clazz;
+			this.invocableName = invocableName;
+			this.typeCount = typeCount;
+			if (types.length < typeCount) {
+				types = new Object[typeCount];
+			}
+			return types;
+		}
+
+		/**
+		 * Computes the hash code of this signature, once its types are set.
+		 */
+		public void computeHashCode() {
 			hashCode = clazz.hashCode();
 			hashCode = hashCode * 65599 + invocableName.hashCode();
-			for (int i = 0; i < types.length; i++) {
+			for (int i = 0; i < typeCount; i++) {
 				hashCode = hashCode * 65599 + types[i].hashCode();
 			}
 		}
 
+		/**
+		 * Returns a copy of this signature, to be kept.
+		 */
+		public LuaCallSignature copy() {
+			Object[] copiedTypes = new Object[typeCount];
+			System.arraycopy(types, 0, copiedTypes, 0, typeCount);
+			return new LuaCallSignature(clazz, invocableName, copiedTypes);
+		}
+
 		@Override
 		public int hashCode() {
 			return hashCode;
@@ -1718,10 +1853,10 @@ public class DefaultJavaReflector implements JavaReflector {
 			LuaCallSignature other = (LuaCallSignature) obj;
 			if (clazz != other.clazz
 					|| !invocableName.equals(other.invocableName)
-					|| types.length != other.types.length) {
+					|| typeCount != other.typeCount) {
 				return false;
 			}
-			for (int i = 0; i < types.length; i++) {
+			for (int i = 0; i < typeCount; i++) {
 				if (types[i] != other.types[i]) {
 					return false;
 				}
@@ -1732,7 +1867,7 @@ public class DefaultJavaReflector implements JavaReflector {
 		@Override
 		public String toString() {
 			return clazz.getCanonicalName() + ": " + invocableName + "("
-					+ Arrays.asList(types) + ")";
+					+ Arrays.asList(types).subList(0, typeCount) + ")";
 		}
 	}
 }
@@ -14,7 +14,10 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import com.naef.jnlua.JavaReflector.Metamethod;
@@ -41,7 +44,8 @@ import com.naef.jnlua.JavaReflector.Metamethod;
  * <tr>
  * <td>{@link java.lang.IllegalStateException}</td>
  * <td>if the Lua state is closed and the API does not explicitly specify that
- * the method may be invoked on a closed Lua state</td>
+ * the method may be invoked on a closed Lua state, or if the Lua state is
+ * confined to another thread</td>
  * </tr>
  * <tr>
  * <td>{@link java.lang.IllegalArgumentException}</td>
@@ -198,6 +202,12 @@ public class LuaState {
 	 */
 	private ReferenceQueue<LuaValueProxyImpl> proxyQueue = new ReferenceQueue<LuaValueProxyImpl>();
 
+	/**
+	 * The thread this Lua state is confined to, or <code>null</code> if it may
+	 * be used by any thread.
+	 */
+	private volatile Thread owner;
+
 	// -- Construction
 	/**
 	 * Creates a new instance. The class loader of this Lua state is set to the
@@ -382,6 +392,53 @@ public class LuaState {
 	}
 
 	// -- Life cycle
+	/**
+	 * Returns whether this Lua state is confined to a thread.
+	 * 
+	 * <p>
+	 * The method may be invoked on a closed Lua state.
+	 * </p>
+	 * 
+	 * @return whether this Lua state is confined
+	 * @see #setConfined(boolean)
+	 */
+	public boolean isConfined() {
+		return owner != null;
+	}
+
+	/**
+	 * Confines this Lua state to the calling thread, or releases it.
+	 * 
+	 * <p>
+	 * Only the thread which confined a Lua state may use it, and release it.
+	 * Stack and argument methods of a confined Lua state do not synchronize on
+	 * it, and Lua value proxies collected meanwhile are released only on
+	 * {@link #call(int, int)}, {@link #gc(GcAction, int)} and when the Lua
+	 * state is released, rather than on each method invocation. This makes
+	 * pushing and checking values cheaper for a Lua state used by a single
+	 * thread at a time.
+	 * </p>
+	 * 
+	 * <p>
+	 * The method may be invoked on a closed Lua state.
+	 * </p>
+	 * 
+	 * @param confined
+	 *            whether this Lua state is confined to the calling thread
+	 * @throws IllegalStateException
+	 *             if the Lua state is confined to another thread
+	 */
+	public synchronized void setConfined(boolean confined) {
+		if (owner != null && owner != Thread.currentThread()) {
+			throw new IllegalStateException(
+					"Lua state is confined to another thread");
+		}
+		owner = confined ? Thread.currentThread() : null;
+		if (!confined && isOpenInternal()) {
+			releaseProxies();
+		}
+	}
+
 	/**
 	 * Returns whether this Lua state is open.
 	 * 
@@ -419,6 +476,7 @@ public class LuaState {
 	 */
 	public synchronized int gc(GcAction what, int data) {
 		check();
+		releaseConfinedProxies();
 		return lua_gc(what.ordinal(), data);
 	}
 
@@ -582,6 +640,7 @@ public class LuaState {
 	 */
 	public synchronized void call(int argCount, int returnCount) {
 		check();
+		releaseConfinedProxies();
 		lua_pcall(argCount, returnCount);
 	}
 
@@ -592,9 +651,16 @@ public class LuaState {
 	 * @param name
 	 *            the global variable name
 	 */
-	public synchronized void getGlobal(String name) {
-		check();
-		lua_getglobal(name);
+	public void getGlobal(String name) {
+		if (owner != null) {
+			checkConfined();
+			lua_getglobal(name);
+		} else {
+			synchronized (this) {
+				check();
+				lua_getglobal(name);
+			}
+		}
 	}
 
 	/**
@@ -604,10 +670,17 @@ public class LuaState {
 	 * @param name
 	 *            the global variable name
 	 */
-	public synchronized void setGlobal(String name)
+	public void setGlobal(String name)
 			throws LuaMemoryAllocationException, LuaRuntimeException {
-		check();
-		lua_setglobal(name);
+		if (owner != null) {
+			checkConfined();
+			lua_setglobal(name);
+		} else {
+			synchronized (this) {
+				check();
+				lua_setglobal(name);
+			}
+		}
 	}
 
 	// -- Stack push
@@ -617,9 +690,16 @@ public class LuaState {
 	 * @param b
 	 *            the boolean value to push
 	 */
-	public synchronized void pushBoolean(boolean b) {
-		check();
-		lua_pushboolean(b ? 1 : 0);
+	public void pushBoolean(boolean b) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushboolean(b ? 1 : 0);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushboolean(b ? 1 : 0);
+			}
+		}
 	}
 
 	/**
@@ -628,9 +708,70 @@ public class LuaState {
 	 * @param b
 	 *            the byte array to push
 	 */
-	public synchronized void pushByteArray(byte[] b) {
+	public void pushByteArray(byte[] b) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushbytearray(b);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushbytearray(b);
+			}
+		}
+	}
+
+	/**
+	 * Pushes the remaining bytes of a byte buffer as a string value on the
+	 * stack. The position of the buffer is not changed.
+	 * 
+	 * <p>
+	 * A buffer backed by an array and spanning the whole array is pushed
+	 * without copying its bytes on the Java side. Other buffers, direct ones
+	 * included, are copied once into an array, as the native library takes
+	 * strings as arrays. Lua copies the bytes of any string it creates, so no
+	 * push is free of copies on the Lua side.
+	 * </p>
+	 * 
+	 * @param buffer
+	 *            the byte buffer to push
+	 */
+	public synchronized void pushByteBuffer(ByteBuffer buffer) {
 		check();
-		lua_pushbytearray(b);
+		if (buffer.hasArray() && buffer.arrayOffset() == 0
+				&& buffer.position() == 0
+				&& buffer.limit() == buffer.array().length) {
+			lua_pushbytearray(buffer.array());
+		} else {
+			byte[] b = new byte[buffer.remaining()];
+			buffer.duplicate().get(b);
+			lua_pushbytearray(b);
+		}
+	}
+
+	/**
+	 * Pushes a character sequence as a string value encoded in UTF-8 on the
+	 * stack.
+	 * 
+	 * <p>
+	 * Unlike {@link #pushString(String)}, the characters are encoded in
+	 * standard UTF-8 rather than in the modified UTF-8 of JNI, and no
+	 * intermediate string is created for character sequences other than
+	 * strings.
+	 * </p>
+	 * 
+	 * @param s
+	 *            the character sequence to push
+	 */
+	public void pushCharSequence(CharSequence s) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushbytearray(encodeUtf8(s));
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushbytearray(encodeUtf8(s));
+			}
+		}
 	}
 
 	/**
@@ -639,9 +780,16 @@ public class LuaState {
 	 * @param n
 	 *            the integer value to push
 	 */
-	public synchronized void pushInteger(int n) {
-		check();
-		lua_pushinteger(n);
+	public void pushInteger(int n) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushinteger(n);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushinteger(n);
+			}
+		}
 	}
 
 	/**
@@ -650,9 +798,16 @@ public class LuaState {
 	 * @param javaFunction
 	 *            the function to push
 	 */
-	public synchronized void pushJavaFunction(JavaFunction javaFunction) {
-		check();
-		lua_pushjavafunction(javaFunction);
+	public void pushJavaFunction(JavaFunction javaFunction) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushjavafunction(javaFunction);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushjavafunction(javaFunction);
+			}
+		}
 	}
 
 	/**
@@ -664,9 +819,16 @@ public class LuaState {
 	 * @see #getConverter()
 	 * @see #setConverter(Converter)
 	 */
-	public synchronized void pushJavaObject(Object object) {
-		check();
-		getConverter().convertJavaObject(this, object);
+	public void pushJavaObject(Object object) {
+		if (owner != null) {
+			checkConfined();
+			getConverter().convertJavaObject(this, object);
+		} else {
+			synchronized (this) {
+				check();
+				getConverter().convertJavaObject(this, object);
+			}
+		}
 	}
 
 	/**
@@ -688,17 +850,31 @@ public class LuaState {
 	 *            the Java object
 	 * @see #pushJavaObject(Object)
 	 */
-	public synchronized void pushJavaObjectRaw(Object object) {
-		check();
-		lua_pushjavaobject(object);
+	public void pushJavaObjectRaw(Object object) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushjavaobject(object);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushjavaobject(object);
+			}
+		}
 	}
 
 	/**
 	 * Pushes a nil value on the stack.
 	 */
-	public synchronized void pushNil() {
-		check();
-		lua_pushnil();
+	public void pushNil() {
+		if (owner != null) {
+			checkConfined();
+			lua_pushnil();
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushnil();
+			}
+		}
 	}
 
 	/**
@@ -707,9 +883,16 @@ public class LuaState {
 	 * @param n
 	 *            the number to push
 	 */
-	public synchronized void pushNumber(double n) {
-		check();
-		lua_pushnumber(n);
+	public void pushNumber(double n) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushnumber(n);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushnumber(n);
+			}
+		}
 	}
 
 	/**
@@ -718,9 +901,16 @@ public class LuaState {
 	 * @param s
 	 *            the string value to push
 	 */
-	public synchronized void pushString(String s) {
-		check();
-		lua_pushstring(s);
+	public void pushString(String s) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushstring(s);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushstring(s);
+			}
+		}
 	}
 
 	// -- Stack type test
@@ -735,9 +925,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a boolean
 	 */
-	public synchronized boolean isBoolean(int index) {
-		check();
-		return lua_isboolean(index) != 0;
+	public boolean isBoolean(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isboolean(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isboolean(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -751,9 +948,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a function
 	 */
-	public synchronized boolean isCFunction(int index) {
-		check();
-		return lua_iscfunction(index) != 0;
+	public boolean isCFunction(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_iscfunction(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_iscfunction(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -768,9 +972,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a function
 	 */
-	public synchronized boolean isFunction(int index) {
-		check();
-		return lua_isfunction(index) != 0;
+	public boolean isFunction(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isfunction(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isfunction(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -785,9 +996,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a function
 	 */
-	public synchronized boolean isJavaFunction(int index) {
-		check();
-		return lua_isjavafunction(index) != 0;
+	public boolean isJavaFunction(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isjavafunction(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isjavafunction(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -806,9 +1024,16 @@ public class LuaState {
 	 * @see #setConverter(Converter)
 	 * @see #getConverter()
 	 */
-	public synchronized boolean isJavaObject(int index, Class<?> type) {
-		check();
-		return converter.getTypeDistance(this, index, type) != Integer.MAX_VALUE;
+	public boolean isJavaObject(int index, Class<?> type) {
+		if (owner != null) {
+			checkConfined();
+			return converter.getTypeDistance(this, index, type) != Integer.MAX_VALUE;
+		} else {
+			synchronized (this) {
+				check();
+				return converter.getTypeDistance(this, index, type) != Integer.MAX_VALUE;
+			}
+		}
 	}
 
 	/**
@@ -829,9 +1054,16 @@ public class LuaState {
 	 * @return whether the value is a Java object
 	 * @see #isJavaObject(int, Class)
 	 */
-	public synchronized boolean isJavaObjectRaw(int index) {
-		check();
-		return lua_isjavaobject(index) != 0;
+	public boolean isJavaObjectRaw(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isjavaobject(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isjavaobject(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -846,9 +1078,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is <code>nil</code>
 	 */
-	public synchronized boolean isNil(int index) {
-		check();
-		return lua_isnil(index) != 0;
+	public boolean isNil(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isnil(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isnil(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -862,9 +1101,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the stack index is non-valid
 	 */
-	public synchronized boolean isNone(int index) {
-		check();
-		return lua_isnone(index) != 0;
+	public boolean isNone(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isnone(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isnone(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -880,9 +1126,16 @@ public class LuaState {
 	 * @return whether the stack index is non-valid or its value is
 	 *         <code>nil</code>
 	 */
-	public synchronized boolean isNoneOrNil(int index) {
-		check();
-		return lua_isnoneornil(index) != 0;
+	public boolean isNoneOrNil(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isnoneornil(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isnoneornil(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -897,9 +1150,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a number or a string convertible to a number
 	 */
-	public synchronized boolean isNumber(int index) {
-		check();
-		return lua_isnumber(index) != 0;
+	public boolean isNumber(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isnumber(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isnumber(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -914,9 +1174,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a string or a number
 	 */
-	public synchronized boolean isString(int index) {
-		check();
-		return lua_isstring(index) != 0;
+	public boolean isString(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isstring(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isstring(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -930,9 +1197,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a table
 	 */
-	public synchronized boolean isTable(int index) {
-		check();
-		return lua_istable(index) != 0;
+	public boolean isTable(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_istable(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_istable(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -946,9 +1220,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return whether the value is a thread
 	 */
-	public synchronized boolean isThread(int index) {
-		check();
-		return lua_isthread(index) != 0;
+	public boolean isThread(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_isthread(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_isthread(index) != 0;
+			}
+		}
 	}
 
 	// -- Stack query
@@ -970,10 +1251,17 @@ public class LuaState {
 	 * @return the result of the comparison
 	 * @since JNLua 1.0.0
 	 */
-	public synchronized boolean compare(int index1, int index2,
+	public boolean compare(int index1, int index2,
 			RelOperator operator) {
-		check();
-		return lua_compare(index1, index2, operator.ordinal()) != 0;
+		if (owner != null) {
+			checkConfined();
+			return lua_compare(index1, index2, operator.ordinal()) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_compare(index1, index2, operator.ordinal()) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1036,9 +1324,16 @@ public class LuaState {
 	 *            the second stack index
 	 * @return whether the values are equal
 	 */
-	public synchronized boolean rawEqual(int index1, int index2) {
-		check();
-		return lua_rawequal(index1, index2) != 0;
+	public boolean rawEqual(int index1, int index2) {
+		if (owner != null) {
+			checkConfined();
+			return lua_rawequal(index1, index2) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_rawequal(index1, index2) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1051,9 +1346,16 @@ public class LuaState {
 	 * @return the length
 	 * @since JNLua 1.0.0
 	 */
-	public synchronized int rawLen(int index) {
-		check();
-		return lua_rawlen(index);
+	public int rawLen(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_rawlen(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_rawlen(index);
+			}
+		}
 	}
 
 	/**
@@ -1066,9 +1368,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the boolean representation of the value
 	 */
-	public synchronized boolean toBoolean(int index) {
-		check();
-		return lua_toboolean(index) != 0;
+	public boolean toBoolean(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_toboolean(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_toboolean(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1081,9 +1390,45 @@ public class LuaState {
 	 *            the stack index
 	 * @return the byte array representation of the value
 	 */
-	public synchronized byte[] toByteArray(int index) {
-		check();
-		return lua_tobytearray(index);
+	public byte[] toByteArray(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tobytearray(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tobytearray(index);
+			}
+		}
+	}
+
+	/**
+	 * Returns the bytes of the value at the specified stack index as a byte
+	 * buffer. The value must be a string or a number. If the value is a
+	 * number, it is in place converted to a string. Otherwise, the method
+	 * returns <code>null</code>.
+	 * 
+	 * <p>
+	 * The buffer wraps the byte array returned by {@link #toByteArray(int)}
+	 * without copying it.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index
+	 * @return the bytes of the value
+	 */
+	public ByteBuffer toByteBuffer(int index) {
+		if (owner != null) {
+			checkConfined();
+			byte[] b = lua_tobytearray(index);
+			return b != null ? ByteBuffer.wrap(b) : null;
+		} else {
+			synchronized (this) {
+				check();
+				byte[] b = lua_tobytearray(index);
+				return b != null ? ByteBuffer.wrap(b) : null;
+			}
+		}
 	}
 
 	/**
@@ -1095,9 +1440,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the integer representation, or <code>0</code>
 	 */
-	public synchronized int toInteger(int index) {
-		check();
-		return lua_tointeger(index);
+	public int toInteger(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tointeger(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tointeger(index);
+			}
+		}
 	}
 
 	/**
@@ -1110,9 +1462,16 @@ public class LuaState {
 	 * @return the integer representation, or <code>null</code>
 	 * @since JNLua 1.0.2
 	 */
-	public synchronized Integer toIntegerX(int index) {
-		check();
-		return lua_tointegerx(index);
+	public Integer toIntegerX(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tointegerx(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tointegerx(index);
+			}
+		}
 	}
 
 	/**
@@ -1123,9 +1482,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the Java function, or <code>null</code>
 	 */
-	public synchronized JavaFunction toJavaFunction(int index) {
-		check();
-		return lua_tojavafunction(index);
+	public JavaFunction toJavaFunction(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tojavafunction(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tojavafunction(index);
+			}
+		}
 	}
 
 	/**
@@ -1144,9 +1510,16 @@ public class LuaState {
 	 * @see #getConverter()
 	 * @see #setConverter(Converter)
 	 */
-	public synchronized <T> T toJavaObject(int index, Class<T> type) {
-		check();
-		return converter.convertLuaValue(this, index, type);
+	public <T> T toJavaObject(int index, Class<T> type) {
+		if (owner != null) {
+			checkConfined();
+			return converter.convertLuaValue(this, index, type);
+		} else {
+			synchronized (this) {
+				check();
+				return converter.convertLuaValue(this, index, type);
+			}
+		}
 	}
 
 	/**
@@ -1164,9 +1537,16 @@ public class LuaState {
 	 * @return the Java object, or <code>null</code>
 	 * @see #toJavaObject(int, Class)
 	 */
-	public synchronized Object toJavaObjectRaw(int index) {
-		check();
-		return lua_tojavaobject(index);
+	public Object toJavaObjectRaw(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tojavaobject(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tojavaobject(index);
+			}
+		}
 	}
 
 	/**
@@ -1178,9 +1558,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the number representation, or <code>0.0</code>
 	 */
-	public synchronized double toNumber(int index) {
-		check();
-		return lua_tonumber(index);
+	public double toNumber(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tonumber(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tonumber(index);
+			}
+		}
 	}
 
 	/**
@@ -1193,9 +1580,16 @@ public class LuaState {
 	 * @return the number representation, or <code>null</code>
 	 * @since JNLua 1.0.2
 	 */
-	public synchronized Double toNumberX(int index) {
-		check();
-		return lua_tonumberx(index);
+	public Double toNumberX(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tonumberx(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tonumberx(index);
+			}
+		}
 	}
 
 	/**
@@ -1209,9 +1603,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the pointer representation, or <code>0L</code> if none
 	 */
-	public synchronized long toPointer(int index) {
-		check();
-		return lua_topointer(index);
+	public long toPointer(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_topointer(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_topointer(index);
+			}
+		}
 	}
 
 	/**
@@ -1224,9 +1625,16 @@ public class LuaState {
 	 *            the stack index
 	 * @return the string representation, or <code>null</code>
 	 */
-	public synchronized String toString(int index) {
-		check();
-		return lua_tostring(index);
+	public String toString(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tostring(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tostring(index);
+			}
+		}
 	}
 
 	/**
@@ -1240,10 +1648,18 @@ public class LuaState {
 	 *            the stack index
 	 * @return the type, or <code>null</code> if the stack index is non-valid
 	 */
-	public synchronized LuaType type(int index) {
-		check();
-		int type = lua_type(index);
-		return type >= 0 ? LuaType.values()[type] : null;
+	public LuaType type(int index) {
+		if (owner != null) {
+			checkConfined();
+			int type = lua_type(index);
+			return type >= 0 ? LuaType.values()[type] : null;
+		} else {
+			synchronized (this) {
+				check();
+				int type = lua_type(index);
+				return type >= 0 ? LuaType.values()[type] : null;
+			}
+		}
 	}
 
 	/**
@@ -1298,9 +1714,16 @@ public class LuaState {
 	 * @return the absolute stack index
 	 * @since JNLua 1.0.0
 	 */
-	public synchronized int absIndex(int index) {
-		check();
-		return lua_absindex(index);
+	public int absIndex(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_absindex(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_absindex(index);
+			}
+		}
 	}
 
 	/**
@@ -1311,9 +1734,16 @@ public class LuaState {
 	 *            the operator to apply
 	 * @since JNLua 1.0.0
 	 */
-	public synchronized void arith(ArithOperator operator) {
-		check();
-		lua_arith(operator.ordinal());
+	public void arith(ArithOperator operator) {
+		if (owner != null) {
+			checkConfined();
+			lua_arith(operator.ordinal());
+		} else {
+			synchronized (this) {
+				check();
+				lua_arith(operator.ordinal());
+			}
+		}
 	}
 
 	/**
@@ -1323,9 +1753,16 @@ public class LuaState {
 	 * @param n
 	 *            the number of values to concatenate
 	 */
-	public synchronized void concat(int n) {
-		check();
-		lua_concat(n);
+	public void concat(int n) {
+		if (owner != null) {
+			checkConfined();
+			lua_concat(n);
+		} else {
+			synchronized (this) {
+				check();
+				lua_concat(n);
+			}
+		}
 	}
 
 	/**
@@ -1338,9 +1775,16 @@ public class LuaState {
 	 *            the index to copy to
 	 * @since JNLua 1.0.0
 	 */
-	public synchronized void copy(int fromIndex, int toIndex) {
-		check();
-		lua_copy(fromIndex, toIndex);
+	public void copy(int fromIndex, int toIndex) {
+		if (owner != null) {
+			checkConfined();
+			lua_copy(fromIndex, toIndex);
+		} else {
+			synchronized (this) {
+				check();
+				lua_copy(fromIndex, toIndex);
+			}
+		}
 	}
 
 	/**
@@ -1348,9 +1792,16 @@ public class LuaState {
 	 * 
 	 * @return the number of values on the tack
 	 */
-	public synchronized int getTop() {
-		check();
-		return lua_gettop();
+	public int getTop() {
+		if (owner != null) {
+			checkConfined();
+			return lua_gettop();
+		} else {
+			synchronized (this) {
+				check();
+				return lua_gettop();
+			}
+		}
 	}
 
 	/**
@@ -1362,9 +1813,16 @@ public class LuaState {
 	 *            the index for which to push the length
 	 * @since JNLua 1.0.0
 	 */
-	public synchronized void len(int index) {
-		check();
-		lua_len(index);
+	public void len(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_len(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_len(index);
+			}
+		}
 	}
 
 	/**
@@ -1374,9 +1832,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index
 	 */
-	public synchronized void insert(int index) {
-		check();
-		lua_insert(index);
+	public void insert(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_insert(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_insert(index);
+			}
+		}
 	}
 
 	/**
@@ -1385,9 +1850,16 @@ public class LuaState {
 	 * @param count
 	 *            the number of values to pop
 	 */
-	public synchronized void pop(int count) {
-		check();
-		lua_pop(count);
+	public void pop(int count) {
+		if (owner != null) {
+			checkConfined();
+			lua_pop(count);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pop(count);
+			}
+		}
 	}
 
 	/**
@@ -1396,9 +1868,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index
 	 */
-	public synchronized void pushValue(int index) {
-		check();
-		lua_pushvalue(index);
+	public void pushValue(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_pushvalue(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_pushvalue(index);
+			}
+		}
 	}
 
 	/**
@@ -1408,10 +1887,17 @@ public class LuaState {
 	 * @param index
 	 *            the stack index
 	 */
-	public synchronized void remove(int index) {
-		check();
-		lua_remove(index);
-	}
+	public void remove(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_remove(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_remove(index);
+			}
+		}
+	}
 
 	/**
 	 * Replaces the value at the specified index with the value popped from the
@@ -1420,9 +1906,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index
 	 */
-	public synchronized void replace(int index) {
-		check();
-		lua_replace(index);
+	public void replace(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_replace(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_replace(index);
+			}
+		}
 	}
 
 	/**
@@ -1436,9 +1929,16 @@ public class LuaState {
 	 * @param index
 	 *            the index of the new top of the stack
 	 */
-	public synchronized void setTop(int index) {
-		check();
-		lua_settop(index);
+	public void setTop(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_settop(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_settop(index);
+			}
+		}
 	}
 
 	// -- Table
@@ -1450,9 +1950,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the table
 	 */
-	public synchronized void getTable(int index) {
-		check();
-		lua_gettable(index);
+	public void getTable(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_gettable(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_gettable(index);
+			}
+		}
 	}
 
 	/**
@@ -1464,17 +1971,31 @@ public class LuaState {
 	 * @param key
 	 *            the string key
 	 */
-	public synchronized void getField(int index, String key) {
-		check();
-		lua_getfield(index, key);
+	public void getField(int index, String key) {
+		if (owner != null) {
+			checkConfined();
+			lua_getfield(index, key);
+		} else {
+			synchronized (this) {
+				check();
+				lua_getfield(index, key);
+			}
+		}
 	}
 
 	/**
 	 * Creates a new table and pushes it on the stack.
 	 */
-	public synchronized void newTable() {
-		check();
-		lua_newtable();
+	public void newTable() {
+		if (owner != null) {
+			checkConfined();
+			lua_newtable();
+		} else {
+			synchronized (this) {
+				check();
+				lua_newtable();
+			}
+		}
 	}
 
 	/**
@@ -1486,9 +2007,16 @@ public class LuaState {
 	 * @param recordCount
 	 *            the number of record elements
 	 */
-	public synchronized void newTable(int arrayCount, int recordCount) {
-		check();
-		lua_createtable(arrayCount, recordCount);
+	public void newTable(int arrayCount, int recordCount) {
+		if (owner != null) {
+			checkConfined();
+			lua_createtable(arrayCount, recordCount);
+		} else {
+			synchronized (this) {
+				check();
+				lua_createtable(arrayCount, recordCount);
+			}
+		}
 	}
 
 	/**
@@ -1501,9 +2029,16 @@ public class LuaState {
 	 *            the stack index containing the table
 	 * @return whether there is a next key
 	 */
-	public synchronized boolean next(int index) {
-		check();
-		return lua_next(index) != 0;
+	public boolean next(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_next(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_next(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1514,9 +2049,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the table
 	 */
-	public synchronized void rawGet(int index) {
-		check();
-		lua_rawget(index);
+	public void rawGet(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_rawget(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_rawget(index);
+			}
+		}
 	}
 
 	/**
@@ -1528,9 +2070,16 @@ public class LuaState {
 	 * @param key
 	 *            the integer key
 	 */
-	public synchronized void rawGet(int index, int key) {
-		check();
-		lua_rawgeti(index, key);
+	public void rawGet(int index, int key) {
+		if (owner != null) {
+			checkConfined();
+			lua_rawgeti(index, key);
+		} else {
+			synchronized (this) {
+				check();
+				lua_rawgeti(index, key);
+			}
+		}
 	}
 
 	/**
@@ -1542,9 +2091,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the table
 	 */
-	public synchronized void rawSet(int index) {
-		check();
-		lua_rawset(index);
+	public void rawSet(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_rawset(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_rawset(index);
+			}
+		}
 	}
 
 	/**
@@ -1557,9 +2113,16 @@ public class LuaState {
 	 * @param key
 	 *            the integer key
 	 */
-	public synchronized void rawSet(int index, int key) {
-		check();
-		lua_rawseti(index, key);
+	public void rawSet(int index, int key) {
+		if (owner != null) {
+			checkConfined();
+			lua_rawseti(index, key);
+		} else {
+			synchronized (this) {
+				check();
+				lua_rawseti(index, key);
+			}
+		}
 	}
 
 	/**
@@ -1570,9 +2133,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the table
 	 */
-	public synchronized void setTable(int index) {
-		check();
-		lua_settable(index);
+	public void setTable(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_settable(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_settable(index);
+			}
+		}
 	}
 
 	/**
@@ -1584,9 +2154,16 @@ public class LuaState {
 	 * @param key
 	 *            the string key
 	 */
-	public synchronized void setField(int index, String key) {
-		check();
-		lua_setfield(index, key);
+	public void setField(int index, String key) {
+		if (owner != null) {
+			checkConfined();
+			lua_setfield(index, key);
+		} else {
+			synchronized (this) {
+				check();
+				lua_setfield(index, key);
+			}
+		}
 	}
 
 	// -- Metatable
@@ -1602,9 +2179,16 @@ public class LuaState {
 	 *            the string key
 	 * @return whether the metafield was pushed on the stack
 	 */
-	public synchronized boolean getMetafield(int index, String key) {
-		check();
-		return lua_getmetafield(index, key) != 0;
+	public boolean getMetafield(int index, String key) {
+		if (owner != null) {
+			checkConfined();
+			return lua_getmetafield(index, key) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_getmetafield(index, key) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1616,9 +2200,16 @@ public class LuaState {
 	 *            the stack index containing the value to get the metatable from
 	 * @return whether the metatable was pushed on the stack
 	 */
-	public synchronized boolean getMetatable(int index) {
-		check();
-		return lua_getmetatable(index) != 0;
+	public boolean getMetatable(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_getmetatable(index) != 0;
+		} else {
+			synchronized (this) {
+				check();
+				return lua_getmetatable(index) != 0;
+			}
+		}
 	}
 
 	/**
@@ -1629,9 +2220,16 @@ public class LuaState {
 	 * @param index
 	 *            the stack index containing the value to set the metatable for
 	 */
-	public synchronized void setMetatable(int index) {
-		check();
-		lua_setmetatable(index);
+	public void setMetatable(int index) {
+		if (owner != null) {
+			checkConfined();
+			lua_setmetatable(index);
+		} else {
+			synchronized (this) {
+				check();
+				lua_setmetatable(index);
+			}
+		}
 	}
 
 	// -- Thread
@@ -1742,9 +2340,16 @@ public class LuaState {
 	 *            the stack index containing the table
 	 * @return the number of entries in the table
 	 */
-	public synchronized int tableSize(int index) {
-		check();
-		return lua_tablesize(index);
+	public int tableSize(int index) {
+		if (owner != null) {
+			checkConfined();
+			return lua_tablesize(index);
+		} else {
+			synchronized (this) {
+				check();
+				return lua_tablesize(index);
+			}
+		}
 	}
 
 	/**
@@ -1765,9 +2370,176 @@ public class LuaState {
 	 * @param count
 	 *            the number of elements to move
 	 */
-	public synchronized void tableMove(int index, int from, int to, int count) {
+	public void tableMove(int index, int from, int to, int count) {
+		if (owner != null) {
+			checkConfined();
+			lua_tablemove(index, from, to, count);
+		} else {
+			synchronized (this) {
+				check();
+				lua_tablemove(index, from, to, count);
+			}
+		}
+	}
+
+	/**
+	 * Returns the elements of a table used as an array as a double array. The
+	 * length of the array is the raw length of the table. Elements must be
+	 * numbers or strings convertible to numbers.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole table.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index containing the table
+	 * @return the elements of the table
+	 * @throws ClassCastException
+	 *             if an element is not convertible to a number
+	 */
+	public synchronized double[] toDoubleArray(int index) {
 		check();
-		lua_tablemove(index, from, to, count);
+		index = lua_absindex(index);
+		double[] array = new double[lua_rawlen(index)];
+		for (int i = 0; i < array.length; i++) {
+			lua_rawgeti(index, i + 1);
+			array[i] = lua_tonumber(-1);
+			if (array[i] == 0.0 && lua_isnumber(-1) == 0) {
+				throw getElementCastException(i + 1, Double.TYPE);
+			}
+			lua_pop(1);
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the elements of a table used as an array as an integer array.
+	 * The length of the array is the raw length of the table. Elements must be
+	 * numbers or strings convertible to numbers.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole table.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index containing the table
+	 * @return the elements of the table
+	 * @throws ClassCastException
+	 *             if an element is not convertible to a number
+	 */
+	public synchronized int[] toIntArray(int index) {
+		check();
+		index = lua_absindex(index);
+		int[] array = new int[lua_rawlen(index)];
+		for (int i = 0; i < array.length; i++) {
+			lua_rawgeti(index, i + 1);
+			array[i] = lua_tointeger(-1);
+			if (array[i] == 0 && lua_isnumber(-1) == 0) {
+				throw getElementCastException(i + 1, Integer.TYPE);
+			}
+			lua_pop(1);
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the elements of a table used as an array as a string array. The
+	 * length of the array is the raw length of the table. Elements must be
+	 * strings or numbers.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole table.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index containing the table
+	 * @return the elements of the table
+	 * @throws ClassCastException
+	 *             if an element is not a string or a number
+	 */
+	public synchronized String[] toStringArray(int index) {
+		check();
+		index = lua_absindex(index);
+		String[] array = new String[lua_rawlen(index)];
+		for (int i = 0; i < array.length; i++) {
+			lua_rawgeti(index, i + 1);
+			array[i] = lua_tostring(-1);
+			if (array[i] == null) {
+				throw getElementCastException(i + 1, String.class);
+			}
+			lua_pop(1);
+		}
+		return array;
+	}
+
+	/**
+	 * Creates a new table holding the elements of a double array and pushes
+	 * it on the stack.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole array.
+	 * </p>
+	 * 
+	 * @param array
+	 *            the array
+	 */
+	public void pushArray(double[] array) {
+		if (owner != null) {
+			checkConfined();
+			lua_createtable(array.length, 0);
+			for (int i = 0; i < array.length; i++) {
+				lua_pushnumber(array[i]);
+				lua_rawseti(-2, i + 1);
+			}
+		} else {
+			synchronized (this) {
+				check();
+				lua_createtable(array.length, 0);
+				for (int i = 0; i < array.length; i++) {
+					lua_pushnumber(array[i]);
+					lua_rawseti(-2, i + 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the entries of a table. Keys and values are
+	 * converted to Java objects as by {@link #toJavaObject(int, Class)} with a
+	 * formal type of <code>Object</code>. Unlike the map returned for a formal
+	 * type of <code>Map</code>, the snapshot is not backed by the table.
+	 * 
+	 * <p>
+	 * The method provides optimized performance over a Java implementation of
+	 * the same functionality due to the Lua state being locked and checked
+	 * once for the whole table.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the stack index containing the table
+	 * @return the entries of the table
+	 */
+	public synchronized Map<Object, Object> toMap(int index) {
+		check();
+		index = lua_absindex(index);
+		Map<Object, Object> map = new HashMap<Object, Object>();
+		lua_pushnil();
+		while (lua_next(index) != 0) {
+			try {
+				map.put(toJavaObjectInternal(-2), toJavaObjectInternal(-1));
+			} finally {
+				lua_pop(1);
+			}
+		}
+		return map;
 	}
 
 	// -- Argument checking
@@ -1783,10 +2555,19 @@ public class LuaState {
 	 * @param msg
 	 *            the error message
 	 */
-	public synchronized void checkArg(int index, boolean condition, String msg) {
-		check();
-		if (!condition) {
-			throw getArgException(index, msg);
+	public void checkArg(int index, boolean condition, String msg) {
+		if (owner != null) {
+			checkConfined();
+			if (!condition) {
+				throw getArgException(index, msg);
+			}
+		} else {
+			synchronized (this) {
+				check();
+				if (!condition) {
+					throw getArgException(index, msg);
+				}
+			}
 		}
 	}
 
@@ -1800,12 +2581,22 @@ public class LuaState {
 	 *            the argument index
 	 * @return the byte array value
 	 */
-	public synchronized byte[] checkByteArray(int index) {
-		check();
-		if (!isString(index)) {
-			throw getArgTypeException(index, LuaType.STRING);
+	public byte[] checkByteArray(int index) {
+		if (owner != null) {
+			checkConfined();
+			if (!isString(index)) {
+				throw getArgTypeException(index, LuaType.STRING);
+			}
+			return toByteArray(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (!isString(index)) {
+					throw getArgTypeException(index, LuaType.STRING);
+				}
+				return toByteArray(index);
+			}
 		}
-		return toByteArray(index);
 	}
 
 	/**
@@ -1821,12 +2612,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the string value, or the default value
 	 */
-	public synchronized byte[] checkByteArray(int index, byte[] d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public byte[] checkByteArray(int index, byte[] d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkByteArray(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkByteArray(index);
+			}
 		}
-		return checkByteArray(index);
 	}
 
 	/**
@@ -1842,9 +2643,16 @@ public class LuaState {
 	 * @return the string value
 	 * @since JNLua 1.0.0
 	 */
-	public synchronized <T extends Enum<T>> T checkEnum(int index, T[] values) {
-		check();
-		return checkEnum(index, values, null);
+	public <T extends Enum<T>> T checkEnum(int index, T[] values) {
+		if (owner != null) {
+			checkConfined();
+			return checkEnum(index, values, null);
+		} else {
+			synchronized (this) {
+				check();
+				return checkEnum(index, values, null);
+			}
+		}
 	}
 
 	/**
@@ -1864,17 +2672,31 @@ public class LuaState {
 	 * @return the string value, or the default value
 	 * @since JNLua 1.0.0
 	 */
-	public synchronized <T extends Enum<T>> T checkEnum(int index, T[] values,
+	public <T extends Enum<T>> T checkEnum(int index, T[] values,
 			T d) {
-		check();
-		String s = d != null ? checkString(index, d.name())
-				: checkString(index);
-		for (int i = 0; i < values.length; i++) {
-			if (values[i].name().equals(s)) {
-				return values[i];
+		if (owner != null) {
+			checkConfined();
+			String s = d != null ? checkString(index, d.name())
+					: checkString(index);
+			for (int i = 0; i < values.length; i++) {
+				if (values[i].name().equals(s)) {
+					return values[i];
+				}
+			}
+			throw getArgException(index, String.format("invalid option '%s'", s));
+		} else {
+			synchronized (this) {
+				check();
+				String s = d != null ? checkString(index, d.name())
+						: checkString(index);
+				for (int i = 0; i < values.length; i++) {
+					if (values[i].name().equals(s)) {
+						return values[i];
+					}
+				}
+				throw getArgException(index, String.format("invalid option '%s'", s));
 			}
 		}
-		throw getArgException(index, String.format("invalid option '%s'", s));
 	}
 
 	/**
@@ -1887,13 +2709,24 @@ public class LuaState {
 	 *            the argument index
 	 * @return the integer value
 	 */
-	public synchronized int checkInteger(int index) {
-		check();
-		Integer integer = toIntegerX(index);
-		if (integer == null) {
-			throw getArgTypeException(index, LuaType.NUMBER);
+	public int checkInteger(int index) {
+		if (owner != null) {
+			checkConfined();
+			Integer integer = toIntegerX(index);
+			if (integer == null) {
+				throw getArgTypeException(index, LuaType.NUMBER);
+			}
+			return integer.intValue();
+		} else {
+			synchronized (this) {
+				check();
+				Integer integer = toIntegerX(index);
+				if (integer == null) {
+					throw getArgTypeException(index, LuaType.NUMBER);
+				}
+				return integer.intValue();
+			}
 		}
-		return integer.intValue();
 	}
 
 	/**
@@ -1910,12 +2743,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the integer value, or the default value
 	 */
-	public synchronized int checkInteger(int index, int d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public int checkInteger(int index, int d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkInteger(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkInteger(index);
+			}
 		}
-		return checkInteger(index);
 	}
 
 	/**
@@ -1936,16 +2779,30 @@ public class LuaState {
 	 *            the expected type
 	 * @return the Java object, or <code>null</code>
 	 */
-	public synchronized <T> T checkJavaObject(int index, Class<T> clazz) {
-		check();
-		if (!isJavaObject(index, clazz)) {
-			checkArg(
-					index,
-					false,
-					String.format("%s expected, got %s",
-							clazz.getCanonicalName(), typeName(index)));
+	public <T> T checkJavaObject(int index, Class<T> clazz) {
+		if (owner != null) {
+			checkConfined();
+			if (!isJavaObject(index, clazz)) {
+				checkArg(
+						index,
+						false,
+						String.format("%s expected, got %s",
+								clazz.getCanonicalName(), typeName(index)));
+			}
+			return toJavaObject(index, clazz);
+		} else {
+			synchronized (this) {
+				check();
+				if (!isJavaObject(index, clazz)) {
+					checkArg(
+							index,
+							false,
+							String.format("%s expected, got %s",
+									clazz.getCanonicalName(), typeName(index)));
+				}
+				return toJavaObject(index, clazz);
+			}
 		}
-		return toJavaObject(index, clazz);
 	}
 
 	/**
@@ -1964,12 +2821,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the Java object, or the default value
 	 */
-	public synchronized <T> T checkJavaObject(int index, Class<T> clazz, T d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public <T> T checkJavaObject(int index, Class<T> clazz, T d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkJavaObject(index, clazz);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkJavaObject(index, clazz);
+			}
 		}
-		return checkJavaObject(index, clazz);
 	}
 
 	/**
@@ -1982,13 +2849,24 @@ public class LuaState {
 	 *            the argument index
 	 * @return the number value
 	 */
-	public synchronized double checkNumber(int index) {
-		check();
-		Double number = toNumberX(index);
-		if (number == null) {
-			throw getArgTypeException(index, LuaType.NUMBER);
+	public double checkNumber(int index) {
+		if (owner != null) {
+			checkConfined();
+			Double number = toNumberX(index);
+			if (number == null) {
+				throw getArgTypeException(index, LuaType.NUMBER);
+			}
+			return number.doubleValue();
+		} else {
+			synchronized (this) {
+				check();
+				Double number = toNumberX(index);
+				if (number == null) {
+					throw getArgTypeException(index, LuaType.NUMBER);
+				}
+				return number.doubleValue();
+			}
 		}
-		return number.doubleValue();
 	}
 
 	/**
@@ -2005,12 +2883,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the number value, or the default value
 	 */
-	public synchronized double checkNumber(int index, double d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public double checkNumber(int index, double d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkNumber(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkNumber(index);
+			}
 		}
-		return checkNumber(index);
 	}
 
 	/**
@@ -2025,9 +2913,16 @@ public class LuaState {
 	 *            the options
 	 * @return the index position of the matched option
 	 */
-	public synchronized int checkOption(int index, String[] options) {
-		check();
-		return checkOption(index, options, null);
+	public int checkOption(int index, String[] options) {
+		if (owner != null) {
+			checkConfined();
+			return checkOption(index, options, null);
+		} else {
+			synchronized (this) {
+				check();
+				return checkOption(index, options, null);
+			}
+		}
 	}
 
 	/**
@@ -2046,15 +2941,28 @@ public class LuaState {
 	 *            the default value
 	 * @return the index position of the matched option
 	 */
-	public synchronized int checkOption(int index, String[] options, String d) {
-		check();
-		String s = d != null ? checkString(index, d) : checkString(index);
-		for (int i = 0; i < options.length; i++) {
-			if (options[i].equals(s)) {
-				return i;
+	public int checkOption(int index, String[] options, String d) {
+		if (owner != null) {
+			checkConfined();
+			String s = d != null ? checkString(index, d) : checkString(index);
+			for (int i = 0; i < options.length; i++) {
+				if (options[i].equals(s)) {
+					return i;
+				}
+			}
+			throw getArgException(index, String.format("invalid option '%s'", s));
+		} else {
+			synchronized (this) {
+				check();
+				String s = d != null ? checkString(index, d) : checkString(index);
+				for (int i = 0; i < options.length; i++) {
+					if (options[i].equals(s)) {
+						return i;
+					}
+				}
+				throw getArgException(index, String.format("invalid option '%s'", s));
 			}
 		}
-		throw getArgException(index, String.format("invalid option '%s'", s));
 	}
 
 	/**
@@ -2066,12 +2974,22 @@ public class LuaState {
 	 *            the argument index
 	 * @return the string value
 	 */
-	public synchronized String checkString(int index) {
-		check();
-		if (!isString(index)) {
-			throw getArgTypeException(index, LuaType.STRING);
+	public String checkString(int index) {
+		if (owner != null) {
+			checkConfined();
+			if (!isString(index)) {
+				throw getArgTypeException(index, LuaType.STRING);
+			}
+			return toString(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (!isString(index)) {
+					throw getArgTypeException(index, LuaType.STRING);
+				}
+				return toString(index);
+			}
 		}
-		return toString(index);
 	}
 
 	/**
@@ -2087,12 +3005,22 @@ public class LuaState {
 	 *            the default value
 	 * @return the string value, or the default value
 	 */
-	public synchronized String checkString(int index, String d) {
-		check();
-		if (isNoneOrNil(index)) {
-			return d;
+	public String checkString(int index, String d) {
+		if (owner != null) {
+			checkConfined();
+			if (isNoneOrNil(index)) {
+				return d;
+			}
+			return checkString(index);
+		} else {
+			synchronized (this) {
+				check();
+				if (isNoneOrNil(index)) {
+					return d;
+				}
+				return checkString(index);
+			}
 		}
-		return checkString(index);
 	}
 
 	/**
@@ -2105,10 +3033,19 @@ public class LuaState {
 	 * @param type
 	 *            the type
 	 */
-	public synchronized void checkType(int index, LuaType type) {
-		check();
-		if (type(index) != type) {
-			throw getArgTypeException(index, type);
+	public void checkType(int index, LuaType type) {
+		if (owner != null) {
+			checkConfined();
+			if (type(index) != type) {
+				throw getArgTypeException(index, type);
+			}
+		} else {
+			synchronized (this) {
+				check();
+				if (type(index) != type) {
+					throw getArgTypeException(index, type);
+				}
+			}
 		}
 	}
 
@@ -2120,10 +3057,18 @@ public class LuaState {
 	 *            the stack index containing the Lua value
 	 * @return the Lua value proxy
 	 */
-	public synchronized LuaValueProxy getProxy(int index) {
-		check();
-		pushValue(index);
-		return new LuaValueProxyImpl(ref(REGISTRYINDEX));
+	public LuaValueProxy getProxy(int index) {
+		if (owner != null) {
+			checkConfined();
+			pushValue(index);
+			return new LuaValueProxyImpl(ref(REGISTRYINDEX));
+		} else {
+			synchronized (this) {
+				check();
+				pushValue(index);
+				return new LuaValueProxyImpl(ref(REGISTRYINDEX));
+			}
+		}
 	}
 
 	/**
@@ -2140,9 +3085,16 @@ public class LuaState {
 	 * @return the proxy object
 	 */
 	@SuppressWarnings("unchecked")
-	public synchronized <T> T getProxy(int index, Class<T> interfaze) {
-		check();
-		return (T) getProxy(index, new Class<?>[] { interfaze });
+	public <T> T getProxy(int index, Class<T> interfaze) {
+		if (owner != null) {
+			checkConfined();
+			return (T) getProxy(index, new Class<?>[] { interfaze });
+		} else {
+			synchronized (this) {
+				check();
+				return (T) getProxy(index, new Class<?>[] { interfaze });
+			}
+		}
 	}
 
 	/**
@@ -2210,7 +3162,40 @@ public class LuaState {
 			throw new IllegalStateException("Lua state is closed");
 		}
 
-		// Check proxy queue
+		// Check proxy queue, only at safe points for confined states
+		if (owner != null) {
+			checkConfined();
+			return;
+		}
+		releaseProxies();
+	}
+
+	/**
+	 * Checks the state of a confined Lua state.
+	 */
+	private void checkConfined() {
+		if (owner != Thread.currentThread()) {
+			throw new IllegalStateException(
+					"Lua state is confined to another thread");
+		}
+		if (!isOpenInternal()) {
+			throw new IllegalStateException("Lua state is closed");
+		}
+	}
+
+	/**
+	 * Releases proxies of a confined Lua state.
+	 */
+	private void releaseConfinedProxies() {
+		if (owner != null) {
+			releaseProxies();
+		}
+	}
+
+	/**
+	 * Releases the Lua values of collected proxies.
+	 */
+	private void releaseProxies() {
 		LuaValueProxyRef luaValueProxyRef;
 		while ((luaValueProxyRef = (LuaValueProxyRef) proxyQueue.poll()) != null) {
 			proxySet.remove(luaValueProxyRef);
@@ -2263,6 +3248,80 @@ public class LuaState {
 		return new LuaRuntimeException(msg);
 	}
 
+	/**
+	 * Converts the value at the specified stack index to a Java object, without
+	 * going through the converter for numbers, strings and booleans.
+	 */
+	private Object toJavaObjectInternal(int index) {
+		switch (LuaType.values()[lua_type(index)]) {
+		case BOOLEAN:
+			return Boolean.valueOf(lua_toboolean(index) != 0);
+		case NUMBER:
+			return Double.valueOf(lua_tonumber(index));
+		case STRING:
+			return lua_tostring(index);
+		default:
+			return converter.convertLuaValue(this, index, Object.class);
+		}
+	}
+
+	/**
+	 * Creates a class cast exception to indicate that the array element on
+	 * top of the stack cannot be converted. The element is popped.
+	 */
+	private ClassCastException getElementCastException(int key, Class<?> type) {
+		String typeName = typeName(-1);
+		lua_pop(1);
+		return new ClassCastException(String.format(
+				"cannot convert element %d of type %s to %s", key, typeName,
+				type.getCanonicalName()));
+	}
+
+	/**
+	 * Encodes a character sequence in UTF-8 into an array of the exact size.
+	 */
+	private static byte[] encodeUtf8(CharSequence s) {
+		int length = s.length();
+		int size = 0;
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				size += 1;
+			} else if (c < 0x800) {
+				size += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				size += 4;
+				i++;
+			} else {
+				size += 3;
+			}
+		}
+		byte[] b = new byte[size];
+		int j = 0;
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				b[j++] = (byte) c;
+			} else if (c < 0x800) {
+				b[j++] = (byte) (0xc0 | c >> 6);
+				b[j++] = (byte) (0x80 | c & 0x3f);
+			} else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, s.charAt(++i));
+				b[j++] = (byte) (0xf0 | codePoint >> 18);
+				b[j++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+				b[j++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+				b[j++] = (byte) (0x80 | codePoint & 0x3f);
+			} else {
+				b[j++] = (byte) (0xe0 | c >> 12);
+				b[j++] = (byte) (0x80 | c >> 6 & 0x3f);
+				b[j++] = (byte) (0x80 | c & 0x3f);
+			}
+		}
+		return b;
+	}
+
 	// -- Native methods
 	private static native int lua_registryindex();
 
@@ -12,9 +12,16 @@ package org.eclipse.ldt.metalua;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.ldt.metalua.internal.MetaluaBytecode;
 import org.eclipse.ldt.metalua.internal.MetaluaStateFactory;
 import org.eclipse.osgi.util.NLS;
 
@@ -23,10 +30,24 @@ import com.naef.jnlua.eclipse.AbstractLuaModule;
 
 /**
  * Abstract class to manipulate Lua module
+ * <p>
+ * Metalua files are loaded from their bytecode, which the build compiles next to them with its checksum, see {@link MetaluaBytecode}. Bytecode is
+ * compiled at runtime when it is missing or stale, next to the Metalua file or in the plug-in state location when the plug-in folder is read-only.
+ * </p>
  */
 public abstract class AbstractMetaLuaModule extends AbstractLuaModule {
 
 	private static final String METALUA_PATTERN = "?.mlua;"; //$NON-NLS-1$
+	private static final String COMPILED_FOLDER = "luac"; //$NON-NLS-1$
+
+	/** Compilations are serialized, as they write in folders shared by all modules */
+	private static final Object COMPILATION_LOCK = new Object();
+
+	/** Folders holding up to date bytecode of Metalua files, checked once per session */
+	private static final Map<File, File> BYTECODE_FOLDERS = new HashMap<File, File>();
+
+	/** Folders of the plug-in state location holding bytecode, which must be searched before Metalua source folders */
+	private final List<File> compiledFolders = new ArrayList<File>();
 
 	@Override
 	protected LuaState loadLuaModule() {
@@ -39,66 +60,135 @@ public abstract class AbstractMetaLuaModule extends AbstractLuaModule {
 		super.definePaths(state);
 		final List<File> metaluaSourceFolders = getScriptFolders(getMetaLuaSourcePaths());
 		setMetaluaPath(state, metaluaSourceFolders);
+		if (!compiledFolders.isEmpty())
+			setLuaPath(state, Collections.<File> emptyList(), compiledFolders);
 	}
 
+	/**
+	 * Compile Metalua files whose bytecode is missing or stale.
+	 */
 	public void compileMetaluaFiles() {
-		final LuaState newLuaState = MetaluaStateFactory.newLuaState();
+		compileMetaluaFiles(false);
+	}
 
+	/**
+	 * @param force
+	 *            compile Metalua files even if their bytecode is up to date
+	 * @return number of compiled files
+	 */
+	public int compileMetaluaFiles(final boolean force) {
 		final List<String> metaLuaFileToCompile = getMetaLuaFileToCompile();
-		for (final String metaluaSourcePath : getMetaLuaSourcePaths()) {
-			final File metaluaSourceFile = getScriptFolder(metaluaSourcePath);
-			if (metaLuaFileToCompile != null && metaluaSourcePath != null) {
-				String filename = null;
-				try {
-					for (int k = 0; k < metaLuaFileToCompile.size(); k++) {
-						filename = metaLuaFileToCompile.get(k);
-						compileMetaluaFile(newLuaState, metaluaSourceFile, filename);
+		if (metaLuaFileToCompile == null)
+			return 0;
+
+		synchronized (COMPILATION_LOCK) {
+			// Only created when a file has to be compiled
+			LuaState newLuaState = null;
+			int compiled = 0;
+			try {
+				for (final String metaluaSourcePath : getMetaLuaSourcePaths()) {
+					final File metaluaSourceFolder = getScriptFolder(metaluaSourcePath);
+					if (metaluaSourceFolder == null)
+						continue;
+					for (final String filename : metaLuaFileToCompile) {
+						final File regular = new File(metaluaSourceFolder, filename);
+						if (!regular.isFile())
+							continue;
+						try {
+							// Bytecode already checked in this session
+							File bytecodeFolder = BYTECODE_FOLDERS.get(regular);
+							if (force || bytecodeFolder == null) {
+								final String checksum = MetaluaBytecode.computeChecksum(regular, getMetaluaFolder());
+								final File stateFolder = getCompiledFolder(metaluaSourcePath);
+								if (!force && MetaluaBytecode.isUpToDate(metaluaSourceFolder, filename, checksum)) {
+									// Bytecode compiled by a previous session
+									bytecodeFolder = metaluaSourceFolder;
+								} else if (!force && stateFolder != null && MetaluaBytecode.isUpToDate(stateFolder, filename, checksum)) {
+									bytecodeFolder = stateFolder;
+								} else {
+									bytecodeFolder = isWritable(metaluaSourceFolder, filename) || stateFolder == null ? metaluaSourceFolder
+											: stateFolder;
+									if (newLuaState == null)
+										newLuaState = MetaluaStateFactory.newLuaState();
+									compileMetaluaFile(newLuaState, metaluaSourceFolder, filename, bytecodeFolder);
+									MetaluaBytecode.writeChecksum(MetaluaBytecode.getBytecodeFile(bytecodeFolder, filename), checksum);
+									compiled++;
+								}
+								BYTECODE_FOLDERS.put(regular, bytecodeFolder);
+							}
+							if (!bytecodeFolder.equals(metaluaSourceFolder) && !compiledFolders.contains(bytecodeFolder))
+								compiledFolders.add(bytecodeFolder);
+						} catch (final IOException e) {
+							Activator.logWarning(NLS.bind("Unable to compile {0}.", filename), e); //$NON-NLS-1$
+						}
 					}
-				} catch (final IOException e) {
-					if (filename != null)
-						Activator.logWarning(NLS.bind("Unable to compile {0}.", filename), e); //$NON-NLS-1$
-					else
-						Activator.logWarning("Unable to compile Metalua file.", e); //$NON-NLS-1$
-					newLuaState.close();
 				}
+				return compiled;
+			} finally {
+				if (newLuaState != null)
+					newLuaState.close();
 			}
 		}
-		newLuaState.close();
 	}
 
 	public static void compileMetaluaFile(final LuaState luastate, final File folder, final String fileName) throws IOException {
-		final File regular = new File(folder, fileName);
-		if (regular.isFile() && regular.exists()) {
-
-			final String fileNameWithoutExtension = fileName.substring(0, fileName.lastIndexOf('.'));
-			final File build = new File(folder, fileNameWithoutExtension + ".luac"); //$NON-NLS-1$
-			// Compile metalua lib
-			final StringBuffer command = new StringBuffer("require 'metalua.loader'\n"); //$NON-NLS-1$
-			command.append("local mlc = require ('metalua.compiler').new()\n"); //$NON-NLS-1$
-			command.append("local bin = mlc:srcfile_to_bytecode([["); //$NON-NLS-1$
-			command.append(regular.getPath());
-			command.append("]])\n"); //$NON-NLS-1$
-
-			// Write compiled file on disk
-			command.append("local file = io.open([["); //$NON-NLS-1$
-			command.append(build.getPath());
-			command.append("]], 'wb') file:write(bin) file:close()\n"); //$NON-NLS-1$
-
-			int numRetry = 2;
-			for (int i = 0; i < numRetry; i++) {
-				try {
-					luastate.load(command.toString(), "libraryCompilation"); //$NON-NLS-1$
-					luastate.call(0, 0);
-					return;
-				} catch (RuntimeException e) {
-					if (i + 1 == numRetry) {
-						throw e;
-					}
-					// ignore
-				}
-			}
+		compileMetaluaFile(luastate, folder, fileName, folder);
+	}
+
+	/**
+	 * Compile a Metalua file of given folder to bytecode in given output folder, with the same relative path.
+	 */
+	public static void compileMetaluaFile(final LuaState luastate, final File folder, final String fileName, final File outputFolder)
+			throws IOException {
+		MetaluaBytecode.compile(luastate, folder, fileName, outputFolder);
+	}
+
+	/**
+	 * @return the folder of the plug-in state location where bytecode of Metalua files of given source path is written when the plug-in folder is
+	 *         read-only, <code>null</code> if state location is not available
+	 */
+	private File getCompiledFolder(final String metaluaSourcePath) {
+		final Activator activator = Activator.getDefault();
+		if (activator == null)
+			return null;
+		return activator.getStateLocation().append(COMPILED_FOLDER).append(getPluginID()).append(metaluaSourcePath).toFile();
+	}
+
+	private static File getMetaluaFolder() {
+		return new File(MetaluaStateFactory.sourcesPath());
+	}
+
+	private static boolean isWritable(final File folder, final String fileName) {
+		final File bytecode = MetaluaBytecode.getBytecodeFile(folder, fileName);
+		if (bytecode.exists())
+			return bytecode.canWrite();
+		final File parent = bytecode.getParentFile();
+		return parent.isDirectory() ? parent.canWrite() : folder.canWrite();
+	}
 
+	/**
+	 * Checksum of the scripts run by this module: all files of its Lua and Metalua source folders, but bytecode and checksums compiled from them, and
+	 * the Metalua compiler. It changes with any script, even when the bundle version does not, so it identifies what the module computes.
+	 *
+	 * @return checksum of the sources of this module
+	 */
+	public String getSourcesChecksum() throws IOException {
+		// Lua and Metalua source folders are usually the same
+		final Set<String> sourcePaths = new LinkedHashSet<String>();
+		if (getLuaSourcePaths() != null)
+			sourcePaths.addAll(getLuaSourcePaths());
+		if (getMetaLuaSourcePaths() != null)
+			sourcePaths.addAll(getMetaLuaSourcePaths());
+
+		final MessageDigest digest = MetaluaBytecode.newDigest();
+		for (final String sourcePath : sourcePaths) {
+			final File folder = getScriptFolder(sourcePath);
+			if (folder == null)
+				throw new IOException(NLS.bind("Unable to find source folder {0}.", sourcePath)); //$NON-NLS-1$
+			MetaluaBytecode.updateTree(digest, folder, sourcePath, false);
 		}
+		digest.update(MetaluaBytecode.getCompilerChecksum(getMetaluaFolder()).getBytes("UTF-8")); //$NON-NLS-1$
+		return MetaluaBytecode.toHex(digest.digest());
 	}
 
 	@Override
@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.metalua.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.osgi.util.NLS;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Bytecode of Metalua files, written next to the checksum of what it was compiled from: the Metalua file, the Metalua compiler and the bytecode
+ * format of the Lua VM, as bytecode of a VM with other sizes of types does not load.
+ * <p>
+ * Bytecode is compiled at runtime when it is missing or stale, and at build time by {@link #main(String[])} so that bundles are installed with it.
+ * </p>
+ */
+public final class MetaluaBytecode {
+
+	public static final String LUAC_EXTENSION = ".luac"; //$NON-NLS-1$
+	public static final String CHECKSUM_EXTENSION = ".checksum"; //$NON-NLS-1$
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	/**
+	 * Modules of the Metalua compiler, relative to Metalua path. Their source or bytecode file is part of the compiler, if any, and so are all files
+	 * of the folder of the same name, if any.
+	 */
+	private static final String[] COMPILER_MODULES = { "metalua/compiler", "metalua/grammar", //$NON-NLS-1$ //$NON-NLS-2$
+			"metalua/loader" }; //$NON-NLS-1$
+	private static final String[] COMPILER_EXTENSIONS = { ".lua", LUAC_EXTENSION }; //$NON-NLS-1$
+
+	/** Header of bytecode dumped by Lua 5.1: signature, version, format, endianness and sizes of types */
+	private static final String BYTECODE_FORMAT = "return (string.dump(function() end):sub(1, 12):gsub('.', " //$NON-NLS-1$
+			+ "function(c) return string.format('%02x', c:byte()) end))"; //$NON-NLS-1$
+
+	/** Checksums of Metalua compilers by Metalua path, computed once per session */
+	private static final Map<File, String> COMPILER_CHECKSUMS = new HashMap<File, String>();
+
+	/** Bytecode format of the Lua VM, computed once per session */
+	private static String bytecodeFormat;
+
+	private MetaluaBytecode() {
+	}
+
+	/**
+	 * Compile Metalua files of a folder next to them, with their checksum.
+	 * <p>
+	 * Arguments are the Metalua path, the folder of Metalua files and the paths of Metalua files relative to it. JNLua native libraries must be in
+	 * the library path.
+	 * </p>
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: MetaluaBytecode <Metalua path> <source folder> <Metalua file>..."); //$NON-NLS-1$
+			System.exit(1);
+		}
+		final File metaluaFolder = new File(args[0]);
+		final File folder = new File(args[1]);
+		final LuaState state = MetaluaStateFactory.newLuaState(metaluaFolder.getPath() + File.separator);
+		try {
+			for (int i = 2; i < args.length; i++) {
+				compile(state, folder, args[i], folder);
+				writeChecksum(getBytecodeFile(folder, args[i]), computeChecksum(new File(folder, args[i]), metaluaFolder));
+			}
+		} finally {
+			state.close();
+		}
+	}
+
+	/**
+	 * Compile a Metalua file of given folder to bytecode in given output folder, with the same relative path.
+	 */
+	public static void compile(final LuaState luastate, final File folder, final String fileName, final File outputFolder) throws IOException {
+		final File regular = new File(folder, fileName);
+		if (regular.isFile() && regular.exists()) {
+
+			final File build = getBytecodeFile(outputFolder, fileName);
+			final File buildFolder = build.getParentFile();
+			if (!buildFolder.isDirectory() && !buildFolder.mkdirs())
+				throw new IOException(NLS.bind("Unable to create folder {0}.", buildFolder)); //$NON-NLS-1$
+
+			// Compile metalua lib
+			final StringBuffer command = new StringBuffer("require 'metalua.loader'\n"); //$NON-NLS-1$
+			command.append("local mlc = require ('metalua.compiler').new()\n"); //$NON-NLS-1$
+			command.append("local bin = mlc:srcfile_to_bytecode([["); //$NON-NLS-1$
+			command.append(regular.getPath());
+			command.append("]])\n"); //$NON-NLS-1$
+
+			// Write compiled file on disk
+			command.append("local file = io.open([["); //$NON-NLS-1$
+			command.append(build.getPath());
+			command.append("]], 'wb') file:write(bin) file:close()\n"); //$NON-NLS-1$
+
+			int numRetry = 2;
+			for (int i = 0; i < numRetry; i++) {
+				try {
+					luastate.load(command.toString(), "libraryCompilation"); //$NON-NLS-1$
+					luastate.call(0, 0);
+					return;
+				} catch (RuntimeException e) {
+					if (i + 1 == numRetry) {
+						throw e;
+					}
+					// ignore
+				}
+			}
+
+		}
+	}
+
+	public static File getBytecodeFile(final File folder, final String fileName) {
+		final String fileNameWithoutExtension = fileName.substring(0, fileName.lastIndexOf('.'));
+		return new File(folder, fileNameWithoutExtension + LUAC_EXTENSION);
+	}
+
+	private static File getChecksumFile(final File bytecode) {
+		return new File(bytecode.getPath() + CHECKSUM_EXTENSION);
+	}
+
+	/**
+	 * @return <code>true</code> when bytecode of given file exists and was compiled from a Metalua file with the given checksum
+	 */
+	public static boolean isUpToDate(final File folder, final String fileName, final String checksum) throws IOException {
+		final File bytecode = getBytecodeFile(folder, fileName);
+		final File checksumFile = getChecksumFile(bytecode);
+		if (!bytecode.isFile() || !checksumFile.isFile())
+			return false;
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(checksumFile), "UTF-8")); //$NON-NLS-1$
+		try {
+			return checksum.equals(reader.readLine());
+		} finally {
+			reader.close();
+		}
+	}
+
+	public static void writeChecksum(final File bytecode, final String checksum) throws IOException {
+		final OutputStream output = new FileOutputStream(getChecksumFile(bytecode));
+		try {
+			output.write(checksum.getBytes("UTF-8")); //$NON-NLS-1$
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * @return checksum of a Metalua file, of the Metalua compiler of given Metalua path and of the bytecode format
+	 */
+	public static String computeChecksum(final File regular, final File metaluaFolder) throws IOException {
+		final MessageDigest digest = newDigest();
+		update(digest, regular);
+		return toHex(digest.digest()) + '/' + getCompilerChecksum(metaluaFolder) + '/' + getBytecodeFormat();
+	}
+
+	/**
+	 * @return checksum of the files of the Metalua compiler of given Metalua path
+	 */
+	public static String getCompilerChecksum(final File metaluaFolder) throws IOException {
+		synchronized (COMPILER_CHECKSUMS) {
+			String checksum = COMPILER_CHECKSUMS.get(metaluaFolder);
+			if (checksum == null) {
+				final MessageDigest digest = newDigest();
+				for (final String module : COMPILER_MODULES) {
+					boolean found = false;
+					for (final String extension : COMPILER_EXTENSIONS) {
+						final File file = new File(metaluaFolder, module + extension);
+						if (file.isFile()) {
+							updateTree(digest, file, module + extension, true);
+							found = true;
+						}
+					}
+					final File folder = new File(metaluaFolder, module);
+					if (folder.isDirectory()) {
+						updateTree(digest, folder, module, true);
+						found = true;
+					}
+					if (!found)
+						throw new IOException(NLS.bind("Unable to find Metalua compiler module {0}.", module)); //$NON-NLS-1$
+				}
+				checksum = toHex(digest.digest());
+				COMPILER_CHECKSUMS.put(metaluaFolder, checksum);
+			}
+			return checksum;
+		}
+	}
+
+	/**
+	 * @return header of bytecode dumped by the Lua VM, in hexadecimal
+	 */
+	private static synchronized String getBytecodeFormat() {
+		if (bytecodeFormat == null) {
+			final LuaState state = new LuaState();
+			try {
+				state.openLib(LuaState.Library.STRING);
+				state.load(BYTECODE_FORMAT, "bytecodeFormat"); //$NON-NLS-1$
+				state.call(0, 1);
+				bytecodeFormat = state.toString(-1);
+			} finally {
+				state.close();
+			}
+		}
+		return bytecodeFormat;
+	}
+
+	/**
+	 * Digest given file, or all files of given folder, with their path so that moved files change the checksum.
+	 *
+	 * @param withBytecode
+	 *            whether bytecode and checksum files are digested too, they are skipped when they are compiled from digested sources
+	 */
+	public static void updateTree(final MessageDigest digest, final File file, final String path, final boolean withBytecode) throws IOException {
+		if (file.isDirectory()) {
+			final String[] children = file.list();
+			if (children == null)
+				throw new IOException(NLS.bind("Unable to list {0}.", file)); //$NON-NLS-1$
+			// File system order is not stable
+			Arrays.sort(children);
+			for (final String child : children)
+				updateTree(digest, new File(file, child), path + '/' + child, withBytecode);
+		} else if (withBytecode || !(path.endsWith(LUAC_EXTENSION) || path.endsWith(CHECKSUM_EXTENSION))) {
+			digest.update(path.getBytes("UTF-8")); //$NON-NLS-1$
+			update(digest, file);
+		}
+	}
+
+	private static void update(final MessageDigest digest, final File file) throws IOException {
+		final InputStream input = new FileInputStream(file);
+		try {
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		} finally {
+			input.close();
+		}
+	}
+
+	public static MessageDigest newDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	public static String toHex(final byte[] bytes) {
+		final StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (final byte b : bytes) {
+			hex.append(HEX_DIGITS[(b >> 4) & 0xF]);
+			hex.append(HEX_DIGITS[b & 0xF]);
+		}
+		return hex.toString();
+	}
+}
@@ -49,6 +49,15 @@ public final class MetaluaStateFactory {
 	 * @since 1.0
 	 */
 	public static LuaState newLuaState() {
+		return newLuaState(MetaluaStateFactory.sourcesPath());
+	}
+
+	/**
+	 * @param metaluaPath
+	 *            folder of Metalua files, ending with a separator
+	 * @return LuaState able to run Metalua code of given folder, out of a running platform
+	 */
+	public static LuaState newLuaState(final String metaluaPath) {
 
 		/*
 		 * Create a regular LuaState, then enable it to run Metalua
@@ -59,7 +68,6 @@ public final class MetaluaStateFactory {
 		l.openLibs();
 
 		// Update path in order to be able to load Metalua
-		String metaluaPath = MetaluaStateFactory.sourcesPath();
 		StringBuilder path = new StringBuilder();
 		path.append(NLS.bind("package.path  = [[{0}?.luac;{0}?.lua]]", metaluaPath));//$NON-NLS-1$
 		path.append(NLS.bind("package.mpath = [[{0}?.mlua]]", metaluaPath));//$NON-NLS-1$
@@ -3,14 +3,14 @@ package org.eclipse.ldt.support.lua51.internal.validator;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.ldt.core.grammar.ILuaSourceValidator;
+import org.eclipse.ldt.core.grammar.ILuaSourceValidator2;
 import org.eclipse.ldt.support.lua51.internal.Activator;
 
 import com.naef.jnlua.LuaRuntimeException;
 import com.naef.jnlua.LuaState;
 import com.naef.jnlua.eclipse.AbstractLuaModule;
 
-public class Lua51SourceValidator extends AbstractLuaModule implements ILuaSourceValidator {
+public class Lua51SourceValidator extends AbstractLuaModule implements ILuaSourceValidator2 {
 
 	private static final String VALIDATOR_PATH = "script/internal"; //$NON-NLS-1$
 	private static final String MODULE_NAME = "lua51validator"; //$NON-NLS-1$
@@ -51,6 +51,17 @@ public class Lua51SourceValidator extends AbstractLuaModule implements ILuaSourc
 		return errorMessage == null;
 	}
 
+	/**
+	 * @see org.eclipse.ldt.core.grammar.ILuaSourceValidator2#dispose()
+	 */
+	@Override
+	public void dispose() {
+		if (lua != null) {
+			lua.close();
+			lua = null;
+		}
+	}
+
 	/**
 	 * @see com.naef.jnlua.eclipse.AbstractLuaModule#getLuaSourcePaths()
 	 */
@@ -140,10 +140,8 @@ public final class TransportLayerModule {
 
 			@Override
 			public int invoke(LuaState l) {
-				String string = l.checkString(1);
-				byte[] resultb64 = Base64.encodeBase64(string.getBytes());
-				String b64String = new String(resultb64);
-				l.pushString(b64String);
+				byte[] resultb64 = Base64.encodeBase64(l.checkByteArray(1));
+				l.pushByteArray(resultb64);
 				return 1;
 			}
 
@@ -159,10 +157,8 @@ public final class TransportLayerModule {
 
 			@Override
 			public int invoke(LuaState l) {
-				String string = l.checkString(1);
-				byte[] b64Result = Base64.encodeBase64Chunked(string.getBytes());
-				String b64String = new String(b64Result);
-				l.pushString(b64String);
+				byte[] b64Result = Base64.encodeBase64Chunked(l.checkByteArray(1));
+				l.pushByteArray(b64Result);
 				return 1;
 			}
 
@@ -177,10 +173,8 @@ public final class TransportLayerModule {
 		return new NamedJavaFunction() {
 			@Override
 			public int invoke(LuaState l) {
-				String b64String = l.checkString(1);
-				byte[] result = Base64.decodeBase64(b64String.getBytes());
-				String string = new String(result);
-				l.pushString(string);
+				byte[] result = Base64.decodeBase64(l.checkByteArray(1));
+				l.pushByteArray(result);
 				return 1;
 			}
 
@@ -1,20 +1,23 @@
 package org.eclipse.ldt.support.lua52.internal.validator;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.ldt.core.grammar.ILuaSourceValidator;
+import org.eclipse.ldt.core.grammar.ILuaSourceValidator2;
 import org.eclipse.ldt.support.lua52.internal.Activator;
 
 import com.naef.jnlua.LuaRuntimeException;
 import com.naef.jnlua.LuaState;
 import com.naef.jnlua.eclipse.AbstractLuaModule;
 
-public class Lua52SourceValidator extends AbstractLuaModule implements ILuaSourceValidator {
+public class Lua52SourceValidator extends AbstractLuaModule implements ILuaSourceValidator2 {
 
 	private static final String VALIDATOR_PATH = "script/internal"; //$NON-NLS-1$
 	private static final String MODULE_NAME = "lua52validator"; //$NON-NLS-1$
 	private static final String VALIDATION_FUNCTION = "valid"; //$NON-NLS-1$
+	private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
 
 	private LuaState lua;
 
@@ -33,7 +36,8 @@ public class Lua52SourceValidator extends AbstractLuaModule implements ILuaSourc
 
 		pushLuaModule(lua);
 		lua.getField(-1, VALIDATION_FUNCTION);
-		lua.pushString(source);
+		// Sources cross JNI as UTF-8 bytes, with no intermediate modified UTF-8 copy
+		lua.pushCharSequence(source);
 		try {
 			lua.call(1, 3);
 		} catch (final LuaRuntimeException e) {
@@ -44,13 +48,28 @@ public class Lua52SourceValidator extends AbstractLuaModule implements ILuaSourc
 			return false;
 		}
 
-		cleanedSource = lua.toString(-3);
-		errorMessage = lua.toString(-2);
+		cleanedSource = toString(lua.toByteBuffer(-3));
+		errorMessage = toString(lua.toByteBuffer(-2));
 		lineIndex = Math.max(lua.toInteger(-1) - 1, 0);
 
 		return errorMessage == null;
 	}
 
+	private static String toString(final ByteBuffer bytes) {
+		return bytes != null ? UTF8.decode(bytes).toString() : null;
+	}
+
+	/**
+	 * @see org.eclipse.ldt.core.grammar.ILuaSourceValidator2#dispose()
+	 */
+	@Override
+	public void dispose() {
+		if (lua != null) {
+			lua.close();
+			lua = null;
+		}
+	}
+
 	/**
 	 * @see com.naef.jnlua.eclipse.AbstractLuaModule#getLuaSourcePaths()
 	 */
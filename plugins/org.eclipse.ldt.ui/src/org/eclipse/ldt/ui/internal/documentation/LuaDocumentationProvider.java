@@ -12,6 +12,10 @@ package org.eclipse.ldt.ui.internal.documentation;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.eclipse.dltk.ast.ASTNode;
 import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
@@ -26,8 +30,10 @@ import org.eclipse.dltk.ui.documentation.IScriptDocumentationProviderExtension;
 import org.eclipse.dltk.ui.documentation.IScriptDocumentationProviderExtension2;
 import org.eclipse.dltk.ui.documentation.TextDocumentationResponse;
 import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.ast.models.DocumentationRenderer;
 import org.eclipse.ldt.core.internal.ast.models.LuaASTModelUtils;
 import org.eclipse.ldt.core.internal.ast.models.LuaDLTKModelUtils;
+import org.eclipse.ldt.core.internal.ast.models.api.LuaFileAPI;
 import org.eclipse.ldt.core.internal.ast.models.common.IDocumentationHolder;
 import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
 
@@ -37,6 +43,26 @@ import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
 public class LuaDocumentationProvider implements IScriptDocumentationProvider, IScriptDocumentationProviderExtension,
 		IScriptDocumentationProviderExtension2 {
 
+	/**
+	 * Documentation is rendered in HTML only when it is shown, and kept as long as its model element is, as hover and documentation view ask for
+	 * it repeatedly.
+	 */
+	private static final Map<Object, RenderedDocumentation> RENDERED = Collections.synchronizedMap(new WeakHashMap<Object, RenderedDocumentation>());
+
+	/**
+	 * AST nodes are equal when they are at the same position, so the rendered element is kept to check that it is the same one and not an element of
+	 * a previous version of the module. It is weakly referenced, not to retain the key of its entry.
+	 */
+	private static class RenderedDocumentation {
+		private final WeakReference<Object> element;
+		private final String html;
+
+		public RenderedDocumentation(Object element, String html) {
+			this.element = new WeakReference<Object>(element);
+			this.html = html;
+		}
+	}
+
 	/**
 	 * @see org.eclipse.dltk.ui.documentation.IScriptDocumentationProvider#getInfo(org.eclipse.dltk.core.IMember, boolean, boolean)
 	 */
@@ -101,7 +127,7 @@ public class LuaDocumentationProvider implements IScriptDocumentationProvider, I
 		// else return member documentation
 		ASTNode astNode = LuaASTModelUtils.getASTNode(member);
 		if (astNode instanceof IDocumentationHolder) {
-			return ((IDocumentationHolder) astNode).getDocumentation();
+			return render((IDocumentationHolder) astNode);
 		}
 		return null;
 	}
@@ -110,8 +136,23 @@ public class LuaDocumentationProvider implements IScriptDocumentationProvider, I
 		final ModuleDeclaration moduleDeclaration = SourceParserUtil.getModuleDeclaration(module);
 		if (moduleDeclaration instanceof LuaSourceRoot) {
 			final LuaSourceRoot root = (LuaSourceRoot) moduleDeclaration;
-			return root.getFileapi().getDocumentation();
+			return render(root.getFileapi());
 		}
 		return null;
 	}
+
+	private static String render(Object element) {
+		RenderedDocumentation rendered = RENDERED.get(element);
+		if (rendered != null && rendered.element.get() == element)
+			return rendered.html;
+
+		// Render outside of the lock, at worst the same documentation is rendered twice
+		String html;
+		if (element instanceof LuaFileAPI)
+			html = DocumentationRenderer.getDefault().render((LuaFileAPI) element);
+		else
+			html = DocumentationRenderer.getDefault().render((IDocumentationHolder) element);
+		RENDERED.put(element, new RenderedDocumentation(element, html));
+		return html;
+	}
 }
@@ -14,12 +14,22 @@ package org.eclipse.ldt.ui.internal.editor.completion;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
 import org.eclipse.dltk.codeassist.ScriptCompletionEngine;
 import org.eclipse.dltk.compiler.env.IModuleSource;
 import org.eclipse.dltk.core.CompletionProposal;
@@ -31,17 +41,23 @@ import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.ModelException;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
 import org.eclipse.ldt.core.internal.PreferenceInitializer;
+import org.eclipse.ldt.core.internal.ast.models.CompletionMatcher;
 import org.eclipse.ldt.core.internal.ast.models.LuaASTModelUtils;
 import org.eclipse.ldt.core.internal.ast.models.LuaASTUtils;
 import org.eclipse.ldt.core.internal.ast.models.LuaASTUtils.Definition;
 import org.eclipse.ldt.core.internal.ast.models.LuaASTUtils.TypeResolution;
 import org.eclipse.ldt.core.internal.ast.models.api.FunctionTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.InlineTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.InternalTypeRef;
 import org.eclipse.ldt.core.internal.ast.models.api.Item;
 import org.eclipse.ldt.core.internal.ast.models.api.Parameter;
 import org.eclipse.ldt.core.internal.ast.models.api.RecordTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.TypeDef;
 import org.eclipse.ldt.core.internal.ast.models.api.TypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.UnknownItem;
 import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
 import org.eclipse.ldt.core.internal.ast.models.file.Call;
 import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
@@ -54,106 +70,413 @@ import org.eclipse.ldt.ui.internal.editor.text.LuaSymbols;
 
 public class LuaCompletionEngine extends ScriptCompletionEngine {
 
+	/** Number of proposals reported at most, the most relevant ones, as execution environments may define thousands of globals */
+	private static final int MAX_PROPOSALS = 200;
+
+	private static final int MEMBER_RELEVANCE = 50;
+	private static final int OTHER_GLOBAL_RELEVANCE = 25;
+
+	/** Length of source before cursor scanned to guess the expression under it, when the document of the editor is not available */
+	private static final int SCANNED_WINDOW_LENGTH = 4096;
+
+	/**
+	 * Time in milliseconds a request waits for proposals from other modules, short enough not to be noticed while typing. Proposals found
+	 * afterwards are kept for the same request, which is triggered again while its proposals are shown
+	 */
+	private static final long CROSS_MODULE_TIME_BUDGET = 50;
+	/** Time in milliseconds between checks of the cancellation of a request */
+	private static final long CANCELLATION_POLLING_INTERVAL = 10;
+
+	// Document of the editor, already partitioned, set by the proposal computer for the completion it runs on its thread
+	private static final ThreadLocal<IDocument> EDITOR_DOCUMENT = new ThreadLocal<IDocument>();
+	// Monitor of the content assist request, set by the proposal computer
+	private static final ThreadLocal<IProgressMonitor> INVOCATION_MONITOR = new ThreadLocal<IProgressMonitor>();
+	// Triggers content assist again, set by the proposal computer
+	private static final ThreadLocal<Runnable> RETRIGGER = new ThreadLocal<Runnable>();
+
+	// Job looking for proposals in other modules for the last request, cancelled by the next one
+	private static final AtomicReference<Job> CROSS_MODULE_JOB = new AtomicReference<Job>();
+
+	// Proposals of other modules found after their request was answered, reported when it is triggered again
+	private static final AtomicReference<LateProposals> LATE_PROPOSALS = new AtomicReference<LateProposals>();
+
+	// Proposals of current request, reported once ranked
+	private final List<CompletionProposal> proposals = new ArrayList<CompletionProposal>();
+
+	// Work of current request needing other modules, run in background once proposals of current module are collected
+	private Runnable crossModulePhase;
+	private volatile CrossModuleJob crossModuleJob;
+
+	/**
+	 * Proposals of other modules for a request, identified by its module, content and position.
+	 */
+	private static final class LateProposals {
+		private final IModelElement module;
+		private final String source;
+		private final int position;
+		private final List<CompletionProposal> proposals;
+
+		private LateProposals(IModelElement module, String source, int position, List<CompletionProposal> proposals) {
+			this.module = module;
+			this.source = source;
+			this.position = position;
+			this.proposals = proposals;
+		}
+
+		private boolean isFor(IModuleSource request, int requestPosition) {
+			return position == requestPosition && module.equals(request.getModelElement()) && source.equals(request.getSourceContents());
+		}
+	}
+
+	/**
+	 * Runs the cross module phase of a request. When the request is answered before the job is done, proposals it finds are kept as
+	 * {@link LateProposals} and content assist is triggered again to report them.
+	 */
+	private static final class CrossModuleJob extends Job {
+		private final Runnable phase;
+		private final IModelElement module;
+		private final String source;
+		private final int position;
+		private final Runnable retrigger;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile IProgressMonitor monitor;
+
+		// Proposals found by the job, guarded by themselves
+		private final List<CompletionProposal> found = new ArrayList<CompletionProposal>();
+		private boolean answered;
+
+		private CrossModuleJob(Runnable phase, IModuleSource request, int position, Runnable retrigger) {
+			super(Messages.LuaCompletionEngineCrossModuleJob);
+			this.phase = phase;
+			// source of the request, it may be a working copy edited meanwhile
+			this.module = request.getModelElement();
+			this.source = request.getSourceContents();
+			this.position = position;
+			this.retrigger = retrigger;
+			setSystem(true);
+			setPriority(Job.INTERACTIVE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor progressMonitor) {
+			monitor = progressMonitor;
+			try {
+				if (!progressMonitor.isCanceled())
+					phase.run();
+				// CHECKSTYLE:OFF
+			} catch (RuntimeException e) {
+				// CHECKSTYLE:ON
+				Activator.logWarning("LuaCompletionEngine : Unable to compute proposals from other modules. ", e); //$NON-NLS-1$
+			} finally {
+				done.countDown();
+			}
+			if (progressMonitor.isCanceled())
+				return Status.CANCEL_STATUS;
+
+			boolean late;
+			synchronized (found) {
+				late = answered;
+				if (late)
+					LATE_PROPOSALS.set(new LateProposals(module, source, position, new ArrayList<CompletionProposal>(found)));
+			}
+			if (late && retrigger != null)
+				retrigger.run();
+			return Status.OK_STATUS;
+		}
+
+		private void add(CompletionProposal proposal) {
+			synchronized (found) {
+				found.add(proposal);
+			}
+		}
+
+		/**
+		 * @return proposals found so far, the ones found afterwards are kept for the request triggered again
+		 */
+		private List<CompletionProposal> answer() {
+			synchronized (found) {
+				answered = true;
+				return new ArrayList<CompletionProposal>(found);
+			}
+		}
+
+		private boolean isCanceled() {
+			IProgressMonitor progressMonitor = monitor;
+			return progressMonitor != null && progressMonitor.isCanceled();
+		}
+	}
+
+	/**
+	 * Let completions run by current thread scan given editor document rather than partitioning their source again, stop waiting for proposals
+	 * from other modules when given monitor is cancelled, and report proposals from other modules found too late by triggering content assist
+	 * again.
+	 * 
+	 * @param document
+	 *            <code>null</code> when completion is done
+	 * @param retrigger
+	 *            triggers content assist again, from any thread, may be <code>null</code>
+	 */
+	public static void setInvocationContext(IDocument document, IProgressMonitor monitor, Runnable retrigger) {
+		if (document != null) {
+			EDITOR_DOCUMENT.set(document);
+			INVOCATION_MONITOR.set(monitor);
+			RETRIGGER.set(retrigger);
+		} else {
+			EDITOR_DOCUMENT.remove();
+			INVOCATION_MONITOR.remove();
+			RETRIGGER.remove();
+		}
+	}
+
 	@Override
 	public void complete(IModuleSource module, int position, int k) {
+		proposals.clear();
+		crossModulePhase = null;
+		try {
+			// proposals from current module are collected at once
+			collectProposals(module, position);
+			if (crossModulePhase != null) {
+				// others were found already when the request is triggered again, else as long as the request is not cancelled or late
+				List<CompletionProposal> lateProposals = takeLateProposals(module, position);
+				if (lateProposals != null)
+					proposals.addAll(lateProposals);
+				else
+					runCrossModulePhase(crossModulePhase, module, position);
+			}
+		} finally {
+			reportProposals();
+		}
+	}
+
+	/**
+	 * @return proposals from other modules found too late for given request, <code>null</code> when there are none
+	 */
+	private static List<CompletionProposal> takeLateProposals(IModuleSource module, int position) {
+		LateProposals lateProposals = LATE_PROPOSALS.getAndSet(null);
+		if (lateProposals == null || !lateProposals.isFor(module, position))
+			return null;
+		return lateProposals.proposals;
+	}
+
+	private void runCrossModulePhase(Runnable phase, IModuleSource module, int position) {
+		CrossModuleJob job = new CrossModuleJob(phase, module, position, RETRIGGER.get());
+		crossModuleJob = job;
+
+		// proposals of previous request are not needed anymore
+		Job previousJob = CROSS_MODULE_JOB.getAndSet(job);
+		if (previousJob != null)
+			previousJob.cancel();
+		job.schedule();
+
+		IProgressMonitor invocationMonitor = INVOCATION_MONITOR.get();
+		long deadline = System.currentTimeMillis() + CROSS_MODULE_TIME_BUDGET;
+		boolean done = false;
+		try {
+			long remaining = CROSS_MODULE_TIME_BUDGET;
+			while (!(done = job.done.await(Math.min(remaining, CANCELLATION_POLLING_INTERVAL), TimeUnit.MILLISECONDS))) {
+				if (invocationMonitor != null && invocationMonitor.isCanceled()) {
+					job.cancel();
+					break;
+				}
+				// a late job keeps running, for the request triggered again
+				remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0)
+					break;
+			}
+		} catch (InterruptedException e) {
+			job.cancel();
+			Thread.currentThread().interrupt();
+		}
+		proposals.addAll(job.answer());
+		if (done)
+			CROSS_MODULE_JOB.compareAndSet(job, null);
+	}
+
+	/**
+	 * @return whether current thread runs the cross module phase of a request which is cancelled, or followed by another request
+	 */
+	private boolean isCanceled() {
+		Job job = Job.getJobManager().currentJob();
+		return job instanceof CrossModuleJob && (job != crossModuleJob || ((CrossModuleJob) job).isCanceled());
+	}
+
+	private void addProposal(CompletionProposal proposal) {
+		Job job = Job.getJobManager().currentJob();
+		if (job instanceof CrossModuleJob) {
+			if (!isCanceled())
+				((CrossModuleJob) job).add(proposal);
+		} else {
+			proposals.add(proposal);
+		}
+	}
+
+	private void reportProposals() {
+		List<CompletionProposal> sortedProposals = new ArrayList<CompletionProposal>(proposals);
+		proposals.clear();
+		// sort is stable, proposals of same relevance keep their order
+		Collections.sort(sortedProposals, new Comparator<CompletionProposal>() {
+			@Override
+			public int compare(CompletionProposal first, CompletionProposal second) {
+				return second.getRelevance() - first.getRelevance();
+			}
+		});
+		requestor.beginReporting();
+		for (int i = 0; i < sortedProposals.size() && i < MAX_PROPOSALS; i++)
+			requestor.accept(sortedProposals.get(i));
+		requestor.endReporting();
+	}
+
+	private void collectProposals(IModuleSource module, int position) {
 		// extract source module
 		final IModelElement modelElement = module.getModelElement();
 		if (!(modelElement instanceof ISourceModule)) {
 			Activator.logWarning("Unable to perform completion proposal. Module [" + module.getFileName() + "] has not source module associated."); //$NON-NLS-1$//$NON-NLS-2$
 			return;
 		}
-		ISourceModule sourceModule = (ISourceModule) modelElement;
+		final ISourceModule sourceModule = (ISourceModule) modelElement;
 		String sourceContent = module.getSourceContents();
 
 		// For now, we does not match case where there are white space before the cursor
 		if (position <= 0 || Character.isWhitespace(sourceContent.charAt(position - 1))) {
-			// Search local declaration in AST
-			addLocalDeclarations(sourceModule, "", position); //$NON-NLS-1$
-
-			// Search global declaration in DLTK model
-			addGlobalDeclarations(sourceModule, "", position); //$NON-NLS-1$
-
-			// Add keywords
-			addKeywords("", position); //$NON-NLS-1$
+			addDeclarations(sourceModule, "", position); //$NON-NLS-1$
 			return;
 		}
 
-		Document document = new Document(sourceContent);
-		Activator.getDefault().getTextTools().setupDocumentPartitioner(document);
+		// Scan the source before cursor in a partitioned document, the one of the editor when it has the same content
+		IDocument document = EDITOR_DOCUMENT.get();
+		int documentOffset = 0;
+		if (document == null || !hasContent(document, sourceContent)) {
+			documentOffset = getScannedWindowStart(sourceContent, position);
+			document = new Document(sourceContent.substring(documentOffset, position));
+			Activator.getDefault().getTextTools().setupDocumentPartitioner(document);
+		}
 		LuaHeuristicScanner luaHeuristicScanner = new LuaHeuristicScanner(document);
 		// manage incomplete keyword
-		int previousToken = luaHeuristicScanner.previousToken(position - 1, LuaHeuristicScanner.UNBOUND);
+		int previousToken = luaHeuristicScanner.previousToken(position - documentOffset - 1, LuaHeuristicScanner.UNBOUND);
 		if (LuaSymbols.isKeywords(previousToken)) {
 			try {
 				// search keyword
 				int start = Math.max(luaHeuristicScanner.getPosition(), 0);
-				int end = position;
+				int end = position - documentOffset;
 				String keyword = document.get(start, end - start).trim();
-
-				// Search local declaration in AST
-				addLocalDeclarations(sourceModule, keyword, position);
-
-				// Search global declaration in DLTK model
-				addGlobalDeclarations(sourceModule, keyword, position);
-
-				// Add keywords
-				addKeywords(keyword, position);
-
+				addDeclarations(sourceModule, keyword, position);
 			} catch (BadLocationException e) {
 				Activator.logWarning("LuaCompletionEngine : Unable to extract keyword. ", e); //$NON-NLS-1$
 			}
 			return;
 		}
 
-		LuaExpression luaExpression = luaHeuristicScanner.guessLuaExpression(position);
-		requestor.beginReporting();
+		LuaExpression luaExpression = luaHeuristicScanner.guessLuaExpression(position - documentOffset);
+		if (luaExpression != null && documentOffset > 0)
+			shiftOffsets(luaExpression, documentOffset);
 		if (luaExpression == null) {
-			// Search local declaration in AST
-			addLocalDeclarations(sourceModule, "", position); //$NON-NLS-1$
-
-			// Search global declaration in DLTK model
-			addGlobalDeclarations(sourceModule, "", position); //$NON-NLS-1$
-
-			// Add keywords
-			addKeywords("", position); //$NON-NLS-1$
+			addDeclarations(sourceModule, "", position); //$NON-NLS-1$
 		} else if (luaExpression instanceof Identifier) {
 			// manage incomplete Identifier
 			// ----------------------------
 			Item definition = ((Identifier) luaExpression).getDefinition();
-			String start = definition.getName();
+			addDeclarations(sourceModule, definition.getName(), position);
+		} else {
+			// fields of types of current module are proposed at once, resolving other types may read other modules
+			final LuaExpression expression = luaExpression;
+			LuaExpression receiver = getReceiver(expression);
+			TypeResolution receiverType = receiver == null ? null : resolveTypeInModule(sourceModule, receiver);
+			if (receiverType != null) {
+				addFieldProposals(expression, receiverType, position);
+			} else {
+				crossModulePhase = new Runnable() {
+					@Override
+					public void run() {
+						addExpressionProposals(sourceModule, expression, position);
+					}
+				};
+			}
+		}
+	}
 
-			// Search local declaration in AST
-			addLocalDeclarations(sourceModule, start, position);
+	/**
+	 * @return expression whose fields are proposed for an incomplete index or invocation, <code>null</code> for other expressions
+	 */
+	private static LuaExpression getReceiver(LuaExpression luaExpression) {
+		if (luaExpression instanceof Index)
+			return ((Index) luaExpression).getLeft();
+		if (luaExpression instanceof Invoke)
+			return ((Invoke) luaExpression).getRecord();
+		return null;
+	}
 
-			// Search global declaration in DLTK model
-			addGlobalDeclarations(sourceModule, start, position);
+	/**
+	 * Resolves the type of an expression only from definitions of current module: names defined in it, fields of its types, and types declared in
+	 * it. The resulting type and its super types are defined in current module too.
+	 * 
+	 * @return <code>null</code> when the type may be defined by another module, or is unknown
+	 */
+	private static TypeResolution resolveTypeInModule(ISourceModule sourceModule, LuaExpression expression) {
+		Item definition;
+		if (expression instanceof Identifier) {
+			// names guessed from source before cursor are bound to locals of current module, other unknown names may be globals of other modules
+			definition = ((Identifier) expression).getDefinition();
+			if (definition instanceof UnknownItem) {
+				LuaSourceRoot luaSourceRoot = LuaASTModelUtils.getLuaSourceRoot(sourceModule);
+				definition = luaSourceRoot == null ? null : LuaASTUtils.getClosestLocalVar(luaSourceRoot, definition.getName(), expression.start());
+			}
+			if (definition == null || LuaASTUtils.isUnresolvedGlobal(definition))
+				return null;
+		} else if (expression instanceof Index) {
+			// fields not found may be defined by a super type or a default index
+			TypeResolution left = resolveTypeInModule(sourceModule, ((Index) expression).getLeft());
+			if (left == null || !(left.getTypeDef() instanceof RecordTypeDef))
+				return null;
+			definition = ((RecordTypeDef) left.getTypeDef()).getFields().get(((Index) expression).getRight());
+			if (definition == null)
+				return null;
+		} else {
+			return null;
+		}
 
-			// Add keywords
-			addKeywords(start, position);
-		} else if (luaExpression instanceof Index) {
-			// manage incomplete Index
-			// ----------------------------
+		TypeRef type = definition.getType();
+		if (!(type instanceof InternalTypeRef || type instanceof InlineTypeRef))
+			return null;
+		TypeResolution resolution = LuaASTUtils.resolveType(sourceModule, type);
+		if (resolution == null || resolution.getTypeDef() == null)
+			return null;
+
+		// super types are resolved too when fields are proposed
+		Set<TypeDef> superTypes = new HashSet<TypeDef>();
+		TypeDef typeDef = resolution.getTypeDef();
+		while (typeDef instanceof RecordTypeDef && ((RecordTypeDef) typeDef).getSupertype() != null && superTypes.add(typeDef)) {
+			TypeRef superType = ((RecordTypeDef) typeDef).getSupertype();
+			if (!(superType instanceof InternalTypeRef))
+				return null;
+			TypeResolution superTypeResolution = LuaASTUtils.resolveType(sourceModule, superType);
+			typeDef = superTypeResolution == null ? null : superTypeResolution.getTypeDef();
+		}
+		return resolution;
+	}
 
-			// resolve type of left part
-			LuaExpression left = ((Index) luaExpression).getLeft();
-			TypeResolution resolveType = LuaASTUtils.resolveType(sourceModule, left);
+	private void addDeclarations(final ISourceModule sourceModule, final String start, final int position) {
+		// Search local declaration in AST
+		addLocalDeclarations(sourceModule, start, position);
 
-			// find all field we start by the right part
-			String right = ((Index) luaExpression).getRight();
-			addFields(resolveType, right, position, new HashSet<TypeResolution>());
-		} else if (luaExpression instanceof Invoke) {
-			// manage incomplete Invoke
-			// ----------------------------
+		// Search global declaration of current module in AST
+		addModuleGlobalDeclarations(sourceModule, start, position);
 
-			// resolve type of record
-			LuaExpression record = ((Invoke) luaExpression).getRecord();
-			TypeResolution resolveType = LuaASTUtils.resolveType(sourceModule, record);
+		// Add keywords
+		addKeywords(start, position);
 
-			// find all field we start by the right part
-			String right = ((Invoke) luaExpression).getFunctionName();
-			// we do not manage complete invoke
-			if (luaExpression.isIncomplete())
-				addInvocableFields(resolveType, right, position, new HashSet<TypeResolution>());
+		// Search global declaration of other modules in DLTK model
+		crossModulePhase = new Runnable() {
+			@Override
+			public void run() {
+				addGlobalDeclarations(sourceModule, start, position);
+			}
+		};
+	}
+
+	private void addExpressionProposals(ISourceModule sourceModule, LuaExpression luaExpression, int position) {
+		if (luaExpression instanceof Index || luaExpression instanceof Invoke) {
+			// resolve type of left part, or of record
+			addFieldProposals(luaExpression, LuaASTUtils.resolveType(sourceModule, getReceiver(luaExpression)), position);
 		} else if (luaExpression instanceof Call) {
 			// manage completed Call
 			// ----------------------------
@@ -175,8 +498,138 @@ public class LuaCompletionEngine extends ScriptCompletionEngine {
 				}
 			}
 		}
-		// we do not complete call for now
-		requestor.endReporting();
+	}
+
+	private void addFieldProposals(LuaExpression luaExpression, TypeResolution receiverType, int position) {
+		if (luaExpression instanceof Index) {
+			// manage incomplete Index
+			// ----------------------------
+
+			// find all field we start by the right part
+			String right = ((Index) luaExpression).getRight();
+			addFields(receiverType, right, position);
+		} else if (luaExpression instanceof Invoke) {
+			// manage incomplete Invoke
+			// ----------------------------
+
+			// find all field we start by the right part
+			String right = ((Invoke) luaExpression).getFunctionName();
+			// we do not manage complete invoke
+			if (luaExpression.isIncomplete())
+				addInvocableFields(receiverType, right, position);
+		}
+	}
+
+	/**
+	 * @return whether given document holds given source, a document of the same length may be one edition behind or ahead of it
+	 */
+	private static boolean hasContent(IDocument document, String sourceContent) {
+		return document.getLength() == sourceContent.length() && document.get().equals(sourceContent);
+	}
+
+	/**
+	 * @return offset from which source before cursor can be partitioned alone: beginning of a line not far from cursor, or beginning of source when a
+	 *         long string or comment, which may span lines, is still open at the beginning of this line
+	 */
+	private static int getScannedWindowStart(String sourceContent, int position) {
+		if (position <= SCANNED_WINDOW_LENGTH)
+			return 0;
+		int windowStart = sourceContent.indexOf('\n', position - SCANNED_WINDOW_LENGTH);
+		if (windowStart < 0 || windowStart >= position)
+			return 0;
+		windowStart++;
+		if (isInString(sourceContent, windowStart))
+			return 0;
+		return windowStart;
+	}
+
+	/**
+	 * Skims source from its beginning, much faster than partitioning it, skipping comments and strings.
+	 * 
+	 * @return whether given offset is in a string or comment opened on a previous line: a long bracket not closed yet, or a short string continued by
+	 *         an escaped end of line
+	 */
+	private static boolean isInString(String sourceContent, int offset) {
+		int i = 0;
+		while (i < offset) {
+			char c = sourceContent.charAt(i);
+			if (c == '-' && sourceContent.startsWith("--", i)) { //$NON-NLS-1$
+				i += 2;
+				int level = getLongBracketLevel(sourceContent, i);
+				if (level >= 0) {
+					i = getLongBracketEnd(sourceContent, i, level);
+				} else {
+					// line comment
+					int end = sourceContent.indexOf('\n', i);
+					i = end < 0 ? sourceContent.length() : end + 1;
+				}
+			} else if (c == '[' && getLongBracketLevel(sourceContent, i) >= 0) {
+				i = getLongBracketEnd(sourceContent, i, getLongBracketLevel(sourceContent, i));
+			} else if (c == '\'' || c == '"') {
+				i++;
+				while (i < sourceContent.length()) {
+					char s = sourceContent.charAt(i);
+					if (s == '\\') {
+						i += 2;
+					} else {
+						i++;
+						if (s == c || s == '\n')
+							break;
+					}
+				}
+			} else {
+				i++;
+			}
+		}
+		// offset is reached in the middle of a skipped string or comment
+		return i > offset;
+	}
+
+	/**
+	 * @return level of the long bracket opened at given offset, <code>-1</code> when there is none
+	 */
+	private static int getLongBracketLevel(String sourceContent, int offset) {
+		if (offset >= sourceContent.length() || sourceContent.charAt(offset) != '[')
+			return -1;
+		int level = 0;
+		int i = offset + 1;
+		while (i < sourceContent.length() && sourceContent.charAt(i) == '=') {
+			level++;
+			i++;
+		}
+		return i < sourceContent.length() && sourceContent.charAt(i) == '[' ? level : -1;
+	}
+
+	/**
+	 * @return offset following the long bracket of given level opened at given offset, end of source when it is not closed
+	 */
+	private static int getLongBracketEnd(String sourceContent, int offset, int level) {
+		StringBuilder closing = new StringBuilder(level + 2).append(']');
+		for (int j = 0; j < level; j++)
+			closing.append('=');
+		closing.append(']');
+		int end = sourceContent.indexOf(closing.toString(), offset + level + 2);
+		return end < 0 ? sourceContent.length() : end + closing.length();
+	}
+
+	/**
+	 * Make offsets of an expression guessed in a part of source relative to the whole source.
+	 */
+	private static void shiftOffsets(LuaExpression luaExpression, final int delta) {
+		try {
+			luaExpression.traverse(new ASTVisitor() {
+				@Override
+				public boolean visitGeneral(ASTNode node) throws Exception {
+					node.setStart(node.sourceStart() + delta);
+					node.setEnd(node.sourceEnd() + delta);
+					return true;
+				}
+			});
+			// CHECKSTYLE:OFF
+		} catch (Exception e) {
+			// CHECKSTYLE:ON
+			Activator.logWarning("LuaCompletionEngine : Unable to locate expression. ", e); //$NON-NLS-1$
+		}
 	}
 
 	/**
@@ -203,40 +656,69 @@ public class LuaCompletionEngine extends ScriptCompletionEngine {
 			proposal.setCompletion(" "); //$NON-NLS-1$
 
 			// proposal.setModelElement(member);
-			this.requestor.accept(proposal);
+			addProposal(proposal);
 		}
 	}
 
+	private void addModuleGlobalDeclarations(ISourceModule sourceModule, String start, int cursorPosition) {
+		if (!useAllGlobals())
+			return;
+
+		CompletionMatcher matcher = new CompletionMatcher(start, true);
+		for (Definition definition : LuaASTUtils.getAllInternalGlobalVarsDefinition(sourceModule, matcher)) {
+			List<IMember> members = LuaASTModelUtils.getIMembers(definition.getModule(), definition.getItem());
+			if (members != null) {
+				createMemberProposal(members, cursorPosition - start.length(), cursorPosition, false, OTHER_GLOBAL_RELEVANCE
+						+ matcher.getRelevance(definition.getItem().getName()));
+			}
+		}
+	}
+
+	private static boolean useAllGlobals() {
+		return Platform.getPreferencesService().getBoolean(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
+				PreferenceInitializer.USE_GLOBAL_VAR_IN_LDT, true, null);
+	}
+
 	private void addGlobalDeclarations(ISourceModule sourceModule, String start, int cursorPosition) {
-		// get all global variable which start by the string "start"
-		// from current module
+		// get all global variable which match the string "start"
+		CompletionMatcher matcher = new CompletionMatcher(start, true);
 		List<Definition> globalvars = new ArrayList<Definition>();
 
-		// from global.lua of the EE
+		// from global.lua of the EE, which is indexed as other modules, only the most relevant globals are looked for
 		ISourceModule preloadedSourceModule = LuaASTUtils.getPreloadSourceModule(sourceModule);
 		if (preloadedSourceModule != null) {
-			globalvars.addAll(LuaASTUtils.getAllInternalGlobalVarsDefinition(preloadedSourceModule, start));
+			globalvars.addAll(LuaASTUtils.getPreloadedGlobalVarsDefinition(preloadedSourceModule, matcher, MAX_PROPOSALS));
 		}
 
 		// for each global var, get the corresponding model element and create the proposal
 		for (Definition definition : globalvars) {
+			if (isCanceled())
+				return;
+			if (definition.getItem() == null)
+				continue;
 			IMember member = LuaASTModelUtils.getIMember(definition.getModule(), definition.getItem());
 			if (member != null)
-				createMemberProposal(member, cursorPosition - start.length(), cursorPosition);
+				createMemberProposal(member, cursorPosition - start.length(), cursorPosition, false,
+						MEMBER_RELEVANCE + matcher.getRelevance(definition.getItem().getName()));
 		}
 
 		// Add globals other that preloaded but with a lower relevance
-		if (Platform.getPreferencesService().getBoolean(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
-				PreferenceInitializer.USE_GLOBAL_VAR_IN_LDT, true, null)) {
+		if (useAllGlobals()) {
 
-			List<Definition> othersglobalvars = LuaASTUtils.getAllInternalGlobalVarsDefinition(sourceModule, start);
-			othersglobalvars.addAll(LuaASTUtils.getAllExternalGlobalVarsDefinition(sourceModule, start));
+			// only the most relevant globals of other modules are looked for, those of current module are already proposed
+			List<Definition> othersglobalvars = LuaASTUtils.getAllExternalGlobalVarsDefinition(sourceModule, matcher, MAX_PROPOSALS);
 
 			// for each global var, get the corresponding model element and create the proposal
 			for (Definition definition : othersglobalvars) {
+				if (isCanceled())
+					return;
+				// indexed modules may not define it anymore
+				if (definition.getItem() == null)
+					continue;
 				List<IMember> members = LuaASTModelUtils.getIMembers(definition.getModule(), definition.getItem());
 				if (members != null) {
-					createMemberProposal(members, cursorPosition - start.length(), cursorPosition, false, 25);
+					createMemberProposal(members, cursorPosition - start.length(), cursorPosition, false, OTHER_GLOBAL_RELEVANCE
+							+ matcher.getRelevance(definition.getItem().getName()));
 				}
 			}
 		}
@@ -251,9 +733,11 @@ public class LuaCompletionEngine extends ScriptCompletionEngine {
 				"repeat", "return", "then", "true", "until", "while" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
 
 		// create proposal for each keyword
+		CompletionMatcher matcher = new CompletionMatcher(start, false);
 		for (int j = 0; j < keywords.length; j++) {
-			if (start.isEmpty() || keywords[j].startsWith(start)) {
-				createKeyWordProposal(keywords[j], cursorPosition - start.length(), cursorPosition);
+			int relevance = matcher.getRelevance(keywords[j]);
+			if (relevance != CompletionMatcher.NO_MATCH) {
+				createKeyWordProposal(keywords[j], cursorPosition - start.length(), cursorPosition, 1 + relevance);
 			}
 		}
 	}
@@ -265,117 +749,140 @@ public class LuaCompletionEngine extends ScriptCompletionEngine {
 			return;
 
 		// find all local vars and create corresponding proposal
-		Collection<Item> localVars = LuaASTUtils.getLocalVars(luaSourceRoot, cursorPosition - start.length(), start);
+		CompletionMatcher matcher = new CompletionMatcher(start, true);
+		Collection<Item> localVars = LuaASTUtils.getLocalVars(luaSourceRoot, cursorPosition - start.length(), matcher);
 		for (Item var : localVars) {
 			List<IMember> members = LuaASTModelUtils.getIMembers(sourceModule, var);
 			if (members != null)
-				createMemberProposal(members, cursorPosition - start.length(), cursorPosition);
+				createMemberProposal(members, cursorPosition - start.length(), cursorPosition, false,
+						MEMBER_RELEVANCE + matcher.getRelevance(var.getName()));
 		}
 
 	}
 
-	private void addFields(TypeResolution recordTypeResolution, String fieldName, int position, Set<TypeResolution> cache) {
-		if (recordTypeResolution == null || fieldName == null)
-			return;
+	/**
+	 * A field of a record type whose name matches, with the record type it belongs to.
+	 */
+	private static final class FieldMatch {
+		private final TypeResolution recordTypeResolution;
+		private final Item item;
+		private final int relevance;
+
+		private FieldMatch(TypeResolution recordTypeResolution, Item item, int relevance) {
+			this.recordTypeResolution = recordTypeResolution;
+			this.item = item;
+			this.relevance = relevance;
+		}
+	}
 
-		if (recordTypeResolution.getTypeDef() instanceof RecordTypeDef) {
-			RecordTypeDef currentRecordTypeDef = (RecordTypeDef) recordTypeResolution.getTypeDef();
-			ISourceModule currentSourceModule = recordTypeResolution.getModule();
-			// get available field for the type found.
-			for (Entry<String, Item> entry : currentRecordTypeDef.getFields().entrySet()) {
-				Item item = entry.getValue();
-				final boolean goodStart = item.getName().toLowerCase().startsWith(fieldName.toLowerCase());
-				final boolean nostart = fieldName.isEmpty();
-				if (goodStart || nostart) {
-					createMemberProposal(LuaASTModelUtils.getIMembers(currentSourceModule, item), position - fieldName.length(), position, false);
-				}
+	/**
+	 * @return fields of given record type and of its super types whose name matches, the most relevant first. Only names are matched, so that
+	 *         members are resolved for the proposals reported only.
+	 */
+	private static List<FieldMatch> getMatchingFields(TypeResolution recordTypeResolution, String fieldName) {
+		List<FieldMatch> matches = new ArrayList<FieldMatch>();
+		collectMatchingFields(recordTypeResolution, new CompletionMatcher(fieldName, true), matches, new HashSet<TypeResolution>());
+		// sort is stable, fields of a type come before the ones of its super type
+		Collections.sort(matches, new Comparator<FieldMatch>() {
+			@Override
+			public int compare(FieldMatch first, FieldMatch second) {
+				return second.relevance - first.relevance;
 			}
-			// manage super-type fields
-			// cache is used to avoid cycle
-			cache.add(recordTypeResolution);
-			TypeRef supertype = currentRecordTypeDef.getSupertype();
-			if (supertype != null) {
-				TypeResolution superTypeResolution = LuaASTUtils.resolveType(currentSourceModule, supertype);
-				if (!cache.contains(superTypeResolution)) {
-					addFields(superTypeResolution, fieldName, position, cache);
-				}
+		});
+		return matches;
+	}
+
+	private static void collectMatchingFields(TypeResolution recordTypeResolution, CompletionMatcher matcher, List<FieldMatch> matches,
+			Set<TypeResolution> cache) {
+		if (recordTypeResolution == null || !(recordTypeResolution.getTypeDef() instanceof RecordTypeDef))
+			return;
+
+		RecordTypeDef currentRecordTypeDef = (RecordTypeDef) recordTypeResolution.getTypeDef();
+		for (Item item : currentRecordTypeDef.getFields().values()) {
+			int relevance = matcher.getRelevance(item.getName());
+			if (relevance != CompletionMatcher.NO_MATCH)
+				matches.add(new FieldMatch(recordTypeResolution, item, relevance));
+		}
+		// manage super-type fields
+		// cache is used to avoid cycle
+		cache.add(recordTypeResolution);
+		TypeRef supertype = currentRecordTypeDef.getSupertype();
+		if (supertype != null) {
+			TypeResolution superTypeResolution = LuaASTUtils.resolveType(recordTypeResolution.getModule(), supertype);
+			if (!cache.contains(superTypeResolution)) {
+				collectMatchingFields(superTypeResolution, matcher, matches, cache);
 			}
 		}
 	}
 
-	private void addInvocableFields(TypeResolution recordTypeResolution, String fieldName, int position, Set<TypeResolution> cache) {
-		if (recordTypeResolution == null)
+	private void addFields(TypeResolution recordTypeResolution, String fieldName, int position) {
+		if (recordTypeResolution == null || fieldName == null)
 			return;
 
-		if (recordTypeResolution.getTypeDef() instanceof RecordTypeDef) {
-			RecordTypeDef currentRecordTypeDef = (RecordTypeDef) recordTypeResolution.getTypeDef();
-			ISourceModule currentSourceModule = recordTypeResolution.getModule();
-			// get available field for the type found.
-			for (Entry<String, Item> entry : currentRecordTypeDef.getFields().entrySet()) {
-				Item item = entry.getValue();
-				final boolean goodStart = item.getName().toLowerCase().startsWith(fieldName.toLowerCase());
-				final boolean nostart = fieldName.isEmpty();
-				if (goodStart || nostart) {
-					// MANAGE INVOCATION :
-					// resolve field type
-					final TypeResolution fieldTypeResolution = LuaASTUtils.resolveType(currentSourceModule, item.getType());
-
-					// invocation works only on method (already tested in the other model ... the joy to have 2 models...)
-					if (fieldTypeResolution == null || !(fieldTypeResolution.getTypeDef() instanceof FunctionTypeDef))
-						continue;
-
-					// invocation works only if there are at least one parameter
-					final List<Parameter> parameters = ((FunctionTypeDef) fieldTypeResolution.getTypeDef()).getParameters();
-					if (parameters.size() == 0)
-						continue;
-
-					// get first parameter
-					Parameter firstParamter = parameters.get(0);
-
-					// invocation is ok if :
-					// first parameter is named self
-					if ("self".equals(firstParamter.getName()) && firstParamter.getType() == null) //$NON-NLS-1$
-						createMemberProposal(LuaASTModelUtils.getIMembers(currentSourceModule, item), position - fieldName.length(), position, true);
-					// or
-					// if the first parameter is of the same type as the type on which it is invoked : it's ok !
-					final TypeResolution parameterTypeResolution = LuaASTUtils.resolveType(currentSourceModule, firstParamter.getType());
-					if (recordTypeResolution.equals(parameterTypeResolution))
-						createMemberProposal(LuaASTModelUtils.getIMembers(currentSourceModule, item), position - fieldName.length(), position, true);
-				}
-			}
+		// only the most relevant fields are resolved, as many as proposals reported
+		List<FieldMatch> matches = getMatchingFields(recordTypeResolution, fieldName);
+		for (int i = 0; i < matches.size() && i < MAX_PROPOSALS; i++) {
+			if (isCanceled())
+				return;
+			FieldMatch match = matches.get(i);
+			createMemberProposal(LuaASTModelUtils.getIMembers(match.recordTypeResolution.getModule(), match.item), position - fieldName.length(),
+					position, false, MEMBER_RELEVANCE + match.relevance);
+		}
+	}
 
-			// manage super-type invokable fields
-			// cache is used to avoid cycle
-			cache.add(recordTypeResolution);
-			TypeRef supertype = currentRecordTypeDef.getSupertype();
-			if (supertype != null) {
-				TypeResolution superTypeResolution = LuaASTUtils.resolveType(currentSourceModule, supertype);
-				if (!cache.contains(superTypeResolution)) {
-					addInvocableFields(superTypeResolution, fieldName, position, cache);
-				}
+	private void addInvocableFields(TypeResolution recordTypeResolution, String fieldName, int position) {
+		if (recordTypeResolution == null || fieldName == null)
+			return;
+
+		// the most relevant fields are resolved until as many proposals as reported are found
+		int found = 0;
+		for (FieldMatch match : getMatchingFields(recordTypeResolution, fieldName)) {
+			if (isCanceled() || found >= MAX_PROPOSALS)
+				return;
+			ISourceModule currentSourceModule = match.recordTypeResolution.getModule();
+			Item item = match.item;
+
+			// MANAGE INVOCATION :
+			// resolve field type
+			final TypeResolution fieldTypeResolution = LuaASTUtils.resolveType(currentSourceModule, item.getType());
+
+			// invocation works only on method (already tested in the other model ... the joy to have 2 models...)
+			if (fieldTypeResolution == null || !(fieldTypeResolution.getTypeDef() instanceof FunctionTypeDef))
+				continue;
+
+			// invocation works only if there are at least one parameter
+			final List<Parameter> parameters = ((FunctionTypeDef) fieldTypeResolution.getTypeDef()).getParameters();
+			if (parameters.size() == 0)
+				continue;
+
+			// get first parameter
+			Parameter firstParamter = parameters.get(0);
+
+			// invocation is ok if :
+			// first parameter is named self
+			if ("self".equals(firstParamter.getName()) && firstParamter.getType() == null) { //$NON-NLS-1$
+				createMemberProposal(LuaASTModelUtils.getIMembers(currentSourceModule, item), position - fieldName.length(), position, true,
+						MEMBER_RELEVANCE + match.relevance);
+				found++;
+			}
+			// or
+			// if the first parameter is of the same type as the type on which it is invoked : it's ok !
+			final TypeResolution parameterTypeResolution = LuaASTUtils.resolveType(currentSourceModule, firstParamter.getType());
+			if (match.recordTypeResolution.equals(parameterTypeResolution)) {
+				createMemberProposal(LuaASTModelUtils.getIMembers(currentSourceModule, item), position - fieldName.length(), position, true,
+						MEMBER_RELEVANCE + match.relevance);
+				found++;
 			}
 		}
 	}
 
-	private void createKeyWordProposal(String keyword, int startIndex, int endIndex) {
+	private void createKeyWordProposal(String keyword, int startIndex, int endIndex, int relevance) {
 		CompletionProposal proposal = CompletionProposal.create(CompletionProposal.KEYWORD, 0);
-		proposal.setRelevance(1);
+		proposal.setRelevance(relevance);
 		proposal.setName(keyword);
 		proposal.setCompletion(keyword);
 		proposal.setReplaceRange(startIndex, endIndex);
-		this.requestor.accept(proposal);
-	}
-
-	private void createMemberProposal(List<IMember> members, int startIndex, int endIndex) {
-		for (IMember member : members) {
-			createMemberProposal(member, startIndex, endIndex);
-		}
-	}
-
-	private void createMemberProposal(List<IMember> members, int startIndex, int endIndex, boolean invocation) {
-		for (IMember member : members) {
-			createMemberProposal(member, startIndex, endIndex, invocation);
-		}
+		addProposal(proposal);
 	}
 
 	private void createMemberProposal(List<IMember> members, int startIndex, int endIndex, boolean invocation, int relevance) {
@@ -384,14 +891,6 @@ public class LuaCompletionEngine extends ScriptCompletionEngine {
 		}
 	}
 
-	private void createMemberProposal(IMember member, int startIndex, int endIndex) {
-		createMemberProposal(member, startIndex, endIndex, false);
-	}
-
-	private void createMemberProposal(IMember member, int startIndex, int endIndex, boolean invocation) {
-		createMemberProposal(member, startIndex, endIndex, invocation, 50);
-	}
-
 	private void createMemberProposal(IMember member, int startIndex, int endIndex, boolean invocation, int relevance) {
 		try {
 			CompletionProposal proposal = null;
@@ -438,7 +937,7 @@ public class LuaCompletionEngine extends ScriptCompletionEngine {
 				relevance += 30;
 			}
 			proposal.setRelevance(relevance);
-			this.requestor.accept(proposal);
+			addProposal(proposal);
 
 		} catch (ModelException e) {
 			Activator.logWarning(Messages.LuaCompletionEngineProblemProcessingGlobals, e);
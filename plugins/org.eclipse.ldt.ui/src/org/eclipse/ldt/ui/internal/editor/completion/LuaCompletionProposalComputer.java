@@ -10,14 +10,87 @@
  *******************************************************************************/
 package org.eclipse.ldt.ui.internal.editor.completion;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.dltk.ui.text.completion.ContentAssistInvocationContext;
 import org.eclipse.dltk.ui.text.completion.ScriptCompletionProposalCollector;
 import org.eclipse.dltk.ui.text.completion.ScriptCompletionProposalComputer;
 import org.eclipse.dltk.ui.text.completion.ScriptContentAssistInvocationContext;
+import org.eclipse.jface.text.ITextOperationTarget;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.templates.TemplateCompletionProcessor;
 import org.eclipse.ldt.ui.internal.editor.templates.LuaTemplateCompletionProcessor;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.widgets.Display;
 
 public class LuaCompletionProposalComputer extends ScriptCompletionProposalComputer {
 
+	// Content assist sessions started, so that a request is triggered again only in its own session
+	private final AtomicInteger sessions = new AtomicInteger();
+	// Whether proposals of the last session are shown, sessions end when their proposals are applied or dismissed
+	private volatile boolean sessionActive;
+
+	@Override
+	public void sessionStarted() {
+		super.sessionStarted();
+		sessions.incrementAndGet();
+		sessionActive = true;
+	}
+
+	@Override
+	public void sessionEnded() {
+		sessionActive = false;
+		super.sessionEnded();
+	}
+
+	/**
+	 * Let the completion engine scan the document of the editor, already partitioned, rather than a copy of its content, stop waiting for
+	 * proposals from other modules when the request is cancelled, and trigger content assist again when they are found too late.
+	 */
+	@Override
+	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context, IProgressMonitor monitor) {
+		LuaCompletionEngine.setInvocationContext(context.getDocument(), monitor, createRetrigger(context.getViewer(), context.getInvocationOffset()));
+		try {
+			return super.computeCompletionProposals(context, monitor);
+		} finally {
+			LuaCompletionEngine.setInvocationContext(null, null, null);
+		}
+	}
+
+	/**
+	 * @return runnable triggering content assist again in given viewer, as long as proposals of current session are shown and its cursor is still
+	 *         at given offset
+	 */
+	private Runnable createRetrigger(final ITextViewer viewer, final int offset) {
+		if (!(viewer instanceof ITextOperationTarget) || viewer.getTextWidget() == null)
+			return null;
+		final Display display = viewer.getTextWidget().getDisplay();
+		final int session = sessions.get();
+		return new Runnable() {
+			@Override
+			public void run() {
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						// proposals were applied or dismissed, content assist must not open again
+						if (!sessionActive || sessions.get() != session)
+							return;
+						StyledText widget = viewer.getTextWidget();
+						if (widget == null || widget.isDisposed() || viewer.getSelectedRange().x != offset)
+							return;
+						ITextOperationTarget target = (ITextOperationTarget) viewer;
+						if (target.canDoOperation(ISourceViewer.CONTENTASSIST_PROPOSALS))
+							target.doOperation(ISourceViewer.CONTENTASSIST_PROPOSALS);
+					}
+				});
+			}
+		};
+	}
+
 	@Override
 	protected TemplateCompletionProcessor createTemplateProposalComputer(ScriptContentAssistInvocationContext context) {
 		return new LuaTemplateCompletionProcessor(context);
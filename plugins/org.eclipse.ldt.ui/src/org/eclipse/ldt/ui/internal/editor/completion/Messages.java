@@ -15,6 +15,7 @@ import org.eclipse.osgi.util.NLS;
 //CHECKSTYLE NLS: OFF
 public class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.eclipse.ldt.ui.internal.editor.completion.messages"; //$NON-NLS-1$
+	public static String LuaCompletionEngineCrossModuleJob;
 	public static String LuaCompletionEngineProblemProcessingGlobals;
 	static {
 		// initialize resource bundle
@@ -13,6 +13,7 @@ package org.eclipse.ldt.ui.internal.preferences;
 import org.eclipse.core.runtime.preferences.ConfigurationScope;
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
 import org.eclipse.ldt.core.internal.PreferenceInitializer;
 import org.eclipse.ui.IWorkbench;
@@ -21,6 +22,8 @@ import org.eclipse.ui.preferences.ScopedPreferenceStore;
 
 public class GlobalLuaPreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
 
+	private static final int PARSER_POOL_MAX_SIZE = 64;
+
 	protected String getHelpId() {
 		return null;
 	}
@@ -34,6 +37,11 @@ public class GlobalLuaPreferencePage extends FieldEditorPreferencePage implement
 		BooleanFieldEditor useGlobalVarField = new BooleanFieldEditor(PreferenceInitializer.USE_GLOBAL_VAR_IN_LDT,
 				Messages.GlobalLuaPreferencePage_use_global_vars, getFieldEditorParent());
 		addField(useGlobalVarField);
+
+		IntegerFieldEditor parserPoolSizeField = new IntegerFieldEditor(PreferenceInitializer.PARSER_POOL_SIZE,
+				Messages.GlobalLuaPreferencePage_parser_pool_size, getFieldEditorParent());
+		parserPoolSizeField.setValidRange(1, PARSER_POOL_MAX_SIZE);
+		addField(parserPoolSizeField);
 	}
 
 	@Override
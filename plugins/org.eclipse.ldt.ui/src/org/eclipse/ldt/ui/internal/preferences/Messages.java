@@ -17,6 +17,7 @@ public class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.eclipse.ldt.ui.internal.preferences.messages"; //$NON-NLS-1$
 	public static String GlobalLuaPreferencePage_description;
 	public static String GlobalLuaPreferencePage_use_global_vars;
+	public static String GlobalLuaPreferencePage_parser_pool_size;
 	public static String LuaExecutionEnvironmentPreferencePage_addEESupportTitle;
 	public static String LuaExecutionEnvironmentPreferencePage_addEESupportMessage;
 	public static String LuaExecutionEnvironmentPreferencePage_addbutton;
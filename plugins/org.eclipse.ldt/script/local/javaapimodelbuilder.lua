@@ -16,55 +16,21 @@ local javaapimodelfactory =  require 'javaapimodelfactory'
 
 local print = function (string) print(string) io.flush() end
 
-local templateengine = require 'templateengine'
-
---
--- Update documentation templateengine environment
---
-local templateengineenv = require 'template.utils'
-
--- Remove default implementation not supported from IDE
-templateengineenv.anchortypes['externaltyperef'] = nil
-templateengineenv.linktypes['externaltyperef'] = nil
-templateengineenv.linktypes['file'] = nil
-
---
--- So far, documentation embedded in the IDE does not support links very well.
--- To circumvent this, we will need to deactivate link generation while
--- generation documentation.
-
--- Cache of link generation
-local originallinkto = templateengineenv.linkto
-
--- use java library for markdown (for better performance)
-templateengine.env.markdown = javaapimodelfactory.markdown
-
--- Restore link generators
-local function enablelinks()
-  templateengine.env.linkto = originallinkto
-end
-
--- Disable link generators
-local function disablelinks()
-  templateengine.env.linkto = function()
-    return nil, 'Link generation is disabled.'
-  end
-end
-
--- Links are disabled by default
-disablelinks()
-
--- Handle only local item references
-templateengineenv.linktypes['item'] = function(item)
-  if item.parent and item.parent.tag == 'recordtypedef' then
-    return string.format('#%s.%s', templateengineenv.anchor(item.parent), item.name)
+-- create documentation of an item or a typedef, it is rendered only when it is
+-- shown, see javadocumentationrenderer. Preformatted documentation is shown as
+-- written.
+function M._documentation(_object,preformatted)
+  local usages = {}
+  if _object.metadata and _object.metadata.usage then
+    for _, usage in ipairs(_object.metadata.usage) do
+      table.insert(usages, usage.description)
+    end
   end
-  return string.format('#%s', templateengineenv.anchor(item))
-end
-
--- Perform actual environment update
-for functionname, body in pairs( templateengineenv ) do
-  templateengine.env[ functionname ] = body
+  return javaapimodelfactory.newdocumentation(_object.shortdescription,
+    _object.description,
+    preformatted,
+    unpack(usages)
+  )
 end
 
 -- create typeref
@@ -93,18 +59,8 @@ end
 
 -- create item
 function M._item(_item,notemplate,handledexpr)
-  local description = ""
-  if notemplate then
-    local t = {}
-    if _item.shortdescription and _item.shortdescription ~= "" then table.insert(t,_item.shortdescription) end
-    if _item.description and _item.description ~= "" then table.insert(t,_item.description) end
-    if #t ~= 0 then description = string.format("<div style='white-space:pre'>%s</div>",table.concat(t,"\n") ) end
-  else
-    description = templateengine.applytemplate(_item, 3)
-  end
-
   local jitem = javaapimodelfactory.newitem(_item.name,
-    description,
+    M._documentation(_item,notemplate),
     _item.sourcerange.min - 1,
     _item.sourcerange.max,
     M._typeref(_item.type,handledexpr)
@@ -119,25 +75,16 @@ function M._typedef(_typedef,notemplate, handledexpr)
   -- Dealing with records
   if _typedef.tag == "recordtypedef" then
 
-    -- manage description
-    local description = ""
-    if notemplate then
-      local t = {}
-      if _typedef.shortdescription and _typedef.shortdescription ~= "" then table.insert(t,_typedef.shortdescription) end
-      if _typedef.description and _typedef.description ~= "" then table.insert(t,_typedef.description) end
-      if #t ~= 0 then description = string.format("<div style='white-space:pre'>%s</div>",table.concat(t,"\n") ) end
-    else
-      description = templateengine.applytemplate(_typedef, 3)
-    end
-
     jtypedef = javaapimodelfactory.newrecordtypedef(_typedef.name,
-      description,
+      M._documentation(_typedef,notemplate),
       _typedef.sourcerange.min - 1,
       _typedef.sourcerange.max,
       M._typeref(_typedef.supertype,handledexpr),
       M._typeref(_typedef.defaultkeytyperef,handledexpr),
       M._typeref(_typedef.defaultvaluetyperef,handledexpr),
-      M._typeref(_typedef.call,handledexpr)
+      M._typeref(_typedef.call,handledexpr),
+      _typedef.structurekind,
+      _typedef.structuredescription
     )
 
     -- Appending fields
@@ -148,19 +95,8 @@ function M._typedef(_typedef,notemplate, handledexpr)
 
   elseif _typedef.tag == "functiontypedef" then
 
-    -- manage description
-    local description = ""
-    if notemplate then
-      local t = {}
-      if _typedef.shortdescription and _typedef.shortdescription ~= "" then table.insert(t,_typedef.shortdescription) end
-      if _typedef.description and _typedef.description ~= "" then table.insert(t,_typedef.description) end
-      if #t ~= 0 then description = string.format("<div style='white-space:pre'>%s</div>",table.concat(t,"\n") ) end
-    else
-      description = templateengine.applytemplate(_typedef, 3)
-    end
-
     -- Dealing with function
-    jtypedef = javaapimodelfactory.newfunctiontypedef(description)
+    jtypedef = javaapimodelfactory.newfunctiontypedef(M._documentation(_typedef,notemplate))
 
     -- Appending parameters
     for _, _param in ipairs(_typedef.params) do
@@ -169,7 +105,7 @@ function M._typedef(_typedef,notemplate, handledexpr)
 
     -- Appending returned types
     for _, _return in ipairs(_typedef.returns) do
-      local jreturn = javaapimodelfactory.newreturn()
+      local jreturn = javaapimodelfactory.newreturn(_return.description)
       for _, _type in ipairs( _return.types ) do
         javaapimodelfactory.addtype(jreturn,M._typeref(_type,handledexpr))
       end
@@ -184,15 +120,8 @@ function M._file(_file)
 
   local handledexpr = {}
 
-  -- Enable links just for module file objects
-  enablelinks()
-  local jfile
-  if _file.name then
-    jfile = javaapimodelfactory.newfileapi(templateengine.applytemplate(_file, 1))
-  else
-    jfile = javaapimodelfactory.newfileapi()
-  end
-  disablelinks()
+  -- Only modules are documented
+  local jfile = javaapimodelfactory.newfileapi(_file.name, _file.name and M._documentation(_file,false))
 
   -- Adding global variables
   for _, _item in pairs(_file.globalvars) do
@@ -202,7 +131,7 @@ function M._file(_file)
 
   -- Adding returned types
   for _, _return in ipairs(_file.returns) do
-    local jreturn = javaapimodelfactory.newreturn()
+    local jreturn = javaapimodelfactory.newreturn(_return.description)
     for _, _type in ipairs( _return.types ) do
       javaapimodelfactory.addtype(jreturn,M._typeref(_type,handledexpr))
     end
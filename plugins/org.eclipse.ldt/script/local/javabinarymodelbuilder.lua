@@ -0,0 +1,419 @@
+--------------------------------------------------------------------------------
+--  Copyright (c) 2016 Sierra Wireless and others.
+--  All rights reserved. This program and the accompanying materials
+--  are made available under the terms of the Eclipse Public License v1.0
+--  which accompanies this distribution, and is available at
+--  http://www.eclipse.org/legal/epl-v10.html
+--
+--  Contributors:
+--       Sierra Wireless - initial API and implementation
+--------------------------------------------------------------------------------
+
+--
+-- Writes api and internal models in the binary format of
+-- org.eclipse.ldt.core.internal.ast.models.ModelSerializer, so that Java
+-- rebuilds them in one pass instead of calling a factory function per node.
+--
+-- Resulting models are the same as the ones of javaapimodelbuilder and
+-- javainternalmodelbuilder, so both builders must evolve together. Models are
+-- also walked in the same order, so that a Lua object converted several
+-- times is referenced by its last conversion, as in handledexpr.
+--
+local M = {}
+
+local char = string.char
+
+-- Object markers, see ModelSerializer
+local NULL = 0
+local REFERENCE = 1
+local FILE_API = 10
+local ITEM = 11
+local RECORD_TYPEDEF = 13
+local FUNCTION_TYPEDEF = 14
+local PARAMETER = 15
+local RETURN = 16
+local EXTERNAL_TYPEREF = 17
+local INTERNAL_TYPEREF = 18
+local PRIMITIVE_TYPEREF = 19
+local MODULE_TYPEREF = 20
+local META_TYPEREF = 21
+local EXPR_TYPEREF = 22
+local KEY_EXPR_TYPEREF = 23
+local VALUE_EXPR_TYPEREF = 24
+local INLINE_TYPEREF = 25
+local INTERNAL_CONTENT = 40
+local BLOCK = 41
+local LOCAL_VAR = 42
+local IDENTIFIER = 43
+local INDEX = 44
+local CALL = 45
+local INVOKE = 46
+local LITERAL = 47
+
+-- String markers
+local NULL_STRING = -1
+local STRING_REFERENCE_OFFSET = -2
+
+-- Position of nodes which are not located, as DLTK default
+local NOPOSITION = -1
+
+--
+-- Strings crossing JNI are C strings in modified UTF-8, so the buffer is
+-- escaped to contain only bytes from 0x04 to 0x7F. See
+-- ModelsBuilderLuaModule#unescape() for the Java side.
+--
+local UNSAFEBYTES = "[%z\1-\3\128-\255]"
+local escapes = {}
+for b = 0, 3 do escapes[char(b)] = "\1" .. char(b + 64) end
+for b = 128, 191 do escapes[char(b)] = "\2" .. char(b - 64) end
+for b = 192, 255 do escapes[char(b)] = "\3" .. char(b - 128) end
+
+--------------------------------------
+-- low level writer
+local function newwriter()
+  return {
+    buffer = {},
+    size = 0,
+    objects = {},
+    objectcount = 0,
+    strings = {},
+    stringcount = 0
+  }
+end
+
+local function append(w, bytes)
+  local size = w.size + 1
+  w.buffer[size] = bytes
+  w.size = size
+end
+
+local function byte(w, value)
+  append(w, char(value))
+end
+
+local function bool(w, value)
+  append(w, char(value and 1 or 0))
+end
+
+-- 32 bits big endian, as java.io.DataOutput#writeInt()
+local function int(w, value)
+  if value < 0 then value = value + 4294967296 end
+  local b4 = value % 256
+  value = (value - b4) / 256
+  local b3 = value % 256
+  value = (value - b3) / 256
+  local b2 = value % 256
+  append(w, char((value - b2) / 256, b2, b3, b4))
+end
+
+local function str(w, value)
+  if value == nil then
+    int(w, NULL_STRING)
+    return
+  end
+  local index = w.strings[value]
+  if index then
+    int(w, STRING_REFERENCE_OFFSET - index)
+    return
+  end
+  w.strings[value] = w.stringcount
+  w.stringcount = w.stringcount + 1
+  int(w, #value)
+  append(w, value)
+end
+
+local function position(w, min, max)
+  int(w, min)
+  int(w, max)
+end
+
+-- Start a new object, the reader indexes objects in the order they are met.
+-- Lua objects given as key are referenced by this index afterward.
+local function newobject(w, marker, key)
+  if key then w.objects[key] = w.objectcount end
+  w.objectcount = w.objectcount + 1
+  byte(w, marker)
+end
+
+-- Reference a Lua object already written, return false if it is not
+local function reference(w, key)
+  local index = w.objects[key]
+  if not index then return false end
+  byte(w, REFERENCE)
+  int(w, index)
+  return true
+end
+
+-- Write objects of a list with given writer, if they are accepted by filter.
+-- Extra arguments are given to the writer.
+local function list(w, iterator, t, writeobject, filter, ...)
+  local count = 0
+  for _, object in iterator(t) do
+    if not filter or filter(w, object) then count = count + 1 end
+  end
+  int(w, count)
+  for _, object in iterator(t) do
+    if not filter or filter(w, object) then writeobject(w, object, ...) end
+  end
+end
+
+--------------------------------------
+-- expressions
+local function written(w, object)
+  return w.objects[object] ~= nil
+end
+
+local isexpression = {
+  MIdentifier = true,
+  MIndex = true,
+  MCall = true,
+  MInvoke = true,
+  MLiteral = true
+}
+
+local function expression(w, _expr)
+  if not _expr or not isexpression[_expr.tag] then
+    byte(w, NULL)
+    return
+  end
+  if reference(w, _expr) then return end
+
+  local tag = _expr.tag
+  if tag == "MIdentifier" then
+    newobject(w, IDENTIFIER, _expr)
+  elseif tag == "MIndex" then
+    newobject(w, INDEX, _expr)
+  elseif tag == "MCall" then
+    newobject(w, CALL, _expr)
+  elseif tag == "MInvoke" then
+    newobject(w, INVOKE, _expr)
+  else
+    newobject(w, LITERAL, _expr)
+  end
+  position(w, _expr.sourcerange.min - 1, _expr.sourcerange.max)
+  bool(w, false)
+
+  if tag == "MIdentifier" then
+    str(w, _expr.name)
+  elseif tag == "MIndex" then
+    expression(w, _expr.left)
+    str(w, _expr.right)
+  elseif tag == "MCall" then
+    expression(w, _expr.func)
+    list(w, ipairs, _expr.args, expression)
+  elseif tag == "MInvoke" then
+    str(w, _expr.functionname)
+    expression(w, _expr.record)
+    list(w, ipairs, _expr.args, expression)
+  else
+    str(w, _expr.literal)
+  end
+end
+
+--------------------------------------
+-- api model
+local typedef
+
+local function typeref(w, _type)
+  local tag = _type and _type.tag
+  if tag == "externaltyperef" then
+    newobject(w, EXTERNAL_TYPEREF)
+    str(w, _type.modulename)
+    str(w, _type.typename)
+  elseif tag == "internaltyperef" then
+    newobject(w, INTERNAL_TYPEREF)
+    str(w, _type.typename)
+  elseif tag == "moduletyperef" then
+    newobject(w, MODULE_TYPEREF)
+    str(w, _type.modulename)
+    int(w, tonumber(_type.returnposition))
+  elseif tag == "exprtyperef" then
+    newobject(w, EXPR_TYPEREF)
+    int(w, tonumber(_type.returnposition))
+    expression(w, _type.expression)
+  elseif tag == "keyexprtyperef" then
+    newobject(w, KEY_EXPR_TYPEREF)
+    expression(w, _type.expression)
+  elseif tag == "valueexprtyperef" then
+    newobject(w, VALUE_EXPR_TYPEREF)
+    expression(w, _type.expression)
+  elseif tag == "primitivetyperef" then
+    newobject(w, PRIMITIVE_TYPEREF)
+    str(w, _type.typename)
+  elseif tag == "inlinetyperef" then
+    newobject(w, INLINE_TYPEREF)
+    typedef(w, _type.def, true)
+  elseif tag == "metatyperef" then
+    newobject(w, META_TYPEREF)
+    int(w, tonumber(_type.index))
+  else
+    byte(w, NULL)
+  end
+end
+
+-- Documentation is written in place, see ModelSerializer#writeDocumentation()
+local function documentation(w, _object, preformatted)
+  bool(w, true)
+  str(w, _object.shortdescription ~= "" and _object.shortdescription or nil)
+  str(w, _object.description ~= "" and _object.description or nil)
+  bool(w, preformatted)
+  local usages = _object.metadata and _object.metadata.usage or {}
+  int(w, #usages)
+  for _, usage in ipairs(usages) do
+    str(w, usage.description)
+  end
+end
+
+-- Write an item, occurrences are only written when asked for as they must
+-- have been written before.
+local function item(w, _item, notemplate, withoccurrences)
+  newobject(w, ITEM, _item)
+  position(w, _item.sourcerange.min - 1, _item.sourcerange.max)
+  str(w, _item.name)
+  documentation(w, _item, notemplate)
+  typeref(w, _item.type)
+  if withoccurrences then
+    list(w, ipairs, _item.occurrences, reference, written)
+  else
+    int(w, 0)
+  end
+end
+
+local function returnvalues(w, _return)
+  newobject(w, RETURN)
+  str(w, _return.description)
+  list(w, ipairs, _return.types, typeref)
+end
+
+local function parameter(w, _param)
+  newobject(w, PARAMETER)
+  position(w, NOPOSITION, NOPOSITION)
+  str(w, _param.name)
+  typeref(w, _param.type)
+  str(w, _param.description)
+end
+
+function typedef(w, _typedef, notemplate)
+  local tag = _typedef and _typedef.tag
+  if tag == "recordtypedef" then
+    newobject(w, RECORD_TYPEDEF)
+    position(w, _typedef.sourcerange.min - 1, _typedef.sourcerange.max)
+    str(w, _typedef.name)
+    documentation(w, _typedef, notemplate)
+    typeref(w, _typedef.supertype)
+    typeref(w, _typedef.defaultkeytyperef)
+    typeref(w, _typedef.defaultvaluetyperef)
+    typeref(w, _typedef.call)
+    str(w, _typedef.structurekind)
+    str(w, _typedef.structuredescription)
+    list(w, pairs, _typedef.fields, item, nil, notemplate, false)
+  elseif tag == "functiontypedef" then
+    newobject(w, FUNCTION_TYPEDEF)
+    position(w, NOPOSITION, NOPOSITION)
+    documentation(w, _typedef, notemplate)
+    list(w, ipairs, _typedef.params, parameter)
+    list(w, ipairs, _typedef.returns, returnvalues)
+  else
+    byte(w, NULL)
+  end
+end
+
+local function file(w, _file)
+  newobject(w, FILE_API)
+  position(w, NOPOSITION, NOPOSITION)
+  str(w, _file.name)
+  -- Only modules are documented
+  if _file.name then
+    documentation(w, _file, false)
+  else
+    bool(w, false)
+  end
+  list(w, pairs, _file.globalvars, item, nil, false, false)
+  list(w, ipairs, _file.returns, returnvalues)
+
+  -- Types are written with their name, as a map
+  local typecount = 0
+  for _ in pairs(_file.types) do typecount = typecount + 1 end
+  int(w, typecount)
+  for _, _typedef in pairs(_file.types) do
+    str(w, _typedef.name)
+    typedef(w, _typedef, false)
+  end
+end
+
+--------------------------------------
+-- internal model
+local block
+
+local function localvar(w, _localvar)
+  newobject(w, LOCAL_VAR)
+  position(w, NOPOSITION, NOPOSITION)
+  item(w, _localvar.item, true, true)
+  int(w, _localvar.scope.min - 1)
+  int(w, _localvar.scope.max)
+end
+
+local function statement(w, _statement)
+  position(w, _statement.min - 1, _statement.max)
+  bool(w, _statement.commentbefore)
+  bool(w, _statement.commentafter)
+  bool(w, _statement.documented)
+  bool(w, _statement.setsfield)
+end
+
+local function blockcontent(w, _expr)
+  if _expr and _expr.tag == "MBlock" then
+    block(w, _expr)
+  else
+    expression(w, _expr)
+  end
+end
+
+function block(w, _block)
+  newobject(w, BLOCK)
+  position(w, _block.sourcerange.min - 1, _block.sourcerange.max)
+  list(w, pairs, _block.content, blockcontent)
+  list(w, pairs, _block.localvars, localvar)
+  list(w, ipairs, _block.statements, statement)
+end
+
+local function internalcontent(w, _internalcontent)
+  newobject(w, INTERNAL_CONTENT)
+  position(w, NOPOSITION, NOPOSITION)
+  block(w, _internalcontent.content)
+  list(w, ipairs, _internalcontent.unknownglobalvars, item, nil, true, true)
+end
+
+-- Global variables are written in api model, before the identifiers of the
+-- internal content, so their occurrences are appended afterward.
+local function globalvaroccurrences(w, _file)
+  local count = 0
+  for _, _item in pairs(_file.globalvars) do
+    if written(w, _item) then count = count + 1 end
+  end
+  int(w, count)
+  for _, _item in pairs(_file.globalvars) do
+    if written(w, _item) then
+      reference(w, _item)
+      list(w, ipairs, _item.occurrences, reference, written)
+    end
+  end
+end
+
+---
+-- Write models in the format of ModelSerializer#writeSourceRoot()
+--
+-- @param _file api model
+-- @param _internalcontent internal model
+-- @return #string binary models, escaped so they can cross JNI as a string
+function M.build(_file, _internalcontent)
+  local w = newwriter()
+  file(w, _file)
+  internalcontent(w, _internalcontent)
+  globalvaroccurrences(w, _file)
+
+  local buffer = table.concat(w.buffer)
+  return (buffer:gsub(UNSAFEBYTES, escapes))
+end
+
+return M
@@ -0,0 +1,244 @@
+--------------------------------------------------------------------------------
+--  Copyright (c) 2016 Sierra Wireless and others.
+--  All rights reserved. This program and the accompanying materials
+--  are made available under the terms of the Eclipse Public License v1.0
+--  which accompanies this distribution, and is available at
+--  http://www.eclipse.org/legal/epl-v10.html
+--
+--  Contributors:
+--       Sierra Wireless - initial API and implementation
+--------------------------------------------------------------------------------
+
+--
+-- Renders documentation of Java API models in HTML, with the templates of
+-- luadocumentor. It is called only when a documentation is shown, see
+-- org.eclipse.ldt.core.internal.ast.models.DocumentationRenderer.
+--
+-- Java models are converted back to Lua API models, as templates expect them.
+-- Java objects are browsed through their Java API.
+--
+local M = {}
+
+local apimodel = require 'models.apimodel'
+local javadocumentationutils = require 'javadocumentationutils'
+local templateengine = require 'templateengine'
+
+--
+-- Update documentation templateengine environment
+--
+local templateengineenv = require 'template.utils'
+
+-- Remove default implementation not supported from IDE
+templateengineenv.anchortypes['externaltyperef'] = nil
+templateengineenv.linktypes['externaltyperef'] = nil
+templateengineenv.linktypes['file'] = nil
+
+-- Handle only local item references
+templateengineenv.linktypes['item'] = function(item)
+  if item.parent and item.parent.tag == 'recordtypedef' then
+    return string.format('#%s.%s', templateengineenv.anchor(item.parent), item.name)
+  end
+  return string.format('#%s', templateengineenv.anchor(item))
+end
+
+-- Perform actual environment update
+for functionname, body in pairs( templateengineenv ) do
+  templateengine.env[ functionname ] = body
+end
+
+-- use java library for markdown (for better performance)
+templateengine.env.markdown = javadocumentationutils.markdown
+
+--
+-- So far, documentation embedded in the IDE does not support links very well.
+-- To circumvent this, links are only generated for modules.
+--
+local originallinkto = templateengineenv.linkto
+
+-- Restore link generators
+local function enablelinks()
+  templateengine.env.linkto = originallinkto
+end
+
+-- Disable link generators
+local function disablelinks()
+  templateengine.env.linkto = function()
+    return nil, 'Link generation is disabled.'
+  end
+end
+
+-- Links are disabled by default
+disablelinks()
+
+--------------------------------------------------------------------------------
+-- Conversion of Java models
+--------------------------------------------------------------------------------
+
+-- iterate over the elements of a java.util.Collection
+local function each(jcollection)
+  local iterator = jcollection:iterator()
+  return function()
+    if iterator:hasNext() then
+      return iterator:next()
+    end
+  end
+end
+
+local function documentation(_object, jdocumentation)
+  if not jdocumentation then return end
+  _object.shortdescription = jdocumentation:getShortDescription() or ""
+  _object.description = jdocumentation:getDescription() or ""
+
+  -- Code samples of usage tags, stored as other user defined tags
+  local usages = { tag = 'usage' }
+  for usage in each(jdocumentation:getUsages()) do
+    table.insert(usages, { description = usage })
+  end
+  if #usages > 0 then
+    _object.metadata = { usage = usages }
+  end
+end
+
+local classname = javadocumentationutils.classname
+local typeref, typedef
+
+local function item(jitem)
+  local _item = apimodel._item(jitem:getName())
+  documentation(_item, jitem:getDocumentation())
+  _item.type = typeref(jitem:getType())
+  return _item
+end
+
+local function ret(jreturn)
+  local _return = apimodel._return(jreturn:getDescription())
+  for jtype in each(jreturn:getTypes()) do
+    table.insert(_return.types, typeref(jtype))
+  end
+  return _return
+end
+
+function typeref(jtyperef)
+  if not jtyperef then return nil end
+
+  local kind = classname(jtyperef)
+  if kind == 'InternalTypeRef' then
+    return apimodel._internaltyperef(jtyperef:getTypeName())
+  elseif kind == 'ExternalTypeRef' then
+    return apimodel._externaltypref(jtyperef:getModuleName(), jtyperef:getTypeName())
+  elseif kind == 'PrimitiveTypeRef' then
+    return apimodel._primitivetyperef(jtyperef:getTypeName())
+  elseif kind == 'InlineTypeRef' then
+    return apimodel._inlinetyperef(typedef(jtyperef:getDefinition()))
+  elseif kind == 'ModuleTypeRef' then
+    return apimodel._moduletyperef(jtyperef:getModuleName(), jtyperef:getReturnPosition())
+  elseif kind == 'MetaTypeRef' then
+    return apimodel._metatyperef(jtyperef:getIndex())
+  elseif kind == 'ExprTypeRef' then
+    -- Expressions are not shown in documentation
+    return apimodel._exprtyperef(nil, jtyperef:getReturnPosition())
+  elseif kind == 'KeyExprTypeRef' then
+    return apimodel._keyexprtyperef()
+  elseif kind == 'ValueExprTypeRef' then
+    return apimodel._valueexprtyperef()
+  end
+end
+
+function typedef(jtypedef)
+  if not jtypedef then return nil end
+
+  local kind = classname(jtypedef)
+  if kind == 'RecordTypeDef' then
+    local _recordtypedef = apimodel._recordtypedef(jtypedef:getName())
+    documentation(_recordtypedef, jtypedef:getDocumentation())
+    _recordtypedef.supertype = typeref(jtypedef:getSupertype())
+    _recordtypedef.defaultkeytyperef = typeref(jtypedef:getDefaultkeytyperef())
+    _recordtypedef.defaultvaluetyperef = typeref(jtypedef:getDefaultvaluetyperef())
+    _recordtypedef.call = typeref(jtypedef:getCallTypeRef())
+    _recordtypedef.structurekind = jtypedef:getStructureKind()
+    _recordtypedef.structuredescription = jtypedef:getStructureDescription()
+    for jfield in each(jtypedef:getFields():values()) do
+      _recordtypedef:addfield(item(jfield))
+    end
+    return _recordtypedef
+  elseif kind == 'FunctionTypeDef' then
+    local _functiontypedef = apimodel._functiontypedef()
+    documentation(_functiontypedef, jtypedef:getDocumentation())
+    for jparameter in each(jtypedef:getParameters()) do
+      local _parameter = apimodel._parameter(jparameter:getName())
+      _parameter.description = jparameter:getDescription() or ""
+      _parameter.type = typeref(jparameter:getType())
+      table.insert(_functiontypedef.params, _parameter)
+    end
+    for jreturn in each(jtypedef:getReturns()) do
+      table.insert(_functiontypedef.returns, ret(jreturn))
+    end
+    return _functiontypedef
+  end
+end
+
+local function file(jfile)
+  local _file = apimodel._file()
+  _file.name = jfile:getName()
+  documentation(_file, jfile:getDocumentation())
+
+  -- Types are named by their key, function types have no name of their own
+  for jentry in each(jfile:getTypes():entrySet()) do
+    local _typedef = typedef(jentry:getValue())
+    if _typedef then
+      _typedef.name = jentry:getKey()
+      _file:addtype(_typedef)
+    end
+  end
+  for jitem in each(jfile:getGlobalvars():values()) do
+    _file:addglobalvar(item(jitem))
+  end
+  for jreturn in each(jfile:getReturns()) do
+    table.insert(_file.returns, ret(jreturn))
+  end
+  return _file
+end
+
+--------------------------------------------------------------------------------
+-- Rendering
+--------------------------------------------------------------------------------
+
+---
+-- Render documentation of a module, or of one of its elements. Elements are
+-- found by name once the whole module is converted, as templates resolve types
+-- through their file.
+--
+-- @param jfile LuaFileAPI, Java API model of the module
+-- @param #string typename Name of the rendered type, or of the type of the
+--  rendered field, nil for a global variable or the module itself
+-- @param #string itemname Name of the rendered field or global variable, nil
+--  for a type or the module itself
+-- @return #string HTML documentation, nil when element is not found
+function M.render(jfile, typename, itemname)
+  local _file = file(jfile)
+
+  -- Module documentation
+  if not typename and not itemname then
+    if not _file.name then return nil end
+
+    -- Enable links just for module file objects
+    enablelinks()
+    local ok, html = pcall(templateengine.applytemplate, _file, 1)
+    disablelinks()
+    if not ok then error(html, 0) end
+    return html
+  end
+
+  local element
+  if typename then
+    element = _file.types[typename]
+    if element and itemname then
+      element = element.fields and element.fields[itemname]
+    end
+  else
+    element = _file.globalvars[itemname]
+  end
+  if not element then return nil end
+  return templateengine.applytemplate(element, 3)
+end
+
+return M
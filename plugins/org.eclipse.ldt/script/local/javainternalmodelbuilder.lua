@@ -99,6 +99,18 @@ function J._block(_block,handledexpr)
     )
     javainternalmodelfactory.addlocalvar(jblock,jlocalvar)
   end
+
+  for _, _statement in ipairs(_block.statements) do
+    javainternalmodelfactory.addstatement(
+      jblock,
+      _statement.min -1,
+      _statement.max,
+      _statement.commentbefore,
+      _statement.commentafter,
+      _statement.documented,
+      _statement.setsfield
+    )
+  end
   return jblock
 end
 return J
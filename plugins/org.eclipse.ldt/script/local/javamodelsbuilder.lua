@@ -12,6 +12,7 @@
 
 require 'metalua.loader'
 local compiler = require 'metalua.compiler'
+local Q = require 'metalua.treequery'
 local javamodelfactory = require 'javamodelfactory'
 
 local mlc51, mlc52
@@ -49,12 +50,125 @@ function M.newMLC51()
   return newmlc
 end
 
----
--- Build Java Model from source code
+--------------------------------------------------------------------------------
+-- Statements of blocks, they delimit code which can be parsed again on its
+-- own, see org.eclipse.ldt.core.internal.ast.parser.IncrementalReparser
+--------------------------------------------------------------------------------
+
+-- Statement list of metalua nodes which are blocks of internal model, see
+-- supportedblock() in models.internalmodelbuilder
+local function statementlist(node, parent)
+  local tag = node.tag
+  if tag == 'Function' or tag == 'While' or tag == 'Fornum' or tag == 'Forin' then
+    return node[#node]
+  elseif tag == 'Repeat' then
+    return node[1]
+  elseif tag == 'Do' or (tag == nil and parent and parent.tag == 'If') then
+    return node
+  end
+end
+
+-- A comment may be linked before the outermost node starting on the line
+-- after it, see getlinkedcommentbefore() in models.internalmodelbuilder
+local function hascommentbefore(node)
+  local line = node.lineinfo.first.line
+  while node and node.lineinfo and node.lineinfo.first.line == line do
+    local comments = node.lineinfo.first.comments
+    local comment = comments and comments[#comments]
+    if comment and comment.lineinfo.last.line >= line - 1 then return true end
+    node = node.parent
+  end
+  return false
+end
+
+-- A comment may be linked after the outermost node ending on its first line,
+-- see getlinkedcommentafter() in models.internalmodelbuilder
+local function hascommentafter(node)
+  local line = node.lineinfo.last.line
+  while node and node.lineinfo and node.lineinfo.last.line == line do
+    local comments = node.lineinfo.last.comments
+    local comment = comments and comments[1]
+    if comment and comment.lineinfo.first.line == line then return true end
+    node = node.parent
+  end
+  return false
+end
+
 --
--- @param #string source Code to parse
--- @param LuaSourceRoot, DLTK node, root of DLTK AST
-function M.build(source, modulename, root, luaGrammar)
+-- Add statements to blocks of internal model. Besides its range, a statement
+-- tells whether it may depend on code around it or change models out of it:
+-- comments linked to it from out of its range, documentation comments in or
+-- around it and fields assigned in it.
+--
+local function addstatements(ast, _internalcontent, comment2apiobj)
+
+  -- Offsets of documentation comments, sorted for dichotomy
+  local documentations = {}
+  for comment in pairs(comment2apiobj) do
+    table.insert(documentations, comment.lineinfo.first.offset)
+  end
+  table.sort(documentations)
+  local function documented(min, max)
+    local low, high = 1, #documentations + 1
+    while low < high do
+      local middle = math.floor((low + high) / 2)
+      if documentations[middle] <= min then low = middle + 1 else high = middle end
+    end
+    return documentations[low] ~= nil and documentations[low] < max
+  end
+
+  -- Statement lists, in the order blocks of internal model are created
+  local statementlists = { ast }
+  local setsfield = {}
+  Q(ast):foreach(function(node, parent)
+    local statements = statementlist(node, parent)
+    if statements then table.insert(statementlists, statements) end
+  end, function(node, parent)
+    if node.tag == 'Set' then
+      for _, lhs in ipairs(node[1]) do
+        if lhs.tag == 'Index' then setsfield[node] = true end
+      end
+    end
+    if setsfield[node] and parent then setsfield[parent] = true end
+  end)
+
+  -- Blocks of internal model, depth first as metalua nodes are visited
+  local _blocks = {}
+  local function addblock(_block)
+    _block.statements = {}
+    table.insert(_blocks, _block)
+    for _, _node in ipairs(_block.content) do
+      if _node.tag == 'MBlock' then addblock(_node) end
+    end
+  end
+  addblock(_internalcontent.content)
+  if #_blocks ~= #statementlists then return end
+
+  for i, _block in ipairs(_blocks) do
+    for _, node in ipairs(statementlists[i]) do
+      local first, last = node.lineinfo.first, node.lineinfo.last
+
+      -- Tokens around statement, facing positions of block bounds may be
+      -- irrelevant
+      local previous = first.facing and first.facing.offset < first.offset and first.facing.offset or 0
+      local following = last.facing and last.facing.offset > last.offset and last.facing.offset or math.huge
+
+      table.insert(_block.statements, {
+        min = first.offset,
+        max = last.offset,
+        commentbefore = hascommentbefore(node),
+        commentafter = hascommentafter(node),
+        documented = documented(previous, following),
+        setsfield = setsfield[node] or false
+      })
+    end
+  end
+end
+
+--
+-- Build api and internal models from source code
+--
+local function buildmodels(source, modulename, luaGrammar)
 
   local mlc
   if (luaGrammar == "lua-5.1") then
@@ -84,6 +198,19 @@ function M.build(source, modulename, root, luaGrammar)
   -- create internal model
   local internalmodelbuilder = require "models.internalmodelbuilder"
   local _internalcontent = internalmodelbuilder.createinternalcontent(ast,_file,comment2apiobj,modulename)
+  addstatements(ast, _internalcontent, comment2apiobj)
+
+  return _file, _internalcontent
+end
+
+---
+-- Build Java Model from source code
+--
+-- @param #string source Code to parse
+-- @param LuaSourceRoot, DLTK node, root of DLTK AST
+function M.build(source, modulename, root, luaGrammar)
+
+  local _file, _internalcontent = buildmodels(source, modulename, luaGrammar)
 
   -- Converting api model to java
   local javaapimodelbuilder = require 'javaapimodelbuilder'
@@ -103,4 +230,18 @@ function M.build(source, modulename, root, luaGrammar)
   -- print ('global time', type(e), type(s),(e*1000-s*1000))
 end
 
+---
+-- Build binary Java Model from source code, models are built at once on Java
+-- side instead of node by node, see ModelDeserializer
+--
+-- @param #string source Code to parse
+-- @return #string models in ModelSerializer format, escaped for JNI
+function M.buildbinary(source, modulename, luaGrammar)
+
+  local _file, _internalcontent = buildmodels(source, modulename, luaGrammar)
+
+  local javabinarymodelbuilder = require 'javabinarymodelbuilder'
+  return javabinarymodelbuilder.build(_file, _internalcontent)
+end
+
 return M
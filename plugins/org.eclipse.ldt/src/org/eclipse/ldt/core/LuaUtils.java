@@ -32,7 +32,6 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
-import org.eclipse.core.runtime.URIUtil;
 import org.eclipse.dltk.compiler.env.IModuleSource;
 import org.eclipse.dltk.core.IBuildpathEntry;
 import org.eclipse.dltk.core.IExternalSourceModule;
@@ -45,6 +44,8 @@ import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.ModelException;
 import org.eclipse.dltk.core.environment.EnvironmentPathUtils;
 import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.ModuleNameIndex;
+import org.eclipse.ldt.core.internal.ModuleURIIndex;
 import org.eclipse.ldt.core.internal.buildpath.LuaExecutionEnvironmentBuildpathUtil;
 
 /**
@@ -258,45 +259,17 @@ public final class LuaUtils {
 		return moduleName;
 	}
 
-	/*
-	 * @return the {@link IModuleSource} from full name with module dot syntax
-	 */
-	private static IModuleSource getModuleSource(final String name, final IParent parent) throws ModelException {
-		final IModelElement[] children = parent.getChildren();
-		for (final IModelElement child : children) {
-			if (child instanceof IModuleSource) {
-				if (name.equals(getModuleFullName((IModuleSource) child))) {
-					return (IModuleSource) child;
-				}
-			} else if (child instanceof IParent) {
-				final IModuleSource moduleSource = getModuleSource(name, (IParent) child);
-				if (moduleSource != null)
-					return moduleSource;
-			}
-
-		}
-		return null;
-	}
-
 	/**
 	 * @return the {@link IModuleSource} from full name with module dot syntax
 	 */
 	public static IModuleSource getModuleSource(final String name, final IScriptProject project) {
-		if (project == null && name == null || name.isEmpty())
+		if (project == null || name == null || name.isEmpty())
 			return null;
 
-		// search in all source path.
-		IProjectFragment[] allProjectFragments;
-		try {
-			allProjectFragments = project.getAllProjectFragments();
-			for (final IProjectFragment projectFragment : allProjectFragments) {
-				final IModuleSource moduleSource = getModuleSource(name, projectFragment);
-				if (moduleSource != null)
-					return moduleSource;
-			}
-		} catch (final ModelException e) {
-			Activator.logError(MessageFormat.format("Unable to find module: {0}.", name), e); //$NON-NLS-1$
-			return null;
+		// search in all source path, first module found in fragments order wins
+		final ISourceModule sourceModule = ModuleNameIndex.getDefault().getModule(project, name);
+		if (sourceModule instanceof IModuleSource) {
+			return (IModuleSource) sourceModule;
 		}
 		return null;
 	}
@@ -355,26 +328,6 @@ public final class LuaUtils {
 		return null;
 	}
 
-	/*
-	 * @return the {@link ISourceModule} from Absolute local file URI and a parent
-	 */
-	private static ISourceModule getSourceModuleFromAbsolutePath(final URI absolutepath, final IParent parent) throws ModelException {
-		final IModelElement[] children = parent.getChildren();
-		for (final IModelElement child : children) {
-			if (child instanceof ISourceModule) {
-				if (URIUtil.sameURI(absolutepath, getModuleAbsolutePath((ISourceModule) child))) {
-					return (ISourceModule) child;
-				}
-			} else if (child instanceof IParent) {
-				final ISourceModule moduleSource = getSourceModuleFromAbsolutePath(absolutepath, (IParent) child);
-				if (moduleSource != null)
-					return moduleSource;
-			}
-
-		}
-		return null;
-	}
-
 	/**
 	 * @return the {@link ISourceModule} from Absolute local file URI
 	 */
@@ -382,20 +335,8 @@ public final class LuaUtils {
 		if (project == null || absolutepath == null)
 			return null;
 
-		// search in all source path.
-		IProjectFragment[] allProjectFragments;
-		try {
-			allProjectFragments = project.getAllProjectFragments();
-			for (final IProjectFragment projectFragment : allProjectFragments) {
-				final ISourceModule moduleSource = getSourceModuleFromAbsolutePath(absolutepath, projectFragment);
-				if (moduleSource != null)
-					return moduleSource;
-			}
-		} catch (final ModelException e) {
-			Activator.logError(MessageFormat.format("Unable to find module: {0}.", absolutepath), e); //$NON-NLS-1$
-			return null;
-		}
-		return null;
+		// search in all source path, first module found in fragments order wins
+		return ModuleURIIndex.getDefault().getModule(project, absolutepath);
 	}
 
 	/**
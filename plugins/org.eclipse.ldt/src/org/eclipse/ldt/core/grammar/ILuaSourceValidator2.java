@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.grammar;
+
+/**
+ * Validator owning resources, such as a Lua VM, which must be released once it is not used anymore.
+ *
+ * @since 1.3
+ */
+public interface ILuaSourceValidator2 extends ILuaSourceValidator {
+
+	/**
+	 * Release the resources of this validator. It is not used afterwards.
+	 */
+	void dispose();
+}
@@ -10,9 +10,16 @@
  *******************************************************************************/
 package org.eclipse.ldt.core.internal;
 
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.ldt.core.internal.ast.models.DocumentationRenderer;
+import org.eclipse.ldt.core.internal.ast.models.GlobalVariableIndex;
+import org.eclipse.ldt.core.internal.ast.models.ModuleDependencyGraph;
+import org.eclipse.ldt.core.internal.ast.parser.LuaSourceParser;
+import org.eclipse.ldt.core.internal.buildpath.LibrariesPreparseJob;
+import org.eclipse.ldt.core.internal.grammar.LuaGrammarManager;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -40,6 +47,7 @@ public class Activator extends Plugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(LibrariesPreparseJob.PROJECT_CLOSE_LISTENER, LibrariesPreparseJob.PROJECT_CLOSE_EVENTS);
 	}
 
 	/*
@@ -48,6 +56,14 @@ public class Activator extends Plugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(LibrariesPreparseJob.PROJECT_CLOSE_LISTENER);
+		GlobalVariableIndex.shutdown();
+		ModuleDependencyGraph.shutdown();
+		ModuleNameIndex.shutdown();
+		ModuleURIIndex.shutdown();
+		LuaGrammarManager.clearGrammars();
+		LuaSourceParser.shutdown();
+		DocumentationRenderer.shutdown();
 		plugin = null;
 		super.stop(context);
 	}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal;
+
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.ldt.core.LuaUtils;
+import org.eclipse.ldt.core.internal.ast.models.LuaASTUtils;
+
+/**
+ * Source modules of each script project by full name with module dot syntax, so that a module required by name is found without walking through
+ * all fragments of the project.
+ */
+public final class ModuleNameIndex extends ProjectSourceModuleIndex<String> {
+
+	private static ModuleNameIndex instance;
+
+	private ModuleNameIndex() {
+	}
+
+	public static synchronized ModuleNameIndex getDefault() {
+		if (instance == null) {
+			instance = new ModuleNameIndex();
+			instance.install();
+		}
+		return instance;
+	}
+
+	public static synchronized void shutdown() {
+		if (instance == null)
+			return;
+		instance.uninstall();
+		instance = null;
+	}
+
+	/**
+	 * @return the source module of given project with given full name, <code>null</code> if there is none
+	 */
+	public ISourceModule getModule(final IScriptProject project, final String name) {
+		return get(project, name);
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		// types are resolved across modules by name
+		LuaASTUtils.getTypeResolutionCache().clear();
+	}
+
+	@Override
+	protected String getKey(final ISourceModule module) {
+		return LuaUtils.getModuleFullName(module);
+	}
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal;
+
+import java.io.File;
+import java.net.URI;
+
+import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.ldt.core.LuaUtils;
+
+/**
+ * Source modules of each script project by absolute location, so that debugger source lookup and breakpoint mapping find the module of a file
+ * without walking through all fragments of the project.
+ */
+public final class ModuleURIIndex extends ProjectSourceModuleIndex<Object> {
+
+	private static ModuleURIIndex instance;
+
+	private ModuleURIIndex() {
+	}
+
+	public static synchronized ModuleURIIndex getDefault() {
+		if (instance == null) {
+			instance = new ModuleURIIndex();
+			instance.install();
+		}
+		return instance;
+	}
+
+	public static synchronized void shutdown() {
+		if (instance == null)
+			return;
+		instance.uninstall();
+		instance = null;
+	}
+
+	/**
+	 * @return the source module of given project located at given absolute URI, <code>null</code> if there is none
+	 */
+	public ISourceModule getModule(final IScriptProject project, final URI uri) {
+		return get(project, normalize(uri));
+	}
+
+	@Override
+	protected Object getKey(final ISourceModule module) {
+		return normalize(LuaUtils.getModuleAbsolutePath(module));
+	}
+
+	/**
+	 * Local files are compared as {@link File}, as {@link URIUtil#sameURI(URI, URI)} does, so that case variants match where the file system
+	 * ignores case. Dot segments are removed first, as files are compared by path.
+	 */
+	private static Object normalize(final URI uri) {
+		if (uri == null)
+			return null;
+		final URI normalized = uri.normalize();
+		final File file = URIUtil.toFile(normalized);
+		return file != null ? file : normalized;
+	}
+}
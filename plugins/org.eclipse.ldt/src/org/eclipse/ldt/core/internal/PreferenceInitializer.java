@@ -21,6 +21,14 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
 	public static final String GRAMMAR_DEFAULT_ID = "Grammar__default_id"; //$NON-NLS-1$
 	public static final String GRAMMAR_DEFAULT_ID_VALUE = "lua-5.1"; //$NON-NLS-1$
 	public static final String USE_GLOBAL_VAR_IN_LDT = "USE_GLOBAL_VAR_IN_LDT"; //$NON-NLS-1$
+	public static final String PARSER_POOL_SIZE = "PARSER_POOL_SIZE"; //$NON-NLS-1$
+	public static final int PARSER_POOL_MAX_DEFAULT_SIZE = 8;
+	public static final String PARSER_BULK_MODELS_TRANSFER = "PARSER_BULK_MODELS_TRANSFER"; //$NON-NLS-1$
+	public static final String PARSER_INCREMENTAL_REPARSE = "PARSER_INCREMENTAL_REPARSE"; //$NON-NLS-1$
+	public static final String PARSER_PREPARSE_LIBRARIES = "PARSER_PREPARSE_LIBRARIES"; //$NON-NLS-1$
+	/** Heap budget of ASTs kept in memory by the parser, in megabytes */
+	public static final String PARSER_AST_CACHE_SIZE = "PARSER_AST_CACHE_SIZE"; //$NON-NLS-1$
+	public static final int PARSER_AST_CACHE_DEFAULT_SIZE = 64;
 
 	@Override
 	public void initializeDefaultPreferences() {
@@ -30,5 +38,17 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
 		preferenceStore.setDefault(EE_DEFAULT_ID, EE_DEFAULT_ID_VALUE);
 		preferenceStore.setDefault(GRAMMAR_DEFAULT_ID, GRAMMAR_DEFAULT_ID_VALUE);
 		preferenceStore.setDefault(USE_GLOBAL_VAR_IN_LDT, true);
+		preferenceStore.setDefault(PARSER_POOL_SIZE, getDefaultParserPoolSize());
+		preferenceStore.setDefault(PARSER_BULK_MODELS_TRANSFER, true);
+		preferenceStore.setDefault(PARSER_INCREMENTAL_REPARSE, true);
+		preferenceStore.setDefault(PARSER_PREPARSE_LIBRARIES, true);
+		preferenceStore.setDefault(PARSER_AST_CACHE_SIZE, PARSER_AST_CACHE_DEFAULT_SIZE);
+	}
+
+	/**
+	 * @return the number of parsers which could run concurrently by default: one per processor, with an upper bound as each parser owns a Lua VM.
+	 */
+	public static int getDefaultParserPoolSize() {
+		return Math.min(Runtime.getRuntime().availableProcessors(), PARSER_POOL_MAX_DEFAULT_SIZE);
 	}
 }
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IElementChangedListener;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.core.IParent;
+import org.eclipse.dltk.core.IProjectFragment;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.ModelException;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Source modules of each script project, from all its fragments, by a key computed from the module.
+ * <p>
+ * The map of a project is built at its first lookup. When several modules have the same key, the first one found in fragments order is kept, as a
+ * walk through fragments would find. As modules of a fragment may be seen by several projects, maps of all projects are dropped when any module,
+ * folder, fragment or build path is added, removed or changed. Content changes are ignored.
+ * </p>
+ */
+public abstract class ProjectSourceModuleIndex<K> {
+
+	private final Map<IScriptProject, Map<K, ISourceModule>> projects = new ConcurrentHashMap<IScriptProject, Map<K, ISourceModule>>();
+
+	/** Incremented on each invalidation, so that a map built meanwhile is not kept */
+	private final AtomicLong generation = new AtomicLong();
+
+	private final IElementChangedListener changedListener = new IElementChangedListener() {
+		@Override
+		public void elementChanged(final ElementChangedEvent event) {
+			if (isStructuralChange(event.getDelta()))
+				invalidate();
+		}
+	};
+
+	/**
+	 * Start following model changes.
+	 */
+	protected void install() {
+		DLTKCore.addElementChangedListener(changedListener, ElementChangedEvent.POST_CHANGE);
+	}
+
+	protected void uninstall() {
+		DLTKCore.removeElementChangedListener(changedListener);
+		invalidate();
+	}
+
+	/**
+	 * @return key of given module, <code>null</code> if it should not be indexed
+	 */
+	protected abstract K getKey(ISourceModule module);
+
+	/**
+	 * @return the source module of given project with given key, <code>null</code> if there is none
+	 */
+	protected ISourceModule get(final IScriptProject project, final K key) {
+		if (project == null || key == null)
+			return null;
+		final ISourceModule module = getModules(project).get(key);
+
+		// Deltas are notified after changes, module may be gone meanwhile
+		if (module != null && !module.exists()) {
+			projects.remove(project);
+			return getModules(project).get(key);
+		}
+		return module;
+	}
+
+	public void invalidate() {
+		generation.incrementAndGet();
+		projects.clear();
+	}
+
+	private Map<K, ISourceModule> getModules(final IScriptProject project) {
+		Map<K, ISourceModule> modules = projects.get(project);
+		if (modules == null) {
+			final long buildGeneration = generation.get();
+			modules = new HashMap<K, ISourceModule>();
+			try {
+				for (final IProjectFragment fragment : project.getAllProjectFragments())
+					addModules(fragment, modules);
+			} catch (final ModelException e) {
+				Activator.logWarning(NLS.bind("Unable to list modules of project {0}.", project.getElementName()), e); //$NON-NLS-1$
+				return modules;
+			}
+			if (generation.get() == buildGeneration)
+				projects.put(project, modules);
+		}
+		return modules;
+	}
+
+	private void addModules(final IParent parent, final Map<K, ISourceModule> modules) throws ModelException {
+		for (final IModelElement child : parent.getChildren()) {
+			if (child instanceof ISourceModule) {
+				final K key = getKey((ISourceModule) child);
+				if (key != null && !modules.containsKey(key))
+					modules.put(key, (ISourceModule) child);
+			} else if (child instanceof IParent) {
+				addModules((IParent) child, modules);
+			}
+		}
+	}
+
+	private static boolean isStructuralChange(final IModelElementDelta delta) {
+		final int elementType = delta.getElement().getElementType();
+		if (delta.getKind() != IModelElementDelta.CHANGED) {
+			// Working copies come and go with editors, they do not change structure
+			return !(delta.getElement() instanceof ISourceModule && ((ISourceModule) delta.getElement()).isWorkingCopy());
+		}
+		if ((elementType == IModelElement.SCRIPT_PROJECT || elementType == IModelElement.PROJECT_FRAGMENT)
+				&& (delta.getFlags() & ~IModelElementDelta.F_CHILDREN) != 0)
+			return true;
+		for (final IModelElementDelta child : delta.getAffectedChildren()) {
+			if (isStructuralChange(child))
+				return true;
+		}
+		return false;
+	}
+}
@@ -13,6 +13,7 @@ package org.eclipse.ldt.core.internal.ast.models;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.ldt.core.internal.ast.models.api.Documentation;
 import org.eclipse.ldt.core.internal.ast.models.api.ExprTypeRef;
 import org.eclipse.ldt.core.internal.ast.models.api.ExternalTypeRef;
 import org.eclipse.ldt.core.internal.ast.models.api.FunctionTypeDef;
@@ -33,7 +34,6 @@ import org.eclipse.ldt.core.internal.ast.models.api.ValueExprTypeRef;
 import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
 import org.eclipse.ldt.core.internal.ast.models.file.LuaExpression;
 
-import com.cforcoding.jmd.MarkDown;
 import com.naef.jnlua.LuaState;
 import com.naef.jnlua.NamedJavaFunction;
 
@@ -54,6 +54,7 @@ public final class APIModelFactory {
 	private static NamedJavaFunction[] createFunctions() {
 		List<NamedJavaFunction> javaFunctions = new ArrayList<NamedJavaFunction>();
 
+		javaFunctions.add(newDocumentation());
 		javaFunctions.add(newItem());
 		javaFunctions.add(itemAddOccurrence());
 		javaFunctions.add(newExternalTypeRef());
@@ -77,17 +78,39 @@ public final class APIModelFactory {
 		javaFunctions.add(fileAPIAddGlobalVar());
 		javaFunctions.add(fileAPIAddReturn());
 		javaFunctions.add(fileAPIAddTypeDef());
-		javaFunctions.add(markdown());
 
 		return javaFunctions.toArray(new NamedJavaFunction[javaFunctions.size()]);
 	}
 
+	private static NamedJavaFunction newDocumentation() {
+		return new NamedJavaFunction() {
+			@Override
+			public int invoke(LuaState l) {
+				String shortDescription = l.checkString(1, null);
+				String description = l.checkString(2, null);
+				boolean preformatted = l.checkBoolean(3, false);
+				// Remaining arguments are the code samples of usage tags
+				List<String> usages = new ArrayList<String>();
+				for (int i = 4; i <= l.getTop(); i++)
+					usages.add(l.checkString(i));
+
+				l.pushJavaObject(Documentation.create(shortDescription, description, usages, preformatted));
+				return 1;
+			}
+
+			@Override
+			public String getName() {
+				return "newdocumentation"; //$NON-NLS-1$
+			}
+		};
+	}
+
 	private static NamedJavaFunction newItem() {
 		return new NamedJavaFunction() {
 			@Override
 			public int invoke(LuaState l) {
 				String name = l.checkString(1);
-				String documentation = l.checkString(2);
+				Documentation documentation = l.checkJavaObject(2, Documentation.class, null);
 				int sourceRangeMin = l.checkInteger(3);
 				int sourceRangeMax = l.checkInteger(4);
 				TypeRef type = l.checkJavaObject(5, TypeRef.class, null);
@@ -336,13 +359,15 @@ public final class APIModelFactory {
 			@Override
 			public int invoke(LuaState l) {
 				String name = l.checkString(1);
-				String documentation = l.checkString(2);
+				Documentation documentation = l.checkJavaObject(2, Documentation.class, null);
 				int sourceRangeMin = l.checkInteger(3);
 				int sourceRangeMax = l.checkInteger(4);
 				TypeRef supertype = l.checkJavaObject(5, TypeRef.class);
 				TypeRef defaultkeyindex = l.checkJavaObject(6, TypeRef.class);
 				TypeRef defaultvalueindex = l.checkJavaObject(7, TypeRef.class);
 				TypeRef call = l.checkJavaObject(8, TypeRef.class);
+				String structureKind = l.checkString(9, null);
+				String structureDescription = l.checkString(10, null);
 
 				RecordTypeDef record = new RecordTypeDef();
 				record.setName(name);
@@ -357,6 +382,8 @@ public final class APIModelFactory {
 					record.setDefaultvaluetyperef(defaultvalueindex);
 				if (call != null)
 					record.setCallTyperef(call);
+				record.setStructureKind(structureKind);
+				record.setStructureDescription(structureDescription);
 
 				l.pushJavaObject(record);
 
@@ -392,7 +419,7 @@ public final class APIModelFactory {
 		return new NamedJavaFunction() {
 			@Override
 			public int invoke(LuaState l) {
-				String documentation = l.checkString(1);
+				Documentation documentation = l.checkJavaObject(1, Documentation.class, null);
 				FunctionTypeDef functionTypeDef = new FunctionTypeDef();
 				functionTypeDef.setDocumentation(documentation);
 				l.pushJavaObject(functionTypeDef);
@@ -432,8 +459,11 @@ public final class APIModelFactory {
 		return new NamedJavaFunction() {
 			@Override
 			public int invoke(LuaState l) {
+				String description = l.checkString(1, null);
 
-				l.pushJavaObject(new Return());
+				Return ret = new Return();
+				ret.setDescription(description);
+				l.pushJavaObject(ret);
 				return 1;
 			}
 
@@ -486,9 +516,11 @@ public final class APIModelFactory {
 		return new NamedJavaFunction() {
 			@Override
 			public int invoke(LuaState l) {
-				String documentation = l.checkString(1, null);
+				String name = l.checkString(1, null);
+				Documentation documentation = l.checkJavaObject(2, Documentation.class, null);
 
 				LuaFileAPI luafileAPI = new LuaFileAPI();
+				luafileAPI.setName(name);
 				if (documentation != null)
 					luafileAPI.setDocumentation(documentation);
 
@@ -560,26 +592,4 @@ public final class APIModelFactory {
 			}
 		};
 	}
-
-	private static NamedJavaFunction markdown() {
-		return new NamedJavaFunction() {
-			private MarkDown markdown = new MarkDown();
-
-			@Override
-			public int invoke(LuaState l) {
-				String input = l.checkString(1);
-
-				String result = markdown.transform(input);
-				l.pushString(result);
-				// l.pushString(input);
-
-				return 1;
-			}
-
-			@Override
-			public String getName() {
-				return "markdown"; //$NON-NLS-1$
-			}
-		};
-	}
 }
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+/**
+ * Matches names against what is typed for completion, and ranks them.
+ * <p>
+ * A name matches when it starts with the pattern, ignoring case. When sub-words are enabled, it also matches when the pattern is made of the
+ * beginnings of its sub-words, as <code>gSV</code> or <code>gsv</code> for <code>getScreenValue</code> and <code>gs</code> for
+ * <code>get_screen</code>. Sub-words start after an underscore, at digits, and at upper case letters following a lower case one or starting a
+ * word after an acronym. Names are compared without any allocation.
+ * </p>
+ */
+public class CompletionMatcher {
+
+	/** Relevance of names which do not match */
+	public static final int NO_MATCH = -1;
+	/** Relevance of names matching by sub-words only */
+	public static final int SUBWORDS_MATCH = 0;
+	/** Relevance of names starting with the pattern, ignoring case */
+	public static final int PREFIX_MATCH = 10;
+	/** Relevance of names starting with the pattern, with the same case */
+	public static final int CASE_PREFIX_MATCH = 15;
+	/** Relevance of names equal to the pattern */
+	public static final int EXACT_MATCH = 20;
+
+	private final String pattern;
+	private final boolean subwords;
+
+	/**
+	 * @param pattern
+	 *            what is typed, <code>null</code> or empty to match all names
+	 */
+	public CompletionMatcher(final String pattern, final boolean subwords) {
+		this.pattern = pattern == null ? "" : pattern; //$NON-NLS-1$
+		this.subwords = subwords;
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public boolean matches(final String name) {
+		return getRelevance(name) != NO_MATCH;
+	}
+
+	/**
+	 * @return how well given name matches, {@link #NO_MATCH} if it does not
+	 */
+	public int getRelevance(final String name) {
+		final int length = pattern.length();
+		if (length == 0)
+			return PREFIX_MATCH;
+		if (name.length() < length)
+			return NO_MATCH;
+		if (name.startsWith(pattern))
+			return name.length() == length ? EXACT_MATCH : CASE_PREFIX_MATCH;
+		if (name.regionMatches(true, 0, pattern, 0, length))
+			return PREFIX_MATCH;
+		if (subwords && matchesSubwords(name, 0, 0))
+			return SUBWORDS_MATCH;
+		return NO_MATCH;
+	}
+
+	/**
+	 * @return whether pattern from given index matches name from given index, the first character being compared in place and next ones either
+	 *         following it or at beginnings of sub-words
+	 */
+	private boolean matchesSubwords(final String name, final int patternIndex, final int nameIndex) {
+		if (patternIndex == pattern.length())
+			return true;
+		if (nameIndex >= name.length() || !sameIgnoringCase(pattern.charAt(patternIndex), name.charAt(nameIndex)))
+			return false;
+		if (matchesSubwords(name, patternIndex + 1, nameIndex + 1))
+			return true;
+		for (int subword = nextSubword(name, nameIndex + 1); subword < name.length(); subword = nextSubword(name, subword + 1)) {
+			if (matchesSubwords(name, patternIndex + 1, subword))
+				return true;
+		}
+		return false;
+	}
+
+	private static int nextSubword(final String name, final int from) {
+		for (int i = from; i < name.length(); i++) {
+			final char previous = name.charAt(i - 1);
+			final char current = name.charAt(i);
+			if (current == '_')
+				continue;
+			if (previous == '_' || Character.isDigit(current) && !Character.isDigit(previous))
+				return i;
+			// Upper case letter after a lower case one, or last upper case letter of an acronym followed by a word
+			if (Character.isUpperCase(current)
+					&& (!Character.isUpperCase(previous) || i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1))))
+				return i;
+		}
+		return name.length();
+	}
+
+	private static boolean sameIgnoringCase(final char first, final char second) {
+		return first == second || Character.toLowerCase(first) == Character.toLowerCase(second);
+	}
+}
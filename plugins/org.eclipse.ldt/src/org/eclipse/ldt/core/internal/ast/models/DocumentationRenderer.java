@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.ast.models.api.Documentation;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.api.LuaFileAPI;
+import org.eclipse.ldt.core.internal.ast.models.api.RecordTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.TypeDef;
+import org.eclipse.ldt.core.internal.ast.models.common.IDocumentationHolder;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaASTNode;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModule;
+
+import com.cforcoding.jmd.MarkDown;
+import com.naef.jnlua.LuaRuntimeException;
+import com.naef.jnlua.LuaState;
+import com.naef.jnlua.NamedJavaFunction;
+import com.naef.jnlua.eclipse.AbstractLuaModule;
+
+/**
+ * Renders the {@link Documentation} of API elements in HTML, when it is shown.
+ * <p>
+ * Documentation is rendered by the templates of <code>libraries/doctemplates</code>, shared with luadocumentor, in a Lua VM of its own loaded on
+ * first use. Links are generated only for module documentation, as documentation embedded in the IDE does not support them very well. Documentation
+ * of local elements is shown as written, escaped.
+ * </p>
+ */
+public final class DocumentationRenderer extends AbstractLuaModule {
+
+	private static final String MODULE_NAME = "javadocumentationrenderer"; //$NON-NLS-1$
+	private static final String RENDER_FUNCTION = "render"; //$NON-NLS-1$
+	private static final String UTILS_MODULE = "javadocumentationutils"; //$NON-NLS-1$
+
+	private static DocumentationRenderer instance;
+
+	private LuaState lua;
+
+	private DocumentationRenderer() {
+	}
+
+	public static synchronized DocumentationRenderer getDefault() {
+		if (instance == null)
+			instance = new DocumentationRenderer();
+		return instance;
+	}
+
+	/**
+	 * Close the Lua VM of the renderer, if it was loaded.
+	 */
+	public static synchronized void shutdown() {
+		if (instance == null)
+			return;
+		instance.dispose();
+		instance = null;
+	}
+
+	private synchronized void dispose() {
+		if (lua != null) {
+			lua.close();
+			lua = null;
+		}
+	}
+
+	/**
+	 * @return HTML documentation of given item or type definition, empty when there is nothing to show
+	 */
+	public String render(final IDocumentationHolder holder) {
+		final Documentation documentation = holder.getDocumentation();
+		if (documentation == null)
+			return ""; //$NON-NLS-1$
+		if (documentation.isPreformatted())
+			return renderPreformatted(documentation);
+
+		// Templates apply to elements of a module API only, they are found again by name on Lua side
+		LuaFileAPI file = null;
+		String typeName = null;
+		String itemName = null;
+		if (holder instanceof Item) {
+			final Item item = (Item) holder;
+			itemName = item.getName();
+			LuaASTNode parent = item.getParent();
+			if (parent instanceof RecordTypeDef) {
+				final LuaASTNode recordParent = ((RecordTypeDef) parent).getParent();
+				if (recordParent instanceof LuaFileAPI) {
+					file = (LuaFileAPI) recordParent;
+					typeName = getTypeName(file, (TypeDef) parent);
+				}
+			} else if (parent instanceof LuaFileAPI) {
+				file = (LuaFileAPI) parent;
+			}
+		} else if (holder instanceof TypeDef) {
+			final LuaASTNode parent = ((TypeDef) holder).getParent();
+			if (parent instanceof LuaFileAPI) {
+				file = (LuaFileAPI) parent;
+				typeName = getTypeName(file, (TypeDef) holder);
+			}
+		}
+
+		String html = null;
+		if (file != null && (typeName != null || itemName != null))
+			html = render(file, typeName, itemName);
+		return html != null ? html : renderPreformatted(documentation);
+	}
+
+	/**
+	 * @return HTML documentation of given module, <code>null</code> when it is not documented
+	 */
+	public String render(final LuaFileAPI file) {
+		if (file.getDocumentation() == null)
+			return null;
+		return render(file, null, null);
+	}
+
+	private static String getTypeName(final LuaFileAPI file, final TypeDef typeDef) {
+		for (final Entry<String, TypeDef> type : file.getTypes().entrySet()) {
+			if (type.getValue() == typeDef)
+				return type.getKey();
+		}
+		return null;
+	}
+
+	private synchronized String render(final LuaFileAPI file, final String typeName, final String itemName) {
+		if (lua == null)
+			lua = loadLuaModule();
+
+		pushLuaModule(lua);
+		try {
+			lua.getField(-1, RENDER_FUNCTION);
+			lua.pushJavaObject(file);
+			pushString(typeName);
+			pushString(itemName);
+			lua.call(3, 1);
+			return lua.toString(-1);
+		} catch (final LuaRuntimeException e) {
+			Activator.logWarning("Unable to render documentation of " + file.getName(), e); //$NON-NLS-1$
+			return null;
+		} finally {
+			lua.setTop(0);
+		}
+	}
+
+	private void pushString(final String string) {
+		if (string == null)
+			lua.pushNil();
+		else
+			lua.pushString(string);
+	}
+
+	private static String renderPreformatted(final Documentation documentation) {
+		final List<String> lines = new ArrayList<String>(2);
+		if (documentation.getShortDescription() != null)
+			lines.add(escape(documentation.getShortDescription()));
+		if (documentation.getDescription() != null)
+			lines.add(escape(documentation.getDescription()));
+		if (lines.isEmpty())
+			return ""; //$NON-NLS-1$
+
+		final StringBuilder html = new StringBuilder("<div style='white-space:pre'>"); //$NON-NLS-1$
+		for (int i = 0; i < lines.size(); i++) {
+			if (i > 0)
+				html.append('\n');
+			html.append(lines.get(i));
+		}
+		return html.append("</div>").toString(); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return <code>text</code> where characters with a meaning in HTML are replaced by entities
+	 */
+	private static String escape(final String text) {
+		final StringBuilder escaped = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			switch (c) {
+			case '&':
+				escaped.append("&amp;"); //$NON-NLS-1$
+				break;
+			case '<':
+				escaped.append("&lt;"); //$NON-NLS-1$
+				break;
+			case '>':
+				escaped.append("&gt;"); //$NON-NLS-1$
+				break;
+			case '"':
+				escaped.append("&quot;"); //$NON-NLS-1$
+				break;
+			case '\'':
+				escaped.append("&#39;"); //$NON-NLS-1$
+				break;
+			default:
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	/**
+	 * Markdown is applied in Java, as it is much faster than the Lua implementation used by luadocumentor.
+	 */
+	private static NamedJavaFunction markdown() {
+		return new NamedJavaFunction() {
+			private final MarkDown markdown = new MarkDown();
+
+			@Override
+			public int invoke(final LuaState l) {
+				l.pushString(markdown.transform(l.checkString(1)));
+				return 1;
+			}
+
+			@Override
+			public String getName() {
+				return "markdown"; //$NON-NLS-1$
+			}
+		};
+	}
+
+	/**
+	 * Kind of model elements converted on Lua side, where classes of Java objects can not be browsed.
+	 */
+	private static NamedJavaFunction classname() {
+		return new NamedJavaFunction() {
+			@Override
+			public int invoke(final LuaState l) {
+				l.pushString(l.checkJavaObject(1, Object.class).getClass().getSimpleName());
+				return 1;
+			}
+
+			@Override
+			public String getName() {
+				return "classname"; //$NON-NLS-1$
+			}
+		};
+	}
+
+	/**
+	 * @see com.naef.jnlua.eclipse.AbstractLuaModule#createLuaState()
+	 */
+	@Override
+	protected LuaState createLuaState() {
+		final LuaState luaState = new LuaState();
+		luaState.openLibs();
+		luaState.register(UTILS_MODULE, new NamedJavaFunction[] { markdown(), classname() });
+		luaState.pop(1);
+		return luaState;
+	}
+
+	/**
+	 * @see com.naef.jnlua.eclipse.AbstractLuaModule#getLuaSourcePaths()
+	 */
+	@Override
+	protected List<String> getLuaSourcePaths() {
+		final List<String> sourcepaths = new ArrayList<String>();
+		sourcepaths.add(ModelsBuilderLuaModule.LOCAL_LIB_PATH);
+		sourcepaths.add(ModelsBuilderLuaModule.EXTERNAL_LIB_PATH);
+		return sourcepaths;
+	}
+
+	/**
+	 * @see com.naef.jnlua.eclipse.AbstractLuaModule#getLuacSourcePaths()
+	 */
+	@Override
+	protected List<String> getLuacSourcePaths() {
+		return null;
+	}
+
+	/**
+	 * @see com.naef.jnlua.eclipse.AbstractLuaModule#getPluginID()
+	 */
+	@Override
+	protected String getPluginID() {
+		return Activator.PLUGIN_ID;
+	}
+
+	/**
+	 * @see com.naef.jnlua.eclipse.AbstractLuaModule#getModuleName()
+	 */
+	@Override
+	protected String getModuleName() {
+		return MODULE_NAME;
+	}
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Names of global variables defined by modules, sorted so that names starting with a prefix are found without going through all of them.
+ * <p>
+ * As completion, prefix queries ignore case, exact queries do not. This class is not thread safe.
+ * </p>
+ */
+public class GlobalNameTable<M> {
+
+	/** Offset of definitions whose position is not known */
+	public static final int UNKNOWN_OFFSET = -1;
+
+	/**
+	 * A global variable name defined by a module, at an offset of it.
+	 */
+	public static final class Entry<M> {
+		private final M module;
+		private final String name;
+		private final int offset;
+
+		private Entry(final M module, final String name, final int offset) {
+			this.module = module;
+			this.name = name;
+			this.offset = offset;
+		}
+
+		public M getModule() {
+			return module;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return offset of the definition in its module, {@link GlobalNameTable#UNKNOWN_OFFSET} if it is not known
+		 */
+		public int getOffset() {
+			return offset;
+		}
+	}
+
+	/** Entries by lower case name */
+	private final TreeMap<String, List<Entry<M>>> entries = new TreeMap<String, List<Entry<M>>>();
+
+	/** Offsets of names defined by each module */
+	private final Map<M, Map<String, Integer>> names = new HashMap<M, Map<String, Integer>>();
+
+	/**
+	 * Define the names of global variables of a module, at unknown offsets, replacing the ones previously defined.
+	 */
+	public void put(final M module, final Collection<String> moduleNames) {
+		final Map<String, Integer> offsets = new LinkedHashMap<String, Integer>();
+		for (final String name : moduleNames)
+			offsets.put(name, UNKNOWN_OFFSET);
+		put(module, offsets);
+	}
+
+	/**
+	 * Define the names of global variables of a module with the offsets of their definitions, replacing the ones previously defined.
+	 */
+	public void put(final M module, final Map<String, Integer> moduleOffsets) {
+		remove(module);
+		final Map<String, Integer> copy = new LinkedHashMap<String, Integer>(moduleOffsets);
+		names.put(module, copy);
+		for (final Map.Entry<String, Integer> offset : copy.entrySet()) {
+			final String name = offset.getKey();
+			final String key = name.toLowerCase();
+			List<Entry<M>> nameEntries = entries.get(key);
+			if (nameEntries == null) {
+				nameEntries = new ArrayList<Entry<M>>(1);
+				entries.put(key, nameEntries);
+			}
+			nameEntries.add(new Entry<M>(module, name, offset.getValue().intValue()));
+		}
+	}
+
+	public void remove(final M module) {
+		final Map<String, Integer> moduleOffsets = names.remove(module);
+		if (moduleOffsets == null)
+			return;
+		for (final String name : moduleOffsets.keySet()) {
+			final String key = name.toLowerCase();
+			final List<Entry<M>> nameEntries = entries.get(key);
+			if (nameEntries == null)
+				continue;
+			for (final Iterator<Entry<M>> iterator = nameEntries.iterator(); iterator.hasNext();) {
+				if (iterator.next().module.equals(module))
+					iterator.remove();
+			}
+			if (nameEntries.isEmpty())
+				entries.remove(key);
+		}
+	}
+
+	public boolean contains(final M module) {
+		return names.containsKey(module);
+	}
+
+	/**
+	 * @return names of global variables defined by given module, <code>null</code> if the module is not in table
+	 */
+	public Collection<String> getNames(final M module) {
+		final Map<String, Integer> moduleOffsets = names.get(module);
+		return moduleOffsets != null ? Collections.unmodifiableCollection(moduleOffsets.keySet()) : null;
+	}
+
+	/**
+	 * @return offsets of the definitions of global variables of given module by name, <code>null</code> if the module is not in table
+	 */
+	public Map<String, Integer> getOffsets(final M module) {
+		final Map<String, Integer> moduleOffsets = names.get(module);
+		return moduleOffsets != null ? Collections.unmodifiableMap(moduleOffsets) : null;
+	}
+
+	public Collection<M> getModules() {
+		return Collections.unmodifiableCollection(names.keySet());
+	}
+
+	/**
+	 * @return entries with exactly the given name
+	 */
+	public List<Entry<M>> get(final String name) {
+		final List<Entry<M>> nameEntries = entries.get(name.toLowerCase());
+		if (nameEntries == null)
+			return Collections.emptyList();
+		final List<Entry<M>> result = new ArrayList<Entry<M>>(nameEntries.size());
+		for (final Entry<M> entry : nameEntries) {
+			if (entry.name.equals(name))
+				result.add(entry);
+		}
+		return result;
+	}
+
+	/**
+	 * @return entries whose name starts with given prefix, ignoring case, all entries if prefix is <code>null</code> or empty
+	 */
+	public List<Entry<M>> getByPrefix(final String prefix) {
+		final SortedMap<String, List<Entry<M>>> matches;
+		if (prefix == null || prefix.isEmpty()) {
+			matches = entries;
+		} else {
+			final String start = prefix.toLowerCase();
+			matches = entries.subMap(start, start + Character.MAX_VALUE);
+		}
+		final List<Entry<M>> result = new ArrayList<Entry<M>>();
+		for (final List<Entry<M>> nameEntries : matches.values())
+			result.addAll(nameEntries);
+		return result;
+	}
+
+	/**
+	 * @return entries whose name matches, the most relevant first
+	 */
+	public List<Entry<M>> getMatches(final CompletionMatcher matcher) {
+		// Matching names start with the first character of the pattern, ignoring case
+		final String pattern = matcher.getPattern();
+		final List<Entry<M>> candidates = getByPrefix(pattern.isEmpty() ? pattern : pattern.substring(0, 1));
+
+		final List<Entry<M>> exact = new ArrayList<Entry<M>>();
+		final List<Entry<M>> casePrefix = new ArrayList<Entry<M>>();
+		final List<Entry<M>> prefix = new ArrayList<Entry<M>>();
+		final List<Entry<M>> subwords = new ArrayList<Entry<M>>();
+		for (final Entry<M> entry : candidates) {
+			switch (matcher.getRelevance(entry.name)) {
+			case CompletionMatcher.EXACT_MATCH:
+				exact.add(entry);
+				break;
+			case CompletionMatcher.CASE_PREFIX_MATCH:
+				casePrefix.add(entry);
+				break;
+			case CompletionMatcher.PREFIX_MATCH:
+				prefix.add(entry);
+				break;
+			case CompletionMatcher.SUBWORDS_MATCH:
+				subwords.add(entry);
+				break;
+			default:
+				break;
+			}
+		}
+		final List<Entry<M>> result = new ArrayList<Entry<M>>(exact.size() + casePrefix.size() + prefix.size() + subwords.size());
+		result.addAll(exact);
+		result.addAll(casePrefix);
+		result.addAll(prefix);
+		result.addAll(subwords);
+		return result;
+	}
+
+	public void clear() {
+		entries.clear();
+		names.clear();
+	}
+}
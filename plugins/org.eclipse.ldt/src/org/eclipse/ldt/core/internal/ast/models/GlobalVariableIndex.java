@@ -0,0 +1,593 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IElementChangedListener;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.core.IProjectFragment;
+import org.eclipse.dltk.core.IScriptFolder;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.ModelException;
+import org.eclipse.ldt.core.LuaUtils;
+import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.ast.models.GlobalNameTable.Entry;
+import org.eclipse.ldt.core.internal.ast.models.LuaASTUtils.Definition;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Index of global variables defined by source modules of Lua projects and of the projects they depend on, from their names to their modules and
+ * the offsets of their definitions.
+ * <p>
+ * Modules are indexed by a background job, the first time a project they belong to is queried, then again once they changed, on save or as the
+ * working copy of their editor is reconciled. Queries do not wait for it: modules which are not indexed yet are missing from their results. The
+ * index is saved in the plug-in state location, modules unchanged since are not parsed again at next session.
+ * </p>
+ * <p>
+ * Only names and offsets are indexed, {@link Item}s of definitions listed by prefix are taken from the AST of their module the first time they are
+ * asked for.
+ * </p>
+ */
+public final class GlobalVariableIndex {
+
+	/** Family of the indexing job */
+	public static final Object JOB_FAMILY = GlobalVariableIndex.class;
+
+	private static final String INDEX_FILE = "globalvars.index"; //$NON-NLS-1$
+	private static final int FORMAT_VERSION = 2;
+
+	/** Delay of indexing after a module changed, so that it is not parsed again at each reconcile while typing, in milliseconds */
+	private static final long INDEXING_DELAY = 500;
+
+	private static GlobalVariableIndex instance;
+
+	private final GlobalNameTable<ISourceModule> table = new GlobalNameTable<ISourceModule>();
+
+	/** Modification stamps of indexed modules resources, to know which ones changed between sessions */
+	private final Map<ISourceModule, Long> stamps = new HashMap<ISourceModule, Long>();
+
+	/** Modules changed since they were indexed */
+	private final Set<ISourceModule> dirtyModules = new LinkedHashSet<ISourceModule>();
+
+	/** Fragments whose modules are all indexed */
+	private final Set<IProjectFragment> indexedFragments = new HashSet<IProjectFragment>();
+
+	/** Fragments of queried projects whose modules are not indexed yet */
+	private final Set<IProjectFragment> requestedFragments = new LinkedHashSet<IProjectFragment>();
+
+	/** Fragments searched for global variables of each project, as visited by {@link LuaASTUtils} */
+	private final Map<IScriptProject, Set<IProjectFragment>> scopes = new HashMap<IScriptProject, Set<IProjectFragment>>();
+
+	private final IElementChangedListener changedListener = new IElementChangedListener() {
+		@Override
+		public void elementChanged(final ElementChangedEvent event) {
+			synchronized (GlobalVariableIndex.this) {
+				processDelta(event.getDelta());
+				scheduleIndexing(INDEXING_DELAY);
+			}
+		}
+	};
+
+	private final Job indexingJob = new Job(Messages.GlobalVariableIndexJobName) {
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			index(monitor);
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+
+		@Override
+		public boolean belongsTo(final Object family) {
+			return JOB_FAMILY.equals(family);
+		}
+	};
+
+	/**
+	 * Definition of a global variable found in the index, whose {@link Item} is taken from the AST of its module the first time it is asked for.
+	 */
+	private final class IndexedDefinition extends Definition {
+		private final String name;
+		private final int offset;
+		private boolean resolved;
+		private Item item;
+
+		private IndexedDefinition(final ISourceModule module, final String name, final int offset) {
+			super(module, null);
+			this.name = name;
+			this.offset = offset;
+		}
+
+		/**
+		 * @return definition item, <code>null</code> if the module does not define the variable anymore
+		 */
+		@Override
+		public synchronized Item getItem() {
+			if (!resolved) {
+				resolved = true;
+				final LuaSourceRoot luaSourceRoot = LuaASTModelUtils.getLuaSourceRoot(getModule());
+				if (luaSourceRoot != null && luaSourceRoot.getFileapi() != null)
+					item = luaSourceRoot.getFileapi().getGlobalvars().get(name);
+				// Module changed since it was indexed
+				if (item == null || (offset != GlobalNameTable.UNKNOWN_OFFSET && item.sourceStart() != offset))
+					invalidate(getModule());
+			}
+			return item;
+		}
+	}
+
+	private GlobalVariableIndex() {
+		indexingJob.setSystem(true);
+		indexingJob.setPriority(Job.LONG);
+	}
+
+	public static synchronized GlobalVariableIndex getDefault() {
+		if (instance == null) {
+			instance = new GlobalVariableIndex();
+			instance.load();
+			// Working copies are indexed as they are reconciled
+			DLTKCore.addElementChangedListener(instance.changedListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+		}
+		return instance;
+	}
+
+	/**
+	 * Save index for next session, if it was used in this one.
+	 */
+	public static synchronized void shutdown() {
+		if (instance == null)
+			return;
+		DLTKCore.removeElementChangedListener(instance.changedListener);
+		instance.indexingJob.cancel();
+		try {
+			instance.indexingJob.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		instance.save();
+		instance = null;
+	}
+
+	/**
+	 * @return definitions of global variables whose name starts with given prefix, ignoring case, defined by modules of the project of given module
+	 *         and of the projects it depends on, except given module. Their item is <code>null</code> when their module does not define them
+	 *         anymore.
+	 */
+	public List<Definition> getDefinitions(final ISourceModule sourceModule, final String prefix) {
+		final Set<IProjectFragment> scope = update(sourceModule.getScriptProject());
+		final List<Entry<ISourceModule>> entries;
+		synchronized (this) {
+			entries = table.getByPrefix(prefix);
+		}
+		return resolve(sourceModule, scope, entries, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return at most <code>limit</code> definitions of global variables whose name matches, the most relevant first, defined by modules of the
+	 *         project of given module and of the projects it depends on, except given module. Their item is <code>null</code> when their module does
+	 *         not define them anymore.
+	 */
+	public List<Definition> getDefinitions(final ISourceModule sourceModule, final CompletionMatcher matcher, final int limit) {
+		final Set<IProjectFragment> scope = update(sourceModule.getScriptProject());
+		final List<Entry<ISourceModule>> entries;
+		synchronized (this) {
+			entries = table.getMatches(matcher);
+		}
+		return resolve(sourceModule, scope, entries, limit);
+	}
+
+	/**
+	 * @return definition of the global variable with given name, defined by a module of the project of given module or of the projects it depends
+	 *         on, except given module
+	 */
+	public Definition getDefinition(final ISourceModule sourceModule, final String name) {
+		final Set<IProjectFragment> scope = update(sourceModule.getScriptProject());
+		final List<Entry<ISourceModule>> entries;
+		synchronized (this) {
+			entries = table.get(name);
+		}
+		// The first one still defined, exact queries are resolved at once
+		for (final Definition definition : resolve(sourceModule, scope, entries, Integer.MAX_VALUE)) {
+			if (definition.getItem() != null)
+				return definition;
+		}
+		return null;
+	}
+
+	/**
+	 * Preloaded modules, the <code>global.lua</code> of execution environments, are indexed at once, as their globals are the most expected ones.
+	 * They are not part of project scopes.
+	 *
+	 * @return at most <code>limit</code> definitions of global variables of given preloaded module whose name matches, the most relevant first.
+	 *         Their item is <code>null</code> when the module does not define them anymore.
+	 */
+	public List<Definition> getPreloadedDefinitions(final ISourceModule preloadedModule, final CompletionMatcher matcher, final int limit) {
+		final boolean indexed;
+		synchronized (this) {
+			indexed = table.contains(preloadedModule) && !dirtyModules.contains(preloadedModule);
+		}
+		if (!indexed)
+			index(preloadedModule);
+
+		final List<Entry<ISourceModule>> entries;
+		synchronized (this) {
+			entries = table.getMatches(matcher);
+		}
+		final List<Definition> definitions = new ArrayList<Definition>();
+		for (final Entry<ISourceModule> entry : entries) {
+			if (entry.getModule().equals(preloadedModule)) {
+				definitions.add(new IndexedDefinition(preloadedModule, entry.getName(), entry.getOffset()));
+				if (definitions.size() >= limit)
+					break;
+			}
+		}
+		return definitions;
+	}
+
+	/**
+	 * @return definitions of given entries in given scope, which are not resolved yet
+	 */
+	private List<Definition> resolve(final ISourceModule sourceModule, final Set<IProjectFragment> scope, final List<Entry<ISourceModule>> entries,
+			final int limit) {
+		// Modules are indexed as primary ones, queries may come from an other working copy
+		final ISourceModule primary = sourceModule.getPrimary();
+		final List<Definition> definitions = new ArrayList<Definition>();
+		for (final Entry<ISourceModule> entry : entries) {
+			final ISourceModule module = entry.getModule();
+			if (module.equals(primary) || !scope.contains(getFragment(module)))
+				continue;
+			definitions.add(new IndexedDefinition(module, entry.getName(), entry.getOffset()));
+			if (definitions.size() >= limit)
+				break;
+		}
+		return definitions;
+	}
+
+	/**
+	 * Request indexing of modules of given project scope which are not indexed yet or changed.
+	 *
+	 * @return scope of given project
+	 */
+	private synchronized Set<IProjectFragment> update(final IScriptProject project) {
+		final Set<IProjectFragment> scope = getScope(project);
+		for (final IProjectFragment fragment : scope) {
+			if (!indexedFragments.contains(fragment))
+				requestedFragments.add(fragment);
+		}
+		scheduleIndexing(0);
+		return scope;
+	}
+
+	/**
+	 * Schedule indexing job if there are modules to index: modules of requested fragments, and changed modules of indexed or requested fragments.
+	 * Other changed modules are indexed once their fragment is requested.
+	 */
+	private void scheduleIndexing(final long delay) {
+		boolean pending = !requestedFragments.isEmpty();
+		for (final ISourceModule module : dirtyModules) {
+			if (pending)
+				break;
+			final IProjectFragment fragment = getFragment(module);
+			pending = indexedFragments.contains(fragment) || requestedFragments.contains(fragment);
+		}
+		if (pending)
+			indexingJob.schedule(delay);
+	}
+
+	private synchronized void invalidate(final ISourceModule module) {
+		dirtyModules.add(module);
+		scheduleIndexing(INDEXING_DELAY);
+	}
+
+	/**
+	 * Index modules of requested fragments and changed modules, until there is none left or monitor is canceled.
+	 */
+	private void index(final IProgressMonitor monitor) {
+		while (!monitor.isCanceled()) {
+			final Set<IProjectFragment> fragments;
+			final Set<ISourceModule> modules = new LinkedHashSet<ISourceModule>();
+			synchronized (this) {
+				fragments = new HashSet<IProjectFragment>(requestedFragments);
+				for (final ISourceModule module : dirtyModules) {
+					final IProjectFragment fragment = getFragment(module);
+					if (indexedFragments.contains(fragment) || fragments.contains(fragment))
+						modules.add(module);
+				}
+			}
+			if (fragments.isEmpty() && modules.isEmpty())
+				return;
+
+			// Model is accessed out of lock, which element changed listener holds
+			for (final IProjectFragment fragment : fragments)
+				modules.addAll(listModules(fragment));
+			for (final ISourceModule module : modules) {
+				if (monitor.isCanceled())
+					return;
+				index(module);
+			}
+
+			synchronized (this) {
+				// Fragments changed meanwhile are not requested anymore, they are indexed again at next query
+				for (final IProjectFragment fragment : fragments) {
+					if (requestedFragments.remove(fragment))
+						indexedFragments.add(fragment);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Index given module, unless it is indexed and did not change since.
+	 */
+	private void index(final ISourceModule module) {
+		// Content of working copies is not saved, it has to be indexed again at next session
+		final Long stamp = module.isWorkingCopy() ? null : getModificationStamp(module);
+		synchronized (this) {
+			// Changes made while parsing mark it dirty again
+			final boolean dirty = dirtyModules.remove(module);
+			if (!dirty && table.contains(module) && stamp != null && stamp.equals(stamps.get(module)))
+				return;
+		}
+		final Map<String, Integer> offsets = getGlobalOffsets(module);
+		synchronized (this) {
+			if (offsets == null || !module.exists()) {
+				table.remove(module);
+				stamps.remove(module);
+			} else {
+				table.put(module, offsets);
+				if (stamp != null)
+					stamps.put(module, stamp);
+				else
+					stamps.remove(module);
+			}
+		}
+	}
+
+	/**
+	 * @return offsets of definitions of global variables of given module by name, <code>null</code> if it can not be parsed
+	 */
+	private static Map<String, Integer> getGlobalOffsets(final ISourceModule module) {
+		if (!module.exists())
+			return null;
+		final LuaSourceRoot luaSourceRoot = LuaASTModelUtils.getLuaSourceRoot(module);
+		if (luaSourceRoot == null || luaSourceRoot.getFileapi() == null)
+			return null;
+		final Map<String, Integer> offsets = new LinkedHashMap<String, Integer>();
+		for (final Map.Entry<String, Item> globalvar : luaSourceRoot.getFileapi().getGlobalvars().entrySet())
+			offsets.put(globalvar.getKey(), globalvar.getValue().sourceStart());
+		return offsets;
+	}
+
+	/**
+	 * Fragments of the project and of projects it depends on, without execution environment and archives.
+	 */
+	private Set<IProjectFragment> getScope(final IScriptProject project) {
+		Set<IProjectFragment> scope = scopes.get(project);
+		if (scope == null) {
+			scope = new HashSet<IProjectFragment>();
+			try {
+				for (final IProjectFragment fragment : project.getAllProjectFragments()) {
+					if (!fragment.isArchive() && !LuaUtils.isExecutionEnvironmentFragment(fragment))
+						scope.add(fragment);
+				}
+				scopes.put(project, scope);
+			} catch (final ModelException e) {
+				Activator.logWarning(NLS.bind("Unable to get fragments of project {0}.", project.getElementName()), e); //$NON-NLS-1$
+			}
+		}
+		return scope;
+	}
+
+	private static List<ISourceModule> listModules(final IProjectFragment fragment) {
+		final List<ISourceModule> modules = new ArrayList<ISourceModule>();
+		try {
+			// Fragments children are all their folders, nested ones included
+			for (final IModelElement child : fragment.getChildren()) {
+				if (child instanceof IScriptFolder) {
+					for (final ISourceModule module : ((IScriptFolder) child).getSourceModules())
+						modules.add(module);
+				}
+			}
+		} catch (final ModelException e) {
+			Activator.logWarning(NLS.bind("Unable to list modules of {0}.", fragment.getElementName()), e); //$NON-NLS-1$
+		}
+		return modules;
+	}
+
+	private static IProjectFragment getFragment(final ISourceModule module) {
+		return (IProjectFragment) module.getAncestor(IModelElement.PROJECT_FRAGMENT);
+	}
+
+	private static Long getModificationStamp(final ISourceModule module) {
+		final IResource resource = module.getResource();
+		if (resource == null)
+			return null;
+		final long stamp = resource.getModificationStamp();
+		return stamp == IResource.NULL_STAMP ? null : Long.valueOf(stamp);
+	}
+
+	private void remove(final ISourceModule module) {
+		table.remove(module);
+		stamps.remove(module);
+		dirtyModules.remove(module);
+	}
+
+	private void removeAll(final IModelElement ancestor) {
+		for (final ISourceModule module : new ArrayList<ISourceModule>(table.getModules())) {
+			if (LuaDLTKModelUtils.isAncestor(module, ancestor))
+				remove(module);
+		}
+	}
+
+	private void processDelta(final IModelElementDelta delta) {
+		final IModelElement element = delta.getElement();
+		switch (element.getElementType()) {
+		case IModelElement.SOURCE_MODULE:
+			final ISourceModule module = (ISourceModule) element;
+			// Working copies of editors are primary modules, other working copies are not indexed
+			if (!module.equals(module.getPrimary()))
+				return;
+			if (delta.getKind() == IModelElementDelta.REMOVED)
+				remove(module);
+			else
+				dirtyModules.add(module);
+			return;
+		case IModelElement.SCRIPT_FOLDER:
+			if (delta.getKind() == IModelElementDelta.REMOVED)
+				removeAll(element);
+			break;
+		case IModelElement.SCRIPT_PROJECT:
+		case IModelElement.PROJECT_FRAGMENT:
+			// Build path, opening or existence changed: scopes have to be computed again
+			if (delta.getKind() != IModelElementDelta.CHANGED || (delta.getFlags() & ~IModelElementDelta.F_CHILDREN) != 0) {
+				scopes.clear();
+				if (element instanceof IProjectFragment) {
+					indexedFragments.remove(element);
+					requestedFragments.remove(element);
+				} else {
+					indexedFragments.clear();
+					requestedFragments.clear();
+				}
+				if (delta.getKind() == IModelElementDelta.REMOVED)
+					removeAll(element);
+			}
+			break;
+		default:
+			break;
+		}
+		for (final IModelElementDelta child : delta.getAffectedChildren())
+			processDelta(child);
+	}
+
+	private File getIndexFile() {
+		final Activator activator = Activator.getDefault();
+		return activator != null ? activator.getStateLocation().append(INDEX_FILE).toFile() : null;
+	}
+
+	/**
+	 * Index modules saved by previous session, when their resource did not change since.
+	 */
+	private synchronized void load() {
+		final File file = getIndexFile();
+		if (file == null || !file.isFile())
+			return;
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (input.readInt() != FORMAT_VERSION)
+				return;
+			final int count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				final String handle = input.readUTF();
+				final long stamp = input.readLong();
+				final int nameCount = input.readInt();
+				final Map<String, Integer> offsets = new LinkedHashMap<String, Integer>();
+				for (int j = 0; j < nameCount; j++) {
+					final String name = input.readUTF();
+					offsets.put(name, input.readInt());
+				}
+
+				final IModelElement element = DLTKCore.create(handle);
+				if (element instanceof ISourceModule && element.exists()) {
+					final ISourceModule module = (ISourceModule) element;
+					final Long currentStamp = getModificationStamp(module);
+					if (currentStamp != null && currentStamp.longValue() == stamp) {
+						table.put(module, offsets);
+						stamps.put(module, currentStamp);
+					}
+				}
+			}
+		} catch (final IOException e) {
+			Activator.logWarning("Unable to load global variables index.", e); //$NON-NLS-1$
+			table.clear();
+			stamps.clear();
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (final IOException e) {
+					// Nothing more to do
+				}
+			}
+		}
+	}
+
+	private synchronized void save() {
+		final File file = getIndexFile();
+		if (file == null)
+			return;
+		DataOutputStream output = null;
+		boolean saved = false;
+		try {
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			output.writeInt(FORMAT_VERSION);
+
+			// Changed modules are not saved, they have to be indexed again
+			final List<ISourceModule> modules = new ArrayList<ISourceModule>();
+			for (final ISourceModule module : table.getModules()) {
+				if (!dirtyModules.contains(module) && stamps.get(module) != null)
+					modules.add(module);
+			}
+			output.writeInt(modules.size());
+			for (final ISourceModule module : modules) {
+				output.writeUTF(module.getHandleIdentifier());
+				output.writeLong(stamps.get(module).longValue());
+				final Map<String, Integer> offsets = table.getOffsets(module);
+				output.writeInt(offsets.size());
+				for (final Map.Entry<String, Integer> offset : offsets.entrySet()) {
+					output.writeUTF(offset.getKey());
+					output.writeInt(offset.getValue().intValue());
+				}
+			}
+			output.close();
+			output = null;
+			saved = true;
+		} catch (final IOException e) {
+			Activator.logWarning("Unable to save global variables index.", e); //$NON-NLS-1$
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (final IOException e) {
+					// Nothing more to do
+				}
+			}
+			// A partial index must not be loaded
+			if (!saved)
+				file.delete();
+		}
+	}
+}
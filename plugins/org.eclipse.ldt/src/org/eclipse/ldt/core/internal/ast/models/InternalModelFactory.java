@@ -24,6 +24,7 @@ import org.eclipse.ldt.core.internal.ast.models.file.Literal;
 import org.eclipse.ldt.core.internal.ast.models.file.LocalVar;
 import org.eclipse.ldt.core.internal.ast.models.file.LuaExpression;
 import org.eclipse.ldt.core.internal.ast.models.file.LuaInternalContent;
+import org.eclipse.ldt.core.internal.ast.models.file.Statement;
 
 import com.naef.jnlua.LuaState;
 import com.naef.jnlua.NamedJavaFunction;
@@ -55,6 +56,7 @@ public final class InternalModelFactory {
 		javaFunctions.add(newLocalVar());
 		javaFunctions.add(blockAddContent());
 		javaFunctions.add(blockAddLocalVar());
+		javaFunctions.add(blockAddStatement());
 		javaFunctions.add(intenalContentAddUnknownGlobalVar());
 		javaFunctions.add(callAddArg());
 		javaFunctions.add(invokeAddArg());
@@ -329,6 +331,27 @@ public final class InternalModelFactory {
 		};
 	}
 
+	private static NamedJavaFunction blockAddStatement() {
+		return new NamedJavaFunction() {
+			@Override
+			public int invoke(LuaState l) {
+				Block block = l.checkJavaObject(1, Block.class);
+				int sourceRangeMin = l.checkInteger(2);
+				int sourceRangeMax = l.checkInteger(3);
+
+				block.addStatement(new Statement(sourceRangeMin, sourceRangeMax, l.checkBoolean(4), l.checkBoolean(5), l.checkBoolean(6), l
+						.checkBoolean(7)));
+
+				return 0;
+			}
+
+			@Override
+			public String getName() {
+				return "addstatement"; //$NON-NLS-1$
+			}
+		};
+	}
+
 	private static NamedJavaFunction intenalContentAddUnknownGlobalVar() {
 		return new NamedJavaFunction() {
 			@Override
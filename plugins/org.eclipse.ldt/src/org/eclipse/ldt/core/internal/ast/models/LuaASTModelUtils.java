@@ -52,6 +52,8 @@ public final class LuaASTModelUtils {
 	 * DLTK Model => AST
 	 */
 	public static LuaSourceRoot getLuaSourceRoot(ISourceModule module) {
+		// types resolved from this module depend on it
+		LuaASTUtils.getTypeResolutionCache().addDependency(module);
 		ModuleDeclaration moduleDeclaration = SourceParserUtil.getModuleDeclaration(module);
 		if (moduleDeclaration instanceof LuaSourceRoot)
 			return (LuaSourceRoot) moduleDeclaration;
@@ -12,25 +12,15 @@ package org.eclipse.ldt.core.internal.ast.models;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Platform;
-import org.eclipse.dltk.ast.ASTNode;
-import org.eclipse.dltk.ast.ASTVisitor;
-import org.eclipse.dltk.core.IScriptFolder;
 import org.eclipse.dltk.core.ISourceModule;
-import org.eclipse.ldt.core.IProjectSourceVisitor2;
 import org.eclipse.ldt.core.LuaUtils;
-import org.eclipse.ldt.core.LuaUtils.ProjectFragmentFilter;
 import org.eclipse.ldt.core.internal.Activator;
 import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
 import org.eclipse.ldt.core.internal.PreferenceInitializer;
@@ -64,63 +54,55 @@ import org.eclipse.ldt.core.internal.ast.models.file.LuaExpression;
 import org.eclipse.ldt.core.internal.ast.models.file.LuaInternalContent;
 
 public final class LuaASTUtils {
-	private LuaASTUtils() {
-	}
-
-	private static class ClosestItemVisitor extends ASTVisitor {
-		private Item result = null;
-		private int position;
 
-		private String identifierName;
+	/** Number of type resolutions kept, above which they are all dropped */
+	private static final int TYPE_RESOLUTION_CACHE_SIZE = 20000;
 
-		public ClosestItemVisitor(int position, String identifierName) {
-			super();
-			this.position = position;
-			this.identifierName = identifierName;
-		}
+	// Completion, hover and outline resolve the same types over and over
+	private static final ResolutionCache<ISourceModule, TypeRef, TypeResolution> TYPE_RESOLUTIONS = new ResolutionCache<ISourceModule, TypeRef, TypeResolution>(
+			new ResolutionCache.Resolver<ISourceModule, TypeRef, TypeResolution>() {
+				@Override
+				public TypeResolution resolve(final ISourceModule sourceModule, final TypeRef typeRef) {
+					return computeType(sourceModule, typeRef);
+				}
+			}, TYPE_RESOLUTION_CACHE_SIZE);
 
-		public Item getResult() {
-			return result;
-		}
+	private LuaASTUtils() {
+	}
 
-		@Override
-		public boolean visit(ASTNode node) throws Exception {
-			if (node instanceof LocalVar)
-				return false;
+	/**
+	 * @return cache of types resolved by {@link #resolveType(ISourceModule, TypeRef)}, to invalidate when a module is parsed again
+	 */
+	public static ResolutionCache<ISourceModule, TypeRef, TypeResolution> getTypeResolutionCache() {
+		return TYPE_RESOLUTIONS;
+	}
 
-			// we go down util we found the closer block.
-			if (node instanceof Block) {
-				if (node.sourceStart() <= position && position <= node.sourceEnd()) {
-					return true;
-				}
-				return false;
-			}
-			return false;
+	/**
+	 * @return index of internal content nodes by offset, built at first call for given models
+	 */
+	public static OffsetIndex getOffsetIndex(final LuaSourceRoot luaSourceRoot) throws Exception {
+		OffsetIndex offsetIndex = luaSourceRoot.getOffsetIndex();
+		if (offsetIndex == null) {
+			offsetIndex = new OffsetIndex(luaSourceRoot.getInternalContent());
+			luaSourceRoot.setOffsetIndex(offsetIndex);
 		}
+		return offsetIndex;
+	}
 
-		@Override
-		public boolean endvisit(ASTNode node) throws Exception {
-			if (result == null && node instanceof Block) {
-				// we go up only on the parent block
-				List<LocalVar> localVars = ((Block) node).getLocalVars();
-				for (LocalVar localVar : localVars) {
+	public static Item getClosestLocalVar(final LuaSourceRoot luaSourceRoot, final String identifierName, final int position) {
+		try {
+			// we go up from the closer block
+			for (Block block : getOffsetIndex(luaSourceRoot).getBlocksAt(position)) {
+				Item result = null;
+				for (LocalVar localVar : block.getLocalVars()) {
 					Item item = localVar.getVar();
 					if (item.getName().equals(identifierName)) {
 						result = item;
 					}
 				}
-				return true;
+				if (result != null)
+					return result;
 			}
-			return false;
-		}
-	};
-
-	public static Item getClosestLocalVar(final LuaSourceRoot luaSourceRoot, final String identifierName, final int position) {
-		// traverse the root block on the file with this visitor
-		try {
-			ClosestItemVisitor closestItemVisitor = new ClosestItemVisitor(position, identifierName);
-			luaSourceRoot.getInternalContent().getContent().traverse(closestItemVisitor);
-			return closestItemVisitor.getResult();
 			// CHECKSTYLE:OFF
 		} catch (Exception e) {
 			// CHECKSTYLE:ON
@@ -130,6 +112,10 @@ public final class LuaASTUtils {
 	}
 
 	public static TypeResolution resolveType(ISourceModule sourceModule, TypeRef typeRef) {
+		return TYPE_RESOLUTIONS.get(sourceModule, typeRef);
+	}
+
+	private static TypeResolution computeType(ISourceModule sourceModule, TypeRef typeRef) {
 		if (typeRef instanceof PrimitiveTypeRef) {
 			return resolveType(sourceModule, (PrimitiveTypeRef) typeRef);
 		}
@@ -472,44 +458,23 @@ public final class LuaASTUtils {
 	}
 
 	public static Collection<Item> getLocalVars(LuaSourceRoot luaSourceRoot, final int offset, final String start) {
+		return getLocalVars(luaSourceRoot, offset, new CompletionMatcher(start, false));
+	}
+
+	public static Collection<Item> getLocalVars(LuaSourceRoot luaSourceRoot, final int offset, final CompletionMatcher matcher) {
 		// the localVars collected, indexed by var name;
 		final Map<String, Item> collectedLocalVars = new HashMap<String, Item>();
 
-		// the visitor which will collect local vars and store it in the map.
-		ASTVisitor localvarCollector = new ASTVisitor() {
-			@Override
-			public boolean visit(ASTNode node) throws Exception {
-				// we go down util we found the closer block.
-				if (node instanceof Block) {
-					if (node.sourceStart() <= offset && offset <= node.sourceEnd()) {
-						return true;
-					}
-					return false;
-				}
-				return false;
-			}
-
-			@Override
-			public boolean endvisit(ASTNode node) throws Exception {
-				if (node instanceof Block) {
-					// we go up only on all the parent block which
-					List<LocalVar> localVars = ((Block) node).getLocalVars();
-					for (LocalVar localVar : localVars) {
-						Item item = localVar.getVar();
-						if (!collectedLocalVars.containsKey(item.getName())
-								&& (start == null || item.getName().toLowerCase().startsWith(start.toLowerCase()))) {
-							collectedLocalVars.put(item.getName(), item);
-						}
+		try {
+			// we go up on all the blocks containing offset, from the closer one
+			for (Block block : getOffsetIndex(luaSourceRoot).getBlocksAt(offset)) {
+				for (LocalVar localVar : block.getLocalVars()) {
+					Item item = localVar.getVar();
+					if (!collectedLocalVars.containsKey(item.getName()) && matcher.matches(item.getName())) {
+						collectedLocalVars.put(item.getName(), item);
 					}
-					return true;
 				}
-				return false;
 			}
-		};
-
-		// traverse the root block on the file with this visitor
-		try {
-			luaSourceRoot.getInternalContent().getContent().traverse(localvarCollector);
 			// CHECKSTYLE:OFF
 		} catch (Exception e) {
 			// CHECKSTYLE:ON
@@ -520,11 +485,8 @@ public final class LuaASTUtils {
 	}
 
 	public static LuaExpression getLuaExpressionAt(LuaSourceRoot luaSourceRoot, final int startOffset, final int endOffset) {
-		// traverse the root block on the file with this visitor
 		try {
-			MatchNodeVisitor matchNodeVisitor = new MatchNodeVisitor(startOffset, endOffset, LuaExpression.class);
-			luaSourceRoot.getInternalContent().getContent().traverse(matchNodeVisitor);
-			return (LuaExpression) matchNodeVisitor.getNode();
+			return getOffsetIndex(luaSourceRoot).getExpressionAt(startOffset, endOffset);
 
 			// CHECKSTYLE:OFF
 		} catch (Exception e) {
@@ -658,58 +620,63 @@ public final class LuaASTUtils {
 	}
 
 	public static List<Definition> getAllInternalGlobalVarsDefinition(final ISourceModule sourceModule, final String start) {
+		return getAllInternalGlobalVarsDefinition(sourceModule, new CompletionMatcher(start, false));
+	}
+
+	public static List<Definition> getAllInternalGlobalVarsDefinition(final ISourceModule sourceModule, final CompletionMatcher matcher) {
 		final List<Definition> definitions = new ArrayList<Definition>();
 
 		// global vars defined in current module.
 		LuaSourceRoot currentluaSourceRoot = LuaASTModelUtils.getLuaSourceRoot(sourceModule);
 		if (currentluaSourceRoot != null) {
-			// global var which start with 'start'
+			// global var which match
 			for (Item globalvar : currentluaSourceRoot.getFileapi().getGlobalvars().values()) {
-				if (start == null || start.isEmpty() || globalvar.getName().toLowerCase().startsWith(start.toLowerCase()))
+				if (matcher.matches(globalvar.getName()))
 					definitions.add(new Definition(sourceModule, globalvar));
 			}
 		}
 		return definitions;
 	}
 
+	/**
+	 * @return at most <code>limit</code> definitions of global variables of given preloaded module whose name matches, the most relevant first.
+	 *         Their item is <code>null</code> when the module does not define them anymore.
+	 */
+	public static List<Definition> getPreloadedGlobalVarsDefinition(final ISourceModule preloadedSourceModule, final CompletionMatcher matcher,
+			final int limit) {
+		return GlobalVariableIndex.getDefault().getPreloadedDefinitions(preloadedSourceModule, matcher, limit);
+	}
+
 	public static List<Definition> getAllExternalGlobalVarsDefinition(final ISourceModule originalSourceModule, final String start) {
 		return getExternalGlobalVarsDefinition(originalSourceModule, start, false);
 	}
 
+	/**
+	 * @return at most <code>limit</code> definitions of global variables of other modules whose name matches, the most relevant first. Their item
+	 *         is <code>null</code> when their module does not define them anymore.
+	 */
+	public static List<Definition> getAllExternalGlobalVarsDefinition(final ISourceModule originalSourceModule, final CompletionMatcher matcher,
+			final int limit) {
+		return GlobalVariableIndex.getDefault().getDefinitions(originalSourceModule, matcher, limit);
+	}
+
 	private static List<Definition> getExternalGlobalVarsDefinition(final ISourceModule originalSourceModule, final String start,
 			final boolean exactName) {
+		// Modules of project and of its dependencies are indexed by global variable names, rather than parsed at each call
+		final GlobalVariableIndex index = GlobalVariableIndex.getDefault();
 		final List<Definition> definitions = new ArrayList<Definition>();
-
-		IProjectSourceVisitor2 visitor = new IProjectSourceVisitor2() {
-
-			@Override
-			public void processFile(ISourceModule sourceModule, IPath absolutePath, IPath relativePath, String charset, IProgressMonitor monitor)
-					throws CoreException {
-				if (sourceModule != null && !sourceModule.equals(originalSourceModule)) {
-					if (exactName) {
-						Definition globalVarDef = getInternalGlobalVarDefinition(sourceModule, start);
-						if (globalVarDef != null)
-							definitions.add(globalVarDef);
-					} else {
-						definitions.addAll(getAllInternalGlobalVarsDefinition(sourceModule, start));
-					}
-				}
-
-			}
-
-			@Override
-			public void processDirectory(IScriptFolder sourceModule, IPath absolutePath, IPath relativePath, IProgressMonitor monitor)
-					throws CoreException {
-				// nothing to do
+		if (!exactName) {
+			// all of them are resolved, without the ones no more defined
+			for (final Definition definition : index.getDefinitions(originalSourceModule, start)) {
+				if (definition.getItem() != null)
+					definitions.add(definition);
 			}
-		};
-
-		try {
-			LuaUtils.visitSourceFiles(originalSourceModule.getScriptProject(), EnumSet.of(ProjectFragmentFilter.DEPENDENT_PROJECT), visitor,
-					new NullProgressMonitor());
-		} catch (CoreException e) {
-			Activator.logError("Unable to get external global for auto-complete", e); //$NON-NLS-1$
+			return definitions;
 		}
+
+		final Definition definition = index.getDefinition(originalSourceModule, start);
+		if (definition != null)
+			definitions.add(definition);
 		return definitions;
 	}
 
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.ldt.core.internal.ast.models.api.Documentation;
+import org.eclipse.ldt.core.internal.ast.models.api.ExprTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.ExternalTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.FunctionTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.InlineTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.InternalTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.api.KeyExprTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.LuaFileAPI;
+import org.eclipse.ldt.core.internal.ast.models.api.MetaTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.ModuleTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.Parameter;
+import org.eclipse.ldt.core.internal.ast.models.api.PrimitiveTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.RecordTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.Return;
+import org.eclipse.ldt.core.internal.ast.models.api.TypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.TypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.UnknownItem;
+import org.eclipse.ldt.core.internal.ast.models.api.ValueExprTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaASTNode;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.models.file.Block;
+import org.eclipse.ldt.core.internal.ast.models.file.Call;
+import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
+import org.eclipse.ldt.core.internal.ast.models.file.Index;
+import org.eclipse.ldt.core.internal.ast.models.file.Invoke;
+import org.eclipse.ldt.core.internal.ast.models.file.Literal;
+import org.eclipse.ldt.core.internal.ast.models.file.LocalVar;
+import org.eclipse.ldt.core.internal.ast.models.file.LuaExpression;
+import org.eclipse.ldt.core.internal.ast.models.file.LuaInternalContent;
+import org.eclipse.ldt.core.internal.ast.models.file.Statement;
+
+/**
+ * Rebuilds models written by {@link ModelSerializer}.
+ * <p>
+ * Objects are indexed in the order they were written: the index of an object is reserved as soon as its marker is read, before its content, and the
+ * object is stored once it is fully built.
+ * </p>
+ */
+public class ModelDeserializer {
+
+	private final DataInput in;
+	private final List<Object> objects = new ArrayList<Object>();
+	private final List<String> strings = new ArrayList<String>();
+
+	public ModelDeserializer(final DataInput in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read a {@link LuaFileAPI} and a {@link LuaInternalContent} and set them on the given root.
+	 */
+	public void readSourceRoot(final LuaSourceRoot root) throws IOException {
+		final LuaFileAPI fileAPI = readObject(LuaFileAPI.class);
+		final LuaInternalContent internalContent = readObject(LuaInternalContent.class);
+
+		// Occurrences of items written before their identifiers
+		final int itemCount = in.readInt();
+		for (int i = 0; i < itemCount; i++) {
+			final Item item = readObject(Item.class);
+			if (item == null)
+				throw new IOException("Missing item of occurrences"); //$NON-NLS-1$
+			final int occurrenceCount = in.readInt();
+			for (int j = 0; j < occurrenceCount; j++)
+				item.addOccurrence(readObject(Identifier.class));
+		}
+
+		root.setLuaFileApi(fileAPI);
+		root.setInternalContent(internalContent);
+	}
+
+	private <T> T readObject(final Class<T> expectedType) throws IOException {
+		final Object object = readObject();
+		if (object != null && !expectedType.isInstance(object))
+			throw new IOException("Unexpected model element " + object.getClass().getName() + ", expected " + expectedType.getName()); //$NON-NLS-1$ //$NON-NLS-2$
+		return expectedType.cast(object);
+	}
+
+	private Object readObject() throws IOException {
+		final byte marker = in.readByte();
+		if (marker == ModelSerializer.NULL)
+			return null;
+		if (marker == ModelSerializer.REFERENCE) {
+			final int index = in.readInt();
+			if (index < 0 || index >= objects.size() || objects.get(index) == null)
+				throw new IOException("Invalid model element reference " + index); //$NON-NLS-1$
+			return objects.get(index);
+		}
+
+		final int index = objects.size();
+		objects.add(null);
+		final Object object = readObjectContent(marker);
+		objects.set(index, object);
+		return object;
+	}
+
+	private Object readObjectContent(final byte marker) throws IOException {
+		switch (marker) {
+		// API model
+		case ModelSerializer.FILE_API:
+			return readFileAPI();
+		case ModelSerializer.ITEM:
+			return readItem(new Item());
+		case ModelSerializer.UNKNOWN_ITEM:
+			return readItem(new UnknownItem());
+		case ModelSerializer.RECORD_TYPEDEF:
+			return readRecordTypeDef();
+		case ModelSerializer.FUNCTION_TYPEDEF:
+			return readFunctionTypeDef();
+		case ModelSerializer.PARAMETER:
+			final int start = in.readInt();
+			final int end = in.readInt();
+			final Parameter parameter = new Parameter(readString(), readObject(TypeRef.class), readString());
+			parameter.setStart(start);
+			parameter.setEnd(end);
+			return parameter;
+		case ModelSerializer.RETURN:
+			final Return ret = new Return();
+			ret.setDescription(readString());
+			final int typeCount = in.readInt();
+			for (int i = 0; i < typeCount; i++)
+				ret.addType(readObject(TypeRef.class));
+			return ret;
+		case ModelSerializer.EXTERNAL_TYPEREF:
+			return new ExternalTypeRef(readString(), readString());
+		case ModelSerializer.INTERNAL_TYPEREF:
+			return new InternalTypeRef(readString());
+		case ModelSerializer.PRIMITIVE_TYPEREF:
+			return new PrimitiveTypeRef(readString());
+		case ModelSerializer.MODULE_TYPEREF:
+			return new ModuleTypeRef(readString(), in.readInt());
+		case ModelSerializer.META_TYPEREF:
+			return new MetaTypeRef(in.readInt());
+		case ModelSerializer.EXPR_TYPEREF:
+			final ExprTypeRef exprTypeRef = new ExprTypeRef(in.readInt());
+			exprTypeRef.setExpression(readObject(LuaExpression.class));
+			return exprTypeRef;
+		case ModelSerializer.KEY_EXPR_TYPEREF:
+			final KeyExprTypeRef keyExprTypeRef = new KeyExprTypeRef();
+			keyExprTypeRef.setExpression(readObject(LuaExpression.class));
+			return keyExprTypeRef;
+		case ModelSerializer.VALUE_EXPR_TYPEREF:
+			final ValueExprTypeRef valueExprTypeRef = new ValueExprTypeRef();
+			valueExprTypeRef.setExpression(readObject(LuaExpression.class));
+			return valueExprTypeRef;
+		case ModelSerializer.INLINE_TYPEREF:
+			return new InlineTypeRef(readObject(TypeDef.class));
+
+			// Internal model
+		case ModelSerializer.INTERNAL_CONTENT:
+			return readInternalContent();
+		case ModelSerializer.BLOCK:
+			return readBlock();
+		case ModelSerializer.LOCAL_VAR:
+			return readLocalVar();
+		case ModelSerializer.IDENTIFIER:
+		case ModelSerializer.INDEX:
+		case ModelSerializer.CALL:
+		case ModelSerializer.INVOKE:
+		case ModelSerializer.LITERAL:
+			return readExpression(marker);
+		default:
+			throw new IOException("Unknown model element marker " + marker); //$NON-NLS-1$
+		}
+	}
+
+	private LuaFileAPI readFileAPI() throws IOException {
+		final LuaFileAPI fileAPI = new LuaFileAPI();
+		readPosition(fileAPI);
+		fileAPI.setName(readString());
+		fileAPI.setDocumentation(readDocumentation());
+		final int globalCount = in.readInt();
+		for (int i = 0; i < globalCount; i++)
+			fileAPI.addGlobalVar(readObject(Item.class));
+		final int returnCount = in.readInt();
+		for (int i = 0; i < returnCount; i++)
+			fileAPI.addReturns(readObject(Return.class));
+		final int typeCount = in.readInt();
+		for (int i = 0; i < typeCount; i++) {
+			final String typeName = readString();
+			fileAPI.addType(typeName, readObject(TypeDef.class));
+		}
+		return fileAPI;
+	}
+
+	private Item readItem(final Item item) throws IOException {
+		readPosition(item);
+		item.setName(readString());
+		item.setDocumentation(readDocumentation());
+		item.setType(readObject(TypeRef.class));
+		final int occurrenceCount = in.readInt();
+		for (int i = 0; i < occurrenceCount; i++)
+			item.addOccurrence(readObject(Identifier.class));
+		return item;
+	}
+
+	private RecordTypeDef readRecordTypeDef() throws IOException {
+		final RecordTypeDef recordTypeDef = new RecordTypeDef();
+		readPosition(recordTypeDef);
+		recordTypeDef.setName(readString());
+		recordTypeDef.setDocumentation(readDocumentation());
+		recordTypeDef.setSupertype(readObject(TypeRef.class));
+		recordTypeDef.setDefaultkeytyperef(readObject(TypeRef.class));
+		recordTypeDef.setDefaultvaluetyperef(readObject(TypeRef.class));
+		recordTypeDef.setCallTyperef(readObject(TypeRef.class));
+		recordTypeDef.setStructureKind(readString());
+		recordTypeDef.setStructureDescription(readString());
+		final int fieldCount = in.readInt();
+		for (int i = 0; i < fieldCount; i++)
+			recordTypeDef.addField(readObject(Item.class));
+		return recordTypeDef;
+	}
+
+	private FunctionTypeDef readFunctionTypeDef() throws IOException {
+		final FunctionTypeDef functionTypeDef = new FunctionTypeDef();
+		readPosition(functionTypeDef);
+		functionTypeDef.setDocumentation(readDocumentation());
+		final int parameterCount = in.readInt();
+		for (int i = 0; i < parameterCount; i++)
+			functionTypeDef.addParameter(readObject(Parameter.class));
+		final int returnCount = in.readInt();
+		for (int i = 0; i < returnCount; i++)
+			functionTypeDef.addReturn(readObject(Return.class));
+		return functionTypeDef;
+	}
+
+	private Documentation readDocumentation() throws IOException {
+		if (!in.readBoolean())
+			return null;
+		final String shortDescription = readString();
+		final String description = readString();
+		final boolean preformatted = in.readBoolean();
+		final int usageCount = in.readInt();
+		final List<String> usages = new ArrayList<String>(usageCount);
+		for (int i = 0; i < usageCount; i++)
+			usages.add(readString());
+		return Documentation.create(shortDescription, description, usages, preformatted);
+	}
+
+	private LuaInternalContent readInternalContent() throws IOException {
+		final LuaInternalContent content = new LuaInternalContent();
+		readPosition(content);
+		content.setContent(readObject(Block.class));
+		final int unknownGlobalCount = in.readInt();
+		for (int i = 0; i < unknownGlobalCount; i++)
+			content.addUnknownGlobalVar(readObject(Item.class));
+		return content;
+	}
+
+	private Block readBlock() throws IOException {
+		final Block block = new Block();
+		readPosition(block);
+		final int contentCount = in.readInt();
+		for (int i = 0; i < contentCount; i++)
+			block.addContent(readObject(LuaASTNode.class));
+		final int localVarCount = in.readInt();
+		for (int i = 0; i < localVarCount; i++)
+			block.addLocalVar(readObject(LocalVar.class));
+		final int statementCount = in.readInt();
+		for (int i = 0; i < statementCount; i++)
+			block.addStatement(new Statement(in.readInt(), in.readInt(), in.readBoolean(), in.readBoolean(), in.readBoolean(), in.readBoolean()));
+		return block;
+	}
+
+	private LocalVar readLocalVar() throws IOException {
+		final int start = in.readInt();
+		final int end = in.readInt();
+		final Item var = readObject(Item.class);
+		final LocalVar localVar = new LocalVar(var, in.readInt(), in.readInt());
+		localVar.setStart(start);
+		localVar.setEnd(end);
+		return localVar;
+	}
+
+	private LuaExpression readExpression(final byte marker) throws IOException {
+		final int start = in.readInt();
+		final int end = in.readInt();
+		final boolean incomplete = in.readBoolean();
+
+		final LuaExpression expression;
+		switch (marker) {
+		case ModelSerializer.IDENTIFIER:
+			expression = new Identifier(readString());
+			break;
+		case ModelSerializer.INDEX:
+			final Index index = new Index();
+			index.setLeft(readObject(LuaExpression.class));
+			index.setRight(readString());
+			expression = index;
+			break;
+		case ModelSerializer.CALL:
+			final Call call = new Call();
+			call.setFunction(readObject(LuaExpression.class));
+			readArguments(call.getArgList());
+			expression = call;
+			break;
+		case ModelSerializer.INVOKE:
+			final Invoke invoke = new Invoke();
+			invoke.setFunctionName(readString());
+			invoke.setRecord(readObject(LuaExpression.class));
+			readArguments(invoke.getArgList());
+			expression = invoke;
+			break;
+		default:
+			final Literal literal = new Literal();
+			literal.setLiteral(readString());
+			expression = literal;
+			break;
+		}
+		expression.setStart(start);
+		expression.setEnd(end);
+		expression.setIncomplete(incomplete);
+		return expression;
+	}
+
+	private void readArguments(final List<LuaExpression> arguments) throws IOException {
+		final int argumentCount = in.readInt();
+		for (int i = 0; i < argumentCount; i++)
+			arguments.add(readObject(LuaExpression.class));
+	}
+
+	private void readPosition(final LuaASTNode node) throws IOException {
+		node.setStart(in.readInt());
+		node.setEnd(in.readInt());
+	}
+
+	private String readString() throws IOException {
+		final int length = in.readInt();
+		if (length == ModelSerializer.NULL_STRING)
+			return null;
+		if (length < 0) {
+			final int index = ModelSerializer.STRING_REFERENCE_OFFSET - length;
+			if (index >= strings.size())
+				throw new IOException("Invalid string reference " + index); //$NON-NLS-1$
+			return strings.get(index);
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		final String string = decodeModifiedUTF8(bytes);
+		strings.add(string);
+		return string;
+	}
+
+	/**
+	 * Decode as {@link DataInput#readUTF()}, without its length limit: strings written on Lua side are in modified UTF-8, as they crossed JNI.
+	 */
+	private static String decodeModifiedUTF8(final byte[] bytes) throws UTFDataFormatException {
+		final char[] chars = new char[bytes.length];
+		int count = 0;
+		int i = 0;
+		while (i < bytes.length) {
+			final int b = bytes[i] & 0xFF;
+			switch (b >> 4) {
+			case 0:
+			case 1:
+			case 2:
+			case 3:
+			case 4:
+			case 5:
+			case 6:
+			case 7:
+				// 0xxxxxxx
+				chars[count++] = (char) b;
+				i++;
+				break;
+			case 12:
+			case 13:
+				// 110xxxxx 10xxxxxx
+				if (i + 2 > bytes.length)
+					throw new UTFDataFormatException("Truncated character at byte " + i); //$NON-NLS-1$
+				final int b2 = bytes[i + 1];
+				if ((b2 & 0xC0) != 0x80)
+					throw new UTFDataFormatException("Malformed character at byte " + i); //$NON-NLS-1$
+				chars[count++] = (char) ((b & 0x1F) << 6 | b2 & 0x3F);
+				i += 2;
+				break;
+			case 14:
+				// 1110xxxx 10xxxxxx 10xxxxxx
+				if (i + 3 > bytes.length)
+					throw new UTFDataFormatException("Truncated character at byte " + i); //$NON-NLS-1$
+				final int c2 = bytes[i + 1];
+				final int c3 = bytes[i + 2];
+				if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80)
+					throw new UTFDataFormatException("Malformed character at byte " + i); //$NON-NLS-1$
+				chars[count++] = (char) ((b & 0x0F) << 12 | (c2 & 0x3F) << 6 | c3 & 0x3F);
+				i += 3;
+				break;
+			default:
+				// 10xxxxxx and 1111xxxx
+				throw new UTFDataFormatException("Malformed character at byte " + i); //$NON-NLS-1$
+			}
+		}
+		return new String(chars, 0, count);
+	}
+}
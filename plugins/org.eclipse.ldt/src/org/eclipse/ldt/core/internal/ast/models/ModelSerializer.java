@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.ldt.core.internal.ast.models.api.Documentation;
+import org.eclipse.ldt.core.internal.ast.models.api.ExprTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.ExternalTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.FunctionTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.InlineTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.InternalTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.api.KeyExprTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.LuaFileAPI;
+import org.eclipse.ldt.core.internal.ast.models.api.MetaTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.ModuleTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.Parameter;
+import org.eclipse.ldt.core.internal.ast.models.api.PrimitiveTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.RecordTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.Return;
+import org.eclipse.ldt.core.internal.ast.models.api.TypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.TypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.UnknownItem;
+import org.eclipse.ldt.core.internal.ast.models.api.ValueExprTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaASTNode;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.models.file.Block;
+import org.eclipse.ldt.core.internal.ast.models.file.Call;
+import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
+import org.eclipse.ldt.core.internal.ast.models.file.Index;
+import org.eclipse.ldt.core.internal.ast.models.file.Invoke;
+import org.eclipse.ldt.core.internal.ast.models.file.Literal;
+import org.eclipse.ldt.core.internal.ast.models.file.LocalVar;
+import org.eclipse.ldt.core.internal.ast.models.file.LuaExpression;
+import org.eclipse.ldt.core.internal.ast.models.file.LuaInternalContent;
+import org.eclipse.ldt.core.internal.ast.models.file.Statement;
+
+/**
+ * Writes the API and internal models of a {@link LuaSourceRoot} in a compact binary form, which can be read back with {@link ModelDeserializer}.
+ * <p>
+ * Models are graphs: an {@link Item} is referenced from the API and from the internal content, an {@link Identifier} is both a node of a block and an
+ * occurrence of an item. So each object is written once, the first time it is met, and is then designated by its index. Strings are shared the same
+ * way.
+ * </p>
+ * <p>
+ * Strings are written in modified UTF-8, without the length limit of {@link DataOutput#writeUTF(String)}. It is the encoding of strings crossing JNI,
+ * so models written on Lua side by <code>javabinarymodelbuilder.lua</code> have the same strings.
+ * </p>
+ */
+public class ModelSerializer {
+
+	/** Version of the binary format, to increment on each change of the layout below */
+	public static final int FORMAT_VERSION = 5;
+
+	public static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	// Object markers
+	public static final byte NULL = 0;
+	public static final byte REFERENCE = 1;
+
+	// API model
+	public static final byte FILE_API = 10;
+	public static final byte ITEM = 11;
+	public static final byte UNKNOWN_ITEM = 12;
+	public static final byte RECORD_TYPEDEF = 13;
+	public static final byte FUNCTION_TYPEDEF = 14;
+	public static final byte PARAMETER = 15;
+	public static final byte RETURN = 16;
+	public static final byte EXTERNAL_TYPEREF = 17;
+	public static final byte INTERNAL_TYPEREF = 18;
+	public static final byte PRIMITIVE_TYPEREF = 19;
+	public static final byte MODULE_TYPEREF = 20;
+	public static final byte META_TYPEREF = 21;
+	public static final byte EXPR_TYPEREF = 22;
+	public static final byte KEY_EXPR_TYPEREF = 23;
+	public static final byte VALUE_EXPR_TYPEREF = 24;
+	public static final byte INLINE_TYPEREF = 25;
+
+	// Internal model
+	public static final byte INTERNAL_CONTENT = 40;
+	public static final byte BLOCK = 41;
+	public static final byte LOCAL_VAR = 42;
+	public static final byte IDENTIFIER = 43;
+	public static final byte INDEX = 44;
+	public static final byte CALL = 45;
+	public static final byte INVOKE = 46;
+	public static final byte LITERAL = 47;
+
+	// String markers
+	public static final int NULL_STRING = -1;
+	public static final int STRING_REFERENCE_OFFSET = -2;
+
+	private final DataOutput out;
+	private final Map<Object, Integer> objects = new IdentityHashMap<Object, Integer>();
+	private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+	public ModelSerializer(final DataOutput out) {
+		this.out = out;
+	}
+
+	/**
+	 * Write the {@link LuaFileAPI} and the {@link LuaInternalContent} of the given root.
+	 * <p>
+	 * They are followed by a list of occurrences to append to items written before. It is always empty here, as occurrences are written with their
+	 * item, but writers which can not walk models in this order use it: see <code>javabinarymodelbuilder.lua</code>.
+	 * </p>
+	 */
+	public void writeSourceRoot(final LuaSourceRoot root) throws IOException {
+		writeObject(root.getFileapi());
+		writeObject(root.getInternalContent());
+		out.writeInt(0);
+	}
+
+	private void writeObject(final Object object) throws IOException {
+		if (object == null) {
+			out.writeByte(NULL);
+			return;
+		}
+
+		// Already written, just reference it
+		final Integer index = objects.get(object);
+		if (index != null) {
+			out.writeByte(REFERENCE);
+			out.writeInt(index);
+			return;
+		}
+		objects.put(object, objects.size());
+
+		// API model
+		if (object instanceof LuaFileAPI) {
+			writeFileAPI((LuaFileAPI) object);
+		} else if (object instanceof Item) {
+			writeItem((Item) object);
+		} else if (object instanceof RecordTypeDef) {
+			writeRecordTypeDef((RecordTypeDef) object);
+		} else if (object instanceof FunctionTypeDef) {
+			writeFunctionTypeDef((FunctionTypeDef) object);
+		} else if (object instanceof Parameter) {
+			final Parameter parameter = (Parameter) object;
+			out.writeByte(PARAMETER);
+			writePosition(parameter);
+			writeString(parameter.getName());
+			writeObject(parameter.getType());
+			writeString(parameter.getDescription());
+		} else if (object instanceof Return) {
+			final List<TypeRef> types = ((Return) object).getTypes();
+			out.writeByte(RETURN);
+			writeString(((Return) object).getDescription());
+			out.writeInt(types.size());
+			for (final TypeRef typeRef : types)
+				writeObject(typeRef);
+		} else if (object instanceof TypeRef) {
+			writeTypeRef((TypeRef) object);
+		}
+		// Internal model
+		else if (object instanceof LuaInternalContent) {
+			final LuaInternalContent content = (LuaInternalContent) object;
+			out.writeByte(INTERNAL_CONTENT);
+			writePosition(content);
+			writeObject(content.getContent());
+			writeList(content.getUnknownglovalvars());
+		} else if (object instanceof Block) {
+			final Block block = (Block) object;
+			out.writeByte(BLOCK);
+			writePosition(block);
+			writeList(block.getContent());
+			writeList(block.getLocalVars());
+			out.writeInt(block.getStatements().size());
+			for (final Statement statement : block.getStatements()) {
+				writePosition(statement);
+				out.writeBoolean(statement.hasCommentBefore());
+				out.writeBoolean(statement.hasCommentAfter());
+				out.writeBoolean(statement.isDocumented());
+				out.writeBoolean(statement.isSettingField());
+			}
+		} else if (object instanceof LocalVar) {
+			final LocalVar localVar = (LocalVar) object;
+			out.writeByte(LOCAL_VAR);
+			writePosition(localVar);
+			writeObject(localVar.getVar());
+			out.writeInt(localVar.getScopeMinOffset());
+			out.writeInt(localVar.getScopeMaxOffset());
+		} else if (object instanceof LuaExpression) {
+			writeExpression((LuaExpression) object);
+		} else {
+			throw new IOException("Unable to serialize model element of type " + object.getClass().getName()); //$NON-NLS-1$
+		}
+	}
+
+	private void writeFileAPI(final LuaFileAPI fileAPI) throws IOException {
+		out.writeByte(FILE_API);
+		writePosition(fileAPI);
+		writeString(fileAPI.getName());
+		writeDocumentation(fileAPI.getDocumentation());
+		writeList(fileAPI.getGlobalvars().values());
+		writeList(fileAPI.getReturns());
+		out.writeInt(fileAPI.getTypes().size());
+		for (final Entry<String, TypeDef> type : fileAPI.getTypes().entrySet()) {
+			writeString(type.getKey());
+			writeObject(type.getValue());
+		}
+	}
+
+	private void writeItem(final Item item) throws IOException {
+		out.writeByte(item instanceof UnknownItem ? UNKNOWN_ITEM : ITEM);
+		writePosition(item);
+		writeString(item.getName());
+		writeDocumentation(item.getDocumentation());
+		writeObject(item.getType());
+		writeList(item.getOccurrences());
+	}
+
+	private void writeRecordTypeDef(final RecordTypeDef recordTypeDef) throws IOException {
+		out.writeByte(RECORD_TYPEDEF);
+		writePosition(recordTypeDef);
+		writeString(recordTypeDef.getName());
+		writeDocumentation(recordTypeDef.getDocumentation());
+		writeObject(recordTypeDef.getSupertype());
+		writeObject(recordTypeDef.getDefaultkeytyperef());
+		writeObject(recordTypeDef.getDefaultvaluetyperef());
+		writeObject(recordTypeDef.getCallTypeRef());
+		writeString(recordTypeDef.getStructureKind());
+		writeString(recordTypeDef.getStructureDescription());
+		writeList(recordTypeDef.getFields().values());
+	}
+
+	private void writeFunctionTypeDef(final FunctionTypeDef functionTypeDef) throws IOException {
+		out.writeByte(FUNCTION_TYPEDEF);
+		writePosition(functionTypeDef);
+		writeDocumentation(functionTypeDef.getDocumentation());
+		writeList(functionTypeDef.getParameters());
+		writeList(functionTypeDef.getReturns());
+	}
+
+	/**
+	 * Documentation is not shared, so it is written in place, after a flag telling if there is one.
+	 */
+	private void writeDocumentation(final Documentation documentation) throws IOException {
+		out.writeBoolean(documentation != null);
+		if (documentation == null)
+			return;
+		writeString(documentation.getShortDescription());
+		writeString(documentation.getDescription());
+		out.writeBoolean(documentation.isPreformatted());
+		out.writeInt(documentation.getUsages().size());
+		for (final String usage : documentation.getUsages())
+			writeString(usage);
+	}
+
+	private void writeTypeRef(final TypeRef typeRef) throws IOException {
+		if (typeRef instanceof ExternalTypeRef) {
+			out.writeByte(EXTERNAL_TYPEREF);
+			writeString(((ExternalTypeRef) typeRef).getModuleName());
+			writeString(((ExternalTypeRef) typeRef).getTypeName());
+		} else if (typeRef instanceof InternalTypeRef) {
+			out.writeByte(INTERNAL_TYPEREF);
+			writeString(((InternalTypeRef) typeRef).getTypeName());
+		} else if (typeRef instanceof PrimitiveTypeRef) {
+			out.writeByte(PRIMITIVE_TYPEREF);
+			writeString(((PrimitiveTypeRef) typeRef).getTypeName());
+		} else if (typeRef instanceof ModuleTypeRef) {
+			out.writeByte(MODULE_TYPEREF);
+			writeString(((ModuleTypeRef) typeRef).getModuleName());
+			out.writeInt(((ModuleTypeRef) typeRef).getReturnPosition());
+		} else if (typeRef instanceof MetaTypeRef) {
+			out.writeByte(META_TYPEREF);
+			out.writeInt(((MetaTypeRef) typeRef).getIndex());
+		} else if (typeRef instanceof ExprTypeRef) {
+			out.writeByte(EXPR_TYPEREF);
+			out.writeInt(((ExprTypeRef) typeRef).getReturnPosition());
+			writeObject(((ExprTypeRef) typeRef).getExpression());
+		} else if (typeRef instanceof KeyExprTypeRef) {
+			out.writeByte(KEY_EXPR_TYPEREF);
+			writeObject(((KeyExprTypeRef) typeRef).getExpression());
+		} else if (typeRef instanceof ValueExprTypeRef) {
+			out.writeByte(VALUE_EXPR_TYPEREF);
+			writeObject(((ValueExprTypeRef) typeRef).getExpression());
+		} else if (typeRef instanceof InlineTypeRef) {
+			out.writeByte(INLINE_TYPEREF);
+			writeObject(((InlineTypeRef) typeRef).getDefinition());
+		} else {
+			throw new IOException("Unable to serialize type reference of type " + typeRef.getClass().getName()); //$NON-NLS-1$
+		}
+	}
+
+	private void writeExpression(final LuaExpression expression) throws IOException {
+		if (expression instanceof Identifier) {
+			out.writeByte(IDENTIFIER);
+			writeExpressionHeader(expression);
+			writeString(((Identifier) expression).getName());
+		} else if (expression instanceof Index) {
+			out.writeByte(INDEX);
+			writeExpressionHeader(expression);
+			writeObject(((Index) expression).getLeft());
+			writeString(((Index) expression).getRight());
+		} else if (expression instanceof Call) {
+			out.writeByte(CALL);
+			writeExpressionHeader(expression);
+			writeObject(((Call) expression).getFunction());
+			writeList(((Call) expression).getArgList());
+		} else if (expression instanceof Invoke) {
+			out.writeByte(INVOKE);
+			writeExpressionHeader(expression);
+			writeString(((Invoke) expression).getFunctionName());
+			writeObject(((Invoke) expression).getRecord());
+			writeList(((Invoke) expression).getArgList());
+		} else if (expression instanceof Literal) {
+			out.writeByte(LITERAL);
+			writeExpressionHeader(expression);
+			writeString(((Literal) expression).getLiteral());
+		} else {
+			throw new IOException("Unable to serialize expression of type " + expression.getClass().getName()); //$NON-NLS-1$
+		}
+	}
+
+	private void writeExpressionHeader(final LuaExpression expression) throws IOException {
+		writePosition(expression);
+		out.writeBoolean(expression.isIncomplete());
+	}
+
+	private void writePosition(final LuaASTNode node) throws IOException {
+		out.writeInt(node.sourceStart());
+		out.writeInt(node.sourceEnd());
+	}
+
+	private void writeList(final Collection<?> objectList) throws IOException {
+		out.writeInt(objectList.size());
+		for (final Object object : objectList)
+			writeObject(object);
+	}
+
+	private void writeString(final String string) throws IOException {
+		if (string == null) {
+			out.writeInt(NULL_STRING);
+			return;
+		}
+		final Integer index = strings.get(string);
+		if (index != null) {
+			out.writeInt(STRING_REFERENCE_OFFSET - index);
+			return;
+		}
+		strings.put(string, strings.size());
+		final byte[] bytes = encodeModifiedUTF8(string);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Encode as {@link DataOutput#writeUTF(String)}: NUL takes 2 bytes, and characters out of the basic multilingual plane take 3 bytes per surrogate.
+	 */
+	private static byte[] encodeModifiedUTF8(final String string) {
+		final int length = string.length();
+		int size = 0;
+		for (int i = 0; i < length; i++) {
+			final char c = string.charAt(i);
+			if (c >= 0x01 && c <= 0x7F)
+				size++;
+			else if (c <= 0x7FF)
+				size += 2;
+			else
+				size += 3;
+		}
+
+		final byte[] bytes = new byte[size];
+		int j = 0;
+		for (int i = 0; i < length; i++) {
+			final char c = string.charAt(i);
+			if (c >= 0x01 && c <= 0x7F) {
+				bytes[j++] = (byte) c;
+			} else if (c <= 0x7FF) {
+				bytes[j++] = (byte) (0xC0 | c >> 6);
+				bytes[j++] = (byte) (0x80 | c & 0x3F);
+			} else {
+				bytes[j++] = (byte) (0xE0 | c >> 12);
+				bytes[j++] = (byte) (0x80 | c >> 6 & 0x3F);
+				bytes[j++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IElementChangedListener;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.ldt.core.LuaUtils;
+import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.ModuleNameIndex;
+import org.eclipse.ldt.core.internal.ast.models.api.ExternalTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.FunctionTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.api.ModuleTypeRef;
+import org.eclipse.ldt.core.internal.ast.models.api.Parameter;
+import org.eclipse.ldt.core.internal.ast.models.api.RecordTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.Return;
+import org.eclipse.ldt.core.internal.ast.models.api.TypeRef;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.models.file.Call;
+import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
+import org.eclipse.ldt.core.internal.ast.models.file.LuaExpression;
+import org.eclipse.ldt.core.internal.ast.models.file.Literal;
+
+/**
+ * Modules each source module depends on, by project, and source modules depending on each module name.
+ * <p>
+ * A module depends on the modules it requires and on those whose types it references. Dependencies of a module are recorded each time it is parsed
+ * without error, so the graph covers modules parsed during this session, all of them once projects are built. Dependencies are kept by module
+ * name, so that a module depending on a module which does not exist yet is found as one of its dependents once it is created.
+ * </p>
+ */
+public final class ModuleDependencyGraph {
+
+	private static final String REQUIRE = "require"; //$NON-NLS-1$
+
+	private static ModuleDependencyGraph instance;
+
+	/** Names of the modules each module depends on, by project */
+	private final Map<IScriptProject, Map<ISourceModule, Set<String>>> dependencies = new HashMap<IScriptProject, Map<ISourceModule, Set<String>>>();
+
+	/** Modules depending on each module name, by project */
+	private final Map<IScriptProject, Map<String, Set<ISourceModule>>> dependents = new HashMap<IScriptProject, Map<String, Set<ISourceModule>>>();
+
+	private final IElementChangedListener changedListener = new IElementChangedListener() {
+		@Override
+		public void elementChanged(final ElementChangedEvent event) {
+			synchronized (ModuleDependencyGraph.this) {
+				processDelta(event.getDelta());
+			}
+		}
+	};
+
+	private ModuleDependencyGraph() {
+	}
+
+	public static synchronized ModuleDependencyGraph getDefault() {
+		if (instance == null) {
+			instance = new ModuleDependencyGraph();
+			DLTKCore.addElementChangedListener(instance.changedListener, ElementChangedEvent.POST_CHANGE);
+		}
+		return instance;
+	}
+
+	public static synchronized void shutdown() {
+		if (instance == null)
+			return;
+		DLTKCore.removeElementChangedListener(instance.changedListener);
+		instance = null;
+	}
+
+	/**
+	 * Record the dependencies of given module from its models.
+	 */
+	public void update(final ISourceModule module, final LuaSourceRoot root) {
+		final IScriptProject project = module.getScriptProject();
+		if (project == null)
+			return;
+		final Set<String> names = collectDependencies(root);
+		names.remove(LuaUtils.getModuleFullName(module));
+		synchronized (this) {
+			remove(module);
+			if (names.isEmpty())
+				return;
+			getProjectMap(dependencies, project).put(module, names);
+			final Map<String, Set<ISourceModule>> projectDependents = getProjectMap(dependents, project);
+			for (final String name : names) {
+				Set<ISourceModule> modules = projectDependents.get(name);
+				if (modules == null) {
+					modules = new HashSet<ISourceModule>();
+					projectDependents.put(name, modules);
+				}
+				modules.add(module);
+			}
+		}
+	}
+
+	/**
+	 * Forget the dependencies of given module.
+	 */
+	public synchronized void remove(final ISourceModule module) {
+		final IScriptProject project = module.getScriptProject();
+		final Map<ISourceModule, Set<String>> projectDependencies = dependencies.get(project);
+		if (projectDependencies == null)
+			return;
+		final Set<String> names = projectDependencies.remove(module);
+		if (names == null)
+			return;
+		final Map<String, Set<ISourceModule>> projectDependents = dependents.get(project);
+		for (final String name : names) {
+			final Set<ISourceModule> modules = projectDependents.get(name);
+			if (modules != null) {
+				modules.remove(module);
+				if (modules.isEmpty())
+					projectDependents.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * @return names of the modules given module depends on
+	 */
+	public synchronized Set<String> getDependencyNames(final ISourceModule module) {
+		final Map<ISourceModule, Set<String>> projectDependencies = dependencies.get(module.getScriptProject());
+		final Set<String> names = projectDependencies != null ? projectDependencies.get(module) : null;
+		return names != null ? new HashSet<String>(names) : Collections.<String> emptySet();
+	}
+
+	/**
+	 * @return source modules given module depends on, as found from its project, modules which do not exist are ignored
+	 */
+	public List<ISourceModule> getDependencies(final ISourceModule module) {
+		final List<ISourceModule> modules = new ArrayList<ISourceModule>();
+		for (final String name : getDependencyNames(module)) {
+			final ISourceModule dependency = ModuleNameIndex.getDefault().getModule(module.getScriptProject(), name);
+			if (dependency != null)
+				modules.add(dependency);
+		}
+		return modules;
+	}
+
+	/**
+	 * @return modules of all projects depending directly on given module
+	 */
+	public synchronized Set<ISourceModule> getDependents(final ISourceModule module) {
+		final Set<ISourceModule> modules = new LinkedHashSet<ISourceModule>();
+		addDependents(LuaUtils.getModuleFullName(module), modules);
+		modules.remove(module);
+		return modules;
+	}
+
+	/**
+	 * @return modules of all projects depending on given module directly or through other modules, nearest ones first
+	 */
+	public synchronized Set<ISourceModule> getTransitiveDependents(final ISourceModule module) {
+		final Set<ISourceModule> modules = new LinkedHashSet<ISourceModule>();
+		final Set<String> visitedNames = new HashSet<String>();
+		final LinkedList<String> names = new LinkedList<String>();
+		names.add(LuaUtils.getModuleFullName(module));
+		while (!names.isEmpty()) {
+			final String name = names.removeFirst();
+			if (name == null || !visitedNames.add(name))
+				continue;
+			final List<ISourceModule> found = new ArrayList<ISourceModule>();
+			addDependents(name, found);
+			for (final ISourceModule dependent : found) {
+				if (modules.add(dependent))
+					names.add(LuaUtils.getModuleFullName(dependent));
+			}
+		}
+		modules.remove(module);
+		return modules;
+	}
+
+	private void addDependents(final String name, final Collection<ISourceModule> modules) {
+		for (final Map<String, Set<ISourceModule>> projectDependents : dependents.values()) {
+			final Set<ISourceModule> found = projectDependents.get(name);
+			if (found != null)
+				modules.addAll(found);
+		}
+	}
+
+	public synchronized void clear() {
+		dependencies.clear();
+		dependents.clear();
+	}
+
+	/**
+	 * @return names of the modules required or whose types are referenced by given models
+	 */
+	public static Set<String> collectDependencies(final LuaSourceRoot root) {
+		final Set<String> names = new HashSet<String>();
+		if (root == null)
+			return names;
+		try {
+			root.traverse(new ASTVisitor() {
+				@Override
+				public boolean visitGeneral(final ASTNode node) throws Exception {
+					if (node instanceof Item) {
+						addDependency(((Item) node).getType(), names);
+					} else if (node instanceof Parameter) {
+						addDependency(((Parameter) node).getType(), names);
+					} else if (node instanceof FunctionTypeDef) {
+						for (final Return returnValue : ((FunctionTypeDef) node).getReturns()) {
+							for (final TypeRef type : returnValue.getTypes())
+								addDependency(type, names);
+						}
+					} else if (node instanceof RecordTypeDef) {
+						final RecordTypeDef record = (RecordTypeDef) node;
+						addDependency(record.getSupertype(), names);
+						addDependency(record.getDefaultkeytyperef(), names);
+						addDependency(record.getDefaultvaluetyperef(), names);
+						addDependency(record.getCallTypeRef(), names);
+					} else if (node instanceof Call) {
+						addRequiredModule((Call) node, names);
+					}
+					return true;
+				}
+			});
+			// CHECKSTYLE:OFF
+		} catch (final Exception e) {
+			// CHECKSTYLE:ON
+			Activator.logWarning("Unable to collect module dependencies", e); //$NON-NLS-1$
+		}
+		return names;
+	}
+
+	private static void addDependency(final TypeRef type, final Set<String> names) {
+		if (type instanceof ModuleTypeRef)
+			addName(((ModuleTypeRef) type).getModuleName(), names);
+		else if (type instanceof ExternalTypeRef)
+			addName(((ExternalTypeRef) type).getModuleName(), names);
+	}
+
+	/**
+	 * Requires whose result is not assigned have no type, they are found from the calls.
+	 */
+	private static void addRequiredModule(final Call call, final Set<String> names) {
+		final LuaExpression function = call.getFunction();
+		if (!(function instanceof Identifier) || !REQUIRE.equals(((Identifier) function).getName()) || call.getArgList().isEmpty())
+			return;
+		final LuaExpression argument = call.getArgList().get(0);
+		if (argument instanceof Literal)
+			addName(((Literal) argument).getLiteral(), names);
+	}
+
+	private static void addName(final String name, final Set<String> names) {
+		if (name != null && name.length() > 0)
+			names.add(name);
+	}
+
+	private static <K, V> Map<K, V> getProjectMap(final Map<IScriptProject, Map<K, V>> maps, final IScriptProject project) {
+		Map<K, V> map = maps.get(project);
+		if (map == null) {
+			map = new HashMap<K, V>();
+			maps.put(project, map);
+		}
+		return map;
+	}
+
+	private void removeAll(final IModelElement ancestor) {
+		final Map<ISourceModule, Set<String>> projectDependencies = dependencies.get(ancestor.getScriptProject());
+		if (projectDependencies == null)
+			return;
+		for (final ISourceModule module : new ArrayList<ISourceModule>(projectDependencies.keySet())) {
+			if (LuaDLTKModelUtils.isAncestor(module, ancestor))
+				remove(module);
+		}
+	}
+
+	private void processDelta(final IModelElementDelta delta) {
+		final IModelElement element = delta.getElement();
+		switch (element.getElementType()) {
+		case IModelElement.SOURCE_MODULE:
+			if (delta.getKind() == IModelElementDelta.REMOVED)
+				remove((ISourceModule) element);
+			return;
+		case IModelElement.SCRIPT_FOLDER:
+		case IModelElement.PROJECT_FRAGMENT:
+			if (delta.getKind() == IModelElementDelta.REMOVED)
+				removeAll(element);
+			break;
+		case IModelElement.SCRIPT_PROJECT:
+			// Closed or removed projects are parsed again once opened
+			if (delta.getKind() == IModelElementDelta.REMOVED || (delta.getFlags() & IModelElementDelta.F_CLOSED) != 0) {
+				dependencies.remove(element);
+				dependents.remove(element);
+				return;
+			}
+			break;
+		default:
+			break;
+		}
+		for (final IModelElementDelta child : delta.getAffectedChildren())
+			processDelta(child);
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Values over offset ranges which nest as AST nodes do, sorted so that the innermost range containing offsets is found by binary search.
+ * <p>
+ * Ranges are inclusive. Once all values are added, {@link #build()} must be called before queries. When several ranges contain the queried ones
+ * without nesting, one of them is chosen.
+ * </p>
+ */
+public class NestedIntervals<T> {
+
+	private List<T> values = new ArrayList<T>();
+	private List<int[]> ranges = new ArrayList<int[]>();
+
+	private Object[] sortedValues;
+	private int[] starts;
+	private int[] ends;
+	/** Index of the innermost range containing each range, -1 for outermost ones */
+	private int[] parents;
+
+	public void add(final T value, final int start, final int end) {
+		if (starts != null)
+			throw new IllegalStateException("Intervals are already built."); //$NON-NLS-1$
+		values.add(value);
+		ranges.add(new int[] { start, end });
+	}
+
+	/**
+	 * Sort ranges, by start then from largest to smallest. Ranges equal in bounds keep the order of addition, the last one added is considered as
+	 * the innermost, as a node visited after its parent.
+	 */
+	public void build() {
+		final int size = values.size();
+		final Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer first, final Integer second) {
+				final int[] firstRange = ranges.get(first);
+				final int[] secondRange = ranges.get(second);
+				if (firstRange[0] != secondRange[0])
+					return firstRange[0] < secondRange[0] ? -1 : 1;
+				if (firstRange[1] != secondRange[1])
+					return firstRange[1] > secondRange[1] ? -1 : 1;
+				return 0;
+			}
+		});
+
+		sortedValues = new Object[size];
+		starts = new int[size];
+		ends = new int[size];
+		parents = new int[size];
+		final int[] stack = new int[size];
+		int depth = 0;
+		for (int i = 0; i < size; i++) {
+			final int[] range = ranges.get(order[i]);
+			sortedValues[i] = values.get(order[i]);
+			starts[i] = range[0];
+			ends[i] = range[1];
+			// Ranges of the stack start before this one, pop those ending before it
+			while (depth > 0 && ends[stack[depth - 1]] < ends[i])
+				depth--;
+			parents[i] = depth > 0 ? stack[depth - 1] : -1;
+			stack[depth++] = i;
+		}
+		values = null;
+		ranges = null;
+	}
+
+	public int size() {
+		checkBuilt();
+		return starts.length;
+	}
+
+	/**
+	 * @return value of the innermost range containing given range, <code>null</code> if there is none
+	 */
+	public T getInnermost(final int start, final int end) {
+		final int index = findInnermost(start, end);
+		return index >= 0 ? get(index) : null;
+	}
+
+	/**
+	 * @return values of all ranges containing given offset, innermost first
+	 */
+	public List<T> getEnclosing(final int offset) {
+		int index = findInnermost(offset, offset);
+		if (index < 0)
+			return Collections.emptyList();
+		final List<T> result = new ArrayList<T>();
+		for (; index >= 0; index = parents[index])
+			result.add(get(index));
+		return result;
+	}
+
+	private int findInnermost(final int start, final int end) {
+		checkBuilt();
+		// Last range starting before given one, ranges containing it are among its ancestors
+		int low = 0;
+		int high = starts.length - 1;
+		int index = -1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			if (starts[middle] <= start) {
+				index = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		while (index >= 0 && ends[index] < end)
+			index = parents[index];
+		return index;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T get(final int index) {
+		return (T) sortedValues[index];
+	}
+
+	private void checkBuilt() {
+		if (starts == null)
+			throw new IllegalStateException("Intervals are not built."); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.util.List;
+
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.ldt.core.internal.ast.models.file.Block;
+import org.eclipse.ldt.core.internal.ast.models.file.LuaExpression;
+import org.eclipse.ldt.core.internal.ast.models.file.LuaInternalContent;
+
+/**
+ * Expressions and blocks of the internal content of a module by offset, so that hover, occurrences, rename and completion do not go through the
+ * whole content to find the nodes under the cursor.
+ * <p>
+ * Built once for a content, which must not be modified afterwards.
+ * </p>
+ */
+public class OffsetIndex {
+
+	private final NestedIntervals<LuaExpression> expressions = new NestedIntervals<LuaExpression>();
+	private final NestedIntervals<Block> blocks = new NestedIntervals<Block>();
+
+	public OffsetIndex(final LuaInternalContent content) throws Exception {
+		if (content != null) {
+			content.getContent().traverse(new ASTVisitor() {
+				@Override
+				public boolean visitGeneral(final ASTNode node) throws Exception {
+					if (node instanceof LuaExpression)
+						expressions.add((LuaExpression) node, node.sourceStart(), node.sourceEnd());
+					else if (node instanceof Block)
+						blocks.add((Block) node, node.sourceStart(), node.sourceEnd());
+					return true;
+				}
+			});
+		}
+		expressions.build();
+		blocks.build();
+	}
+
+	/**
+	 * @return innermost expression containing given offsets, <code>null</code> if there is none
+	 */
+	public LuaExpression getExpressionAt(final int start, final int end) {
+		return expressions.getInnermost(start, end);
+	}
+
+	/**
+	 * @return blocks containing given offset, innermost first
+	 */
+	public List<Block> getBlocksAt(final int offset) {
+		return blocks.getEnclosing(offset);
+	}
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results of resolutions by module and by key identity, with the modules each result depends on.
+ * <p>
+ * Modules read while a value is resolved are recorded with {@link #addDependency(Object)}, values resolved meanwhile by nested calls add their own
+ * dependencies. Invalidating a module drops its values and values of all modules depending on it. <code>null</code> values are not kept, as they
+ * may come from a module which does not exist yet.
+ * </p>
+ */
+public class ResolutionCache<M, K, V> {
+
+	/**
+	 * Computes values to cache.
+	 */
+	public interface Resolver<M, K, V> {
+		V resolve(M module, K key);
+	}
+
+	private static final class Entry<M, V> {
+		private final V value;
+		private final Set<M> dependencies;
+
+		private Entry(final V value, final Set<M> dependencies) {
+			this.value = value;
+			this.dependencies = dependencies;
+		}
+	}
+
+	private final Resolver<M, K, V> resolver;
+	private final int maxSize;
+
+	/** Values by module, keys compared by identity as they are nodes of the module AST */
+	private final Map<M, Map<K, Entry<M, V>>> entries = new HashMap<M, Map<K, Entry<M, V>>>();
+
+	/** Modules whose values depend on each module */
+	private final Map<M, Set<M>> dependents = new HashMap<M, Set<M>>();
+
+	private int size;
+
+	/** Dependencies of resolutions in progress on current thread, innermost last */
+	private final ThreadLocal<List<Set<M>>> resolutions = new ThreadLocal<List<Set<M>>>() {
+		@Override
+		protected List<Set<M>> initialValue() {
+			return new ArrayList<Set<M>>();
+		}
+	};
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxSize
+	 *            number of values above which all values are dropped, as they keep nodes of ASTs which may not be used anymore
+	 */
+	public ResolutionCache(final Resolver<M, K, V> resolver, final int maxSize) {
+		this.resolver = resolver;
+		this.maxSize = maxSize;
+	}
+
+	public V get(final M module, final K key) {
+		if (module == null || key == null)
+			return resolver.resolve(module, key);
+
+		Entry<M, V> entry;
+		synchronized (this) {
+			final Map<K, Entry<M, V>> moduleEntries = entries.get(module);
+			entry = moduleEntries != null ? moduleEntries.get(key) : null;
+		}
+		if (entry != null) {
+			hits.incrementAndGet();
+			addDependencies(entry.dependencies);
+			return entry.value;
+		}
+		misses.incrementAndGet();
+
+		final List<Set<M>> stack = resolutions.get();
+		final Set<M> dependencies = new HashSet<M>();
+		dependencies.add(module);
+		stack.add(dependencies);
+		final V value;
+		try {
+			value = resolver.resolve(module, key);
+		} finally {
+			stack.remove(stack.size() - 1);
+		}
+		addDependencies(dependencies);
+		if (value != null)
+			put(module, key, new Entry<M, V>(value, dependencies));
+		return value;
+	}
+
+	/**
+	 * Record that resolutions in progress on current thread read given module.
+	 */
+	public void addDependency(final M module) {
+		final List<Set<M>> stack = resolutions.get();
+		for (final Set<M> dependencies : stack)
+			dependencies.add(module);
+	}
+
+	private void addDependencies(final Set<M> modules) {
+		final List<Set<M>> stack = resolutions.get();
+		for (final Set<M> dependencies : stack)
+			dependencies.addAll(modules);
+	}
+
+	private synchronized void put(final M module, final K key, final Entry<M, V> entry) {
+		if (size >= maxSize)
+			clear();
+		Map<K, Entry<M, V>> moduleEntries = entries.get(module);
+		if (moduleEntries == null) {
+			moduleEntries = new IdentityHashMap<K, Entry<M, V>>();
+			entries.put(module, moduleEntries);
+		}
+		if (moduleEntries.put(key, entry) == null)
+			size++;
+		for (final M dependency : entry.dependencies) {
+			Set<M> moduleDependents = dependents.get(dependency);
+			if (moduleDependents == null) {
+				moduleDependents = new HashSet<M>();
+				dependents.put(dependency, moduleDependents);
+			}
+			moduleDependents.add(module);
+		}
+	}
+
+	/**
+	 * Drop values of given module and of modules depending on it.
+	 */
+	public synchronized void invalidate(final M module) {
+		final Set<M> moduleDependents = dependents.remove(module);
+		final Set<M> modules = moduleDependents != null ? moduleDependents : Collections.<M> emptySet();
+		remove(module);
+		for (final M dependent : modules)
+			remove(dependent);
+	}
+
+	private void remove(final M module) {
+		final Map<K, Entry<M, V>> moduleEntries = entries.remove(module);
+		if (moduleEntries != null)
+			size -= moduleEntries.size();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		dependents.clear();
+		size = 0;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return ratio of lookups answered from cache, between 0 and 1
+	 */
+	public double getHitRate() {
+		final long hitCount = hits.get();
+		final long total = hitCount + misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Documentation of an API element, as written in source comments.<br/>
+ * It is rendered only when it is shown, see <code>DocumentationRenderer</code>.
+ */
+public final class Documentation {
+
+	/** Shared by all elements with an empty documentation, which are rendered from their definition only */
+	public static final Documentation EMPTY = new Documentation(null, null, Collections.<String> emptyList(), false);
+
+	/** Shared by all local elements with an empty documentation, which show nothing */
+	public static final Documentation EMPTY_PREFORMATTED = new Documentation(null, null, Collections.<String> emptyList(), true);
+
+	private final String shortDescription;
+	private final String description;
+	private final List<String> usages;
+	private final boolean preformatted;
+
+	private Documentation(final String shortDescription, final String description, final List<String> usages, final boolean preformatted) {
+		this.shortDescription = shortDescription;
+		this.description = description;
+		this.usages = usages;
+		this.preformatted = preformatted;
+	}
+
+	/**
+	 * @param preformatted
+	 *            <code>true</code> for documentation of local elements, which is shown as written
+	 */
+	public static Documentation create(final String shortDescription, final String description, final List<String> usages, final boolean preformatted) {
+		final String shortText = isEmpty(shortDescription) ? null : shortDescription;
+		final String text = isEmpty(description) ? null : description;
+		if (shortText == null && text == null && usages.isEmpty())
+			return preformatted ? EMPTY_PREFORMATTED : EMPTY;
+		return new Documentation(shortText, text, usages.isEmpty() ? Collections.<String> emptyList() : Collections.unmodifiableList(usages),
+				preformatted);
+	}
+
+	private static boolean isEmpty(final String string) {
+		return string == null || string.isEmpty();
+	}
+
+	/**
+	 * @return short description, <code>null</code> if there is none
+	 */
+	public String getShortDescription() {
+		return shortDescription;
+	}
+
+	/**
+	 * @return description following the short one, <code>null</code> if there is none
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * @return code samples of <code>@usage</code> tags
+	 */
+	public List<String> getUsages() {
+		return usages;
+	}
+
+	public boolean isPreformatted() {
+		return preformatted;
+	}
+}
@@ -19,7 +19,7 @@ import org.eclipse.dltk.ast.ASTVisitor;
  * Use to define a kind of type 'function'.
  */
 public class FunctionTypeDef extends TypeDef {
-	private String documentation;
+	private Documentation documentation;
 	private ArrayList<Parameter> parameters = new ArrayList<Parameter>();
 	private ArrayList<Return> returns = new ArrayList<Return>();
 
@@ -34,7 +34,7 @@ public class FunctionTypeDef extends TypeDef {
 		returns.add(values);
 	}
 
-	public String getDocumentation() {
+	public Documentation getDocumentation() {
 		return documentation;
 	}
 
@@ -46,7 +46,7 @@ public class FunctionTypeDef extends TypeDef {
 		return returns;
 	}
 
-	public void setDocumentation(String documentation) {
+	public void setDocumentation(Documentation documentation) {
 		this.documentation = documentation;
 	}
 
@@ -24,7 +24,7 @@ import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
  */
 public class Item extends LuaASTNode implements IDocumentationHolder {
 	private String name;
-	private String documentation;
+	private Documentation documentation;
 	private TypeRef type;
 	private List<Identifier> occurrences = new ArrayList<Identifier>();
 	private LuaASTNode parent;
@@ -38,7 +38,7 @@ public class Item extends LuaASTNode implements IDocumentationHolder {
 	}
 
 	@Override
-	public String getDocumentation() {
+	public Documentation getDocumentation() {
 		return documentation;
 	}
 
@@ -50,7 +50,7 @@ public class Item extends LuaASTNode implements IDocumentationHolder {
 		this.name = name;
 	}
 
-	public void setDocumentation(String documentation) {
+	public void setDocumentation(Documentation documentation) {
 		this.documentation = documentation;
 	}
 
@@ -21,7 +21,8 @@ import org.eclipse.ldt.core.internal.ast.models.common.LuaASTNode;
  */
 public class LuaFileAPI extends LuaASTNode {
 
-	private String documentation;
+	private String name;
+	private Documentation documentation;
 	private HashMap<String, TypeDef> types = new HashMap<String, TypeDef>();
 	private HashMap<String, Item> globalvars = new HashMap<String, Item>();
 	private ArrayList<Return> returns = new ArrayList<Return>();
@@ -43,11 +44,22 @@ public class LuaFileAPI extends LuaASTNode {
 		returns.add(returnValue);
 	}
 
-	public void setDocumentation(String documentation) {
+	/**
+	 * @return name of the module, <code>null</code> if this file does not define a module
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public void setDocumentation(Documentation documentation) {
 		this.documentation = documentation;
 	}
 
-	public String getDocumentation() {
+	public Documentation getDocumentation() {
 		return documentation;
 	}
 
@@ -20,12 +20,14 @@ import org.eclipse.dltk.ast.ASTVisitor;
 public class RecordTypeDef extends TypeDef {
 
 	private String name;
-	private String documentation;
+	private Documentation documentation;
 	private HashMap<String, Item> fields = new HashMap<String, Item>();
 	private TypeRef supertype;
 	private TypeRef defaultKeyTyperef;
 	private TypeRef defaultValueTyperef;
 	private TypeRef callTyperef;
+	private String structureKind;
+	private String structureDescription;
 
 	public RecordTypeDef() {
 
@@ -49,7 +51,7 @@ public class RecordTypeDef extends TypeDef {
 		return name;
 	}
 
-	public String getDocumentation() {
+	public Documentation getDocumentation() {
 		return documentation;
 	}
 
@@ -66,7 +68,7 @@ public class RecordTypeDef extends TypeDef {
 		this.name = name;
 	}
 
-	public void setDocumentation(String documentation) {
+	public void setDocumentation(Documentation documentation) {
 		this.documentation = documentation;
 	}
 
@@ -105,4 +107,23 @@ public class RecordTypeDef extends TypeDef {
 	public TypeRef getCallTypeRef() {
 		return callTyperef;
 	}
+
+	/**
+	 * @return "map" or "list" when this type is declared as such, <code>null</code> else way
+	 */
+	public String getStructureKind() {
+		return structureKind;
+	}
+
+	public void setStructureKind(String structureKind) {
+		this.structureKind = structureKind;
+	}
+
+	public String getStructureDescription() {
+		return structureDescription;
+	}
+
+	public void setStructureDescription(String structureDescription) {
+		this.structureDescription = structureDescription;
+	}
 }
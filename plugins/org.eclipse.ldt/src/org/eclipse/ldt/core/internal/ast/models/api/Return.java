@@ -18,6 +18,7 @@ import java.util.List;
  */
 public class Return {
 	private ArrayList<TypeRef> types = new ArrayList<TypeRef>();
+	private String description;
 
 	public List<TypeRef> getTypes() {
 		return types;
@@ -26,4 +27,12 @@ public class Return {
 	public void addType(final TypeRef type) {
 		types.add(type);
 	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
 }
@@ -10,6 +10,11 @@
  *******************************************************************************/
 package org.eclipse.ldt.core.internal.ast.models.common;
 
+import org.eclipse.ldt.core.internal.ast.models.api.Documentation;
+
 public interface IDocumentationHolder {
-	public String getDocumentation();
+	/**
+	 * @return documentation as written in sources, <code>null</code> if there is nothing to show
+	 */
+	public Documentation getDocumentation();
 }
@@ -23,6 +23,7 @@ import org.eclipse.dltk.compiler.problem.DefaultProblem;
 import org.eclipse.dltk.compiler.problem.DefaultProblemIdentifier;
 import org.eclipse.dltk.compiler.problem.IProblemIdentifier;
 import org.eclipse.dltk.compiler.problem.ProblemSeverity;
+import org.eclipse.ldt.core.internal.ast.models.OffsetIndex;
 import org.eclipse.ldt.core.internal.ast.models.api.LuaFileAPI;
 import org.eclipse.ldt.core.internal.ast.models.file.LuaInternalContent;
 
@@ -34,6 +35,8 @@ public class LuaSourceRoot extends ModuleDeclaration {
 	private DefaultProblem problem = null;
 	private LuaFile luaFile;
 	private boolean error;
+	// Built at first offset query, reset when models are updated by an incremental reparse
+	private volatile OffsetIndex offsetIndex;
 
 	public LuaSourceRoot(final int sourceLength) {
 		super(sourceLength);
@@ -79,6 +82,18 @@ public class LuaSourceRoot extends ModuleDeclaration {
 
 	public void setInternalContent(final LuaInternalContent content) {
 		luaFile.setInternalContent(content);
+		offsetIndex = null;
+	}
+
+	/**
+	 * @return index of internal content nodes by offset, <code>null</code> if not built yet
+	 */
+	public OffsetIndex getOffsetIndex() {
+		return offsetIndex;
+	}
+
+	public void setOffsetIndex(final OffsetIndex offsetIndex) {
+		this.offsetIndex = offsetIndex;
 	}
 
 	@Override
@@ -21,6 +21,8 @@ public class Block extends LuaASTNode {
 
 	private List<LuaASTNode> content = new ArrayList<LuaASTNode>();
 
+	private List<Statement> statements = new ArrayList<Statement>();
+
 	public List<LocalVar> getLocalVars() {
 		return localVars;
 	}
@@ -38,6 +40,17 @@ public class Block extends LuaASTNode {
 		content.add(node);
 	}
 
+	/**
+	 * @return statements of the block in source order, they are not traversed
+	 */
+	public List<Statement> getStatements() {
+		return statements;
+	}
+
+	public void addStatement(final Statement statement) {
+		statements.add(statement);
+	}
+
 	@Override
 	public void traverse(ASTVisitor visitor) throws Exception {
 		if (visitor.visit(this)) {
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.models.file;
+
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaASTNode;
+
+/**
+ * Range of a statement of a {@link Block}, with what may tie it to code out of its range. Statements delimit code which can be parsed again on its
+ * own, they are not traversed with the nodes of their block.
+ */
+public class Statement extends LuaASTNode {
+
+	private final boolean commentBefore;
+	private final boolean commentAfter;
+	private final boolean documented;
+	private final boolean settingField;
+
+	public Statement(final int start, final int end, final boolean commentBefore, final boolean commentAfter, final boolean documented,
+			final boolean settingField) {
+		setStart(start);
+		setEnd(end);
+		this.commentBefore = commentBefore;
+		this.commentAfter = commentAfter;
+		this.documented = documented;
+		this.settingField = settingField;
+	}
+
+	/**
+	 * @return <code>true</code> when a comment before the statement may be linked to it, as its documentation or type
+	 */
+	public boolean hasCommentBefore() {
+		return commentBefore;
+	}
+
+	/**
+	 * @return <code>true</code> when a comment after the statement, on its last line, may be linked to it
+	 */
+	public boolean hasCommentAfter() {
+		return commentAfter;
+	}
+
+	/**
+	 * @return <code>true</code> when a documentation comment lies in the statement or between it and the statements around it
+	 */
+	public boolean isDocumented() {
+		return documented;
+	}
+
+	/**
+	 * @return <code>true</code> when the statement assigns a field, which may belong to a type defined out of it
+	 */
+	public boolean isSettingField() {
+		return settingField;
+	}
+
+	@Override
+	public void traverse(final ASTVisitor visitor) throws Exception {
+		if (visitor.visit(this)) {
+			visitor.endvisit(this);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.parser;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.dltk.ast.parser.IModuleDeclaration;
+import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
+import org.eclipse.ldt.core.internal.PreferenceInitializer;
+
+/**
+ * In memory cache of ASTs, bounded by the sum of the weights of its entries.
+ * <p>
+ * Each entry is given a weight, an estimation of the heap it uses, when it is put. Once the total weight exceeds the budget, least recently used
+ * entries are evicted. Entries are softly referenced too, so that the garbage collector can reclaim them before running out of memory.
+ * </p>
+ * <p>
+ * Lookups do not lock, only evictions are serialized.
+ * </p>
+ */
+public class BoundedASTCache<K> {
+
+	/** When budget is exceeded, entries are evicted until this ratio of the budget is used, so that evictions do not occur on each put */
+	private static final double EVICTION_TARGET_RATIO = 0.75;
+
+	private static final class Entry {
+		private final SoftReference<IModuleDeclaration> reference;
+		private final long weight;
+		private volatile long lastAccess;
+
+		private Entry(final IModuleDeclaration value, final long weight, final long lastAccess) {
+			this.reference = new SoftReference<IModuleDeclaration>(value);
+			this.weight = weight;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	/** Entry with the time of its last access when eviction started, as accesses go on during eviction */
+	private static final class EvictionCandidate<K> {
+		private final K key;
+		private final Entry entry;
+		private final long lastAccess;
+
+		private EvictionCandidate(final K key, final Entry entry) {
+			this.key = key;
+			this.entry = entry;
+			this.lastAccess = entry.lastAccess;
+		}
+	}
+
+	private final ConcurrentMap<K, Entry> entries = new ConcurrentHashMap<K, Entry>();
+	private final Object evictionLock = new Object();
+	private volatile long budget;
+
+	private final AtomicLong weight = new AtomicLong();
+	private final AtomicLong clock = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @param budget
+	 *            maximum total weight of entries
+	 */
+	public BoundedASTCache(final long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Create a cache with the budget defined by the {@link PreferenceInitializer#PARSER_AST_CACHE_SIZE} preference, in megabytes.
+	 */
+	public static <K> BoundedASTCache<K> createFromPreferences() {
+		final int size = Platform.getPreferencesService().getInt(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
+				PreferenceInitializer.PARSER_AST_CACHE_SIZE, PreferenceInitializer.PARSER_AST_CACHE_DEFAULT_SIZE, null);
+		return new BoundedASTCache<K>(size * 1024L * 1024L);
+	}
+
+	/**
+	 * @return the AST cached for given key, or <code>null</code> if there is none or if it has been evicted
+	 */
+	public IModuleDeclaration get(final K key) {
+		final Entry entry = entries.get(key);
+		final IModuleDeclaration value = entry != null ? entry.reference.get() : null;
+		if (value == null) {
+			misses.incrementAndGet();
+			// Reclaimed by garbage collector
+			if (entry != null && remove(key, entry))
+				evictions.incrementAndGet();
+			return null;
+		}
+		entry.lastAccess = clock.incrementAndGet();
+		hits.incrementAndGet();
+		return value;
+	}
+
+	/**
+	 * Cache an AST, replacing any AST previously cached for the same key.
+	 *
+	 * @param weight
+	 *            estimation of the heap used by the AST, an AST heavier than the whole budget is not cached
+	 */
+	public void put(final K key, final IModuleDeclaration value, final long weight) {
+		if (weight > budget) {
+			remove(key);
+			return;
+		}
+		final Entry entry = new Entry(value, weight, clock.incrementAndGet());
+		final Entry previous = entries.put(key, entry);
+		this.weight.addAndGet(previous != null ? weight - previous.weight : weight);
+		if (this.weight.get() > budget)
+			evict();
+	}
+
+	public void remove(final K key) {
+		final Entry entry = entries.remove(key);
+		if (entry != null)
+			weight.addAndGet(-entry.weight);
+	}
+
+	private boolean remove(final K key, final Entry entry) {
+		if (!entries.remove(key, entry))
+			return false;
+		weight.addAndGet(-entry.weight);
+		return true;
+	}
+
+	/**
+	 * @return a snapshot of the keys of cached ASTs
+	 */
+	public List<K> keys() {
+		return new ArrayList<K>(entries.keySet());
+	}
+
+	public void clear() {
+		for (final K key : keys())
+			remove(key);
+	}
+
+	private void evict() {
+		synchronized (evictionLock) {
+			final long target = (long) (budget * EVICTION_TARGET_RATIO);
+			if (weight.get() <= budget)
+				return;
+
+			// Least recently used first
+			final List<EvictionCandidate<K>> candidates = new ArrayList<EvictionCandidate<K>>(entries.size());
+			for (final Map.Entry<K, Entry> entry : entries.entrySet())
+				candidates.add(new EvictionCandidate<K>(entry.getKey(), entry.getValue()));
+			Collections.sort(candidates, new Comparator<EvictionCandidate<K>>() {
+				@Override
+				public int compare(final EvictionCandidate<K> first, final EvictionCandidate<K> second) {
+					return first.lastAccess < second.lastAccess ? -1 : first.lastAccess == second.lastAccess ? 0 : 1;
+				}
+			});
+
+			for (final EvictionCandidate<K> candidate : candidates) {
+				if (weight.get() <= target)
+					return;
+				// Skip entries accessed or replaced meanwhile
+				if (candidate.entry.lastAccess == candidate.lastAccess && remove(candidate.key, candidate.entry))
+					evictions.incrementAndGet();
+			}
+		}
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public void setBudget(final long budget) {
+		this.budget = budget;
+		if (weight.get() > budget)
+			evict();
+	}
+
+	/** @return total weight of cached ASTs, including the ones reclaimed by garbage collector but not yet noticed */
+	public long getWeight() {
+		return weight.get();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/** @return number of ASTs removed to fit the budget or reclaimed by garbage collector */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+}
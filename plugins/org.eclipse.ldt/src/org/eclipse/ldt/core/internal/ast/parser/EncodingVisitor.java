@@ -13,7 +13,9 @@ package org.eclipse.ldt.core.internal.ast.parser;
 import org.eclipse.dltk.ast.ASTNode;
 import org.eclipse.dltk.ast.ASTVisitor;
 import org.eclipse.ldt.core.internal.ast.models.common.LuaASTNode;
+import org.eclipse.ldt.core.internal.ast.models.file.Block;
 import org.eclipse.ldt.core.internal.ast.models.file.LocalVar;
+import org.eclipse.ldt.core.internal.ast.models.file.Statement;
 
 /**
  * Here, we do the matching between Lua byte based offsets and Java character based offsets.
@@ -47,6 +49,12 @@ public class EncodingVisitor extends ASTVisitor {
 			final LocalVar localVar = (LocalVar) luaNode;
 			localVar.setScopeMinOffset(fixer.getCharacterPosition(localVar.getScopeMinOffset()));
 			localVar.setScopeMaxOffset(fixer.getCharacterPosition(localVar.getScopeMaxOffset()));
+		} else if (luaNode instanceof Block) {
+			// Statements are not traversed
+			for (final Statement statement : ((Block) luaNode).getStatements()) {
+				statement.setStart(fixer.getCharacterPosition(statement.sourceStart()));
+				statement.setEnd(fixer.getCharacterPosition(statement.sourceEnd()));
+			}
 		}
 		return true;
 	}
@@ -0,0 +1,555 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.ldt.core.internal.ast.models.ModelDeserializer;
+import org.eclipse.ldt.core.internal.ast.models.ModelSerializer;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.api.LuaFileAPI;
+import org.eclipse.ldt.core.internal.ast.models.api.RecordTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.api.TypeDef;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaASTNode;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.models.file.Block;
+import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
+import org.eclipse.ldt.core.internal.ast.models.file.LocalVar;
+import org.eclipse.ldt.core.internal.ast.models.file.LuaInternalContent;
+import org.eclipse.ldt.core.internal.ast.models.file.Statement;
+
+/**
+ * Updates models of an edited source from models of its previous version, parsing again only the statements which hold the edition.
+ * <p>
+ * Edited statements are the ones of the innermost block holding the edition, as given by the {@link Statement}s of previous models. They are parsed
+ * on their own, as a chunk, and their models replace previous ones: identifiers unbound in the chunk are bound to the definitions visible from the
+ * edited statements, and offsets of nodes following the edition are shifted. It is only done when the result is the same as models of a full parse,
+ * so edited statements must not change anything visible out of them, such as documentation, global variables, fields of tables or the module
+ * returned at the end of the file. In all other cases {@link #reparse(String, LuaSourceRoot, String)} returns <code>null</code> and the source has to
+ * be fully parsed.
+ * </p>
+ * <p>
+ * Only edited statements are validated, as the rest of the source is the same as the previous one. Previous models are never modified, as they may
+ * be read by other threads: the result is a copy of them.
+ * </p>
+ */
+public abstract class IncrementalReparser {
+
+	/**
+	 * @return <code>true</code> when given code is valid Lua code
+	 */
+	protected abstract boolean isValid(String code) throws Exception;
+
+	/**
+	 * Build models of a chunk of valid code, out of its file.
+	 */
+	protected abstract void parseChunk(String chunk, LuaSourceRoot root) throws Exception;
+
+	/**
+	 * @param previousSource
+	 *            source of previous models
+	 * @param previous
+	 *            models of previous source without errors, left untouched
+	 * @param source
+	 *            edited source
+	 * @return models of edited source, or <code>null</code> when they can only be built by a full parse
+	 */
+	public LuaSourceRoot reparse(final String previousSource, final LuaSourceRoot previous, final String source) throws Exception {
+		final LuaInternalContent content = previous.getInternalContent();
+		if (previous.hasError() || previous.getFileapi() == null || content == null)
+			return null;
+
+		// Edition is what lies between common prefix and suffix
+		final int previousLength = previousSource.length();
+		final int length = source.length();
+		final int commonLength = Math.min(previousLength, length);
+		int editStart = 0;
+		while (editStart < commonLength && previousSource.charAt(editStart) == source.charAt(editStart))
+			editStart++;
+		if (editStart == previousLength && previousLength == length)
+			return null;
+		int suffixLength = 0;
+		while (suffixLength < commonLength - editStart
+				&& previousSource.charAt(previousLength - suffixLength - 1) == source.charAt(length - suffixLength - 1))
+			suffixLength++;
+		final int previousEditEnd = previousLength - suffixLength;
+		final int delta = length - previousLength;
+
+		// Innermost block whose statements hold the edition, after the blocks enclosing it
+		List<Block> blocks = findBlocks(content, editStart, previousEditEnd);
+		Block block = blocks.get(blocks.size() - 1);
+		List<Statement> statements = block.getStatements();
+
+		// Statements touched by the edition, or the ones around it when it lies between them
+		int first = 0;
+		while (first < statements.size() && statements.get(first).sourceEnd() < editStart)
+			first++;
+		int last = statements.size() - 1;
+		while (last >= 0 && statements.get(last).sourceStart() > previousEditEnd)
+			last--;
+		if (first > last) {
+			final int next = first;
+			first = last;
+			last = next;
+		}
+		if (first < 0 || last >= statements.size())
+			return null;
+		if (editStart < statements.get(first).sourceStart())
+			first--;
+		if (previousEditEnd > statements.get(last).sourceEnd())
+			last++;
+		if (first < 0 || last >= statements.size())
+			return null;
+
+		// Parse edited statements on their own, along with the statements around them which they depend on
+		int start;
+		int end;
+		String chunk;
+		LuaSourceRoot chunkRoot;
+		while (true) {
+
+			// Extend edited statements to comments linked to them and to the last use of their local variables
+			boolean extended = true;
+			while (extended) {
+				extended = false;
+				if (statements.get(first).hasCommentBefore()) {
+					if (first == 0)
+						return null;
+					first--;
+					extended = true;
+				}
+				if (statements.get(last).hasCommentAfter()) {
+					if (last == statements.size() - 1)
+						return null;
+					last++;
+					extended = true;
+				}
+				final int lastUse = findLastUse(block, statements.get(first).sourceStart(), statements.get(last).sourceEnd());
+				if (lastUse >= statements.get(last).sourceEnd()) {
+					while (last < statements.size() - 1 && statements.get(last + 1).sourceStart() <= lastUse)
+						last++;
+					if (lastUse >= statements.get(last).sourceEnd())
+						return null;
+					extended = true;
+				}
+			}
+			start = statements.get(first).sourceStart();
+			end = statements.get(last).sourceEnd();
+
+			// Edited statements must not change models out of them
+			if (block == content.getContent() && last == statements.size() - 1)
+				return null;
+			for (int i = first; i <= last; i++) {
+				if (statements.get(i).isDocumented() || statements.get(i).isSettingField())
+					return null;
+			}
+			if (overlapsAPI(previous.getFileapi(), start, end))
+				return null;
+			for (final Item unknown : content.getUnknownglovalvars()) {
+				if (isFirstSeenIn(unknown, start, end))
+					return null;
+			}
+
+			// Build models of edited statements, a statement starting with a parenthesis could continue the call ending the one before it
+			chunk = source.substring(start, end + delta);
+			final boolean endsBlock = last == statements.size() - 1;
+			if (chunk.trim().startsWith("(") || !endsBlock && previousSource.charAt(statements.get(last + 1).sourceStart()) == '(') //$NON-NLS-1$
+				return null;
+			if (!isValidInBlock(chunk, endsBlock))
+				return null;
+			chunkRoot = new LuaSourceRoot(chunk.length());
+			parseChunk(chunk, chunkRoot);
+			if (chunkRoot.hasError() || chunkRoot.getFileapi() == null || chunkRoot.getInternalContent() == null)
+				return null;
+			chunkRoot.traverse(new EncodingVisitor(new OffsetFixer(chunk)));
+
+			// Comments around chunk code may be linked to statements out of it, then parse them with it
+			final List<Statement> chunkStatements = chunkRoot.getInternalContent().getContent().getStatements();
+			final int codeStart = chunkStatements.isEmpty() ? chunk.length() : chunkStatements.get(0).sourceStart();
+			final int codeEnd = chunkStatements.isEmpty() ? 0 : chunkStatements.get(chunkStatements.size() - 1).sourceEnd();
+			if (!isBlank(chunk, 0, codeStart)) {
+				if (first == 0)
+					return null;
+				first--;
+			} else if (!isBlank(chunk, codeEnd, chunk.length())) {
+				if (last == statements.size() - 1)
+					return null;
+				last++;
+			} else {
+				break;
+			}
+		}
+
+		// Previous models may be in use, update a copy of them with the length of edited source
+		final LuaSourceRoot root = copy(previous, length);
+		final LuaInternalContent rootContent = root.getInternalContent();
+		blocks = findBlocks(rootContent, editStart, previousEditEnd);
+		block = blocks.get(blocks.size() - 1);
+		statements = block.getStatements();
+
+		// Previous statements: their nodes and identifiers bound out of them
+		final List<LuaASTNode> blockContent = block.getContent();
+		final Set<LuaASTNode> previousNodes = newIdentitySet();
+		int contentIndex = -1;
+		for (int i = 0; i < blockContent.size(); i++) {
+			final LuaASTNode node = blockContent.get(i);
+			if (isInRange(node.sourceStart(), start, end)) {
+				previousNodes.add(node);
+				if (contentIndex < 0)
+					contentIndex = i;
+			} else if (contentIndex < 0 && node.sourceStart() >= end) {
+				contentIndex = i;
+			}
+		}
+		if (contentIndex < 0)
+			contentIndex = blockContent.size();
+		final Set<LocalVar> previousLocalVars = newIdentitySet();
+		for (final LocalVar localVar : block.getLocalVars()) {
+			if (isInRange(localVar.getVar().sourceStart(), start, end))
+				previousLocalVars.add(localVar);
+		}
+		final BodyVisitor previousVisitor = new BodyVisitor();
+		for (final LuaASTNode node : previousNodes)
+			node.traverse(previousVisitor);
+		for (final LocalVar localVar : previousLocalVars)
+			previousVisitor.localItems.add(localVar.getVar());
+		final Map<String, Item> outerDefinitions = new HashMap<String, Item>();
+		final Set<Identifier> previousOuterOccurrences = newIdentitySet();
+		for (final Identifier identifier : previousVisitor.identifiers) {
+			final Item definition = identifier.getDefinition();
+			if (definition == null || previousVisitor.localItems.contains(definition))
+				continue;
+			final Item known = outerDefinitions.put(identifier.getName(), definition);
+			if (known != null && known != definition)
+				return null;
+			previousOuterOccurrences.add(identifier);
+		}
+
+		// Chunk must not define types, documentation or fields
+		final Block chunkBlock = chunkRoot.getInternalContent().getContent();
+		if (!chunkRoot.getFileapi().getTypes().isEmpty())
+			return null;
+		for (final Statement statement : chunkBlock.getStatements()) {
+			if (statement.isDocumented() || statement.isSettingField())
+				return null;
+		}
+		chunkRoot.traverse(new ShiftVisitor(0, chunk.length(), start));
+
+		// Names unbound in chunk must be bound to definitions visible from edited statements
+		final Map<String, Item> visibleDefinitions = findVisibleDefinitions(blocks, start);
+		final Map<Item, Item> bindings = new IdentityHashMap<Item, Item>();
+		if (!bind(chunkRoot.getFileapi().getGlobalvars().values(), true, visibleDefinitions, outerDefinitions, bindings)
+				|| !bind(chunkRoot.getInternalContent().getUnknownglovalvars(), false, visibleDefinitions, outerDefinitions, bindings))
+			return null;
+
+		// Local variables of chunk must not hide definitions of identifiers following it
+		if (!chunkBlock.getLocalVars().isEmpty()) {
+			final Set<String> chunkLocalNames = new HashSet<String>();
+			for (final LocalVar localVar : chunkBlock.getLocalVars())
+				chunkLocalNames.add(localVar.getVar().getName());
+			final BodyVisitor followingVisitor = new BodyVisitor();
+			for (final LuaASTNode node : blockContent) {
+				if (node.sourceStart() >= end)
+					node.traverse(followingVisitor);
+			}
+			for (final Identifier identifier : followingVisitor.identifiers) {
+				if (chunkLocalNames.contains(identifier.getName()))
+					return null;
+			}
+		}
+
+		// Drop previous statements
+		removeAll(blockContent, previousNodes);
+		removeAll(block.getLocalVars(), previousLocalVars);
+		for (final Item definition : outerDefinitions.values())
+			removeAll(definition.getOccurrences(), previousOuterOccurrences);
+
+		// Shift what follows edition, unknown global variables are not traversed and keep byte offsets
+		root.traverse(new ShiftVisitor(previousEditEnd, previousLength, delta));
+		final int bomLength = previousSource.startsWith("\ufeff") ? 1 : 0; //$NON-NLS-1$
+		final int previousEditEndByte = OffsetFixer.getByteLength(previousSource, bomLength, previousEditEnd);
+		final int byteDelta = OffsetFixer.getByteLength(source, editStart, length - suffixLength)
+				- OffsetFixer.getByteLength(previousSource, editStart, previousEditEnd);
+		for (final Item unknown : rootContent.getUnknownglovalvars()) {
+			if (unknown.sourceStart() >= previousEditEndByte)
+				unknown.setStart(unknown.sourceStart() + byteDelta);
+			if (unknown.sourceEnd() >= previousEditEndByte)
+				unknown.setEnd(unknown.sourceEnd() + byteDelta);
+		}
+
+		// Splice chunk
+		blockContent.addAll(contentIndex, chunkBlock.getContent());
+		for (final LocalVar localVar : chunkBlock.getLocalVars())
+			block.addLocalVar(localVar);
+		statements.subList(first, last + 1).clear();
+		statements.addAll(first, chunkBlock.getStatements());
+		for (final Map.Entry<Item, Item> binding : bindings.entrySet()) {
+			final List<Identifier> occurrences = binding.getValue().getOccurrences();
+			int index = 0;
+			while (index < occurrences.size() && occurrences.get(index).sourceStart() < start)
+				index++;
+			for (final Identifier identifier : binding.getKey().getOccurrences()) {
+				identifier.setDefinition(binding.getValue());
+				occurrences.add(index++, identifier);
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Edited statements are valid in their block when they are valid on their own and as the body of a function, which they do not return from
+	 * unless they end the block. The function has no varargs and, unlike a chunk, it can not break a loop or jump to a label out of it.
+	 */
+	private boolean isValidInBlock(final String chunk, final boolean endsBlock) throws Exception {
+		if (chunk.contains("goto") || chunk.contains("::")) //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		final StringBuilder function = new StringBuilder("local function reparsed()\n").append(chunk); //$NON-NLS-1$
+		if (!endsBlock)
+			function.append("\ndo end"); //$NON-NLS-1$
+		function.append("\nend"); //$NON-NLS-1$
+		return isValid(chunk) && isValid(function.toString());
+	}
+
+	/**
+	 * @return models of given source root for a source of given length
+	 */
+	private static LuaSourceRoot copy(final LuaSourceRoot root, final int length) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ModelSerializer(new DataOutputStream(bytes)).writeSourceRoot(root);
+		final LuaSourceRoot copy = new LuaSourceRoot(length);
+		new ModelDeserializer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))).readSourceRoot(copy);
+		return copy;
+	}
+
+	/**
+	 * @return blocks whose statements hold given range, from the content block to the innermost one
+	 */
+	private static List<Block> findBlocks(final LuaInternalContent content, final int start, final int end) {
+		final List<Block> blocks = new ArrayList<Block>();
+		Block block = content.getContent();
+		while (block != null) {
+			blocks.add(block);
+			block = findInnerBlock(block, start, end);
+		}
+		return blocks;
+	}
+
+	/**
+	 * @return block of given block content whose statements hold given range, <code>null</code> if there is none
+	 */
+	private static Block findInnerBlock(final Block block, final int start, final int end) {
+		for (final LuaASTNode node : block.getContent()) {
+			if (node instanceof Block) {
+				final List<Statement> statements = ((Block) node).getStatements();
+				if (!statements.isEmpty() && statements.get(0).sourceStart() <= start && end <= statements.get(statements.size() - 1).sourceEnd())
+					return (Block) node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return offset of the last occurrence of local variables of given block declared in given range, -1 if there is none
+	 */
+	private static int findLastUse(final Block block, final int start, final int end) {
+		int lastUse = -1;
+		for (final LocalVar localVar : block.getLocalVars()) {
+			final Item var = localVar.getVar();
+			if (isInRange(var.sourceStart(), start, end)) {
+				for (final Identifier occurrence : var.getOccurrences())
+					lastUse = Math.max(lastUse, occurrence.sourceStart());
+			}
+		}
+		return lastUse;
+	}
+
+	/**
+	 * Local variables visible from given offset of the innermost block: the ones declared before the statement holding it in each enclosing
+	 * block, inner declarations hiding outer ones.
+	 */
+	private static Map<String, Item> findVisibleDefinitions(final List<Block> blocks, final int offset) {
+		final Map<String, Item> definitions = new HashMap<String, Item>();
+		for (final Block block : blocks) {
+			int limit = offset;
+			for (final Statement statement : block.getStatements()) {
+				if (statement.sourceStart() <= offset && offset < statement.sourceEnd())
+					limit = statement.sourceStart();
+			}
+			final Map<String, Item> blockDefinitions = new HashMap<String, Item>();
+			for (final LocalVar localVar : block.getLocalVars()) {
+				final Item var = localVar.getVar();
+				final Item known = blockDefinitions.get(var.getName());
+				if (var.sourceStart() < limit && (known == null || known.sourceStart() < var.sourceStart()))
+					blockDefinitions.put(var.getName(), var);
+			}
+			definitions.putAll(blockDefinitions);
+		}
+		return definitions;
+	}
+
+	/**
+	 * Map chunk items unbound in chunk to definitions of the file. Definitions by assignment are only accepted for local variables, as they would
+	 * change global ones.
+	 */
+	private static boolean bind(final Collection<Item> items, final boolean assigned, final Map<String, Item> visibleDefinitions,
+			final Map<String, Item> outerDefinitions, final Map<Item, Item> bindings) {
+		for (final Item item : items) {
+			final Item outerDefinition = outerDefinitions.get(item.getName());
+			Item definition = visibleDefinitions.get(item.getName());
+			if (definition == null)
+				definition = outerDefinition;
+			else if (outerDefinition != null && outerDefinition != definition)
+				return false;
+			if (definition == null || assigned && !(definition.getParent() instanceof Block))
+				return false;
+			bindings.put(item, definition);
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> when an element of the API, such as a global variable or a field of a type, is defined in given range
+	 */
+	private static boolean overlapsAPI(final LuaFileAPI api, final int start, final int end) {
+		for (final Item global : api.getGlobalvars().values()) {
+			if (overlaps(global, start, end))
+				return true;
+		}
+		for (final TypeDef type : api.getTypes().values()) {
+			if (overlaps(type, start, end))
+				return true;
+			if (type instanceof RecordTypeDef) {
+				for (final Item field : ((RecordTypeDef) type).getFields().values()) {
+					if (overlaps(field, start, end))
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean overlaps(final LuaASTNode node, final int start, final int end) {
+		return node.sourceStart() < end && node.sourceEnd() > start;
+	}
+
+	private static boolean isFirstSeenIn(final Item item, final int start, final int end) {
+		return !item.getOccurrences().isEmpty() && isInRange(item.getOccurrences().get(0).sourceStart(), start, end);
+	}
+
+	private static boolean isInRange(final int offset, final int start, final int end) {
+		return offset >= start && offset < end;
+	}
+
+	private static boolean isBlank(final String text, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			if (!Character.isWhitespace(text.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Removes elements of a set from a list, nodes are compared by identity as their equality only depends on offsets.
+	 */
+	private static <T> void removeAll(final List<? extends T> list, final Set<T> removed) {
+		for (final Iterator<? extends T> iterator = list.iterator(); iterator.hasNext();) {
+			if (removed.contains(iterator.next()))
+				iterator.remove();
+		}
+	}
+
+	private static <T> Set<T> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+	}
+
+	/**
+	 * Collects identifiers and items of local variables of nodes.
+	 */
+	private static class BodyVisitor extends ASTVisitor {
+		private final List<Identifier> identifiers = new ArrayList<Identifier>();
+		private final Set<Item> localItems = newIdentitySet();
+
+		@Override
+		public boolean visitGeneral(final ASTNode node) throws Exception {
+			if (node instanceof Identifier)
+				identifiers.add((Identifier) node);
+			else if (node instanceof LocalVar)
+				localItems.add(((LocalVar) node).getVar());
+			return true;
+		}
+	}
+
+	/**
+	 * Shifts offsets in a range, each node once. Statements of blocks are shifted with them.
+	 */
+	private static class ShiftVisitor extends ASTVisitor {
+		private final int from;
+		private final int to;
+		private final int delta;
+		private final Set<ASTNode> shifted = newIdentitySet();
+
+		/**
+		 * @param from
+		 *            first offset to shift
+		 * @param to
+		 *            last offset to shift, greater ones are irrelevant offsets, see {@link EncodingVisitor}
+		 */
+		public ShiftVisitor(final int from, final int to, final int delta) {
+			this.from = from;
+			this.to = to;
+			this.delta = delta;
+		}
+
+		@Override
+		public boolean visitGeneral(final ASTNode node) throws Exception {
+			if (!(node instanceof LuaASTNode))
+				return true;
+			if (!shifted.add(node))
+				return false;
+			final LuaASTNode luaNode = (LuaASTNode) node;
+			shift(luaNode);
+			if (luaNode instanceof LocalVar) {
+				final LocalVar localVar = (LocalVar) luaNode;
+				localVar.setScopeMinOffset(shift(localVar.getScopeMinOffset()));
+				localVar.setScopeMaxOffset(shift(localVar.getScopeMaxOffset()));
+			} else if (luaNode instanceof Block) {
+				for (final Statement statement : ((Block) luaNode).getStatements())
+					shift(statement);
+			}
+			return true;
+		}
+
+		private void shift(final LuaASTNode node) {
+			node.setStart(shift(node.sourceStart()));
+			node.setEnd(shift(node.sourceEnd()));
+		}
+
+		private int shift(final int offset) {
+			return offset >= from && offset <= to ? offset + delta : offset;
+		}
+	}
+}
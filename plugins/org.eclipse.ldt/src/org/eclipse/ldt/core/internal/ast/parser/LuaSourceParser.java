@@ -10,12 +10,13 @@
  *******************************************************************************/
 package org.eclipse.ldt.core.internal.ast.parser;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Hashtable;
 import java.util.Map;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.dltk.ast.ASTNode;
 import org.eclipse.dltk.ast.parser.AbstractSourceParser;
 import org.eclipse.dltk.ast.parser.IModuleDeclaration;
@@ -28,13 +29,18 @@ import org.eclipse.dltk.core.IElementChangedListener;
 import org.eclipse.dltk.core.IModelElement;
 import org.eclipse.dltk.core.IModelElementDelta;
 import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.ldt.core.LuaUtils;
 import org.eclipse.ldt.core.grammar.IGrammar;
 import org.eclipse.ldt.core.grammar.ILuaSourceValidator;
 import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
+import org.eclipse.ldt.core.internal.PreferenceInitializer;
+import org.eclipse.ldt.core.internal.ast.models.LuaASTUtils;
 import org.eclipse.ldt.core.internal.ast.models.LuaDLTKModelUtils;
+import org.eclipse.ldt.core.internal.ast.models.ModuleDependencyGraph;
 import org.eclipse.ldt.core.internal.ast.models.api.LuaFileAPI;
 import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
 import org.eclipse.ldt.core.internal.ast.models.file.LuaInternalContent;
@@ -48,35 +54,47 @@ import org.eclipse.osgi.util.NLS;
  */
 public class LuaSourceParser extends AbstractSourceParser {
 
-	private static ModelsBuilderLuaModule astBuilder = new ModelsBuilderLuaModule();
+	// Lazily created as its size is read from preferences
+	private static ModelsBuilderLuaModulePool astBuilders;
 
 	// BEGIN CACHE MANAGEMENT
 	// TODO DLTK has already a cache system but it can be used to keep the last valid AST.
 	// so we have to duplicate the cache system.
 	// Ideally, the parser should manage file with syntax errors..
-	private static Map<IModelElement, IModuleDeclaration> cache = new Hashtable<IModelElement, IModuleDeclaration>();
+
+	// Bounded, as ASTs of every module ever parsed would be kept otherwise
+	private static final class CacheHolder {
+		// Lazily created as its budget is read from preferences
+		private static final BoundedASTCache<IModelElement> CACHE = BoundedASTCache.createFromPreferences();
+	}
+
+	/** Rough ratio of the heap used by an AST to the length of its source, in bytes per character */
+	private static final int AST_BYTES_PER_SOURCE_CHARACTER = 40;
+
 	private static IElementChangedListener changedListener = new IElementChangedListener() {
 		public void elementChanged(ElementChangedEvent event) {
-			synchronized (LuaSourceParser.class) {
-				IModelElementDelta delta = event.getDelta();
-				processDelta(delta);
-			}
+			IModelElementDelta delta = event.getDelta();
+			processDelta(delta);
 		}
 
 		private void processDelta(IModelElementDelta delta) {
 			IModelElement element = delta.getElement();
 			if (element.getElementType() == IModelElement.SOURCE_MODULE) {
 				if (delta.getKind() == IModelElementDelta.REMOVED) {
-					cache.remove(element);
+					getCache().remove(element);
+					reparseBases.remove(element);
+					LuaASTUtils.getTypeResolutionCache().invalidate((ISourceModule) element);
 				} else if (delta.getKind() == IModelElementDelta.CHANGED && delta.getFlags() == IModelElementDelta.F_PRIMARY_WORKING_COPY) {
-					cache.remove(element);
+					getCache().remove(element);
+					reparseBases.remove(element);
 				}
 			}
 			if (delta.getFlags() == IModelElementDelta.F_REMOVED_FROM_BUILDPATH) {
 				if (delta.getAffectedChildren().length == 0) {
-					for (IModelElement sourcemodule : new ArrayList<IModelElement>(cache.keySet())) {
+					for (IModelElement sourcemodule : getCache().keys()) {
 						if (LuaDLTKModelUtils.isAncestor(sourcemodule, element)) {
-							cache.remove(sourcemodule);
+							getCache().remove(sourcemodule);
+							reparseBases.remove(sourcemodule);
 						}
 					}
 				}
@@ -94,11 +112,47 @@ public class LuaSourceParser extends AbstractSourceParser {
 		DLTKCore.addElementChangedListener(changedListener);
 	}
 
+	// Last valid AST of working copies with their source, edited statements are reparsed from them
+	private static Map<IModelElement, ReparseBase> reparseBases = new Hashtable<IModelElement, ReparseBase>();
+
+	private static final class ReparseBase {
+		private final String source;
+		private final LuaSourceRoot module;
+
+		private ReparseBase(final String source, final LuaSourceRoot module) {
+			this.source = source;
+			this.module = module;
+		}
+	}
+
 	// END CACHE MANAGEMENT
 
 	public LuaSourceParser() {
 	}
 
+	/**
+	 * @return the cache of last valid ASTs of modules, used when a module is on error
+	 */
+	public static BoundedASTCache<IModelElement> getCache() {
+		return CacheHolder.CACHE;
+	}
+
+	private static synchronized ModelsBuilderLuaModulePool getASTBuilders() {
+		if (astBuilders == null)
+			astBuilders = ModelsBuilderLuaModulePool.createFromPreferences();
+		return astBuilders;
+	}
+
+	/**
+	 * Close the Lua VMs of models builders. Parses still running close theirs when they are done.
+	 */
+	public static synchronized void shutdown() {
+		if (astBuilders != null) {
+			astBuilders.dispose();
+			astBuilders = null;
+		}
+	}
+
 	/**
 	 * Generate DLTK AST straight from Lua
 	 * 
@@ -109,100 +163,217 @@ public class LuaSourceParser extends AbstractSourceParser {
 	 */
 	@Override
 	public IModuleDeclaration parse(IModuleSource input, IProblemReporter reporter) {
-		String source = input.getSourceContents();
+		final String rawSource = input.getSourceContents();
+		String source = rawSource;
 		final String moduleName = LuaUtils.getModuleFullName(input);
 		LuaSourceRoot module = new LuaSourceRoot(source.length());
 		final OffsetFixer fixer = new OffsetFixer(source);
 
-		synchronized (LuaSourceParser.class) {
-			try {
-				// Remove Byte Order Mark :
-				if (source.startsWith("\ufeff")) { //$NON-NLS-1$
-					source = source.substring(1);
-				}
+		try {
+			// Remove Byte Order Mark :
+			if (source.startsWith("\ufeff")) { //$NON-NLS-1$
+				source = source.substring(1);
+			}
 
-				// Valid source code
-				IGrammar grammar = getGrammar(getProject(input));
-				ILuaSourceValidator sourceValidator = null;
-				if (grammar != null) {
-					sourceValidator = grammar.getValidator();
-				}
-				if (sourceValidator == null) {
-					Activator.logWarning(NLS.bind("No validator found for input {0}.", input.getFileName())); //$NON-NLS-1$
-					module.setProblem(1, 1, 0, 0, "No validator have have been found for this file."); //$NON-NLS-1$
-				} else {
-					boolean valid = sourceValidator.valid(source);
-					String cleanedSource = sourceValidator.getCleanedSource();
-					if (!valid)
-						module.setProblem(sourceValidator.getLineIndex(), -1, -1, -1, sourceValidator.getErrorMessage());
+			// Reparse only edited statements of a working copy when possible
+			final IGrammar grammar = getGrammar(getProject(input));
+			final LuaSourceRoot reparsed = reparse(input, rawSource, grammar);
+			if (reparsed != null) {
+				module = reparsed;
+			} else {
+				// Use models built by a previous parse of the very same source, their offsets are already fixed
+				final PersistentASTCache persistentCache = grammar != null ? PersistentASTCache.getDefault() : null;
+				if (persistentCache == null || !persistentCache.load(rawSource, moduleName, grammar.getName(), module)) {
+
+					// Valid source code
+					ILuaSourceValidator sourceValidator = null;
+					if (grammar != null) {
+						sourceValidator = grammar.getValidator();
+					}
+					if (sourceValidator == null) {
+						Activator.logWarning(NLS.bind("No validator found for input {0}.", input.getFileName())); //$NON-NLS-1$
+						module.setProblem(1, 1, 0, 0, "No validator have have been found for this file."); //$NON-NLS-1$
+					} else {
+						boolean valid = sourceValidator.valid(source);
+						String cleanedSource = sourceValidator.getCleanedSource();
+						if (!valid)
+							module.setProblem(sourceValidator.getLineIndex(), -1, -1, -1, sourceValidator.getErrorMessage());
+
+						// Build AST, with a models builder of our own so that other parses can run concurrently
+						if (cleanedSource != null)
+							buildModels(cleanedSource, moduleName, module, grammar.getName());
 
-					// Build AST
-					if (cleanedSource != null)
-						astBuilder.buildAST(cleanedSource, moduleName, module, grammar.getName());
+						// Fix AST
+						module.traverse(new EncodingVisitor(fixer));
 
-					// Fix AST
-					module.traverse(new EncodingVisitor(fixer));
+						// Keep valid models of saved files for next sessions
+						if (valid && !module.hasError() && persistentCache != null && isPersistable(input))
+							persistentCache.store(rawSource, moduleName, grammar.getName(), module);
+					}
 				}
 			}
-			// CHECKSTYLE:OFF
-			catch (final Exception e) {
-				// CHECKSTYLE:ON
-				Activator.logWarning(NLS.bind("Unable to parse file {0}.", input.getFileName()), e); //$NON-NLS-1$
-				// the module is probably on error.
-				module.setProblem(1, 1, 0, 0, "This file probably contains a syntax error."); //$NON-NLS-1$
-			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			module.setProblem(1, 1, 0, 0, "Parsing has been interrupted."); //$NON-NLS-1$
+		}
+		// CHECKSTYLE:OFF
+		catch (final Exception e) {
+			// CHECKSTYLE:ON
+			Activator.logWarning(NLS.bind("Unable to parse file {0}.", input.getFileName()), e); //$NON-NLS-1$
+			// the module is probably on error.
+			module.setProblem(1, 1, 0, 0, "This file probably contains a syntax error."); //$NON-NLS-1$
+		}
 
-			// Deal with errors on Lua side
-			if (module != null) {
-				// If module contains a syntax error
-				if (module.hasError()) {
-					// add error to reporter
-					final DefaultProblem problem = module.getProblem();
-					problem.setOriginatingFileName(input.getFileName());
-					reporter.reportProblem(problem);
-
-					// -- TODO ECLIPSE 411238
-					// -- we must calculate offset because DLTK does not support 'line' positioning
-					if (problem.getSourceEnd() < 0) {
-						try {
-							final int line = problem.getSourceLineNumber();
-							final Document document = new Document(source);
-							int endLineOffset = document.getLineOffset(line) + document.getLineLength(line) - 1;
-							problem.setSourceStart(fixer.getCharacterPosition(problem.getSourceStart()));
-							problem.setSourceEnd(endLineOffset);
-						} catch (BadLocationException e) {
-							Activator.logWarning("Unable to retrive error offset", e); //$NON-NLS-1$
-						}
-					} else {
-						// Handle encoding shifts
+		// Deal with errors on Lua side
+		if (module != null) {
+			// If module contains a syntax error
+			if (module.hasError()) {
+				// add error to reporter
+				final DefaultProblem problem = module.getProblem();
+				problem.setOriginatingFileName(input.getFileName());
+				reporter.reportProblem(problem);
+
+				// -- TODO ECLIPSE 411238
+				// -- we must calculate offset because DLTK does not support 'line' positioning
+				if (problem.getSourceEnd() < 0) {
+					try {
+						final int line = problem.getSourceLineNumber();
+						final Document document = new Document(source);
+						int endLineOffset = document.getLineOffset(line) + document.getLineLength(line) - 1;
 						problem.setSourceStart(fixer.getCharacterPosition(problem.getSourceStart()));
-						problem.setSourceEnd(fixer.getCharacterPosition(problem.getSourceEnd()));
+						problem.setSourceEnd(endLineOffset);
+					} catch (BadLocationException e) {
+						Activator.logWarning("Unable to retrive error offset", e); //$NON-NLS-1$
 					}
+				} else {
+					// Handle encoding shifts
+					problem.setSourceStart(fixer.getCharacterPosition(problem.getSourceStart()));
+					problem.setSourceEnd(fixer.getCharacterPosition(problem.getSourceEnd()));
+				}
 
-					// use AST in cache, we don't have a "well built" module (module with a fileapi and an internalcontent)
-					if (input.getModelElement() != null) {
-						if (module.getFileapi() == null || module.getInternalContent() == null) {
-							final LuaSourceRoot cached = (LuaSourceRoot) cache.get(input.getModelElement());
-							if (cached != null) {
-								cached.setError(true);
-								return cached;
-							} else {
-								module.setLuaFileApi(new LuaFileAPI());
-								module.setInternalContent(new LuaInternalContent());
-							}
+				// use AST in cache, we don't have a "well built" module (module with a fileapi and an internalcontent)
+				if (input.getModelElement() != null) {
+					if (module.getFileapi() == null || module.getInternalContent() == null) {
+						final LuaSourceRoot cached = (LuaSourceRoot) getCache().get(input.getModelElement());
+						if (cached != null) {
+							cached.setError(true);
+							return cached;
 						} else {
-							cache.put(input.getModelElement(), module);
+							module.setLuaFileApi(new LuaFileAPI());
+							module.setInternalContent(new LuaInternalContent());
 						}
+					} else {
+						getCache().put(input.getModelElement(), module, estimateWeight(rawSource));
 					}
-				} else if (input.getModelElement() != null) {
-					// if there are no error, put the new AST in cache
-					cache.put(input.getModelElement(), module);
 				}
+			} else if (input.getModelElement() != null) {
+				// if there are no error, put the new AST in cache
+				getCache().put(input.getModelElement(), module, estimateWeight(rawSource));
+				if (isWorkingCopy(input))
+					reparseBases.put(input.getModelElement(), new ReparseBase(rawSource, module));
 			}
 		}
+		if (input.getModelElement() instanceof ISourceModule) {
+			final ISourceModule sourceModule = (ISourceModule) input.getModelElement();
+			// Types resolved from previous models are stale
+			LuaASTUtils.getTypeResolutionCache().invalidate(sourceModule);
+			// Keep dependencies of last valid models
+			if (module != null && !module.hasError())
+				ModuleDependencyGraph.getDefault().update(sourceModule, module);
+		}
 		return module;
 	}
 
+	/**
+	 * Build models of a working copy from its last valid models, reparsing only the edited statements.
+	 *
+	 * @param source
+	 *            raw source, with its byte order mark
+	 * @return <code>null</code> when source has to be fully parsed
+	 */
+	private LuaSourceRoot reparse(final IModuleSource input, final String source, final IGrammar grammar)
+			throws InterruptedException {
+		if (grammar == null || !isWorkingCopy(input) || !isIncrementalReparse())
+			return null;
+
+		// Only edited statements are validated, the rest of the source is the one of valid previous models
+		final ILuaSourceValidator sourceValidator = grammar.getValidator();
+		final ReparseBase base = reparseBases.get(input.getModelElement());
+		if (sourceValidator == null || base == null)
+			return null;
+
+		final IncrementalReparser reparser = new IncrementalReparser() {
+			@Override
+			protected boolean isValid(final String code) {
+				return sourceValidator.valid(code);
+			}
+
+			@Override
+			protected void parseChunk(final String chunk, final LuaSourceRoot root) throws Exception {
+				// No module name, a chunk does not define a module
+				buildModels(chunk, null, root, grammar.getName());
+			}
+		};
+		try {
+			return reparser.reparse(base.source, base.module, source);
+		} catch (final InterruptedException e) {
+			throw e;
+		}
+		// CHECKSTYLE:OFF
+		catch (final Exception e) {
+			// CHECKSTYLE:ON
+			Activator.logWarning(NLS.bind("Unable to reparse file {0} incrementally.", input.getFileName()), e); //$NON-NLS-1$
+			return null;
+		}
+	}
+
+	private static long estimateWeight(final String source) {
+		return (long) source.length() * AST_BYTES_PER_SOURCE_CHARACTER;
+	}
+
+	private static void buildModels(final String source, final String moduleName, final LuaSourceRoot module, final String grammarName)
+			throws InterruptedException, IOException {
+		final ModelsBuilderLuaModulePool builders = getASTBuilders();
+		final ModelsBuilderLuaModule astBuilder = builders.acquire();
+		try {
+			if (isBulkModelsTransfer())
+				astBuilder.buildASTInBulk(source, moduleName, module, grammarName);
+			else
+				astBuilder.buildAST(source, moduleName, module, grammarName);
+		} finally {
+			builders.release(astBuilder);
+		}
+	}
+
+	/**
+	 * Edited statements are reparsed on their own, unless full parses are asked for in preferences.
+	 */
+	private static boolean isIncrementalReparse() {
+		return Platform.getPreferencesService().getBoolean(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
+				PreferenceInitializer.PARSER_INCREMENTAL_REPARSE, true, null);
+	}
+
+	/**
+	 * Models are transferred from Lua in a single binary buffer, unless node by node transfer is asked for in preferences.
+	 */
+	private static boolean isBulkModelsTransfer() {
+		return Platform.getPreferencesService().getBoolean(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
+				PreferenceInitializer.PARSER_BULK_MODELS_TRANSFER, true, null);
+	}
+
+	/**
+	 * Only saved content is worth keeping across sessions, working copies change on each keystroke.
+	 */
+	private boolean isPersistable(IModuleSource input) {
+		IModelElement modelElement = input.getModelElement();
+		return modelElement instanceof ISourceModule && !((ISourceModule) modelElement).isWorkingCopy();
+	}
+
+	private static boolean isWorkingCopy(IModuleSource input) {
+		IModelElement modelElement = input.getModelElement();
+		return modelElement instanceof ISourceModule && ((ISourceModule) modelElement).isWorkingCopy();
+	}
+
 	private IGrammar getGrammar(IProject project) throws CoreException {
 		// Get grammar
 		IGrammar grammar = LuaGrammarManager.getDefaultGrammarFor(project);
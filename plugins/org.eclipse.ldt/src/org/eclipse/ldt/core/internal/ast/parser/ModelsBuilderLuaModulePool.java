@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.parser;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
+import org.eclipse.ldt.core.internal.PreferenceInitializer;
+
+/**
+ * Bounded pool of {@link ModelsBuilderLuaModule}s.
+ * <p>
+ * Each {@link ModelsBuilderLuaModule} owns its own Lua VM, so a module checked out from this pool can build an AST without any interference with
+ * concurrent parses. Modules are created lazily, fully loaded, up to the size defined by {@link PreferenceInitializer#PARSER_POOL_SIZE}. When all
+ * modules are in use, callers wait for one to be released.
+ * </p>
+ * <p>
+ * Once the pool is disposed, idle modules are disposed, and modules in use as soon as they are released. A disposed pool still lends modules,
+ * disposed at once when they are released.
+ * </p>
+ */
+public class ModelsBuilderLuaModulePool {
+
+	private final int maxSize;
+	private final BlockingQueue<ModelsBuilderLuaModule> idleModules;
+	private int createdModules = 0;
+	private volatile boolean disposed;
+
+	/** Interval to check whether the pool was disposed while waiting for a module, in milliseconds */
+	private static final long DISPOSAL_POLLING_INTERVAL = 100;
+
+	public ModelsBuilderLuaModulePool(final int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+		this.idleModules = new LinkedBlockingQueue<ModelsBuilderLuaModule>(this.maxSize);
+	}
+
+	/**
+	 * Create a pool sized with the value of the {@link PreferenceInitializer#PARSER_POOL_SIZE} preference.
+	 */
+	public static ModelsBuilderLuaModulePool createFromPreferences() {
+		final int size = Platform.getPreferencesService().getInt(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
+				PreferenceInitializer.PARSER_POOL_SIZE, PreferenceInitializer.getDefaultParserPoolSize(), null);
+		return new ModelsBuilderLuaModulePool(size);
+	}
+
+	/**
+	 * Check out a loaded module, the caller must give it back with {@link #release(ModelsBuilderLuaModule)}.
+	 */
+	public ModelsBuilderLuaModule acquire() throws InterruptedException {
+		if (disposed)
+			return newLoadedModule();
+
+		// Prefer an idle module
+		final ModelsBuilderLuaModule idle = idleModules.poll();
+		if (idle != null)
+			return idle;
+
+		// Create a new one if the pool is not full yet
+		final ModelsBuilderLuaModule created = createModuleIfAllowed();
+		if (created != null)
+			return created;
+
+		// Wait for another parse to release its module
+		ModelsBuilderLuaModule released;
+		while ((released = idleModules.poll(DISPOSAL_POLLING_INTERVAL, TimeUnit.MILLISECONDS)) == null) {
+			// Modules of a disposed pool are not released anymore
+			if (disposed)
+				return newLoadedModule();
+		}
+		return released;
+	}
+
+	/**
+	 * Give back a module previously returned by {@link #acquire()}.
+	 */
+	public void release(final ModelsBuilderLuaModule module) {
+		if (module == null)
+			return;
+		if (disposed) {
+			module.dispose();
+			return;
+		}
+		idleModules.offer(module);
+		// Pool may have been disposed before this module was offered
+		if (disposed)
+			disposeIdleModules();
+	}
+
+	/**
+	 * Dispose idle modules, and modules in use as soon as they are released.
+	 */
+	public void dispose() {
+		disposed = true;
+		disposeIdleModules();
+	}
+
+	public boolean isDisposed() {
+		return disposed;
+	}
+
+	private void disposeIdleModules() {
+		ModelsBuilderLuaModule module;
+		while ((module = idleModules.poll()) != null)
+			module.dispose();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/*
+	 * Module creation is serialized: loading a module compiles Metalua files on disk, which must not be done concurrently.
+	 */
+	private synchronized ModelsBuilderLuaModule createModuleIfAllowed() {
+		if (createdModules >= maxSize)
+			return null;
+		final ModelsBuilderLuaModule module = newLoadedModule();
+		createdModules++;
+		return module;
+	}
+
+	private ModelsBuilderLuaModule newLoadedModule() {
+		final ModelsBuilderLuaModule module = newModule();
+		module.load();
+		return module;
+	}
+
+	/**
+	 * @return a new module, not loaded yet
+	 */
+	protected ModelsBuilderLuaModule newModule() {
+		return new ModelsBuilderLuaModule();
+	}
+}
@@ -10,14 +10,8 @@
  *******************************************************************************/
 package org.eclipse.ldt.core.internal.ast.parser;
 
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
-import java.util.Map.Entry;
-import java.util.TreeMap;
-
-import org.apache.commons.io.ByteOrderMark;
+import java.util.Arrays;
 
 /**
  * Lua deals with characters like C does: 8 bit clean. So does Metalua. Eclipse components such as editors handle several {@link Charset}s. Here, we
@@ -26,80 +20,109 @@ import org.apache.commons.io.ByteOrderMark;
  */
 public class OffsetFixer {
 
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Byte positions (Lua string offsets) following characters encoded with several bytes, in ascending order
+	 */
+	private int[] bytePositions;
+
 	/**
-	 * Key: byte position (Lua string offset)<br/>
-	 * Value: Difference between byte positions and character positions
+	 * Difference between byte positions and character positions, from byte position at the same index
 	 */
-	private final TreeMap<Integer, Integer> cache;
+	private int[] deltas;
+
+	/** Number of byte positions, when there is none source is pure ASCII and positions are the same */
+	private int size = 0;
+
 	private final int charactersLength;
 	private boolean hasBOM = false;
 	private int bomShift = 0;
 
 	public OffsetFixer(final String src) {
-		/*
-		 * Fetch decoder for charset
-		 * 
-		 * The JNI uses modified UTF-8 strings to represent various string types. Modified UTF-8 strings are the same as those used by the Java VM.
-		 * Modified UTF-8 strings are encoded so that character sequences that contain only non-null ASCII characters can be represented using only
-		 * one byte per character, but all Unicode characters can be represented.
-		 */
-		final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder(); //$NON-NLS-1$
+		charactersLength = src.length();
 
 		/*
-		 * Manage BOM : http://stackoverflow.com/a/18275066
+		 * Manage BOM : http://stackoverflow.com/a/18275066, it is removed from source given to Lua
 		 */
+		int start = 0;
 		if (src.startsWith("\ufeff")) { //$NON-NLS-1$
 			hasBOM = true;
-			bomShift = ByteOrderMark.UTF_8.length();
+			bomShift = 1;
+			start = 1;
 		}
 
-		/*
-		 * Build cache
-		 */
-		final CharBuffer source = CharBuffer.wrap(src);
-		cache = new TreeMap<Integer, Integer>();
-		charactersLength = source.length();
-
-		final ByteBuffer byteBuffer = ByteBuffer.allocate(Math.round(encoder.maxBytesPerChar()));
-		final int averageBytesPerChar = Math.round(encoder.averageBytesPerChar());
-
-		// Loop over all characters and check if they are encoded with more than one byte
+		// Record positions of characters encoded with more than one byte, in a single pass
 		int bytePosition = 0;
 		int delta = 0;
-		source.limit(0);
-		while (source.position() < charactersLength) {
-
-			// Read next character
-			source.limit(source.limit() + 1);
-			encoder.encode(source, byteBuffer, false);
-
-			// Character byte length is longer than a regular character, it is valuable to cache
-			int bytesForCurrentChar = byteBuffer.position();
+		for (int i = start; i < charactersLength; i++) {
+			final int bytesForCurrentChar = getByteLength(src.charAt(i));
 			bytePosition += bytesForCurrentChar;
-			if (bytesForCurrentChar > averageBytesPerChar) {
-
-				// Compute difference between encoding character and 8 bit clean
-				delta += bytesForCurrentChar - averageBytesPerChar;
-
-				// Cache byte position and difference with char position
-				cache.put(bytePosition, delta);
+			if (bytesForCurrentChar > 1) {
+				delta += bytesForCurrentChar - 1;
+				add(bytePosition, delta);
 			}
-			byteBuffer.clear();
 		}
 	}
 
+	private void add(final int bytePosition, final int delta) {
+		if (bytePositions == null) {
+			bytePositions = new int[INITIAL_CAPACITY];
+			deltas = new int[INITIAL_CAPACITY];
+		} else if (size == bytePositions.length) {
+			bytePositions = Arrays.copyOf(bytePositions, size * 2);
+			deltas = Arrays.copyOf(deltas, size * 2);
+		}
+		bytePositions[size] = bytePosition;
+		deltas[size] = delta;
+		size++;
+	}
+
+	/**
+	 * The JNI uses modified UTF-8 strings to represent various string types. Modified UTF-8 strings are the same as those used by the Java VM.
+	 * Modified UTF-8 strings are encoded so that character sequences that contain only non-null ASCII characters can be represented using only one
+	 * byte per character, but all Unicode characters can be represented. Null characters and each half of surrogate pairs are encoded on their own.
+	 *
+	 * @return number of bytes of given character in strings given to Lua
+	 */
+	public static int getByteLength(final char c) {
+		if (c == 0)
+			return 2;
+		if (c < 0x80)
+			return 1;
+		if (c < 0x800)
+			return 2;
+		return 3;
+	}
+
+	/**
+	 * @return number of bytes of characters of given string, from start included to end excluded, in strings given to Lua
+	 */
+	public static int getByteLength(final String string, final int start, final int end) {
+		int length = 0;
+		for (int i = start; i < end; i++)
+			length += getByteLength(string.charAt(i));
+		return length;
+	}
+
 	public int getCharacterPosition(final int bytePosition) {
 
-		// Compute difference from ceiling byte position
-		final Entry<Integer, Integer> floorEntry = cache.floorEntry(bytePosition);
-		if (floorEntry != null)
-			return bytePosition - floorEntry.getValue() + bomShift;
+		// Pure ASCII source
+		if (size == 0)
+			return bytePosition + bomShift;
+
+		// Compute difference from floor byte position
+		int index = Arrays.binarySearch(bytePositions, 0, size, bytePosition);
+		if (index < 0)
+			index = -index - 2;
+		if (index >= 0)
+			return bytePosition - deltas[index] + bomShift;
 
 		// No difference associated
 		return bytePosition + bomShift;
 	}
 
-	/** @return Length of {@link CharBuffer} from given {@link String}. */
+	/** @return Length of given {@link String}, in characters. */
 	public int getCharactersLength() {
 		return charactersLength;
 	}
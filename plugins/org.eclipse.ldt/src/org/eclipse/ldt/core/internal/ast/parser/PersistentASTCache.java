@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.ast.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.ast.models.ModelDeserializer;
+import org.eclipse.ldt.core.internal.ast.models.ModelSerializer;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Disk cache of parsed {@link LuaSourceRoot}s, stored in the plug-in state location.
+ * <p>
+ * An entry is keyed by the hash of the source, the name of its module, the grammar used to parse it and the version of the models builder (the
+ * bundle version, the {@link ModelSerializer#FORMAT_VERSION} and the checksum of the scripts of the models builder, which change without the bundle
+ * version in development builds). The module name is part of the key as models depend on it: it names the file API,
+ * and module types and returns. So an unchanged file is never parsed again across sessions, and any change of source, module name, grammar or
+ * builder just leads to another entry. Entries which were not used for a while are removed at startup.
+ * </p>
+ */
+public class PersistentASTCache {
+
+	private static final String CACHE_FOLDER = "astcache"; //$NON-NLS-1$
+	private static final String ENTRY_EXTENSION = ".ast"; //$NON-NLS-1$
+	private static final String TEMPORARY_EXTENSION = ".tmp"; //$NON-NLS-1$
+	private static final int MAGIC = 0x4C415354; // "LAST"
+	private static final long UNUSED_ENTRY_LIFETIME = TimeUnit.DAYS.toMillis(30);
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private static PersistentASTCache instance;
+
+	/** Whether the version of models builders could not be computed, so that the cache is not used in this session */
+	private static boolean unavailable;
+
+	private final File folder;
+	private final String buildersVersion;
+
+	/**
+	 * A cache storing its entries in the given folder, for models of the given builders version.
+	 */
+	public PersistentASTCache(final File folder, final String buildersVersion) {
+		this.folder = folder;
+		this.buildersVersion = buildersVersion;
+	}
+
+	/**
+	 * @return the cache of the org.eclipse.ldt plug-in, or <code>null</code> if the plug-in state location or the scripts of the models builder are
+	 *         not available.
+	 */
+	public static synchronized PersistentASTCache getDefault() {
+		if (instance == null) {
+			final Activator activator = Activator.getDefault();
+			if (activator == null || unavailable)
+				return null;
+			final String scriptsChecksum;
+			try {
+				scriptsChecksum = new ModelsBuilderLuaModule().getSourcesChecksum();
+			} catch (final IOException e) {
+				Activator.logWarning("Unable to compute checksum of models builder scripts, ASTs will not be cached on disk.", e); //$NON-NLS-1$
+				unavailable = true;
+				return null;
+			}
+			final File folder = activator.getStateLocation().append(CACHE_FOLDER).toFile();
+			final String version = activator.getBundle().getVersion().toString() + '/' + ModelSerializer.FORMAT_VERSION + '/' + scriptsChecksum;
+			instance = new PersistentASTCache(folder, version);
+			instance.removeUnusedEntries();
+		}
+		return instance;
+	}
+
+	/**
+	 * Fill the given root with the models cached for this source, if any.
+	 *
+	 * @return <code>true</code> if the root has been filled from the cache
+	 */
+	public boolean load(final String source, final String moduleName, final String grammarName, final LuaSourceRoot root) {
+		final String key = computeKey(source, moduleName, grammarName);
+		if (key == null)
+			return false;
+		final File entry = new File(folder, key + ENTRY_EXTENSION);
+		if (!entry.isFile())
+			return false;
+
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+			if (input.readInt() != MAGIC || !key.equals(input.readUTF()))
+				return false;
+			new ModelDeserializer(input).readSourceRoot(root);
+		} catch (final IOException e) {
+			// Corrupted or truncated entry, it will be overwritten by next store
+			Activator.logWarning(NLS.bind("Unable to read cached AST {0}.", entry.getPath()), e); //$NON-NLS-1$
+			root.setLuaFileApi(null);
+			root.setInternalContent(null);
+			return false;
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+
+		// Keep track of last use, unused entries are removed at startup
+		entry.setLastModified(System.currentTimeMillis());
+		return true;
+	}
+
+	/**
+	 * Store the models of the given root, which must be the result of a successful parse of the given source as the given module.
+	 */
+	public void store(final String source, final String moduleName, final String grammarName, final LuaSourceRoot root) {
+		final String key = computeKey(source, moduleName, grammarName);
+		if (key == null || root.getFileapi() == null || root.getInternalContent() == null)
+			return;
+		if (!folder.isDirectory() && !folder.mkdirs())
+			return;
+
+		// Write in a temporary file first, so that concurrent readers never see a partial entry
+		final File entry = new File(folder, key + ENTRY_EXTENSION);
+		final File temporary = new File(folder, key + '.' + Thread.currentThread().getId() + TEMPORARY_EXTENSION);
+		DataOutputStream output = null;
+		try {
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+			output.writeInt(MAGIC);
+			output.writeUTF(key);
+			new ModelSerializer(output).writeSourceRoot(root);
+			output.close();
+			output = null;
+			if (!temporary.renameTo(entry) && !entry.isFile())
+				Activator.logWarning(NLS.bind("Unable to store cached AST {0}.", entry.getPath())); //$NON-NLS-1$
+		} catch (final IOException e) {
+			Activator.logWarning(NLS.bind("Unable to store cached AST {0}.", entry.getPath()), e); //$NON-NLS-1$
+		} finally {
+			IOUtils.closeQuietly(output);
+			if (temporary.exists())
+				FileUtils.deleteQuietly(temporary);
+		}
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		FileUtils.deleteQuietly(folder);
+	}
+
+	private void removeUnusedEntries() {
+		final File[] entries = folder.listFiles();
+		if (entries == null)
+			return;
+		final long oldestAllowed = System.currentTimeMillis() - UNUSED_ENTRY_LIFETIME;
+		for (final File entry : entries) {
+			if (entry.getName().endsWith(TEMPORARY_EXTENSION) || entry.lastModified() < oldestAllowed)
+				FileUtils.deleteQuietly(entry);
+		}
+	}
+
+	private String computeKey(final String source, final String moduleName, final String grammarName) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			digest.update(source.getBytes(ModelSerializer.UTF8));
+			digest.update((byte) 0);
+			digest.update(String.valueOf(moduleName).getBytes(ModelSerializer.UTF8));
+			digest.update((byte) 0);
+			digest.update(String.valueOf(grammarName).getBytes(ModelSerializer.UTF8));
+			digest.update((byte) 0);
+			digest.update(buildersVersion.getBytes(ModelSerializer.UTF8));
+
+			final byte[] hash = digest.digest();
+			final char[] hex = new char[hash.length * 2];
+			for (int i = 0; i < hash.length; i++) {
+				hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+				hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+			}
+			return new String(hex);
+		} catch (final NoSuchAlgorithmException e) {
+			Activator.logWarning("Unable to compute AST cache key.", e); //$NON-NLS-1$
+			return null;
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.builder;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.dltk.ast.parser.IModuleDeclaration;
+import org.eclipse.dltk.ast.parser.ISourceParser;
+import org.eclipse.dltk.compiler.problem.ProblemCollector;
+import org.eclipse.dltk.core.DLTKLanguageManager;
+import org.eclipse.dltk.core.IScriptFolder;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.SourceParserUtil;
+import org.eclipse.dltk.core.builder.IBuildContext;
+import org.eclipse.dltk.core.builder.IBuildParticipant;
+import org.eclipse.dltk.core.builder.IBuildParticipantExtension;
+import org.eclipse.ldt.core.IProjectSourceVisitor2;
+import org.eclipse.ldt.core.LuaNature;
+import org.eclipse.ldt.core.LuaUtils;
+import org.eclipse.ldt.core.LuaUtils.ProjectFragmentFilter;
+import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
+import org.eclipse.ldt.core.internal.PreferenceInitializer;
+import org.eclipse.ldt.core.internal.ast.models.ModuleDependencyGraph;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Parses modules of a Lua project for the build, and reports their syntax problems.
+ * <p>
+ * DLTK builds modules one at a time. On full builds, all source modules of the project are parsed ahead, concurrently by as many threads as models
+ * builders defined by {@link PreferenceInitializer#PARSER_POOL_SIZE}, modules a module depends on first as far as the
+ * {@link ModuleDependencyGraph} knows them. When DLTK asks for a module, its models and problems are taken from the parse done ahead. Other builds
+ * parse modules when asked, reconcile builds parse the content being edited. Modules another participant already parsed are left as they are.
+ * </p>
+ * <p>
+ * Time spent in each phase is logged at the end of each build when the <code>org.eclipse.ldt/debug/builder</code> debug option is set.
+ * </p>
+ */
+public class LuaParserBuildParticipant implements IBuildParticipant, IBuildParticipantExtension {
+
+	private static final String DEBUG_OPTION = Activator.PLUGIN_ID + "/debug/builder"; //$NON-NLS-1$
+
+	/**
+	 * Models and problems of a module.
+	 */
+	private static final class Parse {
+		private final IModuleDeclaration declaration;
+		private final ProblemCollector problems;
+
+		private Parse(final IModuleDeclaration declaration, final ProblemCollector problems) {
+			this.declaration = declaration;
+			this.problems = problems;
+		}
+	}
+
+	private final IScriptProject project;
+	private final ISourceParser parser;
+
+	/** Parses done ahead of current build, removed once reported */
+	private final Map<ISourceModule, Future<Parse>> parses = new ConcurrentHashMap<ISourceModule, Future<Parse>>();
+	private ExecutorService executor;
+
+	// Timings of current build, in nanoseconds
+	private long buildStart;
+	private long listingTime;
+	private final AtomicLong parsingTime = new AtomicLong();
+	private long waitingTime;
+	private long reportingTime;
+	private int moduleCount;
+
+	public LuaParserBuildParticipant(final IScriptProject project) {
+		this.project = project;
+		this.parser = DLTKLanguageManager.getSourceParser(project.getProject(), LuaNature.ID);
+	}
+
+	@Override
+	public boolean beginBuild(final int buildType) {
+		buildStart = System.nanoTime();
+		listingTime = 0;
+		parsingTime.set(0);
+		waitingTime = 0;
+		reportingTime = 0;
+		moduleCount = 0;
+		if (buildType == IBuildContext.FULL_BUILD)
+			parseAhead();
+		return true;
+	}
+
+	@Override
+	public void build(final IBuildContext context) throws CoreException {
+		// Already parsed by another participant
+		if (context.get(IBuildContext.ATTR_MODULE_DECLARATION) != null)
+			return;
+		final ISourceModule module = context.getSourceModule();
+		if (module == null)
+			return;
+		moduleCount++;
+
+		// Models parsed ahead, or parsed now, from the content being edited on reconcile
+		final long waitStart = System.nanoTime();
+		Parse parse = null;
+		if (context.getBuildType() == IBuildContext.RECONCILE_BUILD) {
+			parse = parse(context);
+		} else {
+			parse = takeParse(module);
+			if (parse == null)
+				parse = parse(module);
+		}
+		final long reportStart = System.nanoTime();
+		waitingTime += reportStart - waitStart;
+
+		parse.problems.copyTo(context.getProblemReporter());
+		context.set(IBuildContext.ATTR_MODULE_DECLARATION, parse.declaration);
+		reportingTime += System.nanoTime() - reportStart;
+	}
+
+	@Override
+	public void endBuild(final IProgressMonitor monitor) {
+		// Modules parsed ahead but not built, as their build is canceled, are in DLTK cache anyway
+		stopParsing();
+		if (isDebugging()) {
+			final String timings = NLS.bind("Lua build of project {0}: {1} modules in {2} ms, listing {3} ms, parsing {4} ms on {5} threads, " //$NON-NLS-1$
+					+ "waiting for parses {6} ms, reporting problems {7} ms.", //$NON-NLS-1$
+					new Object[] { project.getElementName(), moduleCount, toMillis(System.nanoTime() - buildStart), toMillis(listingTime),
+							toMillis(parsingTime.get()), getPoolSize(), toMillis(waitingTime), toMillis(reportingTime) });
+			Activator.log(new Status(IStatus.INFO, Activator.PLUGIN_ID, timings));
+		}
+	}
+
+	private void parseAhead() {
+		final long listingStart = System.nanoTime();
+		final List<ISourceModule> modules = orderByDependencies(listSourceModules());
+		listingTime = System.nanoTime() - listingStart;
+		if (modules.isEmpty())
+			return;
+
+		stopParsing();
+		executor = Executors.newFixedThreadPool(Math.max(1, Math.min(getPoolSize(), modules.size())));
+		for (final ISourceModule module : modules) {
+			parses.put(module, executor.submit(new Callable<Parse>() {
+				@Override
+				public Parse call() throws Exception {
+					return parse(module);
+				}
+			}));
+		}
+	}
+
+	/*
+	 * Running parses are not interrupted: an interrupted parse would leave an AST on error in DLTK cache.
+	 */
+	private void stopParsing() {
+		for (final Future<Parse> parse : parses.values())
+			parse.cancel(false);
+		parses.clear();
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	private Parse takeParse(final ISourceModule module) {
+		final Future<Parse> future = parses.remove(module);
+		if (future == null || future.isCancelled())
+			return null;
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException e) {
+			Activator.logWarning(NLS.bind("Unable to parse module {0}.", module.getElementName()), e.getCause()); //$NON-NLS-1$
+		}
+		return null;
+	}
+
+	private Parse parse(final ISourceModule module) {
+		final long start = System.nanoTime();
+		// Parsing through DLTK fills its AST cache
+		final ProblemCollector problems = new ProblemCollector();
+		final IModuleDeclaration declaration = SourceParserUtil.parse(module, problems);
+		parsingTime.addAndGet(System.nanoTime() - start);
+		return new Parse(declaration, problems);
+	}
+
+	/**
+	 * @return models and problems of the content of given build context, which is not the saved content of its module on reconcile
+	 */
+	private Parse parse(final IBuildContext context) {
+		final long start = System.nanoTime();
+		final ProblemCollector problems = new ProblemCollector();
+		final IModuleDeclaration declaration = parser.parse(context, problems);
+		parsingTime.addAndGet(System.nanoTime() - start);
+		return new Parse(declaration, problems);
+	}
+
+	/**
+	 * @return source modules of the project itself, not of its libraries
+	 */
+	private List<ISourceModule> listSourceModules() {
+		final List<ISourceModule> modules = new ArrayList<ISourceModule>();
+		try {
+			LuaUtils.visitSourceFiles(project, EnumSet.noneOf(ProjectFragmentFilter.class), new IProjectSourceVisitor2() {
+				@Override
+				public void processFile(final ISourceModule sourceModule, final IPath absolutePath, final IPath relativePath, final String charset,
+						final IProgressMonitor monitor) throws CoreException {
+					final IResource resource = sourceModule.getResource();
+					if (resource != null && project.getProject().equals(resource.getProject()))
+						modules.add(sourceModule);
+				}
+
+				@Override
+				public void processDirectory(final IScriptFolder scriptFolder, final IPath absolutePath, final IPath relativePath,
+						final IProgressMonitor monitor) throws CoreException {
+				}
+			}, new NullProgressMonitor());
+		} catch (final CoreException e) {
+			Activator.logWarning(NLS.bind("Unable to list modules of project {0}.", project.getElementName()), e); //$NON-NLS-1$
+		}
+		return modules;
+	}
+
+	/**
+	 * @return given modules, each one after the modules it depends on, except in dependency cycles
+	 */
+	private static List<ISourceModule> orderByDependencies(final List<ISourceModule> modules) {
+		final ModuleDependencyGraph graph = ModuleDependencyGraph.getDefault();
+		final Set<ISourceModule> remaining = new HashSet<ISourceModule>(modules);
+		final Set<ISourceModule> ordered = new LinkedHashSet<ISourceModule>();
+		for (final ISourceModule module : modules)
+			addAfterDependencies(module, graph, remaining, ordered);
+		return new ArrayList<ISourceModule>(ordered);
+	}
+
+	private static void addAfterDependencies(final ISourceModule module, final ModuleDependencyGraph graph, final Set<ISourceModule> remaining,
+			final Set<ISourceModule> ordered) {
+		// Removed before its dependencies are visited, so that cycles end
+		if (!remaining.remove(module))
+			return;
+		for (final ISourceModule dependency : graph.getDependencies(module))
+			addAfterDependencies(dependency, graph, remaining, ordered);
+		ordered.add(module);
+	}
+
+	private static int getPoolSize() {
+		return Platform.getPreferencesService().getInt(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
+				PreferenceInitializer.PARSER_POOL_SIZE, PreferenceInitializer.getDefaultParserPoolSize(), null);
+	}
+
+	private static boolean isDebugging() {
+		return Boolean.parseBoolean(Platform.getDebugOption(DEBUG_OPTION));
+	}
+
+	private static long toMillis(final long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+}
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.builder;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.builder.AbstractBuildParticipantType;
+import org.eclipse.dltk.core.builder.IBuildParticipant;
+
+/**
+ * Creates the participant parsing modules of Lua projects for builds, in place of the generic parser participant of DLTK.
+ */
+public class LuaParserBuildParticipantType extends AbstractBuildParticipantType {
+
+	/**
+	 * @see org.eclipse.dltk.core.builder.AbstractBuildParticipantType#createBuildParticipant(org.eclipse.dltk.core.IScriptProject)
+	 */
+	@Override
+	public IBuildParticipant createBuildParticipant(IScriptProject project) throws CoreException {
+		return new LuaParserBuildParticipant(project);
+	}
+}
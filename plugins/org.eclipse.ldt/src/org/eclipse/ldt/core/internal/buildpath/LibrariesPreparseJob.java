@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.buildpath;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IProjectFragment;
+import org.eclipse.dltk.core.IScriptFolder;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.SourceParserUtil;
+import org.eclipse.ldt.core.IProjectSourceVisitor2;
+import org.eclipse.ldt.core.LuaUtils;
+import org.eclipse.ldt.core.LuaUtils.ProjectFragmentFilter;
+import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
+import org.eclipse.ldt.core.internal.PreferenceInitializer;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Parses modules of execution environment and dependent projects of a Lua project in background, so that their AST are cached before the first
+ * completion or hover needs them.
+ * <p>
+ * Modules are parsed concurrently, by as many threads as models builders defined by {@link PreferenceInitializer#PARSER_POOL_SIZE}. The job is
+ * canceled when its project is closed or deleted.
+ * </p>
+ */
+public class LibrariesPreparseJob extends Job {
+
+	/**
+	 * Cancels jobs of projects which are closed or deleted, registered by {@link Activator} for {@link #PROJECT_CLOSE_EVENTS}.
+	 */
+	public static final IResourceChangeListener PROJECT_CLOSE_LISTENER = new IResourceChangeListener() {
+		@Override
+		public void resourceChanged(final IResourceChangeEvent event) {
+			if (event.getResource() instanceof IProject)
+				Job.getJobManager().cancel(event.getResource());
+		}
+	};
+	public static final int PROJECT_CLOSE_EVENTS = IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE;
+
+	private final IScriptProject project;
+
+	public LibrariesPreparseJob(final IScriptProject project) {
+		super(NLS.bind(Messages.LibrariesPreparseJobName, project.getElementName()));
+		this.project = project;
+		setPriority(Job.LONG);
+	}
+
+	/**
+	 * Schedule parsing of libraries of given project, unless it is disabled in preferences or already scheduled.
+	 */
+	public static void preparse(final IScriptProject project) {
+		if (!Platform.getPreferencesService().getBoolean(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
+				PreferenceInitializer.PARSER_PREPARSE_LIBRARIES, true, null))
+			return;
+		if (Job.getJobManager().find(project.getProject()).length == 0)
+			new LibrariesPreparseJob(project).schedule();
+	}
+
+	/**
+	 * Jobs belong to the {@link IProject} of their Lua project.
+	 */
+	@Override
+	public boolean belongsTo(final Object family) {
+		return project.getProject().equals(family);
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		final SubMonitor subMonitor = SubMonitor.convert(monitor, getName(), 10);
+
+		// List library modules
+		final List<ISourceModule> modules = new ArrayList<ISourceModule>();
+		try {
+			LuaUtils.visitSourceFiles(project, EnumSet.of(ProjectFragmentFilter.EXECUTION_ENVIRONMENT, ProjectFragmentFilter.DEPENDENT_PROJECT),
+					new IProjectSourceVisitor2() {
+						@Override
+						public void processFile(final ISourceModule sourceModule, final IPath absolutePath, final IPath relativePath,
+								final String charset, final IProgressMonitor fileMonitor) throws CoreException {
+							if (isLibrary(sourceModule))
+								modules.add(sourceModule);
+						}
+
+						@Override
+						public void processDirectory(final IScriptFolder scriptFolder, final IPath absolutePath, final IPath relativePath,
+								final IProgressMonitor directoryMonitor) throws CoreException {
+						}
+					}, subMonitor.newChild(1));
+		} catch (final CoreException e) {
+			Activator.logWarning(NLS.bind("Unable to list libraries of project {0}.", project.getElementName()), e); //$NON-NLS-1$
+			return Status.OK_STATUS;
+		}
+		if (subMonitor.isCanceled())
+			return Status.CANCEL_STATUS;
+
+		return parse(modules, subMonitor.newChild(9));
+	}
+
+	/**
+	 * Only modules of execution environment and dependent projects are worth parsing ahead, project sources are parsed by the build.
+	 */
+	private boolean isLibrary(final ISourceModule sourceModule) throws CoreException {
+		final IProjectFragment fragment = (IProjectFragment) sourceModule.getAncestor(IModelElement.PROJECT_FRAGMENT);
+		return fragment != null && (LuaUtils.isExecutionEnvironmentFragment(fragment) || LuaUtils.isProjectDependencyFragment(project, fragment));
+	}
+
+	private IStatus parse(final List<ISourceModule> modules, final IProgressMonitor monitor) {
+		if (modules.isEmpty())
+			return Status.OK_STATUS;
+		final SubMonitor subMonitor = SubMonitor.convert(monitor, modules.size());
+
+		// There is no point in having more threads than models builders
+		final int poolSize = Platform.getPreferencesService().getInt(LuaLanguageToolkit.getDefault().getPreferenceQualifier(),
+				PreferenceInitializer.PARSER_POOL_SIZE, PreferenceInitializer.getDefaultParserPoolSize(), null);
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(poolSize, modules.size())));
+		final List<Future<?>> parses = new ArrayList<Future<?>>(modules.size());
+		try {
+			// Parsing through DLTK fills its AST cache
+			for (final ISourceModule module : modules) {
+				parses.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						SourceParserUtil.getModuleDeclaration(module);
+					}
+				}));
+			}
+
+			for (int i = 0; i < parses.size(); i++) {
+				if (subMonitor.isCanceled()) {
+					cancel(parses);
+					return Status.CANCEL_STATUS;
+				}
+				subMonitor.subTask(modules.get(i).getElementName());
+				try {
+					parses.get(i).get();
+				} catch (final ExecutionException e) {
+					Activator.logWarning(NLS.bind("Unable to parse library module {0}.", modules.get(i).getElementName()), e.getCause()); //$NON-NLS-1$
+				}
+				subMonitor.worked(1);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel(parses);
+			return Status.CANCEL_STATUS;
+		} finally {
+			executor.shutdown();
+		}
+		return Status.OK_STATUS;
+	}
+
+	/*
+	 * Running parses are not interrupted: an interrupted parse would leave an AST on error in DLTK cache.
+	 */
+	private static void cancel(final List<Future<?>> parses) {
+		for (final Future<?> parse : parses)
+			parse.cancel(false);
+	}
+}
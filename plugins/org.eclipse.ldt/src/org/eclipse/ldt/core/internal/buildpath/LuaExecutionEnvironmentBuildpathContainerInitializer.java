@@ -31,6 +31,9 @@ public class LuaExecutionEnvironmentBuildpathContainerInitializer extends Buildp
 		// Set actual build path container
 		final LuaExecutionEnvironmentBuildpathContainer container = new LuaExecutionEnvironmentBuildpathContainer(eeID, eeVersion, containerPath);
 		DLTKCore.setBuildpathContainer(containerPath, new IScriptProject[] { project }, new IBuildpathContainer[] { container }, null);
+
+		// Warm AST cache up with execution environment and dependent projects modules
+		LibrariesPreparseJob.preparse(project);
 	}
 
 	@Override
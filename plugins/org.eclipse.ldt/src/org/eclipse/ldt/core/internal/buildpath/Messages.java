@@ -24,6 +24,8 @@ public final class Messages extends NLS {
 
 	public static String LuaExecutionEnvironmentManagerNoDefaultTemplate;
 
+	public static String LibrariesPreparseJobName;
+
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
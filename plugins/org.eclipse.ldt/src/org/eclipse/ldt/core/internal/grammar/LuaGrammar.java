@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.internal.grammar;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.ldt.core.grammar.IGrammar;
+import org.eclipse.ldt.core.grammar.ILuaSourceValidator;
+import org.eclipse.ldt.core.grammar.ILuaSourceValidator2;
+import org.eclipse.ldt.core.internal.Activator;
+import org.eclipse.ldt.core.internal.PreferenceInitializer;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Grammar contributed through the <code>org.eclipse.ldt.luaGrammar</code> extension point.
+ * <p>
+ * Contributed validators own a Lua VM which is expensive to create and load, and they are stateful. So warmed validators are kept in a pool and
+ * {@link #getValidator()} returns a lightweight validator which borrows one of them for the duration of {@link ILuaSourceValidator#valid(String)}.
+ * </p>
+ * <p>
+ * Validators which are not kept, extra ones created on concurrency peaks and all of them once the grammar is disposed, are disposed when they
+ * implement {@link ILuaSourceValidator2}, so that their Lua VM is closed.
+ * </p>
+ */
+public class LuaGrammar implements IGrammar {
+
+	private final String name;
+	private final List<String> keywords;
+	private final IConfigurationElement contribution;
+	private final String validatorAttribute;
+
+	private final Queue<ILuaSourceValidator> idleValidators = new ConcurrentLinkedQueue<ILuaSourceValidator>();
+	private final AtomicInteger idleValidatorsCount = new AtomicInteger();
+	private final int maxIdleValidators;
+	private volatile boolean disposed;
+
+	LuaGrammar(final String name, final List<String> keywords, final IConfigurationElement contribution, final String validatorAttribute) {
+		// Allow as many idle validators as concurrent parsers, plus one for the formatter
+		this(name, keywords, contribution, validatorAttribute, PreferenceInitializer.getDefaultParserPoolSize() + 1);
+	}
+
+	/**
+	 * Grammar whose validators are created by {@link #newValidator()}, for subclasses.
+	 */
+	protected LuaGrammar(final String name, final List<String> keywords, final int maxIdleValidators) {
+		this(name, keywords, null, null, maxIdleValidators);
+	}
+
+	private LuaGrammar(final String name, final List<String> keywords, final IConfigurationElement contribution, final String validatorAttribute,
+			final int maxIdleValidators) {
+		this.name = name;
+		this.keywords = keywords;
+		this.contribution = contribution;
+		this.validatorAttribute = validatorAttribute;
+		this.maxIdleValidators = maxIdleValidators;
+	}
+
+	/**
+	 * Create and pool a first validator, so that contribution errors are reported to the caller right now.
+	 */
+	public void warmUp() throws CoreException {
+		releaseValidator(createValidator());
+	}
+
+	/**
+	 * Dispose idle validators, and validators in use as soon as they are released. The grammar can still validate, but does not keep validators
+	 * anymore.
+	 */
+	public void dispose() {
+		disposed = true;
+		disposeIdleValidators();
+	}
+
+	public boolean isDisposed() {
+		return disposed;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public List<String> getKeywords() {
+		return keywords;
+	}
+
+	@Override
+	public ILuaSourceValidator getValidator() {
+		return new PooledSourceValidator();
+	}
+
+	/**
+	 * @return a new validator, not warmed yet
+	 */
+	protected ILuaSourceValidator newValidator() throws CoreException {
+		return (ILuaSourceValidator) contribution.createExecutableExtension(validatorAttribute);
+	}
+
+	private ILuaSourceValidator createValidator() throws CoreException {
+		final ILuaSourceValidator validator = newValidator();
+		// Warm up the validator: its Lua VM is created and its module loaded on first validation
+		validator.valid(""); //$NON-NLS-1$
+		return validator;
+	}
+
+	private ILuaSourceValidator acquireValidator() throws CoreException {
+		final ILuaSourceValidator validator = idleValidators.poll();
+		if (validator != null) {
+			idleValidatorsCount.decrementAndGet();
+			return validator;
+		}
+		return createValidator();
+	}
+
+	private void releaseValidator(final ILuaSourceValidator validator) {
+		if (!disposed) {
+			if (idleValidatorsCount.incrementAndGet() <= maxIdleValidators) {
+				idleValidators.offer(validator);
+				// Grammar may have been disposed before this validator was offered
+				if (disposed)
+					disposeIdleValidators();
+				return;
+			}
+			idleValidatorsCount.decrementAndGet();
+		}
+
+		// Extra validators are only needed on concurrency peaks
+		disposeValidator(validator);
+	}
+
+	private void disposeIdleValidators() {
+		ILuaSourceValidator validator;
+		while ((validator = idleValidators.poll()) != null) {
+			idleValidatorsCount.decrementAndGet();
+			disposeValidator(validator);
+		}
+	}
+
+	private static void disposeValidator(final ILuaSourceValidator validator) {
+		if (validator instanceof ILuaSourceValidator2)
+			((ILuaSourceValidator2) validator).dispose();
+	}
+
+	/**
+	 * Validator which delegates validation to a pooled one and keeps its results, so that it can be used as a regular validator.
+	 */
+	private class PooledSourceValidator implements ILuaSourceValidator {
+
+		private String cleanedSource;
+		private String errorMessage;
+		private int lineIndex;
+
+		@Override
+		public boolean valid(final String source) {
+			final ILuaSourceValidator validator;
+			try {
+				validator = acquireValidator();
+			} catch (final CoreException e) {
+				Activator.logWarning(NLS.bind("Unable to create validator for grammar {0}.", name), e); //$NON-NLS-1$
+				cleanedSource = null;
+				errorMessage = "Unexpected error ..."; //$NON-NLS-1$
+				lineIndex = 0;
+				return false;
+			}
+
+			try {
+				final boolean valid = validator.valid(source);
+				cleanedSource = validator.getCleanedSource();
+				errorMessage = validator.getErrorMessage();
+				lineIndex = validator.getLineIndex();
+				return valid;
+			} finally {
+				releaseValidator(validator);
+			}
+		}
+
+		@Override
+		public String getCleanedSource() {
+			return cleanedSource;
+		}
+
+		@Override
+		public String getErrorMessage() {
+			return errorMessage;
+		}
+
+		@Override
+		public int getLineIndex() {
+			return lineIndex;
+		}
+	}
+}
@@ -11,18 +11,23 @@
 package org.eclipse.ldt.core.internal.grammar;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ProjectScope;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IRegistryEventListener;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.IScopeContext;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.ldt.core.buildpath.LuaExecutionEnvironment;
 import org.eclipse.ldt.core.grammar.IGrammar;
-import org.eclipse.ldt.core.grammar.ILuaSourceValidator;
 import org.eclipse.ldt.core.internal.Activator;
 import org.eclipse.ldt.core.internal.LuaLanguageToolkit;
 import org.eclipse.ldt.core.internal.PreferenceInitializer;
@@ -36,6 +41,34 @@ public final class LuaGrammarManager {
 	private static final String ATTRIBUTE_KEYWORDS = "keywords"; //$NON-NLS-1$
 	private static final String KEYWORDS_SEPARATOR = ","; //$NON-NLS-1$
 
+	private static final Map<String, LuaGrammar> GRAMMARS = new ConcurrentHashMap<String, LuaGrammar>();
+
+	static {
+		// Contributions may come and go, cached grammars must follow
+		Platform.getExtensionRegistry().addListener(new IRegistryEventListener() {
+
+			@Override
+			public void added(IExtension[] extensions) {
+				clearGrammars();
+			}
+
+			@Override
+			public void removed(IExtension[] extensions) {
+				clearGrammars();
+			}
+
+			@Override
+			public void added(IExtensionPoint[] extensionPoints) {
+				clearGrammars();
+			}
+
+			@Override
+			public void removed(IExtensionPoint[] extensionPoints) {
+				clearGrammars();
+			}
+		}, EXTENSION_POINT_ID);
+	}
+
 	private LuaGrammarManager() {
 	}
 
@@ -55,13 +88,11 @@ public final class LuaGrammarManager {
 		return null;
 	}
 
-	private static IGrammar getGrammarFromContribution(final String name) throws CoreException {
+	private static LuaGrammar getGrammarFromContribution(final String name) throws CoreException {
 		// search plug-in contribution
 		IConfigurationElement grammarContribution = getGrammarContribution(name);
 		if (grammarContribution != null) {
 
-			final ILuaSourceValidator validator = (ILuaSourceValidator) grammarContribution.createExecutableExtension(ATTRIBUTE_VALIDATOR);
-
 			final String keywordsAttribute = grammarContribution.getAttribute(ATTRIBUTE_KEYWORDS);
 			final List<String> keywords = new ArrayList<String>();
 			if (keywordsAttribute != null) {
@@ -73,29 +104,43 @@ public final class LuaGrammarManager {
 				}
 			}
 
-			return new IGrammar() {
-
-				@Override
-				public ILuaSourceValidator getValidator() {
-					return validator;
-				}
+			final LuaGrammar grammar = new LuaGrammar(name, keywords, grammarContribution, ATTRIBUTE_VALIDATOR);
+			grammar.warmUp();
+			return grammar;
+		}
+		return null;
+	}
 
-				@Override
-				public String getName() {
-					return name;
-				}
+	public static IGrammar getAvailableGrammar(String name) throws CoreException {
+		if (name == null)
+			return null;
 
-				@Override
-				public List<String> getKeywords() {
-					return keywords;
+		// Grammars are cached, as they hold warmed validators
+		LuaGrammar grammar = GRAMMARS.get(name);
+		if (grammar == null) {
+			synchronized (GRAMMARS) {
+				grammar = GRAMMARS.get(name);
+				if (grammar == null) {
+					grammar = getGrammarFromContribution(name);
+					if (grammar != null)
+						GRAMMARS.put(name, grammar);
 				}
-			};
+			}
 		}
-		return null;
+		return grammar;
 	}
 
-	public static IGrammar getAvailableGrammar(String name) throws CoreException {
-		return getGrammarFromContribution(name);
+	/**
+	 * Forget cached grammars and dispose their validators.
+	 */
+	public static void clearGrammars() {
+		synchronized (GRAMMARS) {
+			for (final Iterator<LuaGrammar> iterator = GRAMMARS.values().iterator(); iterator.hasNext();) {
+				final LuaGrammar grammar = iterator.next();
+				iterator.remove();
+				grammar.dispose();
+			}
+		}
 	}
 
 	public static List<String> getAvailableGrammars() {
@@ -10,13 +10,18 @@
  *******************************************************************************/
 package org.eclipse.ldt.core.tests;
 
+import org.eclipse.ldt.core.tests.internal.TestModuleNameIndex;
+import org.eclipse.ldt.core.tests.internal.TestModuleURIIndex;
 import org.eclipse.ldt.core.tests.internal.ast.AllASTTests;
+import org.eclipse.ldt.core.tests.internal.builder.TestLuaParserBuildParticipant;
+import org.eclipse.ldt.core.tests.internal.buildpath.TestLibrariesPreparseJob;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ AllASTTests.class })
+@SuiteClasses({ AllASTTests.class, TestLibrariesPreparseJob.class, TestLuaParserBuildParticipant.class, TestModuleNameIndex.class,
+		TestModuleURIIndex.class })
 public class AllCoreTests {
 
 }
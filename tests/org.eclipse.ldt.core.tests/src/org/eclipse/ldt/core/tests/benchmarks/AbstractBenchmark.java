@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.benchmarks;
+
+import junit.framework.TestCase;
+
+/**
+ * Base of benchmarks. They are not part of {@link org.eclipse.ldt.core.tests.AllCoreTests}, as timings depend too much on the machine to be
+ * asserted: run them on demand, through {@link AllBenchmarks}, and read the reported timings.
+ */
+public abstract class AbstractBenchmark extends TestCase {
+
+	/** Number of measured runs, after a warm up run */
+	protected static final int ITERATIONS = 5;
+
+	/**
+	 * Code to measure.
+	 */
+	protected interface Task {
+		void run() throws Exception;
+	}
+
+	/**
+	 * @return mean time of a run of <code>task</code>, in milliseconds
+	 */
+	protected static long measure(final Task task) throws Exception {
+		// Warm up before measuring
+		task.run();
+		final long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			task.run();
+		return (System.nanoTime() - start) / ITERATIONS / 1000000;
+	}
+
+	protected static void report(final String format, final Object... args) {
+		System.out.println(String.format(format, args));
+	}
+}
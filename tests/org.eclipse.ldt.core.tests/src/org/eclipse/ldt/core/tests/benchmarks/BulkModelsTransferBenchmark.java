@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.benchmarks;
+
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModule;
+import org.eclipse.ldt.core.tests.internal.ast.utils.LargeSources;
+
+/**
+ * Compares the time of building models of a large module node by node through Java factories, and in bulk through a binary buffer.
+ */
+public class BulkModelsTransferBenchmark extends AbstractBenchmark {
+
+	private static final String GRAMMAR = "lua-5.1"; //$NON-NLS-1$
+
+	/** Number of functions of the generated module */
+	private static final int MODULE_SIZE = 1000;
+
+	private ModelsBuilderLuaModule builder;
+
+	@Override
+	protected void setUp() throws Exception {
+		builder = new ModelsBuilderLuaModule();
+		builder.load();
+	}
+
+	public void testLargeModule() throws Exception {
+		final String source = LargeSources.module(MODULE_SIZE);
+		final long nodeByNode = measure(new Task() {
+			@Override
+			public void run() {
+				builder.buildAST(source, "large", new LuaSourceRoot(source.length()), GRAMMAR); //$NON-NLS-1$
+			}
+		});
+		final long bulk = measure(new Task() {
+			@Override
+			public void run() throws Exception {
+				builder.buildASTInBulk(source, "large", new LuaSourceRoot(source.length()), GRAMMAR); //$NON-NLS-1$
+			}
+		});
+		report("Building models of %d functions: %d ms node by node, %d ms in bulk", MODULE_SIZE, nodeByNode, bulk); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.benchmarks;
+
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModule;
+
+/**
+ * Compares latency of a first parse with a new models builder, when its Metalua files are compiled and when their bytecode is up to date.
+ */
+public class ModelsBuilderLoadingBenchmark extends AbstractBenchmark {
+
+	private static final String GRAMMAR = "lua-5.1"; //$NON-NLS-1$
+	private static final String CODE = "local m = {}\nfunction m.f(x) return x + 1 end\nreturn m\n"; //$NON-NLS-1$
+
+	private static Task firstParse(final boolean compile) {
+		return new Task() {
+			@Override
+			public void run() {
+				final ModelsBuilderLuaModule builder = new ModelsBuilderLuaModule();
+				if (compile)
+					builder.compileMetaluaFiles(true);
+				builder.load();
+				builder.buildAST(CODE, "m", new LuaSourceRoot(CODE.length()), GRAMMAR); //$NON-NLS-1$
+			}
+		};
+	}
+
+	public void testFirstParse() throws Exception {
+		// As at each load before bytecode was checked
+		final long compiled = measure(firstParse(true));
+		final long loaded = measure(firstParse(false));
+		report("First parse: %d ms when compiling Metalua files, %d ms when loading bytecode", compiled, loaded); //$NON-NLS-1$
+	}
+}
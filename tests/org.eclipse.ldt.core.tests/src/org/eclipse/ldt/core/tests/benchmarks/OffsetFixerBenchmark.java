@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.benchmarks;
+
+import org.eclipse.ldt.core.internal.ast.parser.OffsetFixer;
+import org.eclipse.ldt.core.tests.internal.ast.utils.LargeSources;
+import org.eclipse.ldt.core.tests.internal.ast.utils.TreeMapOffsetFixer;
+
+/**
+ * Compares the time of building offset fixers and looking up all offsets of large sources, with sorted arrays and with the former tree map.
+ */
+public class OffsetFixerBenchmark extends AbstractBenchmark {
+
+	private static final String ASCII_LINE = "local function f(x) return x * 2 end -- comment\n"; //$NON-NLS-1$
+	private static final String CJK_LINE = "local s = '文字列の例' -- 中文注釋 éè\n"; //$NON-NLS-1$
+
+	/** Number of lines of generated sources */
+	private static final int LARGE_SOURCE_LINES = 10000;
+
+	/** Sum of looked up offsets, so that lookups are not optimized away */
+	private long checksum;
+
+	private void benchmark(final String name, final String source) throws Exception {
+		final int byteLength = OffsetFixer.getByteLength(source, 0, source.length());
+		final long reference = measure(new Task() {
+			@Override
+			public void run() {
+				final TreeMapOffsetFixer fixer = new TreeMapOffsetFixer(source);
+				for (int position = 0; position < byteLength; position++)
+					checksum += fixer.getCharacterPosition(position);
+			}
+		});
+		final long arrays = measure(new Task() {
+			@Override
+			public void run() {
+				final OffsetFixer fixer = new OffsetFixer(source);
+				for (int position = 0; position < byteLength; position++)
+					checksum += fixer.getCharacterPosition(position);
+			}
+		});
+		report("Fixing every offset of %s source of %d lines: %d ms with tree map, %d ms with arrays", name, LARGE_SOURCE_LINES, reference, //$NON-NLS-1$
+				arrays);
+	}
+
+	public void testAsciiSource() throws Exception {
+		benchmark("ASCII", LargeSources.repeat(ASCII_LINE, LARGE_SOURCE_LINES)); //$NON-NLS-1$
+	}
+
+	public void testCjkSource() throws Exception {
+		benchmark("CJK", LargeSources.repeat(CJK_LINE, LARGE_SOURCE_LINES)); //$NON-NLS-1$
+	}
+}
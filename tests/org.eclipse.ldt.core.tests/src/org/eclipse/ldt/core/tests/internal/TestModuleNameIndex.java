@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IBuildpathEntry;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.ldt.core.LuaNature;
+import org.eclipse.ldt.core.LuaUtils;
+import org.eclipse.ldt.core.internal.ModuleNameIndex;
+import org.eclipse.ldt.core.internal.ProjectSourceModuleIndex;
+
+/**
+ * Checks lookup of modules by name in a project with two source folders, as modules and build path change.
+ */
+public class TestModuleNameIndex extends TestCase {
+
+	private static final String PROJECT = "modulenameindex"; //$NON-NLS-1$
+
+	private IScriptProject project;
+	private IFolder first;
+	private IFolder second;
+
+	/**
+	 * Index which does not follow model changes, counting the keys it computes to know when maps of projects are built.
+	 */
+	private static class UninstalledIndex extends ProjectSourceModuleIndex<String> {
+		private int keys;
+
+		@Override
+		protected String getKey(final ISourceModule module) {
+			keys++;
+			return LuaUtils.getModuleFullName(module);
+		}
+
+		public ISourceModule getModule(final IScriptProject scriptProject, final String name) {
+			return get(scriptProject, name);
+		}
+	}
+
+	private static IFile createFile(final IFolder folder, final String name) throws Exception {
+		final IFile file = folder.getFile(name);
+		file.create(new ByteArrayInputStream("return {}\n".getBytes("UTF-8")), true, null); //$NON-NLS-1$ //$NON-NLS-2$
+		return file;
+	}
+
+	private void setBuildpath(final IFolder... folders) throws Exception {
+		final IBuildpathEntry[] entries = new IBuildpathEntry[folders.length];
+		for (int i = 0; i < folders.length; i++)
+			entries[i] = DLTKCore.newSourceEntry(folders[i].getFullPath());
+		project.setRawBuildpath(entries, null);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		final IProject resource = workspace.getRoot().getProject(PROJECT);
+		final IProjectDescription description = workspace.newProjectDescription(PROJECT);
+		description.setNatureIds(new String[] { LuaNature.ID });
+		resource.create(description, null);
+		resource.open(null);
+
+		first = resource.getFolder("first"); //$NON-NLS-1$
+		first.create(true, true, null);
+		second = resource.getFolder("second"); //$NON-NLS-1$
+		second.create(true, true, null);
+		createFile(first, "shared.lua"); //$NON-NLS-1$
+		createFile(second, "shared.lua"); //$NON-NLS-1$
+		final IFolder pkg = second.getFolder("pkg"); //$NON-NLS-1$
+		pkg.create(true, true, null);
+		createFile(pkg, "mod.lua"); //$NON-NLS-1$
+
+		project = DLTKCore.create(resource);
+		setBuildpath(first, second);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		project.getProject().delete(true, null);
+	}
+
+	private static void assertModule(final IFile expected, final ISourceModule actual) {
+		assertNotNull("Module should be found", actual); //$NON-NLS-1$
+		assertEquals(expected, actual.getResource());
+	}
+
+	private ISourceModule getModule(final String name) {
+		return ModuleNameIndex.getDefault().getModule(project, name);
+	}
+
+	public void testFirstInFragmentOrder() throws Exception {
+		assertModule(first.getFile("shared.lua"), getModule("shared")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertModule(second.getFolder("pkg").getFile("mod.lua"), getModule("pkg.mod")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertNull(getModule("mod")); //$NON-NLS-1$
+		assertNull(getModule("missing")); //$NON-NLS-1$
+	}
+
+	public void testBuildpathChanged() throws Exception {
+		assertModule(first.getFile("shared.lua"), getModule("shared")); //$NON-NLS-1$ //$NON-NLS-2$
+		setBuildpath(second, first);
+		assertModule(second.getFile("shared.lua"), getModule("shared")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		setBuildpath(first);
+		assertNull("Modules out of build path should not be found", getModule("pkg.mod")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testModuleAdded() throws Exception {
+		assertNull(getModule("added")); //$NON-NLS-1$
+		final IFile added = createFile(second, "added.lua"); //$NON-NLS-1$
+		assertModule(added, getModule("added")); //$NON-NLS-1$
+	}
+
+	public void testModuleRemoved() throws Exception {
+		assertModule(first.getFile("shared.lua"), getModule("shared")); //$NON-NLS-1$ //$NON-NLS-2$
+		first.getFile("shared.lua").delete(true, null); //$NON-NLS-1$
+		assertModule(second.getFile("shared.lua"), getModule("shared")); //$NON-NLS-1$ //$NON-NLS-2$
+		second.getFile("shared.lua").delete(true, null); //$NON-NLS-1$
+		assertNull(getModule("shared")); //$NON-NLS-1$
+	}
+
+	public void testRemovedModuleRetry() throws Exception {
+		final UninstalledIndex index = new UninstalledIndex();
+		assertModule(first.getFile("shared.lua"), index.getModule(project, "shared")); //$NON-NLS-1$ //$NON-NLS-2$
+		final int keys = index.keys;
+		index.getModule(project, "pkg.mod"); //$NON-NLS-1$
+		assertEquals("Map of project should be built once", keys, index.keys); //$NON-NLS-1$
+
+		// Not invalidated, the module found is gone
+		first.getFile("shared.lua").delete(true, null); //$NON-NLS-1$
+		assertModule(second.getFile("shared.lua"), index.getModule(project, "shared")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Map of project should be built again", index.keys > keys); //$NON-NLS-1$
+	}
+}
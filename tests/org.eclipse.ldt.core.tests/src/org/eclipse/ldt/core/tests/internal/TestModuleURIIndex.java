@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URI;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IBuildpathEntry;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.ldt.core.LuaNature;
+import org.eclipse.ldt.core.internal.ModuleURIIndex;
+
+/**
+ * Checks lookup of modules by absolute location, as debugger source lookup does, and after modules move.
+ */
+public class TestModuleURIIndex extends TestCase {
+
+	private static final String PROJECT = "moduleuriindex"; //$NON-NLS-1$
+
+	private IScriptProject project;
+	private IFolder src;
+	private IFile module;
+
+	private static IFile createFile(final IFolder folder, final String name) throws Exception {
+		final IFile file = folder.getFile(name);
+		file.create(new ByteArrayInputStream("return {}\n".getBytes("UTF-8")), true, null); //$NON-NLS-1$ //$NON-NLS-2$
+		return file;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		final IProject resource = workspace.getRoot().getProject(PROJECT);
+		final IProjectDescription description = workspace.newProjectDescription(PROJECT);
+		description.setNatureIds(new String[] { LuaNature.ID });
+		resource.create(description, null);
+		resource.open(null);
+
+		src = resource.getFolder("src"); //$NON-NLS-1$
+		src.create(true, true, null);
+		final IFolder pkg = src.getFolder("pkg"); //$NON-NLS-1$
+		pkg.create(true, true, null);
+		module = createFile(pkg, "Module.lua"); //$NON-NLS-1$
+
+		project = DLTKCore.create(resource);
+		project.setRawBuildpath(new IBuildpathEntry[] { DLTKCore.newSourceEntry(src.getFullPath()) }, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		project.getProject().delete(true, null);
+	}
+
+	private ISourceModule getModule(final URI uri) {
+		return ModuleURIIndex.getDefault().getModule(project, uri);
+	}
+
+	private static void assertModule(final IFile expected, final ISourceModule actual) {
+		assertNotNull("Module should be found", actual); //$NON-NLS-1$
+		assertEquals(expected, actual.getResource());
+	}
+
+	public void testURI() throws Exception {
+		final URI uri = module.getLocationURI();
+		assertModule(module, getModule(uri));
+		assertModule(module, getModule(new File(module.getLocation().toOSString()).toURI()));
+
+		// Dot segments, as in paths built by debuggers from relative ones
+		final URI dotted = new File(new File(src.getLocation().toOSString(), "pkg/../pkg/."), "Module.lua").toURI(); //$NON-NLS-1$ //$NON-NLS-2$
+		assertModule(module, getModule(dotted));
+
+		assertNull(getModule(src.getLocation().append("Module.lua").toFile().toURI())); //$NON-NLS-1$
+		assertNull("Remote URIs should not match local files", getModule(new URI("http", null, uri.getPath(), null))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testCase() throws Exception {
+		final File file = new File(module.getLocation().toOSString());
+		final File variant = new File(file.getParentFile(), "module.lua"); //$NON-NLS-1$
+		final ISourceModule found = getModule(variant.toURI());
+		// Case variants match as files do, which depends on file system
+		if (file.equals(variant))
+			assertModule(module, found);
+		else
+			assertNull("Case variants should not match where file system is case sensitive", found); //$NON-NLS-1$
+	}
+
+	public void testModuleMoved() throws Exception {
+		final URI before = module.getLocationURI();
+		assertModule(module, getModule(before));
+
+		module.move(src.getFile("moved.lua").getFullPath(), true, null); //$NON-NLS-1$
+		final IFile moved = src.getFile("moved.lua"); //$NON-NLS-1$
+		assertNull("Moved module should not be found at its previous location", getModule(before)); //$NON-NLS-1$
+		assertModule(moved, getModule(moved.getLocationURI()));
+	}
+}
@@ -15,8 +15,12 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TestExpressions.class, TestLuaBinaryOperations.class, TestLuaSourceParser.class, TestModuleDeclaration.class,
-		TestMultipleParsing.class, TestSourceElementRequestVisitor.class, TestStatements.class, TestTables.class, TestUnaryOperations.class,
+@SuiteClasses({ TestBoundedASTCache.class, TestBulkModelsTransfer.class, TestCompletionMatcher.class, TestDocumentationRenderer.class,
+		TestExpressions.class, TestGlobalNameTable.class, TestGlobalVariableIndex.class, TestGrammarCache.class, TestIncrementalReparser.class,
+		TestLuaBinaryOperations.class, TestLuaSourceParser.class, TestModelSerialization.class, TestModelsBuilderLoading.class,
+		TestModelsBuilderPool.class, TestModuleDeclaration.class, TestModuleDependencyGraph.class, TestMultipleParsing.class,
+		TestNestedIntervals.class, TestOffsetFixer.class, TestPersistentASTCache.class, TestResolutionCache.class,
+		TestSourceElementRequestVisitor.class, TestStatements.class, TestTables.class, TestUnaryOperations.class, TestValidatorPool.class,
 		TestVisitor.class })
 public class AllASTTests {
 
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.BoundedASTCache;
+
+/**
+ * Checks weight-based eviction and statistics of {@link BoundedASTCache}.
+ */
+public class TestBoundedASTCache extends TestCase {
+
+	private BoundedASTCache<String> cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		cache = new BoundedASTCache<String>(100);
+	}
+
+	public void testHitsAndMisses() {
+		final LuaSourceRoot root = new LuaSourceRoot(10);
+		cache.put("a", root, 10); //$NON-NLS-1$
+		assertSame(root, cache.get("a")); //$NON-NLS-1$
+		assertNull(cache.get("b")); //$NON-NLS-1$
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(10, cache.getWeight());
+	}
+
+	public void testReplacement() {
+		cache.put("a", new LuaSourceRoot(10), 10); //$NON-NLS-1$
+		final LuaSourceRoot root = new LuaSourceRoot(30);
+		cache.put("a", root, 30); //$NON-NLS-1$
+		assertSame(root, cache.get("a")); //$NON-NLS-1$
+		assertEquals("Replaced entry should not be weighted", 30, cache.getWeight()); //$NON-NLS-1$
+		cache.remove("a"); //$NON-NLS-1$
+		assertEquals(0, cache.getWeight());
+		assertEquals(0, cache.size());
+	}
+
+	public void testLeastRecentlyUsedEviction() {
+		cache.put("a", new LuaSourceRoot(40), 40); //$NON-NLS-1$
+		cache.put("b", new LuaSourceRoot(40), 40); //$NON-NLS-1$
+		assertNotNull(cache.get("a")); //$NON-NLS-1$
+
+		// Exceeds budget, "b" is the least recently used
+		cache.put("c", new LuaSourceRoot(40), 40); //$NON-NLS-1$
+		assertNull("Least recently used entry should be evicted", cache.get("b")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNotNull(cache.get("c")); //$NON-NLS-1$
+		assertTrue(cache.getWeight() <= cache.getBudget());
+		assertTrue(cache.getEvictionCount() >= 1);
+	}
+
+	public void testHeavyEntry() {
+		cache.put("a", new LuaSourceRoot(10), 10); //$NON-NLS-1$
+		cache.put("a", new LuaSourceRoot(200), 200); //$NON-NLS-1$
+		assertNull("Entries heavier than budget should not be cached", cache.get("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(0, cache.getWeight());
+	}
+
+	public void testBudgetReduction() {
+		for (int i = 0; i < 10; i++)
+			cache.put(Integer.toString(i), new LuaSourceRoot(10), 10);
+		assertEquals(100, cache.getWeight());
+		cache.setBudget(50);
+		assertTrue(cache.getWeight() <= 50);
+		assertNotNull("Most recently used entry should be kept", cache.get("9")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
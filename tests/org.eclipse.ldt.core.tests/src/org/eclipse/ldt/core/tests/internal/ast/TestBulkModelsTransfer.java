@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.models.ModelSerializer;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModule;
+import org.eclipse.ldt.core.tests.internal.ast.utils.LargeSources;
+
+/**
+ * Checks that models transferred from Lua in a binary buffer are the same as models built node by node through Java factories.
+ */
+public class TestBulkModelsTransfer extends TestCase {
+
+	private static final String GRAMMAR = "lua-5.1"; //$NON-NLS-1$
+
+	private static final String CODE = "---\n-- Module documentation\n-- @module m\nlocal m = {}\n\n" //$NON-NLS-1$
+			+ "---\n-- @type t\n-- @field #string name Name with accents \u00e9\u00e8\n-- @field [parent=#t] #number count\nlocal t = {}\n\n" //$NON-NLS-1$
+			+ "---\n-- @function [parent=#m] f\n-- @param #number x\n-- @param y\n-- @return #t\n-- @return #list<#string>, #map<#string,#number>\n" //$NON-NLS-1$
+			+ "function m.f(x, y) local z = x + 1 return setmetatable({}, t) end\n\n" //$NON-NLS-1$
+			+ "---\n-- @field [parent=#m] #table inline\nm.inline = { a = 1 }\n\n" //$NON-NLS-1$
+			+ "local z = m.f(2)\nz:method('\u00e9', \"\\1\\2\\3\")\nglobalvar = require 'other'\nglobalvar.field = unknown.other\n" //$NON-NLS-1$
+			+ "for i, v in ipairs(z) do print(i, v) end\nlocal function g(...) return m.f(...) end\nreturn m\n"; //$NON-NLS-1$
+
+	/** Number of functions of the generated module */
+	private static final int LARGE_MODULE_SIZE = 1000;
+
+	private ModelsBuilderLuaModule builder;
+
+	@Override
+	protected void setUp() throws Exception {
+		builder = new ModelsBuilderLuaModule();
+		builder.load();
+	}
+
+	private LuaSourceRoot build(String source, boolean bulk) throws Exception {
+		LuaSourceRoot root = new LuaSourceRoot(source.length());
+		if (bulk)
+			builder.buildASTInBulk(source, "m", root, GRAMMAR); //$NON-NLS-1$
+		else
+			builder.buildAST(source, "m", root, GRAMMAR); //$NON-NLS-1$
+		return root;
+	}
+
+	private static byte[] serialize(LuaSourceRoot root) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ModelSerializer(new DataOutputStream(bytes)).writeSourceRoot(root);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Serialized forms are equal only when models have the same nodes, with the same properties, shared the same way.
+	 */
+	private void assertSameModels(String source) throws Exception {
+		LuaSourceRoot expected = build(source, false);
+		LuaSourceRoot actual = build(source, true);
+		assertNotNull("API model expected", actual.getFileapi()); //$NON-NLS-1$
+		assertNotNull("Internal model expected", actual.getInternalContent()); //$NON-NLS-1$
+		assertTrue("Models should be the same", Arrays.equals(serialize(expected), serialize(actual))); //$NON-NLS-1$
+	}
+
+	public void testSameModels() throws Exception {
+		assertSameModels(CODE);
+	}
+
+	public void testEmptyModule() throws Exception {
+		assertSameModels(""); //$NON-NLS-1$
+	}
+
+	/**
+	 * Characters out of the basic multilingual plane do not have the same encoding in modified UTF-8, used on Lua side, and in UTF-8.
+	 */
+	public void testSupplementaryCharacters() throws Exception {
+		assertSameModels("---\n-- Smiley \ud83d\ude00 documentation\n-- @module m\nlocal m = {}\n\n" //$NON-NLS-1$
+				+ "---\n-- @field [parent=#m] #string smiley \ud83d\ude00\nm.smiley = '\ud83d\ude00'\n" //$NON-NLS-1$
+				+ "local s = m.smiley .. '\ud83d\ude00\u00e9'\nreturn m\n"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Parity on a large module. Time saved is measured by {@link org.eclipse.ldt.core.tests.benchmarks.BulkModelsTransferBenchmark}.
+	 */
+	public void testLargeModule() throws Exception {
+		assertSameModels(LargeSources.module(LARGE_MODULE_SIZE));
+	}
+}
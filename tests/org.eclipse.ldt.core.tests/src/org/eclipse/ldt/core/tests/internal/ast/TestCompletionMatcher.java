@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.models.CompletionMatcher;
+
+/**
+ * Checks prefix and sub-words matching of completion candidates, and their ranking.
+ */
+public class TestCompletionMatcher extends TestCase {
+
+	public void testPrefix() {
+		final CompletionMatcher matcher = new CompletionMatcher("get", false); //$NON-NLS-1$
+		assertEquals(CompletionMatcher.EXACT_MATCH, matcher.getRelevance("get")); //$NON-NLS-1$
+		assertEquals(CompletionMatcher.CASE_PREFIX_MATCH, matcher.getRelevance("getScreen")); //$NON-NLS-1$
+		assertEquals(CompletionMatcher.PREFIX_MATCH, matcher.getRelevance("GetScreen")); //$NON-NLS-1$
+		assertEquals(CompletionMatcher.PREFIX_MATCH, matcher.getRelevance("GET")); //$NON-NLS-1$
+		assertFalse(matcher.matches("ge")); //$NON-NLS-1$
+		assertFalse(matcher.matches("target")); //$NON-NLS-1$
+		assertFalse("Sub-words are disabled", new CompletionMatcher("gS", false).matches("getScreen")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testEmptyPattern() {
+		assertTrue(new CompletionMatcher("", true).matches("anything")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(new CompletionMatcher(null, true).matches("anything")); //$NON-NLS-1$
+	}
+
+	public void testSubwords() {
+		final CompletionMatcher camelCase = new CompletionMatcher("gSV", true); //$NON-NLS-1$
+		assertEquals(CompletionMatcher.SUBWORDS_MATCH, camelCase.getRelevance("getScreenValue")); //$NON-NLS-1$
+		assertTrue(new CompletionMatcher("gsv", true).matches("getScreenValue")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(new CompletionMatcher("getSV", true).matches("getScreenValue")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(new CompletionMatcher("gScVal", true).matches("getScreenValue")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(new CompletionMatcher("gs", true).matches("get_screen")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(new CompletionMatcher("sw2", true).matches("set_width2")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(new CompletionMatcher("hRL", true).matches("HTTPRequestLine")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse("First character is compared in place", camelCase.matches("setScreenValue")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse("Sub-words are matched in order", new CompletionMatcher("gVS", true).matches("getScreenValue")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertFalse("Only beginnings of sub-words", new CompletionMatcher("gc", true).matches("getScreen")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testBacktracking() {
+		// 's' matches in 'set' first, but then 'b' can only follow 'Sub'
+		assertTrue(new CompletionMatcher("ssb", true).matches("setSomeSubBar")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
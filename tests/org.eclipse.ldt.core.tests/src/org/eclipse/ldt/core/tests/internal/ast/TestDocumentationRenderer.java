@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.compiler.env.ModuleSource;
+import org.eclipse.ldt.core.internal.ast.models.DocumentationRenderer;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.api.LuaFileAPI;
+import org.eclipse.ldt.core.internal.ast.models.api.RecordTypeDef;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.LuaSourceParserFactory;
+import org.eclipse.ldt.core.tests.internal.ast.utils.DummyReporter;
+
+/**
+ * Checks HTML rendered on demand from the documentation stored in models.
+ */
+public class TestDocumentationRenderer extends TestCase {
+
+	private static final String CODE = "---\n-- Module *documentation*\n-- @module m\nlocal m = {}\n\n" //$NON-NLS-1$
+			+ "---\n-- Sum of @{#m.f} results\n-- @function [parent=#m] f\n-- @param #number x first value\n-- @return #number\n" //$NON-NLS-1$
+			+ "-- @usage m.f(1)\nfunction m.f(x) return x end\n\n" //$NON-NLS-1$
+			+ "return m\n"; //$NON-NLS-1$
+
+	private LuaSourceRoot root;
+
+	@Override
+	protected void setUp() throws Exception {
+		ModuleSource source = new ModuleSource("documentation", CODE); //$NON-NLS-1$
+		root = (LuaSourceRoot) new LuaSourceParserFactory().createSourceParser().parse(source, new DummyReporter());
+		assertFalse("Code should be valid", root.hasError()); //$NON-NLS-1$
+	}
+
+	public void testFunction() {
+		RecordTypeDef module = (RecordTypeDef) root.getFileapi().getTypes().get("m"); //$NON-NLS-1$
+		Item function = module.getFields().get("f"); //$NON-NLS-1$
+		String html = DocumentationRenderer.getDefault().render(function);
+
+		assertTrue(html, html.contains("m.f(x)")); //$NON-NLS-1$
+		assertTrue("References should be resolved", html.contains("Sum of m.f results")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Parameters should be described", html.contains("first value")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Usage should be shown", html.contains("<h3>Usage:</h3>")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse("Links are disabled for items", html.contains("href")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testModule() {
+		LuaFileAPI file = root.getFileapi();
+		String html = DocumentationRenderer.getDefault().render(file);
+
+		assertTrue(html, html.contains("Module <code>m</code>")); //$NON-NLS-1$
+		assertTrue("Markdown should be applied", html.contains("<em>documentation</em>")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue("Links are enabled for modules", html.contains("href=\"##(m).f\"")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testLocalIsEscaped() {
+		ModuleSource source = new ModuleSource("local", "---\n-- <b>a</b> & b\nlocal l = 1\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		LuaSourceRoot localRoot = (LuaSourceRoot) new LuaSourceParserFactory().createSourceParser().parse(source, new DummyReporter());
+		Item local = localRoot.getInternalContent().getContent().getLocalVars().get(0).getVar();
+		String html = DocumentationRenderer.getDefault().render(local);
+
+		assertTrue(html, html.contains("&lt;b&gt;a&lt;/b&gt; &amp; b")); //$NON-NLS-1$
+		assertFalse("Documentation should be escaped", html.contains("<b>")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
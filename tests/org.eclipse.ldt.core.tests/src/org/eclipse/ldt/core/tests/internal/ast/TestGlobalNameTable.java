@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.models.CompletionMatcher;
+import org.eclipse.ldt.core.internal.ast.models.GlobalNameTable;
+import org.eclipse.ldt.core.internal.ast.models.GlobalNameTable.Entry;
+
+/**
+ * Checks exact and prefix queries of global variable names indexed by module.
+ */
+public class TestGlobalNameTable extends TestCase {
+
+	private GlobalNameTable<String> table;
+
+	@Override
+	protected void setUp() throws Exception {
+		table = new GlobalNameTable<String>();
+		table.put("a.lua", Arrays.asList("print", "Printer", "socket")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		table.put("b.lua", Arrays.asList("print", "prime")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private static List<String> describe(List<Entry<String>> entries) {
+		List<String> descriptions = new ArrayList<String>();
+		for (Entry<String> entry : entries)
+			descriptions.add(entry.getModule() + ':' + entry.getName());
+		Collections.sort(descriptions);
+		return descriptions;
+	}
+
+	public void testExactName() {
+		assertEquals(Arrays.asList("a.lua:print", "b.lua:print"), describe(table.get("print"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("Exact queries are case sensitive", Arrays.asList("a.lua:Printer"), describe(table.get("Printer"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(table.get("printer").isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testPrefix() {
+		assertEquals(Arrays.asList("a.lua:Printer", "a.lua:print", "b.lua:prime", "b.lua:print"), describe(table.getByPrefix("PR"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		assertEquals(Arrays.asList("a.lua:Printer", "a.lua:print", "b.lua:print"), describe(table.getByPrefix("print"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertEquals("Empty prefix matches all names", 5, table.getByPrefix("").size()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(table.getByPrefix("z").isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testMatches() {
+		table.put("c.lua", Arrays.asList("prInt", "pRi")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		final List<String> names = new ArrayList<String>();
+		for (Entry<String> entry : table.getMatches(new CompletionMatcher("pri", true))) //$NON-NLS-1$
+			names.add(entry.getName());
+		assertEquals("Most relevant first", Arrays.asList("prime", "print", "print", "pRi", "prInt", "Printer"), names); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+
+		names.clear();
+		for (Entry<String> entry : table.getMatches(new CompletionMatcher("pI", true))) //$NON-NLS-1$
+			names.add(entry.getName());
+		assertEquals("Sub-words match last", Arrays.asList("prInt"), names); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testUpdate() {
+		table.put("a.lua", Arrays.asList("socket", "mime")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(Arrays.asList("b.lua:prime", "b.lua:print"), describe(table.getByPrefix("pr"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(Arrays.asList("a.lua:mime"), describe(table.get("mime"))); //$NON-NLS-1$ //$NON-NLS-2$
+
+		table.remove("b.lua"); //$NON-NLS-1$
+		assertFalse(table.contains("b.lua")); //$NON-NLS-1$
+		assertTrue(table.getByPrefix("pr").isEmpty()); //$NON-NLS-1$
+		assertEquals(1, table.getModules().size());
+	}
+
+	public void testOffsets() {
+		assertEquals("Offsets of names only are unknown", GlobalNameTable.UNKNOWN_OFFSET, table.get("socket").get(0).getOffset()); //$NON-NLS-1$ //$NON-NLS-2$
+
+		final Map<String, Integer> offsets = new LinkedHashMap<String, Integer>();
+		offsets.put("socket", 12); //$NON-NLS-1$
+		offsets.put("mime", 40); //$NON-NLS-1$
+		table.put("a.lua", offsets); //$NON-NLS-1$
+		assertEquals(12, table.get("socket").get(0).getOffset()); //$NON-NLS-1$
+		assertEquals(40, table.getByPrefix("mi").get(0).getOffset()); //$NON-NLS-1$
+		assertEquals(offsets, table.getOffsets("a.lua")); //$NON-NLS-1$
+		assertNull(table.getOffsets("c.lua")); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IBuildpathEntry;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.ldt.core.LuaNature;
+import org.eclipse.ldt.core.internal.ast.models.CompletionMatcher;
+import org.eclipse.ldt.core.internal.ast.models.GlobalVariableIndex;
+import org.eclipse.ldt.core.internal.ast.models.LuaASTUtils.Definition;
+
+/**
+ * Checks queries of the index of global variables of a project, as its modules are indexed in background and then change.
+ */
+public class TestGlobalVariableIndex extends TestCase {
+
+	private static final String PROJECT = "globalvariableindex"; //$NON-NLS-1$
+
+	private IProject project;
+	private IFolder src;
+	private ISourceModule main;
+
+	private static byte[] bytes(final String code) throws Exception {
+		return code.getBytes("UTF-8"); //$NON-NLS-1$
+	}
+
+	private IFile createModule(final String name, final String code) throws Exception {
+		final IFile file = src.getFile(name + ".lua"); //$NON-NLS-1$
+		file.create(new ByteArrayInputStream(bytes(code)), true, null);
+		return file;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		project = workspace.getRoot().getProject(PROJECT);
+		final IProjectDescription description = workspace.newProjectDescription(PROJECT);
+		description.setNatureIds(new String[] { LuaNature.ID });
+		project.create(description, null);
+		project.open(null);
+
+		src = project.getFolder("src"); //$NON-NLS-1$
+		src.create(true, true, null);
+		main = DLTKCore.createSourceModuleFrom(createModule("main", "printer = {}\nprint(printer)\n")); //$NON-NLS-1$ //$NON-NLS-2$
+		createModule("a", "printer = 1\nprinting = true\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		createModule("b", "local M = {}\nprimes = { 2, 3 }\nreturn M\n"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		final IScriptProject scriptProject = DLTKCore.create(project);
+		scriptProject.setRawBuildpath(new IBuildpathEntry[] { DLTKCore.newSourceEntry(src.getFullPath()) }, null);
+		index();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		project.delete(true, null);
+		waitForIndexing();
+	}
+
+	private static void waitForIndexing() throws Exception {
+		Job.getJobManager().join(GlobalVariableIndex.JOB_FAMILY, null);
+	}
+
+	/**
+	 * Request indexing of modules of project, and wait for it.
+	 */
+	private void index() throws Exception {
+		GlobalVariableIndex.getDefault().getDefinitions(main, ""); //$NON-NLS-1$
+		waitForIndexing();
+	}
+
+	private static List<String> describe(final List<Definition> definitions) {
+		final List<String> descriptions = new ArrayList<String>();
+		for (final Definition definition : definitions) {
+			assertNotNull("Indexed definition should be resolved", definition.getItem()); //$NON-NLS-1$
+			descriptions.add(definition.getModule().getElementName() + ':' + definition.getItem().getName());
+		}
+		Collections.sort(descriptions);
+		return descriptions;
+	}
+
+	private List<String> getDefinitions(final String prefix) {
+		return describe(GlobalVariableIndex.getDefault().getDefinitions(main, prefix));
+	}
+
+	public void testPrefix() throws Exception {
+		assertEquals("Globals of queried module should be excluded", Arrays.asList("a.lua:printer", "a.lua:printing", "b.lua:primes"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				getDefinitions("PRI")); //$NON-NLS-1$
+		assertTrue(getDefinitions("z").isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testMatches() throws Exception {
+		final List<Definition> definitions = GlobalVariableIndex.getDefault().getDefinitions(main, new CompletionMatcher("print", true), 1); //$NON-NLS-1$
+		assertEquals("Most relevant within limit", Arrays.asList("a.lua:printer"), describe(definitions)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testExactName() throws Exception {
+		final Definition definition = GlobalVariableIndex.getDefault().getDefinition(main, "primes"); //$NON-NLS-1$
+		assertNotNull(definition);
+		assertEquals("b.lua", definition.getModule().getElementName()); //$NON-NLS-1$
+		assertEquals("primes", definition.getItem().getName()); //$NON-NLS-1$
+		assertNull("Exact queries are case sensitive", GlobalVariableIndex.getDefault().getDefinition(main, "Primes")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testPreloaded() throws Exception {
+		// Any module may be preloaded, as global.lua of execution environments
+		final ISourceModule preloaded = DLTKCore.createSourceModuleFrom(src.getFile("a.lua")); //$NON-NLS-1$
+		final CompletionMatcher matcher = new CompletionMatcher("print", true); //$NON-NLS-1$
+		final GlobalVariableIndex index = GlobalVariableIndex.getDefault();
+		assertEquals(Arrays.asList("a.lua:printer", "a.lua:printing"), describe(index.getPreloadedDefinitions(preloaded, matcher, 10))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Most relevant within limit", Arrays.asList("a.lua:printer"), describe(index.getPreloadedDefinitions(preloaded, matcher, 1))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testModuleChanged() throws Exception {
+		src.getFile("a.lua").setContents(new ByteArrayInputStream(bytes("printed = 1\n")), true, false, null); //$NON-NLS-1$ //$NON-NLS-2$
+		index();
+		assertEquals(Arrays.asList("a.lua:printed", "b.lua:primes"), getDefinitions("pri")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testModuleAddedAndRemoved() throws Exception {
+		createModule("c", "private = 0\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		index();
+		assertEquals(Arrays.asList("c.lua:private"), getDefinitions("priv")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		src.getFile("b.lua").delete(true, null); //$NON-NLS-1$
+		index();
+		assertEquals(Arrays.asList("a.lua:printer", "a.lua:printing", "c.lua:private"), getDefinitions("pri")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	public void testWorkingCopy() throws Exception {
+		final ISourceModule module = DLTKCore.createSourceModuleFrom(src.getFile("b.lua")); //$NON-NLS-1$
+		module.becomeWorkingCopy(null, null);
+		try {
+			module.getBuffer().setContents("primary = 1\n"); //$NON-NLS-1$
+			module.reconcile(false, null, null);
+			index();
+			assertEquals("Reconciled content should be indexed", Arrays.asList("b.lua:primary"), getDefinitions("prim")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		} finally {
+			module.discardWorkingCopy();
+		}
+		index();
+		assertEquals("Saved content should be indexed again", Arrays.asList("b.lua:primes"), getDefinitions("prim")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
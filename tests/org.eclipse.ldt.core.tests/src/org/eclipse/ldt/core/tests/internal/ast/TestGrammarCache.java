@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.grammar.IGrammar;
+import org.eclipse.ldt.core.internal.grammar.LuaGrammar;
+import org.eclipse.ldt.core.internal.grammar.LuaGrammarManager;
+
+/**
+ * Checks that contributed grammars are cached, and disposed once evicted.
+ */
+public class TestGrammarCache extends TestCase {
+
+	private static final String GRAMMAR = "lua-5.1"; //$NON-NLS-1$
+
+	public void testCached() throws Exception {
+		final IGrammar grammar = LuaGrammarManager.getAvailableGrammar(GRAMMAR);
+		assertNotNull(grammar);
+		assertSame(grammar, LuaGrammarManager.getAvailableGrammar(GRAMMAR));
+	}
+
+	public void testUnknownGrammar() throws Exception {
+		assertNull(LuaGrammarManager.getAvailableGrammar("unknown")); //$NON-NLS-1$
+		assertNull(LuaGrammarManager.getAvailableGrammar(null));
+	}
+
+	public void testEviction() throws Exception {
+		final LuaGrammar evicted = (LuaGrammar) LuaGrammarManager.getAvailableGrammar(GRAMMAR);
+		LuaGrammarManager.clearGrammars();
+		assertTrue("Evicted grammar should be disposed", evicted.isDisposed()); //$NON-NLS-1$
+
+		final IGrammar grammar = LuaGrammarManager.getAvailableGrammar(GRAMMAR);
+		assertNotSame(evicted, grammar);
+		assertTrue(grammar.getValidator().valid("local a = 1")); //$NON-NLS-1$
+		assertFalse(grammar.getValidator().valid("local = 1")); //$NON-NLS-1$
+	}
+}
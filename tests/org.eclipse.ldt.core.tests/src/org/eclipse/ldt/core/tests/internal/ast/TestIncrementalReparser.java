@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.dltk.compiler.env.ModuleSource;
+import org.eclipse.ldt.core.grammar.ILuaSourceValidator;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaASTNode;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.models.file.Block;
+import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
+import org.eclipse.ldt.core.internal.ast.models.file.Statement;
+import org.eclipse.ldt.core.internal.ast.parser.IncrementalReparser;
+import org.eclipse.ldt.core.internal.ast.parser.LuaSourceParserFactory;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModule;
+import org.eclipse.ldt.core.internal.grammar.LuaGrammarManager;
+import org.eclipse.ldt.core.tests.internal.ast.utils.DummyReporter;
+
+/**
+ * Checks that models of edited statements reparsed on their own are the same as models of a full parse, and that other editions are left to full
+ * parses.
+ */
+public class TestIncrementalReparser extends TestCase {
+
+	private static final String GRAMMAR = "lua-5.1"; //$NON-NLS-1$
+
+	private static final String CODE = "local M = {}\n\nlocal function helper(a)\n  return a * 2\nend\n\n" //$NON-NLS-1$
+			+ "function M.f(x, y)\n  local z = helper(x) + y\n  if z > 10 then\n    z = z - M.limit\n  end\n  return z\nend\n\n" //$NON-NLS-1$
+			+ "function M.g(x)\n  return print(x)\nend\n\nreturn M\n"; //$NON-NLS-1$
+
+	private static final String EDITED = "helper(x) + y"; //$NON-NLS-1$
+
+	private static final String TOP_LEVEL_CODE = "print(1)\nlocal t = {}\nfor i = 1, 10 do\n  t[i] = i\n  print(i)\nend\n\n" //$NON-NLS-1$
+			+ "local n = #t\nprint(n)\nreturn t\n"; //$NON-NLS-1$
+
+	private ModelsBuilderLuaModule builder;
+	private ILuaSourceValidator validator;
+
+	@Override
+	protected void setUp() throws Exception {
+		builder = new ModelsBuilderLuaModule();
+		builder.load();
+		validator = LuaGrammarManager.getAvailableGrammar(GRAMMAR).getValidator();
+	}
+
+	private static LuaSourceRoot parse(String code) {
+		return (LuaSourceRoot) new LuaSourceParserFactory().createSourceParser().parse(new ModuleSource("incremental", code), new DummyReporter()); //$NON-NLS-1$
+	}
+
+	private LuaSourceRoot reparse(String previousCode, String code) throws Exception {
+		return reparse(previousCode, parse(previousCode), code);
+	}
+
+	private LuaSourceRoot reparse(String previousCode, LuaSourceRoot previous, String code) throws Exception {
+		assertFalse("Code should be valid", previous.hasError()); //$NON-NLS-1$
+		IncrementalReparser reparser = new IncrementalReparser() {
+			@Override
+			protected boolean isValid(String source) {
+				return validator.valid(source);
+			}
+
+			@Override
+			protected void parseChunk(String chunk, LuaSourceRoot root) throws Exception {
+				builder.buildASTInBulk(chunk, null, root, GRAMMAR);
+			}
+		};
+		return reparser.reparse(previousCode, previous, code);
+	}
+
+	/**
+	 * Nodes and statements with their offsets and bindings, sorted as order of local variables is not relevant.
+	 */
+	private static List<String> describe(LuaSourceRoot root) throws Exception {
+		final List<String> nodes = new ArrayList<String>();
+		root.traverse(new ASTVisitor() {
+			@Override
+			public boolean visitGeneral(ASTNode node) throws Exception {
+				if (node instanceof LuaASTNode)
+					nodes.add(describe(node));
+				if (node instanceof Block)
+					for (Statement statement : ((Block) node).getStatements())
+						nodes.add(describe(statement));
+				return true;
+			}
+		});
+		for (Item unknown : root.getInternalContent().getUnknownglovalvars())
+			nodes.add("unknown " + describe(unknown)); //$NON-NLS-1$
+		Collections.sort(nodes);
+		return nodes;
+	}
+
+	private static String describe(ASTNode node) {
+		StringBuilder description = new StringBuilder(node.getClass().getSimpleName());
+		description.append(' ').append(node.sourceStart()).append('-').append(node.sourceEnd());
+		if (node instanceof Identifier) {
+			Item definition = ((Identifier) node).getDefinition();
+			description.append(' ').append(((Identifier) node).getName());
+			if (definition != null)
+				description.append(" -> ").append(definition.getName()).append(' ').append(definition.sourceStart()); //$NON-NLS-1$
+		} else if (node instanceof Statement) {
+			Statement statement = (Statement) node;
+			description.append(' ').append(statement.hasCommentBefore()).append(' ').append(statement.hasCommentAfter());
+			description.append(' ').append(statement.isDocumented()).append(' ').append(statement.isSettingField());
+		} else if (node instanceof Item) {
+			description.append(' ').append(((Item) node).getName()).append(" at"); //$NON-NLS-1$
+			for (Identifier occurrence : ((Item) node).getOccurrences())
+				description.append(' ').append(occurrence.sourceStart());
+		}
+		return description.toString();
+	}
+
+	private void assertReparsed(String code) throws Exception {
+		assertReparsed(CODE, code);
+	}
+
+	private void assertReparsed(String previousCode, String code) throws Exception {
+		LuaSourceRoot previous = parse(previousCode);
+		List<String> previousNodes = describe(previous);
+		LuaSourceRoot reparsed = reparse(previousCode, previous, code);
+		assertNotNull("Edition should be reparsed incrementally", reparsed); //$NON-NLS-1$
+		assertEquals(describe(parse(code)), describe(reparsed));
+		assertEquals("Reparsed models should have the length of edited source", code.length(), reparsed.sourceEnd()); //$NON-NLS-1$
+		assertEquals("Previous models should be left untouched", previousNodes, describe(previous)); //$NON-NLS-1$
+	}
+
+	public void testBodyEdition() throws Exception {
+		assertReparsed(CODE.replace(EDITED, "helper(y) + x * helper(y)")); //$NON-NLS-1$
+	}
+
+	public void testLocalDeclaration() throws Exception {
+		assertReparsed(CODE.replace(EDITED, "helper(x) + y\n  local label = 'été'\n  z = z + #label")); //$NON-NLS-1$
+	}
+
+	public void testRemovedOccurrences() throws Exception {
+		assertReparsed(CODE.replace(EDITED, "1")); //$NON-NLS-1$
+	}
+
+	public void testIfBranch() throws Exception {
+		assertReparsed(CODE.replace("z = z - M.limit", "z = z - M.limit * helper(z)")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testNewStatement() throws Exception {
+		assertReparsed(CODE.replace("  end\n  return z", "  end\n  z = z + 1\n  return z")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testCommentBeforeStatement() throws Exception {
+		assertReparsed(CODE.replace("  if z > 10", "  -- check\n  if z > 10")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testTopLevelStatement() throws Exception {
+		assertReparsed(TOP_LEVEL_CODE, TOP_LEVEL_CODE.replace("local n = #t", "local n = #t * 2\nlocal m = n")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testLoopBody() throws Exception {
+		assertReparsed(TOP_LEVEL_CODE, TOP_LEVEL_CODE.replace("print(i)", "print(i * 2)")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testUnknownName() throws Exception {
+		assertNull("Names unknown to previous body need a full parse", reparse(CODE, CODE.replace(EDITED, "other(x) + y"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testFieldAssignment() throws Exception {
+		assertNull("Fields assigned in body need a full parse", reparse(CODE, CODE.replace("z = z - M.limit", "M.limit = z"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testDocumentation() throws Exception {
+		assertNull("Documentation in body needs a full parse", reparse(CODE, CODE.replace("  return z\n", "  ---@type #number\n  return z\n"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testTopLevelEdition() throws Exception {
+		assertNull("Top-level editions need a full parse", reparse(CODE, CODE.replace("local M = {}", "local M = { limit = 1 }"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testInvalidBody() throws Exception {
+		assertNull("Invalid bodies need a full parse", reparse(CODE, CODE.replace(EDITED, "helper(x) +"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testInvalidInBlock() throws Exception {
+		assertNull("Return before the end of a block is invalid", reparse(CODE, CODE.replace(EDITED, EDITED + "\n  return z"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("Function without varargs can not use them", reparse(CODE, CODE.replace(EDITED, "select('#', ...)"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull("Statement starting with a parenthesis is ambiguous", reparse(CODE, CODE.replace(EDITED, EDITED + "\n  (print)(z)"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
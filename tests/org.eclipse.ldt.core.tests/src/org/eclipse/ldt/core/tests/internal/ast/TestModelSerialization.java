@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.dltk.compiler.env.ModuleSource;
+import org.eclipse.ldt.core.internal.ast.models.ModelDeserializer;
+import org.eclipse.ldt.core.internal.ast.models.ModelSerializer;
+import org.eclipse.ldt.core.internal.ast.models.api.Item;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.models.file.Block;
+import org.eclipse.ldt.core.internal.ast.models.file.Identifier;
+import org.eclipse.ldt.core.internal.ast.models.file.LocalVar;
+import org.eclipse.ldt.core.internal.ast.parser.LuaSourceParserFactory;
+import org.eclipse.ldt.core.tests.internal.ast.utils.CollectVisitor;
+import org.eclipse.ldt.core.tests.internal.ast.utils.DummyReporter;
+
+/**
+ * Checks that models written by {@link ModelSerializer} are rebuilt identically by {@link ModelDeserializer}.
+ */
+public class TestModelSerialization extends TestCase {
+
+	private static final String CODE = "---\n-- @module m\nlocal m = {}\n\n" //$NON-NLS-1$
+			+ "---\n-- @type t\n-- @field #string name\nlocal t = {}\n\n" //$NON-NLS-1$
+			+ "---\n-- @function [parent=#m] f\n-- @param #number x\n-- @return #t\nfunction m.f(x) local y = x + 1 return setmetatable({}, t) end\n\n" //$NON-NLS-1$
+			+ "local z = m.f(2)\nz:method('\u00e9')\nglobalvar = require 'other'\nreturn m\n"; //$NON-NLS-1$
+
+	private static class DescriptionVisitor extends ASTVisitor {
+		private final List<String> descriptions = new ArrayList<String>();
+
+		@Override
+		public boolean visitGeneral(ASTNode node) throws Exception {
+			descriptions.add(node.getClass().getSimpleName() + '[' + node.sourceStart() + ',' + node.sourceEnd() + ']');
+			return super.visitGeneral(node);
+		}
+
+		public List<String> getSortedDescriptions() {
+			Collections.sort(descriptions);
+			return descriptions;
+		}
+	}
+
+	private LuaSourceRoot parse() {
+		ModuleSource source = new ModuleSource("serialization", CODE); //$NON-NLS-1$
+		return (LuaSourceRoot) new LuaSourceParserFactory().createSourceParser().parse(source, new DummyReporter());
+	}
+
+	private LuaSourceRoot roundTrip(LuaSourceRoot module) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ModelSerializer(new DataOutputStream(bytes)).writeSourceRoot(module);
+
+		LuaSourceRoot copy = new LuaSourceRoot(CODE.length());
+		new ModelDeserializer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))).readSourceRoot(copy);
+		return copy;
+	}
+
+	public void testSameNodes() throws Exception {
+		LuaSourceRoot module = parse();
+		assertFalse("Code should be valid", module.hasError()); //$NON-NLS-1$
+		LuaSourceRoot copy = roundTrip(module);
+
+		DescriptionVisitor expected = new DescriptionVisitor();
+		module.traverse(expected);
+		DescriptionVisitor actual = new DescriptionVisitor();
+		copy.traverse(actual);
+		assertEquals(expected.getSortedDescriptions(), actual.getSortedDescriptions());
+
+		assertEquals(module.getFileapi().getTypes().keySet(), copy.getFileapi().getTypes().keySet());
+		assertEquals(module.getFileapi().getGlobalvars().keySet(), copy.getFileapi().getGlobalvars().keySet());
+		assertEquals(module.getFileapi().getReturns().size(), copy.getFileapi().getReturns().size());
+		assertEquals(module.getInternalContent().getUnknownglovalvars().size(), copy.getInternalContent().getUnknownglovalvars().size());
+	}
+
+	public void testSharedNodes() throws Exception {
+		LuaSourceRoot copy = roundTrip(parse());
+
+		// Occurrences of local variables must be the identifiers of the internal content, bound to their definition
+		CollectVisitor collector = new CollectVisitor();
+		copy.traverse(collector);
+		List<Identifier> identifiers = new ArrayList<Identifier>();
+		Collections.addAll(identifiers, collector.getASTNode(Identifier.class));
+		LocalVar[] localVars = collector.getASTNode(LocalVar.class);
+		assertTrue("Local variables expected", localVars.length > 0); //$NON-NLS-1$
+		for (LocalVar localVar : localVars) {
+			Item item = localVar.getVar();
+			assertTrue("Local variable should be bound to its block", item.getParent() instanceof Block); //$NON-NLS-1$
+			for (Identifier occurrence : item.getOccurrences()) {
+				assertSame(item, occurrence.getDefinition());
+				assertTrue("Occurrence should be part of internal content", containsInstance(identifiers, occurrence)); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private static boolean containsInstance(List<?> list, Object object) {
+		for (Object element : list) {
+			if (element == object)
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModule;
+
+/**
+ * Checks that models builders load from up to date Metalua bytecode, compiled once.
+ */
+public class TestModelsBuilderLoading extends TestCase {
+
+	private static final String GRAMMAR = "lua-5.1"; //$NON-NLS-1$
+	private static final String CODE = "local m = {}\nfunction m.f(x) return x + 1 end\nreturn m\n"; //$NON-NLS-1$
+
+	private static void assertBuildsModels(final ModelsBuilderLuaModule builder) {
+		builder.load();
+		final LuaSourceRoot root = new LuaSourceRoot(CODE.length());
+		builder.buildAST(CODE, "m", root, GRAMMAR); //$NON-NLS-1$
+		assertNotNull("API model expected", root.getFileapi()); //$NON-NLS-1$
+		assertNotNull("Internal model expected", root.getInternalContent()); //$NON-NLS-1$
+	}
+
+	public void testCompiledOnce() {
+		final ModelsBuilderLuaModule compiling = new ModelsBuilderLuaModule();
+		assertTrue("Forced load should compile Metalua files", compiling.compileMetaluaFiles(true) > 0); //$NON-NLS-1$
+		assertBuildsModels(compiling);
+
+		final ModelsBuilderLuaModule loading = new ModelsBuilderLuaModule();
+		assertEquals("Second load should not compile Metalua files", 0, loading.compileMetaluaFiles(false)); //$NON-NLS-1$
+		assertBuildsModels(loading);
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.models.ModelSerializer;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModule;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModulePool;
+import org.eclipse.ldt.core.tests.internal.ast.utils.LargeSources;
+
+/**
+ * Checks that concurrent parses through a {@link ModelsBuilderLuaModulePool} build the same models whatever its size, and that its models builders
+ * are disposed with the pool.
+ */
+public class TestModelsBuilderPool extends TestCase {
+
+	private static final String GRAMMAR = "lua-5.1"; //$NON-NLS-1$
+
+	private static final int THREAD_COUNT = 4;
+
+	/** Number of modules parsed concurrently, of growing sizes */
+	private static final int MODULE_COUNT = 12;
+
+	/**
+	 * Pool of models builders which are not loaded, counting their creations and disposals.
+	 */
+	private static class CountingPool extends ModelsBuilderLuaModulePool {
+		private final AtomicInteger created = new AtomicInteger();
+		private final AtomicInteger disposed = new AtomicInteger();
+
+		CountingPool(final int maxSize) {
+			super(maxSize);
+		}
+
+		@Override
+		protected ModelsBuilderLuaModule newModule() {
+			created.incrementAndGet();
+			return new ModelsBuilderLuaModule() {
+				@Override
+				public synchronized void load() {
+				}
+
+				@Override
+				public synchronized void dispose() {
+					disposed.incrementAndGet();
+				}
+			};
+		}
+	}
+
+	private static byte[] parse(final ModelsBuilderLuaModulePool pool, final String source) throws Exception {
+		final LuaSourceRoot root = new LuaSourceRoot(source.length());
+		final ModelsBuilderLuaModule builder = pool.acquire();
+		try {
+			builder.buildASTInBulk(source, "large", root, GRAMMAR); //$NON-NLS-1$
+		} finally {
+			pool.release(builder);
+		}
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new ModelSerializer(new DataOutputStream(bytes)).writeSourceRoot(root);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @return serialized models of all modules, parsed concurrently through a pool of given size
+	 */
+	private static List<byte[]> parseConcurrently(final int poolSize) throws Exception {
+		final ModelsBuilderLuaModulePool pool = new ModelsBuilderLuaModulePool(poolSize);
+		final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		try {
+			final List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+			for (int i = 0; i < MODULE_COUNT; i++) {
+				final String source = LargeSources.module(i * 10);
+				futures.add(executor.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws Exception {
+						return parse(pool, source);
+					}
+				}));
+			}
+			final List<byte[]> models = new ArrayList<byte[]>();
+			for (final Future<byte[]> future : futures)
+				models.add(future.get());
+			return models;
+		} finally {
+			executor.shutdown();
+			pool.dispose();
+		}
+	}
+
+	public void testSameModels() throws Exception {
+		final List<byte[]> expected = parseConcurrently(1);
+		final List<byte[]> actual = parseConcurrently(THREAD_COUNT);
+		for (int i = 0; i < MODULE_COUNT; i++)
+			assertTrue("Models of module " + i + " should be the same", Arrays.equals(expected.get(i), actual.get(i))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testReuse() throws Exception {
+		final CountingPool pool = new CountingPool(2);
+		for (int i = 0; i < 3; i++)
+			pool.release(pool.acquire());
+		assertEquals("Idle models builder should be reused", 1, pool.created.get()); //$NON-NLS-1$
+	}
+
+	public void testDispose() throws Exception {
+		final CountingPool pool = new CountingPool(2);
+		final ModelsBuilderLuaModule used = pool.acquire();
+		pool.release(pool.acquire());
+
+		pool.dispose();
+		assertTrue(pool.isDisposed());
+		assertEquals("Idle models builder should be disposed", 1, pool.disposed.get()); //$NON-NLS-1$
+		pool.release(used);
+		assertEquals("Released models builder should be disposed", 2, pool.disposed.get()); //$NON-NLS-1$
+
+		// Disposed pool still lends models builders, disposed at once
+		pool.release(pool.acquire());
+		assertEquals(3, pool.created.get());
+		assertEquals(3, pool.disposed.get());
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.compiler.env.ModuleSource;
+import org.eclipse.ldt.core.internal.ast.models.ModuleDependencyGraph;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.LuaSourceParserFactory;
+import org.eclipse.ldt.core.tests.internal.ast.utils.DummyReporter;
+
+/**
+ * Checks that dependencies of a module are collected from its requires and its references to types of other modules.
+ */
+public class TestModuleDependencyGraph extends TestCase {
+
+	private Set<String> collect(String code) {
+		ModuleSource source = new ModuleSource("dependencies", code); //$NON-NLS-1$
+		LuaSourceRoot module = (LuaSourceRoot) new LuaSourceParserFactory().createSourceParser().parse(source, new DummyReporter());
+		assertFalse("Code should be valid", module.hasError()); //$NON-NLS-1$
+		return ModuleDependencyGraph.collectDependencies(module);
+	}
+
+	public void testNoDependency() {
+		assertTrue(collect("local x = 1\nreturn x\n").isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testRequires() {
+		String code = "local a = require 'a'\nglobalvar = require 'b.c'\nreturn a\n"; //$NON-NLS-1$
+		assertEquals(new HashSet<String>(Arrays.asList("a", "b.c")), collect(code)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testExternalTypes() {
+		String code = "---\n-- @module m\nlocal m = {}\n\n" //$NON-NLS-1$
+				+ "---\n-- @function [parent=#m] f\n-- @param ext#t x\n-- @return ret#t\nfunction m.f(x) return x end\n\nreturn m\n"; //$NON-NLS-1$
+		Set<String> dependencies = collect(code);
+		assertTrue(dependencies.contains("ext")); //$NON-NLS-1$
+		assertTrue(dependencies.contains("ret")); //$NON-NLS-1$
+	}
+
+	public void testNullModels() {
+		assertTrue(ModuleDependencyGraph.collectDependencies(null).isEmpty());
+	}
+}
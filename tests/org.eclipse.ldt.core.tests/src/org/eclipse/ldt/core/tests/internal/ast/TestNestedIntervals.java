@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.models.NestedIntervals;
+
+/**
+ * Checks innermost range queries against a walk through all ranges.
+ */
+public class TestNestedIntervals extends TestCase {
+
+	private NestedIntervals<String> intervals;
+
+	@Override
+	protected void setUp() throws Exception {
+		// function f(a) return g(a.b) end
+		intervals = new NestedIntervals<String>();
+		intervals.add("chunk", 0, 31); //$NON-NLS-1$
+		intervals.add("body", 13, 27); //$NON-NLS-1$
+		intervals.add("call", 20, 27); //$NON-NLS-1$
+		intervals.add("g", 20, 20); //$NON-NLS-1$
+		intervals.add("index", 22, 26); //$NON-NLS-1$
+		intervals.add("a", 22, 22); //$NON-NLS-1$
+		intervals.add("f", 9, 9); //$NON-NLS-1$
+		intervals.build();
+	}
+
+	public void testInnermost() {
+		assertEquals("a", intervals.getInnermost(22, 22)); //$NON-NLS-1$
+		assertEquals("index", intervals.getInnermost(22, 24)); //$NON-NLS-1$
+		assertEquals("call", intervals.getInnermost(21, 21)); //$NON-NLS-1$
+		assertEquals("body", intervals.getInnermost(14, 21)); //$NON-NLS-1$
+		assertEquals("f", intervals.getInnermost(9, 9)); //$NON-NLS-1$
+		assertEquals("chunk", intervals.getInnermost(10, 10)); //$NON-NLS-1$
+		assertNull(intervals.getInnermost(30, 35));
+		assertNull(intervals.getInnermost(-1, 0));
+	}
+
+	public void testEnclosing() {
+		assertEquals(Arrays.asList("index", "call", "body", "chunk"), intervals.getEnclosing(24)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertEquals(Arrays.asList("chunk"), intervals.getEnclosing(31)); //$NON-NLS-1$
+		assertTrue(intervals.getEnclosing(32).isEmpty());
+	}
+
+	public void testEqualRanges() {
+		final NestedIntervals<String> equal = new NestedIntervals<String>();
+		equal.add("outer", 5, 10); //$NON-NLS-1$
+		equal.add("inner", 5, 10); //$NON-NLS-1$
+		equal.build();
+		assertEquals("Last added is the innermost", "inner", equal.getInnermost(6, 7)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Arrays.asList("inner", "outer"), equal.getEnclosing(5)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Compares queries with a linear search on random nested ranges.
+	 */
+	public void testRandomTrees() {
+		final Random random = new Random(42);
+		for (int tree = 0; tree < 20; tree++) {
+			final List<int[]> ranges = new ArrayList<int[]>();
+			addRanges(random, 0, 1000, 0, ranges);
+			final NestedIntervals<int[]> randomIntervals = new NestedIntervals<int[]>();
+			for (final int[] range : ranges)
+				randomIntervals.add(range, range[0], range[1]);
+			randomIntervals.build();
+
+			for (int query = 0; query < 200; query++) {
+				final int start = random.nextInt(1010);
+				final int end = start + random.nextInt(20);
+				assertSame(findInnermost(ranges, start, end), randomIntervals.getInnermost(start, end));
+			}
+		}
+	}
+
+	/** Adds ranges as a traversal visits nodes, parents before children */
+	private static void addRanges(final Random random, final int start, final int end, final int depth, final List<int[]> ranges) {
+		ranges.add(new int[] { start, end });
+		if (depth == 6 || end - start < 4)
+			return;
+		int childStart = start + random.nextInt(3);
+		while (childStart < end) {
+			final int childEnd = Math.min(end, childStart + random.nextInt((end - start) / 2 + 1));
+			addRanges(random, childStart, childEnd, depth + 1, ranges);
+			childStart = childEnd + 1 + random.nextInt(3);
+		}
+	}
+
+	private static int[] findInnermost(final List<int[]> ranges, final int start, final int end) {
+		int[] result = null;
+		for (final int[] range : ranges) {
+			if (range[0] <= start && end <= range[1] && (result == null || (range[0] >= result[0] && range[1] <= result[1])))
+				result = range;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.parser.OffsetFixer;
+import org.eclipse.ldt.core.tests.internal.ast.utils.LargeSources;
+import org.eclipse.ldt.core.tests.internal.ast.utils.TreeMapOffsetFixer;
+
+/**
+ * Checks matching of Lua byte offsets with character offsets, against the former {@link TreeMapOffsetFixer}.
+ */
+public class TestOffsetFixer extends TestCase {
+
+	private static final String ASCII_LINE = "local function f(x) return x * 2 end -- comment\n"; //$NON-NLS-1$
+	private static final String CJK_LINE = "local s = '文字列の例' -- 中文注釋 éè\n"; //$NON-NLS-1$
+
+	/** Number of lines of generated sources */
+	private static final int LARGE_SOURCE_LINES = 10000;
+
+	private static int byteLength(String source) {
+		return OffsetFixer.getByteLength(source, 0, source.length());
+	}
+
+	private static void assertSamePositions(String source) {
+		OffsetFixer fixer = new OffsetFixer(source);
+		TreeMapOffsetFixer reference = new TreeMapOffsetFixer(source);
+		int byteLength = byteLength(source);
+		for (int bytePosition = 0; bytePosition <= byteLength; bytePosition++)
+			assertEquals("Position of byte " + bytePosition, reference.getCharacterPosition(bytePosition), fixer.getCharacterPosition(bytePosition)); //$NON-NLS-1$
+	}
+
+	public void testAscii() {
+		String source = LargeSources.repeat(ASCII_LINE, 3);
+		OffsetFixer fixer = new OffsetFixer(source);
+		for (int position = 0; position <= source.length(); position++)
+			assertEquals(position, fixer.getCharacterPosition(position));
+		assertSamePositions(source);
+	}
+
+	public void testMultiByteCharacters() {
+		String source = ASCII_LINE + CJK_LINE + ASCII_LINE;
+		assertSamePositions(source);
+
+		// Last character of the source
+		OffsetFixer fixer = new OffsetFixer(source);
+		assertEquals(source.length() - 1, fixer.getCharacterPosition(byteLength(source) - 1));
+	}
+
+	public void testByteOrderMark() {
+		OffsetFixer fixer = new OffsetFixer("\ufeffa = 'é' b = 1"); //$NON-NLS-1$
+		assertTrue(fixer.hasBom());
+		assertEquals("First character follows byte order mark", 1, fixer.getCharacterPosition(0)); //$NON-NLS-1$
+		assertEquals("Character after accent", 8, fixer.getCharacterPosition(8)); //$NON-NLS-1$
+	}
+
+	public void testSupplementaryCharacters() {
+		// JNI encodes each half of a surrogate pair with 3 bytes
+		OffsetFixer fixer = new OffsetFixer("'\ud83d\ude00' x"); //$NON-NLS-1$
+		assertEquals(8, OffsetFixer.getByteLength("'\ud83d\ude00'", 0, 4)); //$NON-NLS-1$
+		assertEquals("Position of x", 5, fixer.getCharacterPosition(9)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Timings of large sources are compared by {@link org.eclipse.ldt.core.tests.benchmarks.OffsetFixerBenchmark}.
+	 */
+	public void testLargeSources() {
+		assertSamePositions(LargeSources.repeat(CJK_LINE, LARGE_SOURCE_LINES));
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.compiler.env.ModuleSource;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+import org.eclipse.ldt.core.internal.ast.parser.LuaSourceParserFactory;
+import org.eclipse.ldt.core.internal.ast.parser.ModelsBuilderLuaModule;
+import org.eclipse.ldt.core.internal.ast.parser.PersistentASTCache;
+import org.eclipse.ldt.core.tests.internal.ast.utils.DummyReporter;
+
+/**
+ * Checks that cached models are only found again for the same source, module, grammar and models builder scripts.
+ */
+public class TestPersistentASTCache extends TestCase {
+
+	private static final String GRAMMAR = "lua-5.1"; //$NON-NLS-1$
+
+	private static final String CODE = "---\n-- @module m\nlocal m = {}\n\n" //$NON-NLS-1$
+			+ "---\n-- @function [parent=#m] f\nfunction m.f() end\n\nreturn m\n"; //$NON-NLS-1$
+
+	private File folder;
+	private PersistentASTCache cache;
+
+	/**
+	 * Models builder whose scripts are in a folder of the test.
+	 */
+	private static class ScriptsModule extends ModelsBuilderLuaModule {
+		private final File scripts;
+
+		ScriptsModule(final File scripts) {
+			this.scripts = scripts;
+		}
+
+		@Override
+		protected File getScriptFolder(final String relativepath) {
+			return new File(scripts, relativepath);
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		folder = File.createTempFile("astcache", null); //$NON-NLS-1$
+		assertTrue(folder.delete());
+		cache = new PersistentASTCache(folder, "test"); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		cache.clear();
+	}
+
+	private static LuaSourceRoot parse(final String moduleName) {
+		final ModuleSource source = new ModuleSource(moduleName, CODE);
+		final LuaSourceRoot root = (LuaSourceRoot) new LuaSourceParserFactory().createSourceParser().parse(source, new DummyReporter());
+		assertFalse("Code should be valid", root.hasError()); //$NON-NLS-1$
+		return root;
+	}
+
+	public void testLoadStored() {
+		cache.store(CODE, "a", GRAMMAR, parse("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		final LuaSourceRoot root = new LuaSourceRoot(CODE.length());
+		assertTrue(cache.load(CODE, "a", GRAMMAR, root)); //$NON-NLS-1$
+		assertNotNull(root.getFileapi());
+		assertNotNull(root.getInternalContent());
+	}
+
+	public void testSameSourceOfOtherModule() {
+		cache.store(CODE, "a", GRAMMAR, parse("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		final LuaSourceRoot root = new LuaSourceRoot(CODE.length());
+		assertFalse("Models of another module should not be loaded", cache.load(CODE, "b", GRAMMAR, root)); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// Both modules are cached side by side
+		cache.store(CODE, "b", GRAMMAR, parse("b")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(cache.load(CODE, "a", GRAMMAR, new LuaSourceRoot(CODE.length()))); //$NON-NLS-1$
+		assertTrue(cache.load(CODE, "b", GRAMMAR, new LuaSourceRoot(CODE.length()))); //$NON-NLS-1$
+	}
+
+	public void testOtherGrammar() {
+		cache.store(CODE, "a", GRAMMAR, parse("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(cache.load(CODE, "a", "lua-5.2", new LuaSourceRoot(CODE.length()))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testOtherBuildersVersion() {
+		cache.store(CODE, "a", GRAMMAR, parse("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		final PersistentASTCache other = new PersistentASTCache(folder, "other"); //$NON-NLS-1$
+		assertFalse(other.load(CODE, "a", GRAMMAR, new LuaSourceRoot(CODE.length()))); //$NON-NLS-1$
+	}
+
+	private static void write(final File file, final String content) throws IOException {
+		file.getParentFile().mkdirs();
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8")); //$NON-NLS-1$
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Builders version changes with any script of the models builder, but not with bytecode compiled from them.
+	 */
+	public void testScriptsChecksum() throws Exception {
+		final File scripts = File.createTempFile("scripts", null); //$NON-NLS-1$
+		assertTrue(scripts.delete());
+		final File script = new File(scripts, ModelsBuilderLuaModule.LOCAL_LIB_PATH + "/javamodelsbuilder.lua"); //$NON-NLS-1$
+		write(script, "return {}"); //$NON-NLS-1$
+		new File(scripts, ModelsBuilderLuaModule.EXTERNAL_LIB_PATH).mkdirs();
+
+		final ScriptsModule module = new ScriptsModule(scripts);
+		final String checksum = module.getSourcesChecksum();
+		assertEquals(checksum, module.getSourcesChecksum());
+
+		write(new File(scripts, ModelsBuilderLuaModule.LOCAL_LIB_PATH + "/models/internalmodelbuilder.luac"), "bytecode"); //$NON-NLS-1$ //$NON-NLS-2$
+		write(new File(scripts, ModelsBuilderLuaModule.LOCAL_LIB_PATH + "/models/internalmodelbuilder.luac.checksum"), "checksum"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Compiled bytecode should not change checksum", checksum, module.getSourcesChecksum()); //$NON-NLS-1$
+
+		write(script, "return { edited = true }"); //$NON-NLS-1$
+		assertFalse("Edited script should change checksum", checksum.equals(module.getSourcesChecksum())); //$NON-NLS-1$
+	}
+}
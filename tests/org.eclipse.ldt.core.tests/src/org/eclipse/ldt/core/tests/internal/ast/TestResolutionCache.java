@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.internal.ast.models.ResolutionCache;
+
+/**
+ * Checks that resolutions are reused, and dropped when a module they depend on changes.
+ */
+public class TestResolutionCache extends TestCase {
+
+	/** Resolves a key as its value in its module, or in the module it references with "module:key" syntax */
+	private final class ModulesResolver implements ResolutionCache.Resolver<String, String, String> {
+		private int resolutions;
+
+		@Override
+		public String resolve(final String module, final String key) {
+			resolutions++;
+			cache.addDependency(module);
+			final String value = modules.get(module).get(key);
+			if (value != null && value.indexOf(':') > 0) {
+				final String[] reference = value.split(":"); //$NON-NLS-1$
+				// keys are compared by identity, as nodes of an AST
+				return cache.get(reference[0], reference[1].intern());
+			}
+			return value;
+		}
+	}
+
+	private final Map<String, Map<String, String>> modules = new HashMap<String, Map<String, String>>();
+	private ModulesResolver resolver;
+	private ResolutionCache<String, String, String> cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		define("a", "x", "b:y"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		define("a", "z", "local"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		define("b", "y", "c:w"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		define("c", "w", "string"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		define("d", "v", "number"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		resolver = new ModulesResolver();
+		cache = new ResolutionCache<String, String, String>(resolver, 100);
+	}
+
+	private void define(final String module, final String key, final String value) {
+		Map<String, String> values = modules.get(module);
+		if (values == null) {
+			values = new HashMap<String, String>();
+			modules.put(module, values);
+		}
+		values.put(key, value);
+	}
+
+	public void testHits() {
+		assertEquals("string", cache.get("a", "x")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(3, resolver.resolutions);
+		assertEquals("string", cache.get("a", "x")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("string", cache.get("b", "y")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("Nested resolutions are cached too", 3, resolver.resolutions); //$NON-NLS-1$
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(0.4, cache.getHitRate(), 0.001);
+	}
+
+	public void testTransitiveInvalidation() {
+		cache.get("a", "x"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.get("a", "z"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.get("d", "v"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(5, cache.size());
+
+		define("c", "w", "boolean"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		cache.invalidate("c"); //$NON-NLS-1$
+		assertEquals("Only values of d do not depend on c", 1, cache.size()); //$NON-NLS-1$
+		assertEquals("boolean", cache.get("a", "x")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("number", cache.get("d", "v")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testUnresolvedNotCached() {
+		assertNull(cache.get("d", "unknown")); //$NON-NLS-1$ //$NON-NLS-2$
+		define("d", "unknown", "table"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals("table", cache.get("d", "unknown")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
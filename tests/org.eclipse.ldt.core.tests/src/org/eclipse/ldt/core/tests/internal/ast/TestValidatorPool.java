@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.core.grammar.ILuaSourceValidator;
+import org.eclipse.ldt.core.grammar.ILuaSourceValidator2;
+import org.eclipse.ldt.core.internal.grammar.LuaGrammar;
+
+/**
+ * Checks that validators of a {@link LuaGrammar} are reused, and disposed once they are not kept.
+ */
+public class TestValidatorPool extends TestCase {
+
+	private static final int MAX_IDLE_VALIDATORS = 1;
+
+	/**
+	 * Validator counting its creations and disposals, whose validations wait for a latch when one is set.
+	 */
+	private static class CountingValidator implements ILuaSourceValidator2 {
+		private final CountingGrammar grammar;
+
+		CountingValidator(final CountingGrammar grammar) {
+			this.grammar = grammar;
+			grammar.created.incrementAndGet();
+		}
+
+		@Override
+		public boolean valid(final String source) {
+			final CountDownLatch latch = grammar.latch;
+			if (latch != null) {
+				latch.countDown();
+				try {
+					latch.await(10, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public String getCleanedSource() {
+			return null;
+		}
+
+		@Override
+		public String getErrorMessage() {
+			return null;
+		}
+
+		@Override
+		public int getLineIndex() {
+			return 0;
+		}
+
+		@Override
+		public void dispose() {
+			grammar.disposed.incrementAndGet();
+		}
+	}
+
+	private static class CountingGrammar extends LuaGrammar {
+		private final AtomicInteger created = new AtomicInteger();
+		private final AtomicInteger disposed = new AtomicInteger();
+		private volatile CountDownLatch latch;
+
+		CountingGrammar() {
+			super("counting", Collections.<String> emptyList(), MAX_IDLE_VALIDATORS); //$NON-NLS-1$
+		}
+
+		@Override
+		protected ILuaSourceValidator newValidator() {
+			return new CountingValidator(this);
+		}
+	}
+
+	private CountingGrammar grammar;
+
+	@Override
+	protected void setUp() throws Exception {
+		grammar = new CountingGrammar();
+		grammar.warmUp();
+	}
+
+	public void testReuse() {
+		for (int i = 0; i < 3; i++)
+			assertTrue(grammar.getValidator().valid("")); //$NON-NLS-1$
+		assertEquals("Warmed validator should be reused", 1, grammar.created.get()); //$NON-NLS-1$
+		assertEquals(0, grammar.disposed.get());
+	}
+
+	/**
+	 * Validators created on a concurrency peak are disposed, except the ones kept idle.
+	 */
+	public void testExtraValidatorsDisposed() throws Exception {
+		final int threadCount = 3;
+		grammar.latch = new CountDownLatch(threadCount);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < threadCount; i++) {
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					grammar.getValidator().valid(""); //$NON-NLS-1$
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (final Thread thread : threads)
+			thread.join();
+
+		assertEquals(threadCount, grammar.created.get());
+		assertEquals(threadCount - MAX_IDLE_VALIDATORS, grammar.disposed.get());
+	}
+
+	public void testDispose() {
+		grammar.dispose();
+		assertTrue(grammar.isDisposed());
+		assertEquals("Idle validators should be disposed", 1, grammar.disposed.get()); //$NON-NLS-1$
+
+		// Disposed grammar still validates, with a validator disposed at once
+		assertTrue(grammar.getValidator().valid("")); //$NON-NLS-1$
+		assertEquals(2, grammar.created.get());
+		assertEquals(2, grammar.disposed.get());
+	}
+}
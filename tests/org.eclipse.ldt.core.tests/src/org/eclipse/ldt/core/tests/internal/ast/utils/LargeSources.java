@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.ast.utils;
+
+/**
+ * Generates large Lua sources, shared by tests and benchmarks.
+ */
+public final class LargeSources {
+
+	private LargeSources() {
+	}
+
+	/**
+	 * @return <code>line</code> repeated <code>count</code> times
+	 */
+	public static String repeat(final String line, final int count) {
+		final StringBuilder source = new StringBuilder(line.length() * count);
+		for (int i = 0; i < count; i++)
+			source.append(line);
+		return source.toString();
+	}
+
+	/**
+	 * @return documented module <code>large</code> defining <code>functionCount</code> functions
+	 */
+	public static String module(final int functionCount) {
+		final StringBuilder code = new StringBuilder("---\n-- @module large\nlocal M = {}\n\n"); //$NON-NLS-1$
+		for (int i = 0; i < functionCount; i++) {
+			code.append("---\n-- Function ").append(i).append(" documentation.\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			code.append("-- @function [parent=#large] f").append(i).append('\n'); //$NON-NLS-1$
+			code.append("-- @param #number x\n-- @return #number\n"); //$NON-NLS-1$
+			code.append("function M.f").append(i).append("(x)\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			code.append("  local y = x * ").append(i).append('\n'); //$NON-NLS-1$
+			code.append("  if y > 10 then y = M.f0(y - 10) end\n"); //$NON-NLS-1$
+			code.append("  return math.max(x, y), string.format('%d', y)\nend\n\n"); //$NON-NLS-1$
+		}
+		code.append("return M\n"); //$NON-NLS-1$
+		return code.toString();
+	}
+}
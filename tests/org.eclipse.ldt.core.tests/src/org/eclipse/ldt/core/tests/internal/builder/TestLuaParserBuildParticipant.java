@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.builder;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IBuildpathEntry;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.ldt.core.LuaNature;
+import org.eclipse.ldt.core.internal.ast.models.LuaASTModelUtils;
+import org.eclipse.ldt.core.internal.ast.models.common.LuaSourceRoot;
+
+/**
+ * Checks that a full build of a project with several modules, parsed ahead concurrently, reports syntax problems of each module once and leaves
+ * their ASTs in cache.
+ */
+public class TestLuaParserBuildParticipant extends TestCase {
+
+	private static final String PROJECT = "parserbuildparticipant"; //$NON-NLS-1$
+
+	private IProject project;
+	private IFolder src;
+
+	private IFile createModule(final String name, final String code) throws Exception {
+		final IFile file = src.getFile(name + ".lua"); //$NON-NLS-1$
+		file.create(new ByteArrayInputStream(code.getBytes("UTF-8")), true, null); //$NON-NLS-1$
+		return file;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		project = workspace.getRoot().getProject(PROJECT);
+		final IProjectDescription description = workspace.newProjectDescription(PROJECT);
+		description.setNatureIds(new String[] { LuaNature.ID });
+		project.create(description, null);
+		project.open(null);
+
+		src = project.getFolder("src"); //$NON-NLS-1$
+		src.create(true, true, null);
+		createModule("main", "local a = require 'a'\nlocal b = require 'b'\nprint(a.value, b.value)\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		createModule("a", "local M = {}\nM.value = 1\nshared = true\nreturn M\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		createModule("b", "local a = require 'a'\nlocal M = { value = a.value + 1 }\nreturn M\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		createModule("broken", "local x = = 1\n"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		final IScriptProject scriptProject = DLTKCore.create(project);
+		scriptProject.setRawBuildpath(new IBuildpathEntry[] { DLTKCore.newSourceEntry(src.getFullPath()) }, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		project.delete(true, null);
+	}
+
+	private int countErrors(final String module) throws Exception {
+		int errors = 0;
+		for (final IMarker marker : src.getFile(module + ".lua").findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO)) { //$NON-NLS-1$
+			if (marker.getAttribute(IMarker.SEVERITY, -1) == IMarker.SEVERITY_ERROR)
+				errors++;
+		}
+		return errors;
+	}
+
+	private LuaSourceRoot getAST(final String module) {
+		final LuaSourceRoot root = LuaASTModelUtils.getLuaSourceRoot(DLTKCore.createSourceModuleFrom(src.getFile(module + ".lua"))); //$NON-NLS-1$
+		assertNotNull("Module " + module + " should have an AST", root); //$NON-NLS-1$ //$NON-NLS-2$
+		return root;
+	}
+
+	public void testFullBuild() throws Exception {
+		project.build(IncrementalProjectBuilder.FULL_BUILD, null);
+
+		for (final String module : new String[] { "main", "a", "b" }) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertEquals("Valid module " + module + " should have no error", 0, countErrors(module)); //$NON-NLS-1$ //$NON-NLS-2$
+			assertFalse(getAST(module).hasError());
+		}
+		assertEquals("Syntax error should be reported once", 1, countErrors("broken")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(getAST("broken").hasError()); //$NON-NLS-1$
+
+		assertTrue("Globals should be in AST", getAST("a").getFileapi().getGlobalvars().containsKey("shared")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(1, getAST("b").getFileapi().getReturns().size()); //$NON-NLS-1$
+
+		// Markers of the previous build are replaced
+		project.build(IncrementalProjectBuilder.FULL_BUILD, null);
+		assertEquals("Syntax error should be reported once after a second build", 1, countErrors("broken")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(0, countErrors("main")); //$NON-NLS-1$
+	}
+
+	public void testFixedModule() throws Exception {
+		project.build(IncrementalProjectBuilder.FULL_BUILD, null);
+		assertEquals(1, countErrors("broken")); //$NON-NLS-1$
+
+		src.getFile("broken.lua").setContents(new ByteArrayInputStream("local x = 1\nreturn x\n".getBytes("UTF-8")), true, false, null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		project.build(IncrementalProjectBuilder.FULL_BUILD, null);
+		assertEquals("Fixed module should have no error", 0, countErrors("broken")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(getAST("broken").hasError()); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.core.tests.internal.buildpath;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IBuildpathEntry;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.ldt.core.LuaNature;
+import org.eclipse.ldt.core.internal.buildpath.LibrariesPreparseJob;
+
+/**
+ * Checks parsing of libraries of a project depending on another one, and cancellation of the job.
+ */
+public class TestLibrariesPreparseJob extends TestCase {
+
+	private static final String LIBRARY_PROJECT = "preparselibrary"; //$NON-NLS-1$
+	private static final String PROJECT = "preparse"; //$NON-NLS-1$
+
+	/** Delay of jobs which must not run before they are canceled, in milliseconds */
+	private static final long NEVER = 60000;
+
+	private IScriptProject library;
+	private IScriptProject project;
+
+	/**
+	 * Exposes {@link #run(IProgressMonitor)}, to run the job with a given monitor.
+	 */
+	private static class TestedJob extends LibrariesPreparseJob {
+		public TestedJob(final IScriptProject project) {
+			super(project);
+		}
+
+		public IStatus runWith(final IProgressMonitor monitor) {
+			return run(monitor);
+		}
+	}
+
+	private static IScriptProject createProject(final String name, final IScriptProject dependency) throws Exception {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		final IProject project = workspace.getRoot().getProject(name);
+		final IProjectDescription description = workspace.newProjectDescription(name);
+		description.setNatureIds(new String[] { LuaNature.ID });
+		project.create(description, null);
+		project.open(null);
+
+		final IFolder src = project.getFolder("src"); //$NON-NLS-1$
+		src.create(true, true, null);
+		for (int i = 0; i < 3; i++) {
+			final String code = "local M = {}\nfunction M.f(x)\n  return x * " + i + "\nend\nreturn M\n"; //$NON-NLS-1$ //$NON-NLS-2$
+			src.getFile(name + i + ".lua").create(new ByteArrayInputStream(code.getBytes("UTF-8")), true, null); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		final IScriptProject scriptProject = DLTKCore.create(project);
+		final IBuildpathEntry source = DLTKCore.newSourceEntry(src.getFullPath());
+		if (dependency == null)
+			scriptProject.setRawBuildpath(new IBuildpathEntry[] { source }, null);
+		else
+			scriptProject.setRawBuildpath(new IBuildpathEntry[] { source, DLTKCore.newProjectEntry(dependency.getProject().getFullPath()) }, null);
+		return scriptProject;
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		library = createProject(LIBRARY_PROJECT, null);
+		project = createProject(PROJECT, library);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Job.getJobManager().cancel(project.getProject());
+		project.getProject().delete(true, null);
+		library.getProject().delete(true, null);
+	}
+
+	public void testParseLibraries() throws Exception {
+		final LibrariesPreparseJob job = new LibrariesPreparseJob(project);
+		job.schedule();
+		job.join();
+		assertEquals(IStatus.OK, job.getResult().getSeverity());
+	}
+
+	public void testCanceledMonitor() {
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		assertEquals(IStatus.CANCEL, new TestedJob(project).runWith(monitor).getSeverity());
+	}
+
+	public void testCanceledOnClose() throws Exception {
+		final LibrariesPreparseJob job = new LibrariesPreparseJob(project);
+		job.schedule(NEVER);
+		assertEquals(1, Job.getJobManager().find(project.getProject()).length);
+
+		project.getProject().close(null);
+		assertEquals("Job of closed project should be canceled", Job.NONE, job.getState()); //$NON-NLS-1$
+		assertEquals(0, Job.getJobManager().find(project.getProject()).length);
+	}
+
+	public void testCanceledOnDelete() throws Exception {
+		final LibrariesPreparseJob job = new LibrariesPreparseJob(project);
+		job.schedule(NEVER);
+
+		library.getProject().delete(true, null);
+		assertEquals("Job of an other project should not be canceled", Job.SLEEPING, job.getState()); //$NON-NLS-1$
+
+		project.getProject().delete(true, null);
+		assertEquals("Job of deleted project should be canceled", Job.NONE, job.getState()); //$NON-NLS-1$
+	}
+}
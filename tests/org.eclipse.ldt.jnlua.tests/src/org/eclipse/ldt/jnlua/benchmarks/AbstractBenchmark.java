@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.benchmarks;
+
+import junit.framework.TestCase;
+
+/**
+ * Base of JNLua benchmarks. They are not part of {@link org.eclipse.ldt.jnlua.tests.AllJNLuaTests}, as timings depend too much on the machine to be
+ * asserted: run them on demand, through {@link AllBenchmarks}, and read the reported timings.
+ */
+public abstract class AbstractBenchmark extends TestCase {
+
+	/** Number of measured runs, after a warm up run */
+	protected static final int ITERATIONS = 5;
+
+	/**
+	 * Code to measure.
+	 */
+	protected interface Task {
+		void run() throws Exception;
+	}
+
+	/**
+	 * @return mean time of a run of <code>task</code>, in milliseconds
+	 */
+	protected static long measure(Task task) throws Exception {
+		// Warm up before measuring
+		task.run();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			task.run();
+		return (System.nanoTime() - start) / ITERATIONS / 1000000;
+	}
+
+	protected static void report(String format, Object... args) {
+		System.out.println(String.format(format, args));
+	}
+}
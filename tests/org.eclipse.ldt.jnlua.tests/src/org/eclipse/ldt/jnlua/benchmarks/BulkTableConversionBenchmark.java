@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.benchmarks;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Compares the time of converting a table of numbers to a Java array element by element and in bulk.
+ */
+public class BulkTableConversionBenchmark extends AbstractBenchmark {
+
+	private static final int ELEMENT_COUNT = 100000;
+
+	private LuaState state;
+
+	/** Sum of converted elements, so that conversions are not optimized away */
+	private double checksum;
+
+	@Override
+	protected void setUp() throws Exception {
+		state = new LuaState();
+		final double[] array = new double[ELEMENT_COUNT];
+		for (int i = 0; i < array.length; i++)
+			array[i] = i;
+		state.pushArray(array);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		state.close();
+	}
+
+	public void testToDoubleArray() throws Exception {
+		final long byElement = measure(new Task() {
+			@Override
+			public void run() {
+				final double[] array = new double[state.rawLen(-1)];
+				for (int i = 0; i < array.length; i++) {
+					state.rawGet(-1, i + 1);
+					array[i] = state.toNumber(-1);
+					state.pop(1);
+				}
+				checksum += array[array.length - 1];
+			}
+		});
+		final long bulk = measure(new Task() {
+			@Override
+			public void run() {
+				final double[] array = state.toDoubleArray(-1);
+				checksum += array[array.length - 1];
+			}
+		});
+		report("Conversion of %d numbers: %d ms by element, %d ms in bulk", ELEMENT_COUNT, byElement, bulk); //$NON-NLS-1$
+	}
+}
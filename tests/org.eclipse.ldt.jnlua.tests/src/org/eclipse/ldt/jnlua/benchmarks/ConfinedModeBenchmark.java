@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.benchmarks;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Compares push and check throughput of a Lua state shared by threads and of a Lua state confined to one.
+ */
+public class ConfinedModeBenchmark extends AbstractBenchmark {
+
+	private static final int VALUES = 1000000;
+
+	private LuaState state;
+
+	@Override
+	protected void setUp() throws Exception {
+		state = new LuaState();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		state.close();
+	}
+
+	private long measure(final boolean confined) throws Exception {
+		state.setConfined(confined);
+		try {
+			return measure(new Task() {
+				@Override
+				public void run() {
+					for (int i = 0; i < VALUES; i++) {
+						state.pushInteger(i);
+						state.checkInteger(-1);
+						state.pushString("value"); //$NON-NLS-1$
+						state.checkString(-1);
+						state.pop(2);
+					}
+				}
+			});
+		} finally {
+			state.setConfined(false);
+		}
+	}
+
+	public void testPushAndCheck() throws Exception {
+		long shared = measure(false);
+		long confined = measure(true);
+		report("Push and check of %d integers and strings: %d ms shared, %d ms confined", VALUES, shared, confined); //$NON-NLS-1$
+	}
+}
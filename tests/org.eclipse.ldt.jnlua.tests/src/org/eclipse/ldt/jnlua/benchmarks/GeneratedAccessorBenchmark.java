@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.benchmarks;
+
+import org.eclipse.ldt.jnlua.internal.tests.GeneratedAccessorTest.Target;
+
+import com.naef.jnlua.DefaultJavaReflector;
+import com.naef.jnlua.JavaReflector;
+import com.naef.jnlua.LuaState;
+
+/**
+ * Compares the time of invoking a Java method from Lua by reflection and through generated accessors.
+ */
+public class GeneratedAccessorBenchmark extends AbstractBenchmark {
+
+	private static final int CALLS = 1000000;
+
+	private static final String CODE = "local add, n = Target.add, ... local s = 0 for i = 1, n do s = add(Target, s, 1) end return s"; //$NON-NLS-1$
+
+	private LuaState state;
+
+	@Override
+	protected void setUp() throws Exception {
+		state = new LuaState();
+		state.openLib(LuaState.Library.BASE);
+		state.pop(1);
+		state.pushJavaObject(Target.class);
+		state.setGlobal("Target"); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		state.close();
+	}
+
+	private long measure(final JavaReflector reflector) throws Exception {
+		state.setJavaReflector(reflector);
+		return measure(new Task() {
+			@Override
+			public void run() {
+				state.load(CODE, "benchmark"); //$NON-NLS-1$
+				state.pushInteger(CALLS);
+				state.call(1, 1);
+				state.pop(1);
+			}
+		});
+	}
+
+	public void testStaticMethodCalls() throws Exception {
+		long reflection = measure(DefaultJavaReflector.getInstance());
+		long generated = measure(DefaultJavaReflector.getGeneratingInstance());
+		report("%d calls of a Java method: %d ms by reflection, %d ms through generated accessors", CALLS, reflection, generated); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.ldt.jnlua.internal.tests.JavaReflectorConcurrencyTest.Calls;
+
+/**
+ * Compares the time of Java calls from Lua states of one thread and of several threads, sharing the Java reflector caches.
+ */
+public class JavaReflectorConcurrencyBenchmark extends AbstractBenchmark {
+
+	private static final int THREAD_COUNT = 4;
+
+	private static final int CALL_COUNT = 200000;
+
+	private static long measure(final int threadCount) throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			return measure(new Task() {
+				@Override
+				public void run() throws Exception {
+					Future<?>[] futures = new Future<?>[threadCount];
+					for (int i = 0; i < threadCount; i++)
+						futures[i] = executor.submit(new Calls(CALL_COUNT));
+					for (Future<?> future : futures)
+						future.get();
+				}
+			});
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testConcurrentCalls() throws Exception {
+		long single = measure(1);
+		long concurrent = measure(THREAD_COUNT);
+		report("%d Java calls per thread: %d ms on 1 thread, %d ms on %d threads", 3 * CALL_COUNT, single, concurrent, THREAD_COUNT); //$NON-NLS-1$
+	}
+}
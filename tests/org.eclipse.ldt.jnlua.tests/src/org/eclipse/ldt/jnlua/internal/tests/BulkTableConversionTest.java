@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.internal.tests;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Checks conversions of whole tables to and from Java arrays and maps.
+ */
+public class BulkTableConversionTest extends TestCase {
+
+	private static final int ELEMENT_COUNT = 1000;
+
+	private LuaState state;
+
+	@Override
+	protected void setUp() throws Exception {
+		state = new LuaState();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		state.close();
+	}
+
+	private void push(final String table) {
+		state.load("return " + table, "table"); //$NON-NLS-1$ //$NON-NLS-2$
+		state.call(0, 1);
+	}
+
+	public void testToDoubleArray() {
+		push("{ 1.5, 2, '3' }"); //$NON-NLS-1$
+		assertTrue(Arrays.equals(new double[] { 1.5, 2, 3 }, state.toDoubleArray(-1)));
+		assertEquals(1, state.getTop());
+	}
+
+	public void testToIntArray() {
+		push("{ 1, 0, -3 }"); //$NON-NLS-1$
+		assertTrue(Arrays.equals(new int[] { 1, 0, -3 }, state.toIntArray(-1)));
+		assertEquals(1, state.getTop());
+	}
+
+	public void testToStringArray() {
+		push("{ 'a', 2, '' }"); //$NON-NLS-1$
+		assertTrue(Arrays.equals(new String[] { "a", "2", "" }, state.toStringArray(-1))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(1, state.getTop());
+	}
+
+	public void testElementNotConvertible() {
+		push("{ 1, true, 3 }"); //$NON-NLS-1$
+		try {
+			state.toDoubleArray(-1);
+			fail("A boolean should not convert to a number"); //$NON-NLS-1$
+		} catch (final ClassCastException e) {
+			assertEquals(1, state.getTop());
+		}
+	}
+
+	public void testPushArray() {
+		state.pushArray(new double[] { 1, 2.5 });
+		assertEquals(2, state.rawLen(-1));
+		state.rawGet(-1, 2);
+		assertEquals(2.5, state.toNumber(-1), 0);
+		state.pop(2);
+	}
+
+	public void testToMap() {
+		push("{ a = 1, [2] = 'b', c = true, d = {} }"); //$NON-NLS-1$
+		final Map<Object, Object> map = state.toMap(-1);
+		assertEquals(4, map.size());
+		assertEquals(Double.valueOf(1), map.get("a")); //$NON-NLS-1$
+		assertEquals("b", map.get(Double.valueOf(2))); //$NON-NLS-1$
+		assertEquals(Boolean.TRUE, map.get("c")); //$NON-NLS-1$
+		assertTrue(map.get("d") instanceof Map<?, ?>); //$NON-NLS-1$
+		assertEquals(1, state.getTop());
+	}
+
+	public void testConverter() {
+		push("{ 1, 2 }"); //$NON-NLS-1$
+		assertTrue(Arrays.equals(new double[] { 1, 2 }, state.toJavaObject(-1, double[].class)));
+		assertTrue(Arrays.equals(new String[] { "1", "2" }, state.toJavaObject(-1, String[].class))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, state.toJavaObject(-1, HashMap.class).size());
+		state.pop(1);
+
+		// Elements which do not convert in bulk still convert one by one
+		push("{ 'a', false }"); //$NON-NLS-1$
+		assertTrue(Arrays.equals(new String[] { "a", null }, state.toJavaObject(-1, String[].class))); //$NON-NLS-1$
+		state.pop(1);
+	}
+
+	public void testRoundTrip() {
+		final double[] array = new double[ELEMENT_COUNT];
+		for (int i = 0; i < array.length; i++)
+			array[i] = i;
+		state.pushArray(array);
+		assertTrue(Arrays.equals(array, state.toDoubleArray(-1)));
+		state.pop(1);
+	}
+}
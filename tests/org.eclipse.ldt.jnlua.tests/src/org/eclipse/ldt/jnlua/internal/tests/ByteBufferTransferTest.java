@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.internal.tests;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Checks that strings are pushed from and read to byte buffers, and that character sequences are pushed in UTF-8.
+ */
+public class ByteBufferTransferTest extends TestCase {
+
+	private static final String TEXT = "local s = 'caf\u00e9 \ud83d\ude00'"; //$NON-NLS-1$
+
+	private LuaState state;
+
+	@Override
+	protected void setUp() throws Exception {
+		state = new LuaState();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		state.close();
+	}
+
+	private static byte[] utf8(final String s) throws UnsupportedEncodingException {
+		return s.getBytes("UTF-8"); //$NON-NLS-1$
+	}
+
+	private byte[] popBytes() {
+		final byte[] bytes = state.toByteArray(-1);
+		state.pop(1);
+		return bytes;
+	}
+
+	public void testPushHeapBuffer() throws UnsupportedEncodingException {
+		final ByteBuffer buffer = ByteBuffer.wrap(utf8(TEXT));
+		state.pushByteBuffer(buffer);
+		assertTrue(Arrays.equals(utf8(TEXT), popBytes()));
+		assertEquals(0, buffer.position());
+	}
+
+	public void testPushDirectBuffer() throws UnsupportedEncodingException {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+		buffer.put(utf8(TEXT)).flip();
+		state.pushByteBuffer(buffer);
+		assertTrue(Arrays.equals(utf8(TEXT), popBytes()));
+	}
+
+	public void testPushBufferRemaining() {
+		final ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 'a', 0, 'b', 'c' });
+		buffer.position(1).limit(3);
+		state.pushByteBuffer(buffer);
+		assertTrue(Arrays.equals(new byte[] { 0, 'b' }, popBytes()));
+		assertEquals(1, buffer.position());
+	}
+
+	public void testToByteBuffer() throws UnsupportedEncodingException {
+		state.pushByteArray(utf8(TEXT));
+		final ByteBuffer buffer = state.toByteBuffer(-1);
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		assertTrue(Arrays.equals(utf8(TEXT), bytes));
+		state.pushBoolean(true);
+		assertNull(state.toByteBuffer(-1));
+		state.pop(2);
+	}
+
+	public void testPushCharSequence() throws UnsupportedEncodingException {
+		state.pushCharSequence(new StringBuilder(TEXT));
+		assertTrue(Arrays.equals(utf8(TEXT), popBytes()));
+		state.pushCharSequence(""); //$NON-NLS-1$
+		assertEquals(0, popBytes().length);
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.internal.tests;
+
+import junit.framework.TestCase;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Checks that a {@link LuaState} confined to a thread behaves as a shared one for its owner, and rejects other threads.
+ */
+public class ConfinedModeTest extends TestCase {
+
+	private LuaState state;
+
+	@Override
+	protected void setUp() throws Exception {
+		state = new LuaState();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		state.close();
+	}
+
+	/**
+	 * Runs <code>runnable</code> in another thread.
+	 *
+	 * @return the exception thrown by <code>runnable</code>, if any
+	 */
+	private static Throwable runInOtherThread(final Runnable runnable) throws InterruptedException {
+		final Throwable[] thrown = new Throwable[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					runnable.run();
+				} catch (Throwable e) {
+					thrown[0] = e;
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		return thrown[0];
+	}
+
+	public void testConfinement() {
+		assertFalse(state.isConfined());
+		state.setConfined(true);
+		assertTrue(state.isConfined());
+		state.setConfined(false);
+		assertFalse(state.isConfined());
+	}
+
+	public void testConfinedCalls() {
+		state.setConfined(true);
+		state.load("return ... * 2", "double"); //$NON-NLS-1$ //$NON-NLS-2$
+		state.pushInteger(21);
+		state.call(1, 1);
+		assertEquals(42, state.checkInteger(-1));
+		state.pop(1);
+		state.pushString("value"); //$NON-NLS-1$
+		assertEquals("value", state.checkString(-1)); //$NON-NLS-1$
+		state.pop(1);
+		state.setConfined(false);
+		assertEquals(0, state.getTop());
+	}
+
+	public void testOtherThread() throws Exception {
+		state.setConfined(true);
+		Throwable pushed = runInOtherThread(new Runnable() {
+			@Override
+			public void run() {
+				state.pushInteger(1);
+			}
+		});
+		assertTrue("Other threads should not use a confined state", pushed instanceof IllegalStateException); //$NON-NLS-1$
+		Throwable called = runInOtherThread(new Runnable() {
+			@Override
+			public void run() {
+				state.load("return 1", "one"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		});
+		assertTrue("Synchronized methods should reject other threads too", called instanceof IllegalStateException); //$NON-NLS-1$
+		Throwable released = runInOtherThread(new Runnable() {
+			@Override
+			public void run() {
+				state.setConfined(false);
+			}
+		});
+		assertTrue("Only the owner should release a confined state", released instanceof IllegalStateException); //$NON-NLS-1$
+		assertEquals(0, state.getTop());
+
+		state.setConfined(false);
+		assertNull("Released state should be shared again", runInOtherThread(new Runnable() { //$NON-NLS-1$
+			@Override
+			public void run() {
+				state.pushInteger(1);
+				state.pop(1);
+			}
+		}));
+	}
+
+	public void testConfinedClose() {
+		state.setConfined(true);
+		state.close();
+		assertFalse(state.isOpen());
+		assertTrue(state.isConfined());
+		try {
+			state.pushInteger(1);
+			fail("Closed state should not be used"); //$NON-NLS-1$
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.internal.tests;
+
+import junit.framework.TestCase;
+
+import com.naef.jnlua.DefaultJavaReflector;
+import com.naef.jnlua.JavaReflector;
+import com.naef.jnlua.LuaState;
+
+/**
+ * Checks that Java members invoked through generated accessors behave as when invoked by reflection.
+ */
+public class GeneratedAccessorTest extends TestCase {
+
+	/**
+	 * Members of all kinds of parameter and return types.
+	 */
+	public static class Target {
+		private static int failures;
+
+		private int count;
+
+		public Target() {
+		}
+
+		public Target(int count) {
+			this.count = count;
+		}
+
+		public static int add(int a, int b) {
+			return a + b;
+		}
+
+		public static long multiply(long a, double b) {
+			return (long) (a * b);
+		}
+
+		public static float half(float value) {
+			return value / 2;
+		}
+
+		public static boolean negate(boolean value) {
+			return !value;
+		}
+
+		public static String describe(Object value) {
+			return String.valueOf(value);
+		}
+
+		public static void fail() {
+			failures++;
+			throw new IllegalAccessError("failure"); //$NON-NLS-1$
+		}
+
+		public static String overloaded(int value) {
+			return "int"; //$NON-NLS-1$
+		}
+
+		public static String overloaded(String value) {
+			return "string"; //$NON-NLS-1$
+		}
+
+		public String join(String text, short times, char separator) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < times; i++) {
+				if (i > 0)
+					sb.append(separator);
+				sb.append(text);
+			}
+			return sb.toString();
+		}
+
+		public void increment(byte by) {
+			count += by;
+		}
+
+		public int getCount() {
+			return count;
+		}
+	}
+
+	private LuaState state;
+
+	@Override
+	protected void setUp() throws Exception {
+		state = new LuaState();
+		state.openLib(LuaState.Library.BASE);
+		state.pop(1);
+		state.pushJavaObject(Target.class);
+		state.setGlobal("Target"); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		state.close();
+	}
+
+	/**
+	 * @return first result of given Lua code, run with given Java reflector
+	 */
+	private Object run(JavaReflector reflector, String code) {
+		state.setJavaReflector(reflector);
+		state.load(code, "test"); //$NON-NLS-1$
+		state.call(0, 1);
+		Object result = state.toJavaObject(-1, Object.class);
+		state.pop(1);
+		return result;
+	}
+
+	private void assertSameResult(Object expected, String code) {
+		assertEquals(expected, run(DefaultJavaReflector.getInstance(), code));
+		assertEquals(expected, run(DefaultJavaReflector.getGeneratingInstance(), code));
+	}
+
+	public void testStaticMethods() {
+		assertSameResult(Double.valueOf(5), "return Target:add(2, 3)"); //$NON-NLS-1$
+		assertSameResult(Double.valueOf(7), "return Target:multiply(2, 3.5)"); //$NON-NLS-1$
+		assertSameResult(Double.valueOf(1.5), "return Target:half(3)"); //$NON-NLS-1$
+		assertSameResult(Boolean.FALSE, "return Target:negate(true)"); //$NON-NLS-1$
+		assertSameResult("lua", "return Target:describe('lua')"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testInstanceMethods() {
+		assertSameResult("ab-ab-ab", "return Target:new():join('ab', 3, 45)"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSameResult(Double.valueOf(7), "local t = Target:new(4) t:increment(3) return t:getCount()"); //$NON-NLS-1$
+	}
+
+	public void testOverloadedMethods() {
+		assertSameResult("int", "return Target:overloaded(1)"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSameResult("string", "return Target:overloaded('1')"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testRepeatedCalls() {
+		assertSameResult(Double.valueOf(1000), "local s = 0 for i = 1, 1000 do s = Target:add(s, 1) end return s"); //$NON-NLS-1$
+	}
+
+	public void testErrors() {
+		for (JavaReflector reflector : new JavaReflector[] { DefaultJavaReflector.getInstance(), DefaultJavaReflector.getGeneratingInstance() }) {
+			assertEquals(Boolean.FALSE, run(reflector, "return pcall(function() return Target:add(1) end)")); //$NON-NLS-1$
+			assertEquals(Boolean.FALSE, run(reflector, "return pcall(function() return Target.getCount(Target) end)")); //$NON-NLS-1$
+		}
+	}
+
+	public void testNilBoolean() {
+		String code = "return select(2, pcall(function() return Target:negate(nil) end))"; //$NON-NLS-1$
+		Object reflected = run(DefaultJavaReflector.getInstance(), code);
+		assertTrue("Nil should be rejected as a boolean argument", String.valueOf(reflected).contains("boolean expected, got nil")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("Generated accessors should raise the error of reflection", reflected, run(DefaultJavaReflector.getGeneratingInstance(), code)); //$NON-NLS-1$
+	}
+
+	public void testErrorOfTarget() {
+		Target.failures = 0;
+		assertEquals(Boolean.FALSE, run(DefaultJavaReflector.getGeneratingInstance(), "return pcall(function() Target:fail() end)")); //$NON-NLS-1$
+		assertEquals("Invocable should run once, even when it throws a linkage error", 1, Target.failures); //$NON-NLS-1$
+	}
+}
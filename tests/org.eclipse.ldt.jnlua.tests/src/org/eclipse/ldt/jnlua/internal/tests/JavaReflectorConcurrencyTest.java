@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.jnlua.internal.tests;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Checks that Java members are dispatched correctly when Lua states of several threads call them at the same time, sharing the Java reflector
+ * caches.
+ */
+public class JavaReflectorConcurrencyTest extends TestCase {
+
+	private static final int THREAD_COUNT = 4;
+
+	private static final int CALL_COUNT = 20000;
+
+	/** Calls an overloaded method, dispatched on argument types, and a method of an instance */
+	private static final String CODE = "local n = ... local s, b = 0, StringBuilder:new() " //$NON-NLS-1$
+			+ "for i = 1, n do s = s + Integer:signum(i) + Integer:valueOf(i) - i b:setLength(0) end return s"; //$NON-NLS-1$
+
+	/**
+	 * Calls Java methods from Lua in its own Lua state.
+	 */
+	public static class Calls implements Callable<Integer> {
+		private final int count;
+
+		/**
+		 * @param count
+		 *            number of iterations, of 3 Java calls each
+		 */
+		public Calls(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public Integer call() throws Exception {
+			LuaState state = new LuaState();
+			try {
+				state.pushJavaObject(Integer.class);
+				state.setGlobal("Integer"); //$NON-NLS-1$
+				state.pushJavaObject(StringBuilder.class);
+				state.setGlobal("StringBuilder"); //$NON-NLS-1$
+				state.load(CODE, "calls"); //$NON-NLS-1$
+				state.pushInteger(count);
+				state.call(1, 1);
+				return Integer.valueOf(state.toInteger(-1));
+			} finally {
+				state.close();
+			}
+		}
+	}
+
+	public void testConcurrentCalls() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		try {
+			Future<?>[] futures = new Future<?>[THREAD_COUNT];
+			for (int i = 0; i < THREAD_COUNT; i++)
+				futures[i] = executor.submit(new Calls(CALL_COUNT));
+			for (Future<?> future : futures)
+				assertEquals(Integer.valueOf(CALL_COUNT), future.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
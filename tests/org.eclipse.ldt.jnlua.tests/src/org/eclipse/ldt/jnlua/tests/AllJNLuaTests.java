@@ -10,13 +10,19 @@
  *******************************************************************************/
 package org.eclipse.ldt.jnlua.tests;
 
+import org.eclipse.ldt.jnlua.internal.tests.BulkTableConversionTest;
+import org.eclipse.ldt.jnlua.internal.tests.ByteBufferTransferTest;
 import org.eclipse.ldt.jnlua.internal.tests.ConcurrencyTest;
+import org.eclipse.ldt.jnlua.internal.tests.ConfinedModeTest;
+import org.eclipse.ldt.jnlua.internal.tests.GeneratedAccessorTest;
+import org.eclipse.ldt.jnlua.internal.tests.JavaReflectorConcurrencyTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ ConcurrencyTest.class })
+@SuiteClasses({ BulkTableConversionTest.class, ByteBufferTransferTest.class, ConcurrencyTest.class, ConfinedModeTest.class, GeneratedAccessorTest.class,
+		JavaReflectorConcurrencyTest.class })
 public class AllJNLuaTests {
 
 }
@@ -11,6 +11,7 @@
 package org.eclipse.ldt.metalua.tests;
 
 import org.eclipse.ldt.metalua.tests.internal.cases.TestMetalua;
+import org.eclipse.ldt.metalua.tests.internal.cases.TestMetaluaBytecode;
 import org.eclipse.ldt.metalua.tests.internal.cases.TestMetaluaStateFactory;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -18,7 +19,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 // CHECKSTYLE:OFF
 @RunWith(Suite.class)
-@SuiteClasses({ TestMetalua.class, TestMetaluaStateFactory.class })
+@SuiteClasses({ TestMetalua.class, TestMetaluaBytecode.class, TestMetaluaStateFactory.class })
 public class AllMetaluaTests {
 	public static final String PLUGIN_ID = "org.eclipse.ldt.metalua.tests"; //$NON-NLS-1$
 }
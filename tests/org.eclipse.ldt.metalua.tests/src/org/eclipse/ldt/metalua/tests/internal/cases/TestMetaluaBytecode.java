@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ldt.metalua.tests.internal.cases;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ldt.metalua.internal.MetaluaBytecode;
+import org.eclipse.ldt.metalua.internal.MetaluaStateFactory;
+
+/**
+ * Checks that bytecode compiled at build time is up to date for the runtime, until its Metalua file changes.
+ */
+public class TestMetaluaBytecode extends TestCase {
+
+	private static final String FILE_NAME = "module.mlua"; //$NON-NLS-1$
+
+	private File folder;
+
+	@Override
+	protected void setUp() throws Exception {
+		folder = File.createTempFile("metaluabytecode", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(folder.delete());
+		assertTrue(folder.mkdir());
+		write("local x = 1\nreturn x\n"); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (final File file : folder.listFiles())
+			assertTrue(file.delete());
+		assertTrue(folder.delete());
+	}
+
+	private void write(final String content) throws IOException {
+		final OutputStream output = new FileOutputStream(new File(folder, FILE_NAME));
+		try {
+			output.write(content.getBytes("UTF-8")); //$NON-NLS-1$
+		} finally {
+			output.close();
+		}
+	}
+
+	private boolean isUpToDate() throws IOException {
+		final File metaluaFolder = new File(MetaluaStateFactory.sourcesPath());
+		final String checksum = MetaluaBytecode.computeChecksum(new File(folder, FILE_NAME), metaluaFolder);
+		return MetaluaBytecode.isUpToDate(folder, FILE_NAME, checksum);
+	}
+
+	public void testBuildTimeBytecode() throws Exception {
+		assertFalse("Bytecode should be missing", isUpToDate()); //$NON-NLS-1$
+		MetaluaBytecode.main(new String[] { MetaluaStateFactory.sourcesPath(), folder.getPath(), FILE_NAME });
+		assertTrue("Bytecode should be compiled", MetaluaBytecode.getBytecodeFile(folder, FILE_NAME).isFile()); //$NON-NLS-1$
+		assertTrue("Bytecode compiled at build time should be up to date", isUpToDate()); //$NON-NLS-1$
+
+		write("local x = 2\nreturn x\n"); //$NON-NLS-1$
+		assertFalse("Bytecode of a modified file should be stale", isUpToDate()); //$NON-NLS-1$
+	}
+}
@@ -17,6 +17,7 @@ import junit.framework.TestSuite;
 
 import org.eclipse.ldt.ui.tests.internal.LuaWordFinderTest;
 import org.eclipse.ldt.ui.tests.internal.autoedit.LuaDocumentorCommentAutoEditStrategyTest;
+import org.eclipse.ldt.ui.tests.internal.completion.LuaCompletionEngineTest;
 import org.eclipse.ldt.ui.tests.internal.rules.LuaDocMultLineCommentTest;
 import org.eclipse.ldt.ui.tests.internal.rules.LuaDocSingleCommentSeriesRuleTest;
 import org.eclipse.ldt.ui.tests.internal.rules.LuaMultLineCommentRuleTest;
@@ -44,6 +45,7 @@ public class AllUIIntegrationTests extends TestCase {
 
 		suite.addTest(new JUnit4TestAdapter(LuaDocumentorCommentAutoEditStrategyTest.class));
 		suite.addTest(new JUnit4TestAdapter(LuaWordFinderTest.class));
+		suite.addTest(new JUnit4TestAdapter(LuaCompletionEngineTest.class));
 		return suite;
 	}
 }
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Sierra Wireless and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ldt.ui.tests.internal.completion;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.dltk.core.CompletionProposal;
+import org.eclipse.dltk.core.CompletionRequestor;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IBuildpathEntry;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.ldt.core.LuaNature;
+import org.eclipse.ldt.ui.internal.Activator;
+import org.eclipse.ldt.ui.internal.editor.completion.LuaCompletionEngine;
+
+/**
+ * Checks the two phases of completion without an editor: fields of types of current module are proposed at once, and proposals from other modules
+ * found after the request is answered are reported when it is triggered again. Jobs are suspended to make the cross module phase late.
+ */
+public class LuaCompletionEngineTest extends TestCase {
+
+	private static final String PROJECT = "completion"; //$NON-NLS-1$
+	private static final String OTHER_MODULE = "local M = {}\nfunction M.remote(x)\n  return x\nend\nreturn M\n"; //$NON-NLS-1$
+
+	/** Time to wait for the cross module job, in seconds */
+	private static final long JOB_TIMEOUT = 30;
+
+	private IProject project;
+	private IFolder src;
+
+	@Override
+	protected void setUp() throws Exception {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		project = workspace.getRoot().getProject(PROJECT);
+		final IProjectDescription description = workspace.newProjectDescription(PROJECT);
+		description.setNatureIds(new String[] { LuaNature.ID });
+		project.create(description, null);
+		project.open(null);
+
+		src = project.getFolder("src"); //$NON-NLS-1$
+		src.create(true, true, null);
+		createFile("other.lua", OTHER_MODULE); //$NON-NLS-1$
+		DLTKCore.create(project).setRawBuildpath(new IBuildpathEntry[] { DLTKCore.newSourceEntry(src.getFullPath()) }, null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Job.getJobManager().resume();
+		project.delete(true, null);
+	}
+
+	private IFile createFile(final String name, final String code) throws Exception {
+		final IFile file = src.getFile(name);
+		file.create(new ByteArrayInputStream(code.getBytes("UTF-8")), true, null); //$NON-NLS-1$
+		return file;
+	}
+
+	/**
+	 * @return names of proposals at the end of given code
+	 */
+	private static List<String> complete(final ISourceModule module, final IProgressMonitor monitor, final Runnable retrigger) throws Exception {
+		final List<String> names = new ArrayList<String>();
+		final LuaCompletionEngine engine = new LuaCompletionEngine();
+		engine.setRequestor(new CompletionRequestor() {
+			@Override
+			public void accept(final CompletionProposal proposal) {
+				names.add(proposal.getName());
+			}
+		});
+
+		final String source = module.getSource();
+		final IDocument document = new Document(source);
+		Activator.getDefault().getTextTools().setupDocumentPartitioner(document);
+		LuaCompletionEngine.setInvocationContext(document, monitor, retrigger);
+		try {
+			engine.complete(module, source.length(), 0);
+		} finally {
+			LuaCompletionEngine.setInvocationContext(null, null, null);
+		}
+		return names;
+	}
+
+	public void testCurrentModuleFields() throws Exception {
+		final ISourceModule module = DLTKCore.createSourceModuleFrom(createFile("main.lua", "local t = { alpha = 1 }\nlocal x = t.al")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// Cross module phase can not run, and is cancelled at once
+		Job.getJobManager().suspend();
+		final IProgressMonitor cancelled = new NullProgressMonitor();
+		cancelled.setCanceled(true);
+		assertTrue("Fields of current module should be proposed at once", complete(module, cancelled, null).contains("alpha")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testLateProposals() throws Exception {
+		final ISourceModule module = DLTKCore.createSourceModuleFrom(createFile("main.lua", //$NON-NLS-1$
+				"local other = require 'other'\nlocal y = other.re")); //$NON-NLS-1$
+		final CountDownLatch retriggered = new CountDownLatch(1);
+		final Runnable retrigger = new Runnable() {
+			@Override
+			public void run() {
+				retriggered.countDown();
+			}
+		};
+
+		// Cross module phase is late
+		Job.getJobManager().suspend();
+		assertFalse(complete(module, new NullProgressMonitor(), retrigger).contains("remote")); //$NON-NLS-1$
+		Job.getJobManager().resume();
+
+		assertTrue("Content assist should be triggered again", retriggered.await(JOB_TIMEOUT, TimeUnit.SECONDS)); //$NON-NLS-1$
+		assertTrue("Late proposals should be reported", complete(module, new NullProgressMonitor(), null).contains("remote")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}